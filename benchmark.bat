@@ -0,0 +1,7 @@
+REM Usage:   benchmark.bat [benchmark regex]
+REM Example: benchmark.bat MsPacManBenchmark
+REM Runs the JMH benchmarks and keeps the JSON results in benchmarks/<commit>.json for comparison across commits
+IF "%1"=="" (SET INCLUDE=edu.southwestern.benchmarks) ELSE (SET INCLUDE=%1)
+FOR /F %%C IN ('git rev-parse --short HEAD') DO SET COMMIT=%%C
+IF NOT EXIST benchmarks MKDIR benchmarks
+mvn -P jmh test-compile exec:exec -Djmh.include=%INCLUDE% -Djmh.results=benchmarks/%COMMIT%.json
@@ -0,0 +1,56 @@
+package edu.southwestern.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import edu.southwestern.MMNEAT.MMNEAT;
+import edu.southwestern.evolution.EvolutionaryHistory;
+import edu.southwestern.evolution.genotypes.TWEANNGenotype;
+import edu.southwestern.parameters.Parameters;
+import edu.southwestern.util.random.RandomNumbers;
+
+/**
+ * Shared setup for the JMH benchmarks. Every fixture is built from a fixed
+ * seed and fixed parameters, so results are comparable between commits.
+ */
+public class BenchmarkFixtures {
+
+	public static final int SEED = 0;
+
+	// Settings used by every benchmark: no file output of any kind
+	private static final String[] DEFAULT_PARAMETERS = new String[] { "io:false", "netio:false", "watch:false", "parallelEvaluations:false" };
+
+	/**
+	 * Initialize parameters and classes the same way the JUnit tests do,
+	 * and reset all sources of randomness and genotype/innovation numbering.
+	 * @param parameters Additional command line style parameters
+	 */
+	public static void initialize(String... parameters) {
+		ArrayList<String> args = new ArrayList<String>(Arrays.asList(DEFAULT_PARAMETERS));
+		args.addAll(Arrays.asList(parameters));
+		MMNEAT.clearClasses();
+		Parameters.initializeParameterCollections(args.toArray(new String[args.size()]));
+		MMNEAT.loadClasses();
+		RandomNumbers.reset(SEED);
+		EvolutionaryHistory.setInnovation(0);
+		EvolutionaryHistory.setHighestGenotypeId(0);
+	}
+
+	/**
+	 * TWEANN genotype grown by a fixed number of mutations. The archetype is
+	 * initialized from it, as in the TWEANNGenotype tests.
+	 * @param numIn Number of inputs
+	 * @param numOut Number of outputs
+	 * @param mutations Number of times to call mutate. More mutations means a larger genome.
+	 * @return Mutated genotype
+	 */
+	public static TWEANNGenotype evolvedTWEANN(int numIn, int numOut, int mutations) {
+		TWEANNGenotype genotype = new TWEANNGenotype(numIn, numOut, 0);
+		MMNEAT.genotype = genotype.copy();
+		EvolutionaryHistory.initArchetype(0);
+		for (int i = 0; i < mutations; i++) {
+			genotype.mutate();
+		}
+		return genotype;
+	}
+}
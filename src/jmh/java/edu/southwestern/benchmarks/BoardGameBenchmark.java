@@ -0,0 +1,90 @@
+package edu.southwestern.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.southwestern.boardGame.BoardGameState;
+import edu.southwestern.boardGame.checkers.CheckersState;
+import edu.southwestern.boardGame.othello.OthelloState;
+import edu.southwestern.util.random.RandomNumbers;
+
+/**
+ * Move generation for Othello and Checkers, from the starting position and
+ * from a mid-game position reached by a fixed sequence of random moves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardGameBenchmark {
+
+	private static final int MIDGAME_MOVES = 20;
+
+	private OthelloState othelloStart;
+	private OthelloState othelloMid;
+	private CheckersState checkersStart;
+	private CheckersState checkersMid;
+
+	@Setup
+	public void setup() {
+		RandomNumbers.reset(BenchmarkFixtures.SEED);
+		othelloStart = new OthelloState();
+		othelloMid = playRandomly(othelloStart, MIDGAME_MOVES);
+		checkersStart = new CheckersState();
+		checkersMid = playRandomly(checkersStart, MIDGAME_MOVES);
+	}
+
+	/**
+	 * @param start State to play from
+	 * @param moves Maximum number of moves to make
+	 * @return State after random play, stopping early at the end of the game
+	 */
+	private static <T extends BoardGameState> T playRandomly(T start, int moves) {
+		T state = start;
+		for (int i = 0; i < moves && !state.endState(); i++) {
+			Set<T> next = state.possibleBoardGameStates(state);
+			if (next.isEmpty()) break;
+			int choice = RandomNumbers.randomGenerator.nextInt(next.size());
+			for (T candidate : next) {
+				if (choice-- == 0) {
+					state = candidate;
+					break;
+				}
+			}
+		}
+		return state;
+	}
+
+	@Benchmark
+	public Set<OthelloState> othelloStart() {
+		return othelloStart.possibleBoardGameStates(othelloStart);
+	}
+
+	@Benchmark
+	public Set<OthelloState> othelloMidGame() {
+		return othelloMid.possibleBoardGameStates(othelloMid);
+	}
+
+	@Benchmark
+	public Set<CheckersState> checkersStart() {
+		return checkersStart.possibleBoardGameStates(checkersStart);
+	}
+
+	@Benchmark
+	public Set<CheckersState> checkersMidGame() {
+		return checkersMid.possibleBoardGameStates(checkersMid);
+	}
+}
@@ -0,0 +1,66 @@
+package edu.southwestern.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.southwestern.evolution.genotypes.Genotype;
+import edu.southwestern.evolution.genotypes.TWEANNGenotype;
+import edu.southwestern.networks.TWEANN;
+
+/**
+ * Copy, mutation and crossover of TWEANN genotypes. Mutation and crossover
+ * are applied to fresh copies so that the fixture genomes never change.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenotypeBenchmark {
+
+	@Param({ "0", "300" })
+	public int mutations;
+
+	private TWEANNGenotype genotype;
+	private TWEANNGenotype mate;
+
+	@Setup
+	public void setup() {
+		BenchmarkFixtures.initialize("recurrency:false", "mating:true");
+		genotype = BenchmarkFixtures.evolvedTWEANN(NetworkBenchmark.INPUTS, NetworkBenchmark.OUTPUTS, mutations);
+		// Mate shares the archetype, so crossover lines up innovation numbers
+		mate = (TWEANNGenotype) genotype.copy();
+		for (int i = 0; i < mutations / 10; i++) {
+			mate.mutate();
+		}
+	}
+
+	@Benchmark
+	public Genotype<TWEANN> copy() {
+		return genotype.copy();
+	}
+
+	@Benchmark
+	public Genotype<TWEANN> mutate() {
+		Genotype<TWEANN> g = genotype.copy();
+		g.mutate();
+		return g;
+	}
+
+	@Benchmark
+	public Genotype<TWEANN> crossover() {
+		return genotype.copy().crossover(mate.copy());
+	}
+}
@@ -0,0 +1,53 @@
+package edu.southwestern.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.southwestern.MMNEAT.MMNEAT;
+import edu.southwestern.evolution.EvolutionaryHistory;
+import edu.southwestern.evolution.genotypes.HyperNEATCPPNGenotype;
+import edu.southwestern.networks.TWEANN;
+
+/**
+ * Expression of a substrate network from a CPPN, using the large
+ * substrates of HyperNEATSpeedTask.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HyperNEATBenchmark {
+
+	private static final int CPPN_MUTATIONS = 50;
+
+	private HyperNEATCPPNGenotype genotype;
+
+	@Setup
+	public void setup() {
+		BenchmarkFixtures.initialize("hyperNEAT:true", "recurrency:false",
+				"task:edu.southwestern.networks.hyperneat.HyperNEATSpeedTask");
+		genotype = new HyperNEATCPPNGenotype();
+		MMNEAT.genotype = genotype.copy();
+		EvolutionaryHistory.initArchetype(0);
+		for (int i = 0; i < CPPN_MUTATIONS; i++) {
+			genotype.mutate();
+		}
+	}
+
+	@Benchmark
+	public TWEANN expressSubstrates() {
+		return genotype.getPhenotype();
+	}
+}
@@ -0,0 +1,82 @@
+package edu.southwestern.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import micro.ai.abstraction.WorkerRush;
+import micro.ai.abstraction.pathfinding.BFSPathFinding;
+import micro.ai.core.AI;
+import micro.rts.GameState;
+import micro.rts.PhysicalGameState;
+import micro.rts.units.UnitTypeTable;
+
+/**
+ * Game cycles of microRTS with two deterministic WorkerRush scripts, so
+ * that every run sees the same sequence of states. Must be run from the
+ * project root so that maps in data/microRTS/maps can be found.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MicroRTSBenchmark {
+
+	private static final int MAX_CYCLES = 3000;
+
+	@Param({ "8x8/basesWorkers8x8.xml", "16x16/basesWorkers16x16.xml" })
+	public String map;
+
+	private UnitTypeTable utt;
+	private PhysicalGameState initial;
+	private AI ai1;
+	private AI ai2;
+	private GameState gs;
+
+	@Setup
+	public void setup() throws Exception {
+		utt = new UnitTypeTable();
+		initial = PhysicalGameState.load("data/microRTS/maps/" + map, utt);
+		ai1 = new WorkerRush(utt, new BFSPathFinding());
+		ai2 = new WorkerRush(utt, new BFSPathFinding());
+		restart();
+	}
+
+	private void restart() {
+		gs = new GameState(initial.clone(), utt);
+		ai1.reset();
+		ai2.reset();
+	}
+
+	/**
+	 * Both scripts choose actions, then the state advances one cycle
+	 * @return Whether the game ended
+	 * @throws Exception
+	 */
+	@Benchmark
+	public boolean step() throws Exception {
+		if (gs.gameover() || gs.getTime() >= MAX_CYCLES) {
+			restart();
+		}
+		gs.issueSafe(ai1.getAction(0, gs));
+		gs.issueSafe(ai2.getAction(1, gs));
+		return gs.cycle();
+	}
+
+	@Benchmark
+	public GameState cloneState() {
+		return gs.clone();
+	}
+}
@@ -0,0 +1,63 @@
+package edu.southwestern.benchmarks;
+
+import java.util.EnumMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pacman.controllers.Controller;
+import pacman.controllers.examples.Legacy;
+import pacman.controllers.examples.StarterPacMan;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+/**
+ * Ticks of the Ms. Pac-Man engine with the StarterPacMan controller
+ * against the Legacy ghosts. Controllers are called on the game directly
+ * rather than on copies, and a new game with the same seed starts whenever
+ * the current one ends. Must be run from the project root so that the maze
+ * data in data/pacman can be found.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MsPacManBenchmark {
+
+	private Controller<MOVE> pacman;
+	private Controller<EnumMap<GHOST, MOVE>> ghosts;
+	private Game game;
+
+	@Setup
+	public void setup() {
+		pacman = new StarterPacMan();
+		ghosts = new Legacy();
+		game = new Game(BenchmarkFixtures.SEED);
+	}
+
+	@Benchmark
+	public int tick() {
+		if (game.gameOver()) {
+			game = new Game(BenchmarkFixtures.SEED);
+		}
+		game.advanceGame(pacman.getMove(game, -1), ghosts.getMove(game, -1));
+		return game.getTotalTime();
+	}
+
+	@Benchmark
+	public Game copy() {
+		return game.copy();
+	}
+}
@@ -0,0 +1,63 @@
+package edu.southwestern.benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.southwestern.evolution.genotypes.BoundedIntegerValuedGenotype;
+import edu.southwestern.evolution.genotypes.Genotype;
+import edu.southwestern.evolution.nsga2.NSGA2;
+import edu.southwestern.evolution.nsga2.NSGA2Score;
+import edu.southwestern.scores.Score;
+import edu.southwestern.util.random.RandomNumbers;
+
+/**
+ * Non-dominated sorting and selection of NSGA2 at several population sizes.
+ * Scores are random, but drawn from the fixed benchmark seed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NSGA2Benchmark {
+
+	private static final int OBJECTIVES = 3;
+
+	@Param({ "50", "200", "1000" })
+	public int populationSize;
+
+	private ArrayList<Score<ArrayList<Integer>>> scores;
+
+	@Setup
+	public void setup() {
+		BenchmarkFixtures.initialize("ea:edu.southwestern.evolution.nsga2.NSGA2", "mating:true");
+		scores = new ArrayList<Score<ArrayList<Integer>>>(populationSize);
+		for (int i = 0; i < populationSize; i++) {
+			scores.add(new Score<ArrayList<Integer>>(new BoundedIntegerValuedGenotype(new ArrayList<Integer>()),
+					RandomNumbers.randomArray(OBJECTIVES), null));
+		}
+	}
+
+	@Benchmark
+	public ArrayList<ArrayList<NSGA2Score<ArrayList<Integer>>>> paretoLayers() {
+		return NSGA2.getParetoLayers(NSGA2.staticNSGA2Scores(scores));
+	}
+
+	@Benchmark
+	public ArrayList<Genotype<ArrayList<Integer>>> selection() {
+		return NSGA2.staticSelection(populationSize / 2, NSGA2.staticNSGA2Scores(scores));
+	}
+}
@@ -0,0 +1,54 @@
+package edu.southwestern.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.southwestern.evolution.genotypes.TWEANNGenotype;
+import edu.southwestern.networks.TWEANN;
+import edu.southwestern.util.random.RandomNumbers;
+
+/**
+ * Forward pass of TWEANN phenotypes on a small and a large genome.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NetworkBenchmark {
+
+	public static final int INPUTS = 30;
+	public static final int OUTPUTS = 5;
+
+	// Mutations applied to the starting genotype: controls genome size
+	@Param({ "0", "300" })
+	public int mutations;
+
+	private TWEANN network;
+	private double[] inputs;
+
+	@Setup
+	public void setup() {
+		BenchmarkFixtures.initialize("recurrency:false");
+		TWEANNGenotype genotype = BenchmarkFixtures.evolvedTWEANN(INPUTS, OUTPUTS, mutations);
+		network = genotype.getPhenotype();
+		inputs = RandomNumbers.randomArray(INPUTS);
+	}
+
+	@Benchmark
+	public double[] process() {
+		return network.process(inputs);
+	}
+}
@@ -99,6 +99,7 @@ import edu.southwestern.tasks.vizdoom.VizDoomTask;
 import edu.southwestern.util.ClassCreation;
 import edu.southwestern.util.file.FileUtilities;
 import edu.southwestern.util.graphics.DrawingPanel;
+import edu.southwestern.util.profiling.Profiler;
 import edu.southwestern.util.random.RandomGenerator;
 import edu.southwestern.util.random.RandomNumbers;
 import edu.southwestern.util.stats.Statistic;
@@ -739,6 +740,8 @@ public class MMNEAT {
 				seedExample = true;
 			}
 			setupTWEANNGenotypeDataTracking(multiPopulationCoevolution);
+			// Profiling must be ready before the experiment, which may begin evaluating
+			Profiler.setup();
 			// An Experiment is always needed
 			System.out.println("Create Experiment");
 			experiment = (Experiment) ClassCreation.createObject("experiment");
@@ -816,6 +819,7 @@ public class MMNEAT {
 		genotype = null;
 		experiment = null;
 		performanceLog = null;
+		Profiler.close();
 		EvolutionaryHistory.archetypes = null;
 		Executor.close();
 	}
@@ -1012,6 +1016,7 @@ public class MMNEAT {
 		if (performanceLog != null) {
 			performanceLog.close();
 		}
+		Profiler.close();
 		if (EvolutionaryHistory.tweannLog != null) {
 			EvolutionaryHistory.tweannLog.close();
 			EvolutionaryHistory.tweannLog = null;
@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import edu.southwestern.boardGame.BoardGame;
 import edu.southwestern.boardGame.BoardGameState;
 import edu.southwestern.boardGame.agents.BoardGamePlayer;
 import edu.southwestern.boardGame.agents.HeuristicBoardGamePlayer;
@@ -20,6 +21,7 @@ import edu.southwestern.util.datastructures.Pair;
 
 public class StaticOtherOpponentFitness<T extends BoardGameState> implements BoardGameFitnessFunction<T> {
 	
+	BoardGame<T> boardGame = null; // MMNEAT.boardGame if null
 	BoardGamePlayer<T> opponent;
 	int currentGen = -1;
 	int matches;
@@ -27,8 +29,17 @@ public class StaticOtherOpponentFitness<T extends BoardGameState> implements Boa
 	
 	Map<Long, Double> evaluated = new HashMap<Long, Double>();
 
-	@SuppressWarnings("unchecked")
 	public StaticOtherOpponentFitness(){
+		this(null);
+	}
+	
+	/**
+	 * @param boardGame Game to play against the opponent, so that tasks evaluating
+	 *        in parallel do not share MMNEAT.boardGame. MMNEAT.boardGame is used if null.
+	 */
+	@SuppressWarnings("unchecked")
+	public StaticOtherOpponentFitness(BoardGame<T> boardGame){
+		this.boardGame = boardGame;
 		try {
 			opponent = (BoardGamePlayer<T>) ClassCreation.createObject("boardGameOpponent");
 		} catch (NoSuchMethodException e) {
@@ -67,7 +78,7 @@ public class StaticOtherOpponentFitness<T extends BoardGameState> implements Boa
 			double[][] other = new double[matches][];
 			
 			for(int i = 0; i < matches; i++){
-				ArrayList<Pair<double[], double[]>> game = BoardGameUtil.playGame(MMNEAT.boardGame, players, fitFunctions, new ArrayList<BoardGameFitnessFunction<T>>()); // No Other Scores
+				ArrayList<Pair<double[], double[]>> game = BoardGameUtil.playGame(boardGame == null ? MMNEAT.boardGame : boardGame, players, fitFunctions, new ArrayList<BoardGameFitnessFunction<T>>()); // No Other Scores
 				fitness[i] = game.get(0).t1;
 				other[i] = game.get(0).t2;
 			}
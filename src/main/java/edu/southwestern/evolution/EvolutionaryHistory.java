@@ -17,6 +17,10 @@ import edu.southwestern.parameters.Parameters;
 import edu.southwestern.util.file.FileUtilities;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -282,7 +286,16 @@ public class EvolutionaryHistory {
 			String file = FileUtilities.getSaveDirectory() + "/" + "archetype";
 			Parameters.parameters.setString("archetype", file);
 			file += populationIndex + ".xml";
-			Easy.save(archetypes[populationIndex], file);
+			// Write elsewhere first so that a crash never leaves a partial archetype
+			File temp = new File(file + ".tmp");
+			Easy.save(archetypes[populationIndex], temp.getPath());
+			try {
+				Files.move(temp.toPath(), Paths.get(file), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				System.out.println("Could not save archetype to " + file);
+				e.printStackTrace();
+				System.exit(1);
+			}
 			System.out.println("Done saving " + file);
 			// Could make more explicit using
 			// CommonConstants.trackCombiningCrossover
@@ -2,194 +2,505 @@ package edu.southwestern.evolution;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Scanner;
 
 import edu.southwestern.parameters.CommonConstants;
 import edu.southwestern.parameters.Parameters;
+import edu.southwestern.util.datastructures.LongIntHashMap;
+import edu.southwestern.util.stats.MomentStatistic;
 import edu.southwestern.util.stats.Statistic;
 
 /**
  * Tracks scores of all individuals still in population.
  * Used in different ways depending on certain settings.
- * 
+ *
+ * Rather than storing every score ever received, only running statistics
+ * are kept for each genotype: number of scores, and the mean, M2 (sum of
+ * squared deviations), min, max and most recent score in each objective.
+ * Memory is therefore proportional to the number of living genotypes rather
+ * than the total number of evaluations. Statistics are stored in primitive
+ * arrays indexed by a row number, and genotype IDs are mapped to rows by a
+ * primitive hash map. Rows of evicted genotypes are recycled.
+ *
+ * Statistics that cannot be computed from running values (such as Median)
+ * still need every score. If retainAllScores is enabled, the individual
+ * scores of each living genotype are kept alongside the running statistics.
+ *
+ * Persistence is incremental: each save appends only the rows that changed
+ * or were evicted since the previous save to a log file, which is compacted
+ * into a fresh snapshot once it grows much larger than the live data.
+ *
  * @author Jacob Schrum
  */
 public class ScoreHistory {
 
-	// For tracking past history of scores for a given genotype ID
-	private static HashMap<Long, ArrayList<double[]>> allScores = new HashMap<Long, ArrayList<double[]>>();
-	// Track access to entries in allScores
-	private static HashMap<Long, Boolean> accessed = new HashMap<Long, Boolean>();
-
-	public static void save() {
-		if(!allScores.isEmpty()) {
-			String base = Parameters.parameters.stringParameter("base");
-			int runNumber = Parameters.parameters.integerParameter("runNumber");
-			String saveTo = Parameters.parameters.stringParameter("saveTo");
-			String historyFile = base + "/" + saveTo + runNumber + "/scoreHistory.txt";
+	// Blocks of statistics stored for each objective in a row
+	private static final int MEAN = 0;
+	private static final int M2 = 1;
+	private static final int MIN = 2;
+	private static final int MAX = 3;
+	private static final int LAST = 4;
+	private static final int NUM_BLOCKS = 5;
+
+	// Log is rewritten as a snapshot when it holds this many times more records than live rows
+	private static final int COMPACTION_RATIO = 4;
+	// Log record markers
+	private static final String STATS_RECORD = "S";
+	private static final String EVICT_RECORD = "E";
+	private static final String SCORE_RECORD = "P";
+
+	private static final String LOG_FILE = "scoreHistory.log";
+	// Old format that listed every score of every genotype
+	private static final String LEGACY_FILE = "scoreHistory.txt";
+
+	// Maps genotype ID to row in the arrays below
+	private static LongIntHashMap rowOf = new LongIntHashMap();
+	// Genotype ID stored in each row
+	private static long[] ids = new long[0];
+	// Number of scores recorded in each row
+	private static long[] counts = new long[0];
+	// Statistics for each row, laid out as [mean | m2 | min | max | last], one entry per objective in each block
+	private static double[][] stats = new double[0][];
+	// Whether the row was accessed in the current cycle of access
+	private static boolean[] accessed = new boolean[0];
+	// Whether the row changed since the last save
+	private static boolean[] dirty = new boolean[0];
+	// Rows freed by eviction that can be reused
+	private static int[] freeRows = new int[0];
+	private static int numFree = 0;
+	// Total rows ever allocated (live plus free)
+	private static int numRows = 0;
+
+	// Whether individual scores are kept in addition to running statistics
+	private static boolean retainScores = false;
+	// Individual scores of each row, only used if retainScores is set
+	private static ArrayList<ArrayList<double[]>> samples = new ArrayList<ArrayList<double[]>>();
+	// Number of scores in each row that are already in the log
+	private static int[] savedSamples = new int[0];
+	// Total individual scores retained across all live rows
+	private static long numSamples = 0;
+
+	// IDs evicted since the last save
+	private static ArrayList<Long> evictedSinceSave = new ArrayList<Long>();
+	// Records in the log file on disk
+	private static long recordsInLog = 0;
+	// Set when evictions were discarded without being logged, so only a full snapshot is accurate
+	private static boolean needsCompaction = false;
+
+	/**
+	 * Append changes since the last save to the score history log.
+	 * Rewrites the log as a compact snapshot if it has grown too large.
+	 */
+	public static synchronized void save() {
+		if(rowOf.isEmpty() && evictedSinceSave.isEmpty()) return;
+		String historyFile = runDirectory() + LOG_FILE;
+		if(needsCompaction || recordsInLog > COMPACTION_RATIO * Math.max(rowOf.size() + numSamples, 1)) {
+			compact(historyFile);
+			return;
+		}
+		try {
+			PrintStream ps = new PrintStream(new FileOutputStream(historyFile, true));
+			for(Long id : evictedSinceSave) {
+				ps.println(EVICT_RECORD + " " + id);
+				recordsInLog++;
+			}
+			for(int row = 0; row < numRows; row++) {
+				if(dirty[row] && stats[row] != null) {
+					recordsInLog += printRow(ps, row, savedSamples[row]);
+					dirty[row] = false;
+				}
+			}
+			ps.close();
+			evictedSinceSave.clear();
+		} catch (FileNotFoundException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Write a snapshot containing only live rows to a temporary file,
+	 * then replace the log with it.
+	 * @param historyFile Path of log file
+	 */
+	private static void compact(String historyFile) {
+		File temp = new File(historyFile + ".tmp");
+		try {
+			PrintStream ps = new PrintStream(temp);
+			recordsInLog = 0;
+			for(int row = 0; row < numRows; row++) {
+				if(stats[row] != null) {
+					recordsInLog += printRow(ps, row, 0);
+					dirty[row] = false;
+				}
+			}
+			ps.close();
+		} catch (FileNotFoundException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+		needsCompaction = false;
+		File log = new File(historyFile);
+		if(log.exists() && !log.delete() || !temp.renameTo(log)) {
+			System.out.println("Could not replace " + historyFile + " with compacted score history");
+			System.exit(1);
+		}
+		evictedSinceSave.clear();
+	}
+
+	/**
+	 * Print one statistics record: id, count, number of objectives, then all stat blocks.
+	 * If individual scores are retained, each score not yet logged gets its own record
+	 * after the statistics.
+	 * @param ps Stream to print to
+	 * @param row Row to print
+	 * @param fromSample Index of first retained score to print
+	 * @return Number of records printed
+	 */
+	private static int printRow(PrintStream ps, int row, int fromSample) {
+		ps.print(STATS_RECORD + " " + ids[row] + " " + counts[row] + " " + numObjectives(row));
+		for(double x : stats[row]) {
+			ps.print(" " + x);
+		}
+		ps.println();
+		int records = 1;
+		ArrayList<double[]> rowSamples = samples.get(row);
+		if(rowSamples != null) {
+			for(int i = fromSample; i < rowSamples.size(); i++) {
+				ps.print(SCORE_RECORD + " " + ids[row]);
+				for(double x : rowSamples.get(i)) {
+					ps.print(" " + x);
+				}
+				ps.println();
+				records++;
+			}
+			savedSamples[row] = rowSamples.size();
+		}
+		return records;
+	}
+
+	/**
+	 * Load score history from the log, or from the older full history
+	 * format if no log exists yet.
+	 */
+	public static synchronized void load() {
+		if(CommonConstants.inheritFitness || CommonConstants.averageScoreHistory) {
+			reset();
+			File log = new File(runDirectory() + LOG_FILE);
+			File legacy = new File(runDirectory() + LEGACY_FILE);
 			try {
-				PrintStream ps = new PrintStream(new File(historyFile));
-				for(Long key: allScores.keySet()){
-					ps.println(key);
-					for(double[] scores: allScores.get(key)) {
-						ps.print("\t");
-						for(double score: scores) {
-							ps.print(score + " ");
-						}
-						ps.println();
-					}
+				if(log.exists()) {
+					loadLog(log);
+				} else if(legacy.exists()) { // Will not exist in first generation
+					loadLegacy(legacy);
 				}
-				ps.close();
 			} catch (FileNotFoundException e) {
 				e.printStackTrace();
 				System.exit(1);
 			}
 		}
 	}
-	
-	public static void load() {
-		if(CommonConstants.inheritFitness || CommonConstants.averageScoreHistory) {
-			String base = Parameters.parameters.stringParameter("base");
-			int runNumber = Parameters.parameters.integerParameter("runNumber");
-			String saveTo = Parameters.parameters.stringParameter("saveTo");
-			String historyFile = base + "/" + saveTo + runNumber + "/scoreHistory.txt";
-			if(new File(historyFile).exists()) { // Will not exist in first generation
-				allScores = new HashMap<Long, ArrayList<double[]>>();
-
-				try {
-					Scanner scan = new Scanner(new File(historyFile));
-					while(scan.hasNextLine()) {
-						long id = scan.nextLong();
-						scan.nextLine();
-						ArrayList<double[]> scoreHistory = new ArrayList<double[]>();
-						while(scan.hasNextDouble() && ! scan.hasNextLong()) { // doubles that are not longs (decimal point)
-							String line = scan.nextLine();
-							String[] stringScores = line.split(" ");
-							double[] scores = new double[stringScores.length];
-							for(int i = 0; i < scores.length; i++) {
-								scores[i] = Double.parseDouble(stringScores[i]);
-							}
-							scoreHistory.add(scores);
-						}
-						allScores.put(id, scoreHistory);
+
+	/**
+	 * Replay records of the log. Later records for an ID replace earlier ones.
+	 * @param log Log file
+	 * @throws FileNotFoundException
+	 */
+	private static void loadLog(File log) throws FileNotFoundException {
+		Scanner scan = new Scanner(log);
+		while(scan.hasNextLine()) {
+			String line = scan.nextLine().trim();
+			if(line.isEmpty()) continue;
+			String[] parts = line.split(" ");
+			long id = Long.parseLong(parts[1]);
+			recordsInLog++;
+			if(parts[0].equals(EVICT_RECORD)) {
+				evict(id);
+			} else if(parts[0].equals(SCORE_RECORD)) {
+				int row = rowOf.get(id);
+				// Scores are only needed if they are still being retained
+				if(row != -1 && samples.get(row) != null) {
+					double[] scores = new double[parts.length - 2];
+					for(int i = 0; i < scores.length; i++) {
+						scores[i] = Double.parseDouble(parts[2 + i]);
 					}
-					scan.close();
-				} catch (FileNotFoundException e) {
-					e.printStackTrace();
-					System.exit(1);
+					samples.get(row).add(scores);
+					numSamples++;
+				}
+			} else {
+				long count = Long.parseLong(parts[2]);
+				int numObjectives = Integer.parseInt(parts[3]);
+				int row = rowFor(id, numObjectives);
+				counts[row] = count;
+				for(int i = 0; i < stats[row].length; i++) {
+					stats[row][i] = Double.parseDouble(parts[4 + i]);
 				}
 			}
 		}
+		scan.close();
+		// Everything loaded is already on disk
+		Arrays.fill(dirty, false);
+		for(int row = 0; row < numRows; row++) {
+			savedSamples[row] = samples.get(row) == null ? 0 : samples.get(row).size();
+		}
+		evictedSinceSave.clear();
+		needsCompaction = false;
 	}
-	
+
+	/**
+	 * Fold the old format, which listed every score on its own line
+	 * beneath each genotype ID, into running statistics.
+	 * @param legacy Old score history file
+	 * @throws FileNotFoundException
+	 */
+	private static void loadLegacy(File legacy) throws FileNotFoundException {
+		Scanner scan = new Scanner(legacy);
+		while(scan.hasNextLine()) {
+			long id = scan.nextLong();
+			scan.nextLine();
+			while(scan.hasNextDouble() && ! scan.hasNextLong()) { // doubles that are not longs (decimal point)
+				String[] stringScores = scan.nextLine().trim().split(" ");
+				double[] scores = new double[stringScores.length];
+				for(int i = 0; i < scores.length; i++) {
+					scores[i] = Double.parseDouble(stringScores[i]);
+				}
+				add(id, scores);
+			}
+		}
+		scan.close();
+	}
+
+	/**
+	 * @return Directory of current run, ending in a slash
+	 */
+	private static String runDirectory() {
+		String base = Parameters.parameters.stringParameter("base");
+		int runNumber = Parameters.parameters.integerParameter("runNumber");
+		String saveTo = Parameters.parameters.stringParameter("saveTo");
+		return base + "/" + saveTo + runNumber + "/";
+	}
+
+	/**
+	 * Discard all tracked scores
+	 */
+	public static synchronized void reset() {
+		rowOf = new LongIntHashMap();
+		ids = new long[0];
+		counts = new long[0];
+		stats = new double[0][];
+		accessed = new boolean[0];
+		dirty = new boolean[0];
+		freeRows = new int[0];
+		numFree = 0;
+		numRows = 0;
+		samples = new ArrayList<ArrayList<double[]>>();
+		savedSamples = new int[0];
+		numSamples = 0;
+		evictedSinceSave.clear();
+		recordsInLog = 0;
+		needsCompaction = false;
+	}
+
+	/**
+	 * Whether to keep every individual score of each living genotype,
+	 * in addition to the running statistics. Needed to apply statistics
+	 * that are not MomentStatistics. Only affects genotypes that start
+	 * being tracked after the call.
+	 * @param retain Whether to keep individual scores
+	 */
+	public static synchronized void retainAllScores(boolean retain) {
+		retainScores = retain;
+	}
+
 	/**
 	 * Indicate that none of the scores have been accessed
 	 * in the current cycle of access.
 	 */
-	public static void resetAccess() {
-		accessed = new HashMap<Long, Boolean>();
-		for (Long id : allScores.keySet()) {
-			accessed.put(id, Boolean.FALSE);
+	public static synchronized void resetAccess() {
+		Arrays.fill(accessed, false);
+	}
+
+	/**
+	 * Row holding stats of genotype, allocating a new row if it is not tracked yet
+	 * @param id Genotype ID
+	 * @param numObjectives Number of objectives in scores of the genotype
+	 * @return row index
+	 */
+	private static int rowFor(long id, int numObjectives) {
+		int row = rowOf.get(id);
+		if(row != -1) return row;
+		if(numFree > 0) {
+			row = freeRows[--numFree];
+		} else {
+			row = numRows++;
+			if(row == ids.length) grow();
+		}
+		ids[row] = id;
+		counts[row] = 0;
+		stats[row] = new double[NUM_BLOCKS * numObjectives];
+		accessed[row] = false;
+		dirty[row] = true;
+		samples.set(row, retainScores ? new ArrayList<double[]>() : null);
+		savedSamples[row] = 0;
+		rowOf.put(id, row);
+		return row;
+	}
+
+	private static void grow() {
+		int capacity = Math.max(16, ids.length * 2);
+		ids = Arrays.copyOf(ids, capacity);
+		counts = Arrays.copyOf(counts, capacity);
+		stats = Arrays.copyOf(stats, capacity);
+		accessed = Arrays.copyOf(accessed, capacity);
+		dirty = Arrays.copyOf(dirty, capacity);
+		freeRows = Arrays.copyOf(freeRows, capacity);
+		savedSamples = Arrays.copyOf(savedSamples, capacity);
+		while(samples.size() < capacity) {
+			samples.add(null);
 		}
 	}
 
 	/**
-	 * Add scores for a given genotype ID
+	 * Stop tracking a genotype and recycle its row
 	 * @param id Genotype ID
-	 * @param scores Scores of agent
 	 */
-	public static void add(long id, double[] scores) {
-		if (!allScores.containsKey(id)) {
-			allScores.put(id, new ArrayList<double[]>());
+	private static void evict(long id) {
+		int row = rowOf.remove(id);
+		if(row == -1) return;
+		stats[row] = null;
+		if(samples.get(row) != null) {
+			numSamples -= samples.get(row).size();
+			samples.set(row, null);
+		}
+		dirty[row] = false;
+		accessed[row] = false;
+		freeRows[numFree++] = row;
+		if(!needsCompaction) {
+			evictedSinceSave.add(id);
+			// If saves are not happening, do not let pending evictions accumulate without bound
+			if(evictedSinceSave.size() > COMPACTION_RATIO * Math.max(rowOf.size(), 1)) {
+				evictedSinceSave.clear();
+				needsCompaction = true;
+			}
 		}
-		allScores.get(id).add(scores);
-		accessed.put(id, Boolean.TRUE);
+	}
+
+	private static int numObjectives(int row) {
+		return stats[row].length / NUM_BLOCKS;
 	}
 
 	/**
-	 * Retrieve individual genotype's history of scores in a particular objective.
-	 * @param id of genotype
-	 * @param objective Index of objective in score array
-	 * @return array of all scores by genotype in that objective
+	 * Add scores for a given genotype ID.
+	 * Running statistics are updated with Welford's method.
+	 * @param id Genotype ID
+	 * @param scores Scores of agent
 	 */
-	private static double[] scoresInObjective(long id, int objective) {
-		ArrayList<double[]> ss = allScores.get(id);
-		double[] result = new double[ss.size()];
-		for (int i = 0; i < result.length; i++) {
-			result[i] = ss.get(i)[objective];
+	public static synchronized void add(long id, double[] scores) {
+		int row = rowFor(id, scores.length);
+		double[] s = stats[row];
+		int n = scores.length;
+		assert numObjectives(row) == n : "Genotype " + id + " had " + numObjectives(row) + " objectives, not " + n;
+		long count = ++counts[row];
+		for(int i = 0; i < n; i++) {
+			double x = scores[i];
+			double delta = x - s[MEAN * n + i];
+			s[MEAN * n + i] += delta / count;
+			s[M2 * n + i] += delta * (x - s[MEAN * n + i]);
+			s[MIN * n + i] = count == 1 ? x : Math.min(s[MIN * n + i], x);
+			s[MAX * n + i] = count == 1 ? x : Math.max(s[MAX * n + i], x);
+			s[LAST * n + i] = x;
 		}
-		return result;
+		if(samples.get(row) != null) {
+			samples.get(row).add(scores.clone());
+			numSamples++;
+		}
+		accessed[row] = true;
+		dirty[row] = true;
 	}
 
 	/**
-	 * Apply given statistic across history of all scores in a given objective
-	 * 
-	 * @param id of genotype
-	 * @param objective index of objective
-	 * @param s statistic for aggregation
-	 * @return result of applying statistic to all scores in the objective
+	 * Number of scores recorded for a genotype
+	 * @param id Genotype ID
+	 * @return Number of add calls for this genotype since it started being tracked
 	 */
-	private static double applyStat(long id, int objective, Statistic s) {
-		return s.stat(scoresInObjective(id, objective));
+	public static synchronized long count(long id) {
+		int row = rowOf.get(id);
+		return row == -1 ? 0 : counts[row];
 	}
 
 	/**
-	 * Apply statistic to history of agent's scores in all objectives
-	 * 
+	 * Apply statistic to history of agent's scores in all objectives.
+	 * A MomentStatistic is computed from the running statistics. Any other
+	 * statistic needs the individual scores, so retainAllScores must have
+	 * been enabled before the genotype was first added.
+	 *
 	 * @param id of genotype
 	 * @param s statistic for aggregation
 	 * @return array of aggregate stats in each objective
+	 * @throws IllegalArgumentException if no scores were added for the genotype,
+	 *         or the statistic needs individual scores that were not retained
 	 */
-	public static double[] applyStat(long id, Statistic s) {
-		int numObjectives = allScores.get(id).get(0).length;
-		double[] result = new double[numObjectives];
-		for (int i = 0; i < numObjectives; i++) {
-			result[i] = applyStat(id, i, s);
+	public static synchronized double[] applyStat(long id, Statistic s) {
+		int row = rowOf.get(id);
+		if(row == -1) {
+			throw new IllegalArgumentException("No score history for genotype " + id);
+		}
+		int n = numObjectives(row);
+		double[] result = new double[n];
+		if(s instanceof MomentStatistic) {
+			MomentStatistic ms = (MomentStatistic) s;
+			double[] st = stats[row];
+			for (int i = 0; i < n; i++) {
+				result[i] = ms.stat(counts[row], st[MEAN * n + i], st[M2 * n + i], st[MIN * n + i], st[MAX * n + i]);
+			}
+		} else {
+			ArrayList<double[]> rowSamples = samples.get(row);
+			if(rowSamples == null || rowSamples.isEmpty()) {
+				throw new IllegalArgumentException(s.getClass().getName() + " needs individual scores of genotype " + id + ", which were not retained");
+			}
+			double[] column = new double[rowSamples.size()];
+			for (int i = 0; i < n; i++) {
+				for(int j = 0; j < column.length; j++) {
+					column[j] = rowSamples.get(j)[i];
+				}
+				result[i] = s.stat(column);
+			}
 		}
 		return result;
 	}
-	
+
 	/**
 	 * This is the approach used for fitness inheritance as in LEEA.
 	 * Just get the most recent fitness score logged by the parent.
 	 * @param id Genotype ID
 	 * @return Score received by genotype on previous generation
+	 * @throws IllegalArgumentException if no scores were added for the genotype
 	 */
-	public static double[] getLast(long id) {
-		accessed.put(id, Boolean.TRUE);
-		ArrayList<double[]> scores = allScores.get(id);
-		try {
-			return scores.get(scores.size() - 1);
-		} catch(NullPointerException e) {
-			System.out.println("get id: " + id);
-			for(Long key: allScores.keySet()){
-				System.out.println(key);
-				for(double[] scores1: allScores.get(key)) {
-					System.out.println(Arrays.toString(scores1));
-				}
-			}
-			throw e;
+	public static synchronized double[] getLast(long id) {
+		int row = rowOf.get(id);
+		if(row == -1) {
+			throw new IllegalArgumentException("No score history for genotype " + id);
 		}
+		accessed[row] = true;
+		int n = numObjectives(row);
+		return Arrays.copyOfRange(stats[row], LAST * n, (LAST + 1) * n);
 	}
 
 	/**
 	 * Remove score information for ids that were not accessed
-	 * recently. Do not store lots of unnecessary data.
-	 * 
+	 * recently. Individuals that are no longer in the population
+	 * are not accessed, so only the living population is retained.
+	 *
 	 * Also resets access to all remaining scores.
 	 */
-	public static void clean() {
-		Iterator<Long> itr = allScores.keySet().iterator();
-		while (itr.hasNext()) {
-			Long id = itr.next();
-			if (accessed.get(id) == null || !accessed.get(id)) {
-				itr.remove();
-				accessed.remove(id);
+	public static synchronized void clean() {
+		for(int row = 0; row < numRows; row++) {
+			if(stats[row] != null && !accessed[row]) {
+				evict(ids[row]);
 			}
 		}
 		resetAccess();
@@ -39,4 +39,11 @@ public interface SteadyStateEA<T> extends EA {
 	 * @return Whether population just changed
 	 */
 	public boolean populationChanged();
+	/**
+	 * Whether the EA saves everything needed to resume by itself, so that
+	 * the experiment need not save parameters and the archetype after every
+	 * new individual.
+	 * @return Whether checkpoints are handled by the EA
+	 */
+	public boolean managesCheckpoints();
 }
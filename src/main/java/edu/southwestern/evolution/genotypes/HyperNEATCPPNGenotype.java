@@ -16,6 +16,8 @@ import edu.southwestern.util.CartesianGeometricUtilities;
 import edu.southwestern.util.datastructures.ArrayUtil;
 import edu.southwestern.util.datastructures.Pair;
 import edu.southwestern.util.datastructures.Triple;
+import edu.southwestern.util.profiling.Phase;
+import edu.southwestern.util.profiling.Profiler;
 import edu.southwestern.util.util2D.ILocated2D;
 import edu.southwestern.util.util2D.Tuple2D;
 
@@ -113,8 +115,14 @@ public class HyperNEATCPPNGenotype extends TWEANNGenotype {
 	 */
 	@Override
 	public TWEANN getPhenotype() {
-		TWEANNGenotype tg = getSubstrateGenotype((HyperNEATTask) MMNEAT.task) ;
-		return tg.getPhenotype();//return call to substrate genotype
+		// CPPN queries are counted as part of phenotype construction
+		long start = Profiler.start(Phase.PHENOTYPE);
+		try {
+			TWEANNGenotype tg = getSubstrateGenotype((HyperNEATTask) MMNEAT.task) ;
+			return tg.getPhenotype();//return call to substrate genotype
+		} finally {
+			Profiler.stop(Phase.PHENOTYPE, start);
+		}
 	}
 
 	/**
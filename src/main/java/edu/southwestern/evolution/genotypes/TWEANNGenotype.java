@@ -12,6 +12,8 @@ import edu.southwestern.parameters.CommonConstants;
 import edu.southwestern.parameters.Parameters;
 import edu.southwestern.util.CartesianGeometricUtilities;
 import edu.southwestern.util.datastructures.ArrayUtil;
+import edu.southwestern.util.profiling.Phase;
+import edu.southwestern.util.profiling.Profiler;
 import edu.southwestern.util.random.RandomGenerator;
 import edu.southwestern.util.random.RandomNumbers;
 import edu.southwestern.util.stats.StatisticsUtilities;
@@ -1331,10 +1333,15 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
      */
     @Override
     public TWEANN getPhenotype() {
-        TWEANN result = new TWEANN(this);
-        // This is the point where old parent module usage is finally erased
-        this.moduleUsage = result.moduleUsage;
-        return result;
+        long start = Profiler.start(Phase.PHENOTYPE);
+        try {
+            TWEANN result = new TWEANN(this);
+            // This is the point where old parent module usage is finally erased
+            this.moduleUsage = result.moduleUsage;
+            return result;
+        } finally {
+            Profiler.stop(Phase.PHENOTYPE, start);
+        }
     }
 
     /**
@@ -1345,13 +1352,19 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
      */
     @Override
     public Genotype<TWEANN> copy() {
-        int[] temp = moduleUsage;
-        TWEANNGenotype result = new TWEANNGenotype(this.getPhenotype());
-        // Module usage is erased by getPhenotype(), so it is restored here
-        moduleUsage = temp;
-        result.moduleUsage = new int[temp.length];
-        System.arraycopy(this.moduleUsage, 0, result.moduleUsage, 0, moduleUsage.length);
-        return result;
+        // The phenotype built here is not counted as phenotype construction
+        long start = Profiler.start(Phase.COPY);
+        try {
+            int[] temp = moduleUsage;
+            TWEANNGenotype result = new TWEANNGenotype(this.getPhenotype());
+            // Module usage is erased by getPhenotype(), so it is restored here
+            moduleUsage = temp;
+            result.moduleUsage = new int[temp.length];
+            System.arraycopy(this.moduleUsage, 0, result.moduleUsage, 0, moduleUsage.length);
+            return result;
+        } finally {
+            Profiler.stop(Phase.COPY, start);
+        }
     }
 
     /**
@@ -0,0 +1,635 @@
+package edu.southwestern.evolution.lineage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Scanner;
+
+/**
+ * Disk-backed lineage of a whole evolutionary run, indexed by genotype ID.
+ * The in-memory Offspring.lineage list needs one object per genotype ever
+ * created, which does not fit in the heap for long runs. This store keeps
+ * one fixed-size record per genotype in a memory-mapped node file, so any
+ * genotype is found by its ID alone, and keeps variable-length data (scores,
+ * mutations, and per-generation membership lists) in linked chains within an
+ * append-only data file. Mapped pages live outside the Java heap and are
+ * paged in and out by the operating system as needed.
+ *
+ * Each node records both parents and the head of its list of children.
+ * Children are threaded through sibling pointers in the child records
+ * (one per parent), so parent/child adjacency can be followed in both
+ * directions without any in-memory graph. Offspring objects are only
+ * materialized on request, and a bounded number of them are cached.
+ */
+public class LineageStore {
+
+	private static final String NODE_FILE = "nodes.dat";
+	private static final String DATA_FILE = "data.dat";
+	private static final String META_FILE = "meta.txt";
+
+	// Layout of fixed-size node records
+	private static final int FLAGS = 0;
+	private static final int GENERATION = 4;
+	private static final int PARENT1 = 8;
+	private static final int PARENT2 = 16;
+	private static final int FIRST_CHILD = 24;
+	private static final int NEXT_SIBLING1 = 32; // Next child of parent 1
+	private static final int NEXT_SIBLING2 = 40; // Next child of parent 2
+	private static final int SCORES_HEAD = 48;
+	private static final int MUTATIONS_HEAD = 56;
+	private static final int NETWORK_GEN = 64;
+	private static final int WITHIN_GEN = 68;
+	private static final int RECORD_SIZE = 72;
+
+	// Record exists: genotype was referenced as offspring, parent, or score holder
+	private static final int PRESENT = 1;
+	// Record was filled in from an actual lineage entry
+	private static final int LOGGED = 2;
+
+	private static final long NONE = -1;
+	private static final int CACHE_SIZE = 10000;
+	// Node file is mapped in segments of 2^SEGMENT_BITS records
+	private static final int SEGMENT_BITS = 20;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+	// Appends to the data file are buffered until this many bytes are pending, or a read happens
+	private static final int DATA_BUFFER_SIZE = 1 << 16;
+
+	private final File directory;
+	private final RandomAccessFile nodeFile;
+	private final FileChannel nodeChannel;
+	private final ArrayList<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+	private final RandomAccessFile data;
+	private final ByteArrayOutputStream pendingBytes = new ByteArrayOutputStream(DATA_BUFFER_SIZE);
+	private final DataOutputStream pending = new DataOutputStream(pendingBytes);
+	// Length of data file, not counting pending appends
+	private long flushedLength;
+	// Chains of IDs born in each generation, and of IDs scored in each generation
+	private long[] bornHeads = new long[0];
+	private long[] scoredHeads = new long[0];
+	private long maxId = NONE;
+	private int lastGeneration = 0;
+	private String networkPrefix = null;
+
+	// Recently materialized offspring
+	private final LinkedHashMap<Long, Offspring> cache = new LinkedHashMap<Long, Offspring>(CACHE_SIZE, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Offspring> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	private LineageStore(File directory, boolean fresh) throws IOException {
+		this.directory = directory;
+		if(!directory.exists() && !directory.mkdirs()) {
+			throw new IOException("Could not create lineage store directory " + directory);
+		}
+		File nodes = new File(directory, NODE_FILE);
+		File dataFile = new File(directory, DATA_FILE);
+		if(fresh) {
+			nodes.delete();
+			dataFile.delete();
+			new File(directory, META_FILE).delete();
+		}
+		nodeFile = new RandomAccessFile(nodes, "rw");
+		nodeChannel = nodeFile.getChannel();
+		data = new RandomAccessFile(dataFile, "rw");
+		if(fresh) { // In case files could not be deleted
+			nodeFile.setLength(0);
+			data.setLength(0);
+		}
+		flushedLength = data.length();
+	}
+
+	/**
+	 * Create an empty store, discarding any store already in the directory
+	 * @param directory Where store files are kept
+	 * @return New store
+	 * @throws IOException
+	 */
+	public static LineageStore create(File directory) throws IOException {
+		return new LineageStore(directory, true);
+	}
+
+	/**
+	 * Open a store that was previously built and closed
+	 * @param directory Where store files are kept
+	 * @return Store with all previous contents
+	 * @throws IOException
+	 */
+	public static LineageStore open(File directory) throws IOException {
+		LineageStore store = new LineageStore(directory, false);
+		store.readMeta();
+		return store;
+	}
+
+	/**
+	 * @param directory Possible location of a store
+	 * @return Whether a closed store exists there
+	 */
+	public static boolean exists(File directory) {
+		return new File(directory, META_FILE).exists();
+	}
+
+	/**
+	 * Prefix of saved genotype xml files, as used by Offspring.addNetwork
+	 * @param prefix File prefix
+	 */
+	public synchronized void setNetworkPrefix(String prefix) {
+		networkPrefix = prefix;
+	}
+
+	/**
+	 * Add a genotype created from one or two parents
+	 * @param id Genotype ID
+	 * @param parentId1 First parent, or -1
+	 * @param parentId2 Second parent, or -1
+	 * @param generation Generation of birth
+	 */
+	public synchronized void addOffspring(long id, long parentId1, long parentId2, int generation) {
+		try {
+			int flags = ensure(id);
+			if((flags & LOGGED) != 0) {
+				System.out.println("Already filled!");
+				System.out.println("Index " + id);
+				System.out.println("Contains: " + get(id));
+				System.exit(1);
+			}
+			writeInt(id, FLAGS, flags | LOGGED);
+			writeInt(id, GENERATION, generation);
+			writeLong(id, PARENT1, parentId1);
+			writeLong(id, PARENT2, parentId2);
+			if(parentId1 != NONE) {
+				ensure(parentId1);
+				writeLong(id, NEXT_SIBLING1, readLong(parentId1, FIRST_CHILD));
+				writeLong(parentId1, FIRST_CHILD, id);
+			}
+			if(parentId2 != NONE && parentId2 != parentId1) {
+				ensure(parentId2);
+				writeLong(id, NEXT_SIBLING2, readLong(parentId2, FIRST_CHILD));
+				writeLong(parentId2, FIRST_CHILD, id);
+			}
+			if(generation >= 0) {
+				bornHeads = grow(bornHeads, generation);
+				bornHeads[generation] = prependId(bornHeads[generation], id);
+			}
+			lastGeneration = Math.max(lastGeneration, generation);
+			cache.remove(id);
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	/**
+	 * Record a mutation applied when creating a genotype
+	 * @param id Genotype ID
+	 * @param mutation Name of mutation
+	 */
+	public synchronized void addMutation(long id, String mutation) {
+		try {
+			ensure(id);
+			long entry = dataLength();
+			pending.writeLong(readLong(id, MUTATIONS_HEAD));
+			pending.writeUTF(mutation);
+			writeLong(id, MUTATIONS_HEAD, entry);
+			afterAppend();
+			cache.remove(id);
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	/**
+	 * Record scores a genotype received in a generation
+	 * @param id Genotype ID
+	 * @param scores Score in each objective
+	 * @param generation Generation the scores were logged in
+	 */
+	public synchronized void addScores(long id, ArrayList<Double> scores, int generation) {
+		try {
+			ensure(id);
+			long entry = dataLength();
+			pending.writeLong(readLong(id, SCORES_HEAD));
+			pending.writeInt(generation);
+			pending.writeInt(scores.size());
+			for(Double x : scores) {
+				pending.writeDouble(x);
+			}
+			writeLong(id, SCORES_HEAD, entry);
+			afterAppend();
+			scoredHeads = grow(scoredHeads, generation);
+			scoredHeads[generation] = prependId(scoredHeads[generation], id);
+			lastGeneration = Math.max(lastGeneration, generation);
+			cache.remove(id);
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	/**
+	 * Indicate where the saved genotype xml file is
+	 * @param id Genotype ID
+	 * @param gen Generation it was saved in
+	 * @param withinGen Population slot within that generation
+	 */
+	public synchronized void setNetwork(long id, int gen, int withinGen) {
+		try {
+			ensure(id);
+			writeInt(id, NETWORK_GEN, gen);
+			writeInt(id, WITHIN_GEN, withinGen);
+			cache.remove(id);
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	/**
+	 * @return One more than the largest genotype ID in the store
+	 */
+	public synchronized long size() {
+		return maxId + 1;
+	}
+
+	/**
+	 * @return Latest generation of birth or scoring in the store
+	 */
+	public synchronized int lastGeneration() {
+		return lastGeneration;
+	}
+
+	/**
+	 * @param id Genotype ID
+	 * @return Whether the genotype has a record
+	 */
+	public synchronized boolean contains(long id) {
+		try {
+			return id >= 0 && id <= maxId && (readInt(id, FLAGS) & PRESENT) != 0;
+		} catch (IOException e) {
+			fail(e);
+			return false;
+		}
+	}
+
+	/**
+	 * Materialize a genotype's record, with its scores and mutations.
+	 * Like the in-memory lineage, only genotypes logged as offspring or
+	 * given scores have one: genotypes only referenced as parents do not.
+	 * @param id Genotype ID
+	 * @return Offspring with all stored information, or null if the genotype was never logged
+	 */
+	public synchronized Offspring get(long id) {
+		if(!contains(id)) return null;
+		Offspring o = cache.get(id);
+		if(o != null) return o;
+		try {
+			if((readInt(id, FLAGS) & LOGGED) == 0 && readLong(id, SCORES_HEAD) == NONE) return null;
+			flushData();
+			o = new Offspring(id, readLong(id, PARENT1), readLong(id, PARENT2), readInt(id, GENERATION));
+			// Chains are stored newest first
+			ArrayList<ArrayList<Double>> scores = new ArrayList<ArrayList<Double>>();
+			ArrayList<Integer> gens = new ArrayList<Integer>();
+			for(long entry = readLong(id, SCORES_HEAD); entry != NONE; ) {
+				data.seek(entry);
+				entry = data.readLong();
+				gens.add(data.readInt());
+				int n = data.readInt();
+				ArrayList<Double> s = new ArrayList<Double>(n);
+				for(int i = 0; i < n; i++) {
+					s.add(data.readDouble());
+				}
+				scores.add(s);
+			}
+			Collections.reverse(scores);
+			Collections.reverse(gens);
+			for(int i = 0; i < scores.size(); i++) {
+				o.addScores(scores.get(i), gens.get(i));
+			}
+			ArrayList<String> mutations = new ArrayList<String>();
+			for(long entry = readLong(id, MUTATIONS_HEAD); entry != NONE; ) {
+				data.seek(entry);
+				entry = data.readLong();
+				mutations.add(data.readUTF());
+			}
+			Collections.reverse(mutations);
+			for(String m : mutations) {
+				o.addMutation(m);
+			}
+			int networkGen = readInt(id, NETWORK_GEN);
+			if(networkGen != NONE && networkPrefix != null) {
+				o.xmlNetwork = Offspring.networkFile(networkPrefix, networkGen, readInt(id, WITHIN_GEN));
+			}
+		} catch (IOException e) {
+			fail(e);
+		}
+		cache.put(id, o);
+		return o;
+	}
+
+	/**
+	 * @param id Genotype ID
+	 * @return Generation of birth, or -1 if unknown
+	 */
+	public synchronized int generation(long id) {
+		try {
+			return contains(id) ? readInt(id, GENERATION) : -1;
+		} catch (IOException e) {
+			fail(e);
+			return -1;
+		}
+	}
+
+	/**
+	 * @param id Genotype ID
+	 * @return IDs of both parents, -1 where absent
+	 */
+	public synchronized long[] parents(long id) {
+		try {
+			if(!contains(id)) return new long[] {NONE, NONE};
+			return new long[] {readLong(id, PARENT1), readLong(id, PARENT2)};
+		} catch (IOException e) {
+			fail(e);
+			return null;
+		}
+	}
+
+	/**
+	 * @param id Genotype ID
+	 * @return IDs of all offspring having this genotype as a parent
+	 */
+	public synchronized ArrayList<Long> children(long id) {
+		ArrayList<Long> result = new ArrayList<Long>();
+		try {
+			if(!contains(id)) return result;
+			for(long child = readLong(id, FIRST_CHILD); child != NONE; ) {
+				result.add(child);
+				// Follow the sibling list belonging to this parent
+				child = readLong(child, readLong(child, PARENT1) == id ? NEXT_SIBLING1 : NEXT_SIBLING2);
+			}
+		} catch (IOException e) {
+			fail(e);
+		}
+		Collections.reverse(result); // Oldest first
+		return result;
+	}
+
+	/**
+	 * All ancestors of a genotype, found by following parent links.
+	 * Only the ancestors are visited, never the rest of the lineage.
+	 * @param id Genotype ID
+	 * @return IDs of all ancestors, nearest first, not including id
+	 */
+	public synchronized ArrayList<Long> ancestors(long id) {
+		ArrayList<Long> result = new ArrayList<Long>();
+		HashSet<Long> visited = new HashSet<Long>();
+		ArrayDeque<Long> queue = new ArrayDeque<Long>();
+		queue.add(id);
+		visited.add(id);
+		while(!queue.isEmpty()) {
+			long[] ps = parents(queue.poll());
+			for(long p : ps) {
+				if(p != NONE && visited.add(p)) {
+					result.add(p);
+					queue.add(p);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * All descendants of a genotype, found by following child links.
+	 * @param id Genotype ID
+	 * @return IDs of all descendants, nearest first, not including id
+	 */
+	public synchronized ArrayList<Long> subtree(long id) {
+		ArrayList<Long> result = new ArrayList<Long>();
+		HashSet<Long> visited = new HashSet<Long>();
+		ArrayDeque<Long> queue = new ArrayDeque<Long>();
+		queue.add(id);
+		visited.add(id);
+		while(!queue.isEmpty()) {
+			for(long c : children(queue.poll())) {
+				if(visited.add(c)) {
+					result.add(c);
+					queue.add(c);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param generation Generation
+	 * @return IDs of genotypes born in the generation, in the order they were logged
+	 */
+	public synchronized ArrayList<Long> bornInGeneration(int generation) {
+		return generation >= 0 && generation < bornHeads.length ? readIds(bornHeads[generation]) : new ArrayList<Long>();
+	}
+
+	/**
+	 * @param generation Generation
+	 * @return IDs of genotypes that received scores in the generation, in the order they were logged
+	 */
+	public synchronized ArrayList<Long> scoredInGeneration(int generation) {
+		return generation >= 0 && generation < scoredHeads.length ? readIds(scoredHeads[generation]) : new ArrayList<Long>();
+	}
+
+	/**
+	 * Save summary information needed to reopen the store and release files
+	 */
+	public synchronized void close() {
+		try {
+			flushData();
+			for(MappedByteBuffer segment : segments) {
+				segment.force();
+			}
+			PrintStream ps = new PrintStream(new File(directory, META_FILE));
+			ps.println(networkPrefix == null ? "" : networkPrefix);
+			ps.println(maxId);
+			ps.println(lastGeneration);
+			printHeads(ps, bornHeads);
+			printHeads(ps, scoredHeads);
+			ps.close();
+			segments.clear();
+			nodeChannel.close();
+			nodeFile.close();
+			data.close();
+		} catch (IOException e) {
+			fail(e);
+		}
+		cache.clear();
+	}
+
+	private static void printHeads(PrintStream ps, long[] heads) {
+		ps.print(heads.length);
+		for(long h : heads) {
+			ps.print(" " + h);
+		}
+		ps.println();
+	}
+
+	private void readMeta() throws FileNotFoundException {
+		Scanner scan = new Scanner(new File(directory, META_FILE));
+		String prefix = scan.nextLine();
+		networkPrefix = prefix.isEmpty() ? null : prefix;
+		maxId = scan.nextLong();
+		lastGeneration = scan.nextInt();
+		bornHeads = scanHeads(scan);
+		scoredHeads = scanHeads(scan);
+		scan.close();
+	}
+
+	private static long[] scanHeads(Scanner scan) {
+		long[] heads = new long[scan.nextInt()];
+		for(int i = 0; i < heads.length; i++) {
+			heads[i] = scan.nextLong();
+		}
+		return heads;
+	}
+
+	/**
+	 * Make sure a record exists for the id, creating an empty one if needed
+	 * @param id Genotype ID
+	 * @return Flags of the record
+	 * @throws IOException
+	 */
+	private int ensure(long id) throws IOException {
+		if(id > maxId) {
+			// Fill new space with empty records
+			for(long i = maxId + 1; i <= id; i++) {
+				writeEmptyRecord(i);
+			}
+			maxId = id;
+		}
+		int flags = readInt(id, FLAGS);
+		if((flags & PRESENT) == 0) {
+			flags = PRESENT;
+			writeInt(id, FLAGS, flags);
+		}
+		return flags;
+	}
+
+	private void writeEmptyRecord(long id) throws IOException {
+		writeInt(id, FLAGS, 0);
+		writeInt(id, GENERATION, -1);
+		for(int field = PARENT1; field < NETWORK_GEN; field += 8) {
+			writeLong(id, field, NONE);
+		}
+		writeInt(id, NETWORK_GEN, -1);
+		writeInt(id, WITHIN_GEN, -1);
+	}
+
+	private long prependId(long head, long id) throws IOException {
+		long entry = dataLength();
+		pending.writeLong(head);
+		pending.writeLong(id);
+		afterAppend();
+		return entry;
+	}
+
+	/**
+	 * @return Length of data file including pending appends
+	 */
+	private long dataLength() {
+		return flushedLength + pendingBytes.size();
+	}
+
+	private void afterAppend() throws IOException {
+		if(pendingBytes.size() >= DATA_BUFFER_SIZE) {
+			flushData();
+		}
+	}
+
+	/**
+	 * Write pending appends so that the data file can be read
+	 * @throws IOException
+	 */
+	private void flushData() throws IOException {
+		if(pendingBytes.size() > 0) {
+			data.seek(flushedLength);
+			data.write(pendingBytes.toByteArray());
+			flushedLength += pendingBytes.size();
+			pendingBytes.reset();
+		}
+	}
+
+	private ArrayList<Long> readIds(long head) {
+		ArrayList<Long> result = new ArrayList<Long>();
+		try {
+			flushData();
+			for(long entry = head; entry != NONE; ) {
+				data.seek(entry);
+				entry = data.readLong();
+				result.add(data.readLong());
+			}
+		} catch (IOException e) {
+			fail(e);
+		}
+		Collections.reverse(result);
+		return result;
+	}
+
+	private static long[] grow(long[] heads, int index) {
+		if(index < heads.length) return heads;
+		int oldLength = heads.length;
+		heads = Arrays.copyOf(heads, Math.max(index + 1, 2 * oldLength));
+		Arrays.fill(heads, oldLength, heads.length, NONE);
+		return heads;
+	}
+
+	/**
+	 * Mapped segment of node file holding record for id, mapping more of the file if needed
+	 * @param id Genotype ID
+	 * @return Mapped segment
+	 * @throws IOException
+	 */
+	private MappedByteBuffer segment(long id) throws IOException {
+		int index = (int) (id >>> SEGMENT_BITS);
+		long segmentBytes = (long) RECORD_SIZE << SEGMENT_BITS;
+		while(segments.size() <= index) {
+			// Mapping past the end of the file extends it
+			segments.add(nodeChannel.map(FileChannel.MapMode.READ_WRITE, segments.size() * segmentBytes, segmentBytes));
+		}
+		return segments.get(index);
+	}
+
+	private static int offset(long id, int field) {
+		return (int) (id & SEGMENT_MASK) * RECORD_SIZE + field;
+	}
+
+	private int readInt(long id, int field) throws IOException {
+		return segment(id).getInt(offset(id, field));
+	}
+
+	private long readLong(long id, int field) throws IOException {
+		return segment(id).getLong(offset(id, field));
+	}
+
+	private void writeInt(long id, int field, int value) throws IOException {
+		segment(id).putInt(offset(id, field), value);
+	}
+
+	private void writeLong(long id, int field, long value) throws IOException {
+		segment(id).putLong(offset(id, field), value);
+	}
+
+	private static void fail(IOException e) {
+		System.out.println("Lineage store failure");
+		e.printStackTrace();
+		System.exit(1);
+	}
+}
@@ -28,9 +28,11 @@ import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Scanner;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -138,7 +140,7 @@ public class Offspring {
 		 * Draws the initial panels and information
 		 */
 		public void draw() {
-			Offspring o = lineage.get(position);
+			Offspring o = get(position);
 			System.out.println(position);
 			clear();
 			if (o == null) {
@@ -234,7 +236,7 @@ public class Offspring {
 
 			// Show scores of ancestry backwards through generations
 			if (key == KeyEvent.VK_B) {
-				Offspring o = lineage.get(position);
+				Offspring o = get(position);
 				if (o == null) {
 					System.out.println("null has no parents");
 				} else {
@@ -244,7 +246,7 @@ public class Offspring {
 
 			// Run evaluation
 			if (key == KeyEvent.VK_E) {
-				final Offspring o = lineage.get(position);
+				final Offspring o = get(position);
 				if (o != null && o.xmlNetwork != null) {
 					// Launch a new thread in which to evaluate the genotype
 					new Thread() {
@@ -317,7 +319,7 @@ public class Offspring {
 
 			// Save picture of network
 			if (key == KeyEvent.VK_S) {
-				Offspring o = lineage.get(position);
+				Offspring o = get(position);
 				if (o != null && o.xmlNetwork != null) {
 					String filename = "NETWORK_" + o.offspringId + "_GEN_" + o.generation + ".jpg";
 					panel.save(filename);
@@ -381,7 +383,7 @@ public class Offspring {
 			// Make jump point be the biggest fitness jump in ancestry of
 			// current position
 			if (key == KeyEvent.VK_J) {
-				if (lineage.get(position) == null) {
+				if (get(position) == null) {
 					System.out.println("Cannot calculate jump to null");
 				} else {
 					// Biggest fitness jump info
@@ -423,7 +425,7 @@ public class Offspring {
 
 			// Goto parent 1 (mother)
 			if (key == KeyEvent.VK_M) {
-				Offspring o = lineage.get(position);
+				Offspring o = get(position);
 				if (o == null) {
 					System.out.println("null has no parents");
 				} else {
@@ -435,7 +437,7 @@ public class Offspring {
 
 			// Goto parent 2 (father)
 			if (key == KeyEvent.VK_F) {
-				Offspring o = lineage.get(position);
+				Offspring o = get(position);
 				if (o == null) {
 					System.out.println("null has no parents");
 				} else {
@@ -497,7 +499,7 @@ public class Offspring {
 		}
 
 		public void changeGeneration(boolean up) {
-			Offspring o = lineage.get(position);
+			Offspring o = get(position);
 			int prev = position;
 			if (o == null) {
 				while (o == null || o.xmlNetwork == null) {
@@ -506,7 +508,7 @@ public class Offspring {
 					} else {
 						decreasePosition();
 					}
-					o = lineage.get(position);
+					o = get(position);
 				}
 				System.out.println((up ? "Advancing" : "Decreasing") + " to non-null generation: " + o.generation);
 			} else {
@@ -517,7 +519,7 @@ public class Offspring {
 					} else {
 						decreasePosition();
 					}
-					o = lineage.get(position);
+					o = get(position);
 				}
 				System.out.println(
 						(up ? "Advancing" : "Decreasing") + " from generation: " + generation + " to " + o.generation);
@@ -533,7 +535,7 @@ public class Offspring {
 		public void advancePosition() {
 			previousPosition = position;
 			position++;
-			if (position >= lineage.size()) {
+			if (position >= size()) {
 				position = 0;
 			}
 		}
@@ -542,7 +544,7 @@ public class Offspring {
 			previousPosition = position;
 			position--;
 			if (position < 0) {
-				position = lineage.size() - 1;
+				position = size() - 1;
 			}
 		}
 
@@ -566,6 +568,8 @@ public class Offspring {
 
 	//public static variables
 	public static ArrayList<Offspring> lineage = new ArrayList<Offspring>();
+	// When set, lineage is kept on disk in the store instead of in the lineage list
+	public static LineageStore store = null;
 	public static ArrayList<Double> maxes = new ArrayList<Double>();
 	public static ArrayList<Double> mins = new ArrayList<Double>();
 	public static double[][] bestScores = null;
@@ -589,6 +593,10 @@ public class Offspring {
 	 */
 	public static void  reset() { 
 		lineage = new ArrayList<Offspring>();
+		if (store != null) {
+			store.close();
+			store = null;
+		}
 		maxes = new ArrayList<Double>();
 		mins = new ArrayList<Double>();
 		bestScores = null;
@@ -678,6 +686,26 @@ public class Offspring {
 		return result;
 	}
 
+	/**
+	 * Retrieve offspring from the lineage store if one is in use,
+	 * and from the in-memory lineage otherwise
+	 * @param offspringId ID of offspring
+	 * @return offspring, or null if there is no information about it
+	 */
+	public static Offspring get(long offspringId) {
+		if (store != null) {
+			return store.get(offspringId);
+		}
+		return offspringId >= 0 && offspringId < lineage.size() ? lineage.get((int) offspringId) : null;
+	}
+
+	/**
+	 * @return one more than the largest offspring ID in the lineage
+	 */
+	public static int size() {
+		return store != null ? (int) store.size() : lineage.size();
+	}
+
 	/**
 	 * Adds name of mutated offspring
 	 * @param name name of offspring
@@ -692,6 +720,10 @@ public class Offspring {
 	 * @param name name of offspring 
 	 */
 	public static void addMutation(long offspringId, String name) {
+		if (store != null) {
+			store.addMutation(offspringId, name);
+			return;
+		}
 		lineage.get((int) offspringId).addMutation(name);
 	}
 
@@ -712,8 +744,12 @@ public class Offspring {
 	 * @param generation gen #
 	 */
 	public static void addScores(long offspringId, ArrayList<Double> s, int generation) {
-
-		Offspring o = lineage.get((int) offspringId);
+		numObjectives = s.size();
+		if (store != null) {
+			store.addScores(offspringId, s, generation);
+			return;
+		}
+		Offspring o = get(offspringId);
 		if (o == null) {
 			o = new Offspring(offspringId, -1);
 			addOffspring(o);
@@ -730,10 +766,26 @@ public class Offspring {
 	 * @param withinGen population slot within that generation
 	 */
 	public static void addNetwork(long offspringId, String filePrefix, int gen, int withinGen) {
+		if (store != null) {
+			store.setNetworkPrefix(filePrefix);
+			store.setNetwork(offspringId, gen, withinGen);
+			return;
+		}
 		Offspring o = lineage.get((int) offspringId);
+		o.xmlNetwork = networkFile(filePrefix, gen, withinGen);
+	}
+
+	/**
+	 * Location of xml file for a saved network
+	 * @param filePrefix prefix of xml file where network info is stored
+	 * @param gen gen # 
+	 * @param withinGen population slot within that generation
+	 * @return path to xml file
+	 */
+	public static String networkFile(String filePrefix, int gen, int withinGen) {
 		int slash = filePrefix.lastIndexOf("/");
 		String subdir = gen == 0 ? "initial" : "gen" + gen;
-		o.xmlNetwork = filePrefix.substring(0, slash) + "/" + subdir + "/" + filePrefix.substring(slash + 1) + subdir + "_" + withinGen + ".xml";
+		return filePrefix.substring(0, slash) + "/" + subdir + "/" + filePrefix.substring(slash + 1) + subdir + "_" + withinGen + ".xml";
 	}
 
 	/**
@@ -741,6 +793,10 @@ public class Offspring {
 	 * @param o individual in question
 	 */
 	public static void addOffspring(Offspring o) {
+		if (store != null) {
+			store.addOffspring(o.offspringId, o.parentId1, o.parentId2, o.generation);
+			return;
+		}
 		while (lineage.size() <= o.offspringId) {
 			lineage.add(null); // problematic?
 		}
@@ -891,6 +947,18 @@ public class Offspring {
 		String originalPrefix = base + "/" + loadFrom + run + "/" + log.replace(saveTo, loadFrom) + run + "_";
 		System.out.println("Prefix: " + prefix);
 		// Parameters.initializeParameterCollections(prefix + "parameters.txt");
+		if (Parameters.parameters.booleanParameter("lineageStore")) {
+			// Rebuilt from the logs each time, but never held in memory
+			File storeDir = new File(prefix + "LineageStore");
+			try {
+				store = LineageStore.create(storeDir);
+			} catch (IOException e) {
+				System.out.println("Could not create lineage store in " + storeDir);
+				e.printStackTrace();
+				System.exit(1);
+			}
+			System.out.println("Lineage store: " + storeDir);
+		}
 		int numGenerations = PopulationUtil.loadLineage();
 		System.out.println("---Lineage Loaded (" + numGenerations + " generations)-----------");
 		addMutationInformation(originalPrefix + "Mutations_log.txt");
@@ -919,8 +987,8 @@ public class Offspring {
 	 * @return
 	 */
 	public static ArrayList<Double> fitnessDifference(int generation, long parentId, long offspringId) {
-		Offspring parent = lineage.get((int) parentId);
-		Offspring child = lineage.get((int) offspringId);
+		Offspring parent = get(parentId);
+		Offspring child = get(offspringId);
 		int genIndex = parent.correspondingGenerations.indexOf(generation);
 		if (genIndex == -1) {
 			System.out.println("FAILURE!");
@@ -962,7 +1030,7 @@ public class Offspring {
 		if (visited.containsKey(offspringId)) {
 			return visited.get(offspringId);
 		}
-		Offspring o = lineage.get((int) offspringId);
+		Offspring o = get(offspringId);
 		long parent1 = o.parentId1;
 		long parent2 = o.parentId2;
 		MutationBranch left = completeMutationHistory(parent1, visited);
@@ -1017,6 +1085,9 @@ public class Offspring {
 	 * @return
 	 */
 	public static int lastGeneration() {
+		if (store != null) {
+			return store.lastGeneration();
+		}
 		return lineage.get(lineage.size() - 1).generation;
 	}
 
@@ -1046,6 +1117,15 @@ public class Offspring {
 	 * @return
 	 */
 	public static HashMap<Long, Offspring> allAncestors(long offspringId) {
+		if (store != null) {
+			// Only walk parent links on disk rather than building mutation branches
+			HashMap<Long, Offspring> ancestors = new HashMap<Long, Offspring>();
+			ancestors.put(offspringId, get(offspringId));
+			for (Long id : store.ancestors(offspringId)) {
+				ancestors.put(id, get(id));
+			}
+			return ancestors;
+		}
 		HashMap<Long, MutationBranch> map = new HashMap<Long, MutationBranch>();
 		completeMutationHistory(offspringId, map);
 		HashMap<Long, Offspring> ancestors = new HashMap<Long, Offspring>();
@@ -1067,11 +1147,10 @@ public class Offspring {
 		int recentGen = 0;
 		Offspring result = null;
 		for (Offspring o1 : a1.values()) {
-			for (Offspring o2 : a2.values()) {
-				if (o1.equals(o2) && o1.generation > recentGen) {
-					recentGen = o1.generation;
-					result = o1;
-				}
+			Offspring o2 = a2.get(o1.offspringId);
+			if (o2 != null && o1.generation > recentGen) { // Same ID, so same individual
+				recentGen = o1.generation;
+				result = o1;
 			}
 		}
 		return result;
@@ -1114,6 +1193,12 @@ public class Offspring {
 	 */
 	public static ArrayList<Offspring> offspringOfGeneration(int generation) {
 		ArrayList<Offspring> os = new ArrayList<Offspring>();
+		if (store != null) {
+			for (Long id : store.bornInGeneration(generation)) {
+				os.add(get(id));
+			}
+			return os;
+		}
 		for (int i = 0; i < lineage.size(); i++) {
 			Offspring next = lineage.get(i);
 			if (next != null && next.generation == generation) {
@@ -1123,6 +1208,32 @@ public class Offspring {
 		return os;
 	}
 
+	/**
+	 * All offspring that received scores in a given generation,
+	 * which includes surviving parents born in earlier generations
+	 * @param generation
+	 * @return
+	 */
+	public static ArrayList<Offspring> scoredInGeneration(int generation) {
+		ArrayList<Offspring> os = new ArrayList<Offspring>();
+		if (store != null) {
+			HashSet<Long> added = new HashSet<Long>();
+			for (Long id : store.scoredInGeneration(generation)) {
+				if (added.add(id)) { // Can be scored more than once per generation
+					os.add(get(id));
+				}
+			}
+			return os;
+		}
+		for (int i = 0; i < lineage.size(); i++) {
+			Offspring next = lineage.get(i);
+			if (next != null && next.correspondingGenerations.contains(generation)) {
+				os.add(next);
+			}
+		}
+		return os;
+	}
+
 	/**
 	 * 
 	 * @param generation
@@ -1343,11 +1454,15 @@ public class Offspring {
 			g.drawString("" + mins.get(obj1), 0, browseDim - offset / 2);
 		}
 
-		Offspring child = lineage.get((int) currentId);
+		Offspring child = get(currentId);
 		long parentId1 = child.parentId1;
 		long parentId2 = child.parentId2;
-		for (int i = 0; i < lineage.size(); i++) {
-			Offspring o = lineage.get(i);
+		// Only individuals scored in the viewed generation, plus the current one, are plotted
+		ArrayList<Offspring> plotted = scoredInGeneration(viewingGen);
+		if (child.correspondingGenerations.indexOf(viewingGen) == -1) {
+			plotted.add(child);
+		}
+		for (Offspring o : plotted) {
 			if (o != null) {
 				if (o.offspringId == currentId) {
 					// All scores of given solution
@@ -1485,7 +1600,7 @@ public class Offspring {
 			DrawingPanel fitness, DrawingPanel front, boolean showScores, boolean showIds, DrawingPanel info, int obj1,
 			int obj2) {
 		if (offspringId != -1) {
-			Offspring o = lineage.get((int) offspringId);
+			Offspring o = get(offspringId);
 			fillInfo(o, info);
 			if (o != null) {
 				if (MMNEAT.genotype instanceof TWEANNGenotype) {
@@ -1669,7 +1784,7 @@ public class Offspring {
 
 				int parent1Pos = (int) o.parentId1;
 				if (parent1Pos > -1) {
-					Offspring parent1 = lineage.get(parent1Pos);
+					Offspring parent1 = get(parent1Pos);
 					double parent1Score = parent1.scores.get(0).get(i);
 
 					double bestScore = parent1Score;
@@ -1678,7 +1793,7 @@ public class Offspring {
 
 					int parent2Pos = (int) o.parentId2;
 					if (parent2Pos > -1) {
-						Offspring parent2 = lineage.get(parent2Pos);
+						Offspring parent2 = get(parent2Pos);
 						double parent2Score = parent2.scores.get(0).get(i);
 						if (parent2Score > bestScore) {
 							bestScore = parent2Score;
@@ -1689,7 +1804,7 @@ public class Offspring {
 					drawScoreSegment(offspringScore, o.correspondingGenerations.get(0), bestScore,
 							bestParent.correspondingGenerations.get(0), bests[i], i);
 
-					o = lineage.get(bestPos);
+					o = get(bestPos);
 				} else {
 					o = null;
 				}
@@ -9,6 +9,8 @@ import java.util.stream.IntStream;
 import edu.southwestern.scores.Score;
 import edu.southwestern.util.ClassCreation;
 import edu.southwestern.util.file.FileUtilities;
+import edu.southwestern.util.profiling.Phase;
+import edu.southwestern.util.profiling.Profiler;
 import edu.southwestern.util.random.RandomNumbers;
 import wox.serial.Easy;
 
@@ -18,6 +20,8 @@ public class Archive<T> {
 	private BinLabels<T> mapping;
 	private boolean saveElites;
 	private String archiveDir;
+	// When present, elites are saved through the journal rather than in each bin directory
+	private ArchiveJournal<T> journal = null;
 
 	@SuppressWarnings("unchecked")
 	public Archive(boolean saveElites) {
@@ -68,6 +72,15 @@ public class Archive<T> {
 		return archiveDir;
 	}
 	
+	/**
+	 * Save elites through a journal instead of writing them to each bin
+	 * directory they occupy
+	 * @param journal Journal that records every change to the archive
+	 */
+	public void setJournal(ArchiveJournal<T> journal) {
+		this.journal = journal;
+	}
+	
 	/**
 	 * Method for putting individuals in bins
 	 * @return
@@ -86,14 +99,15 @@ public class Archive<T> {
 	public boolean add(Score<T> candidate) {
 		// Java's new stream features allow for easy parallelism
 		IntStream stream = IntStream.range(0, archive.size());
-		long newElites = stream.parallel().filter((i) -> {
+		int[] newElites = stream.parallel().filter((i) -> {
 			Score<T> elite = archive.get(i);
 			double candidateScore = candidate.behaviorVector.get(i);
 			// If the bin is empty, or the candidate is better than the elite for that bin's score
 			if(elite == null || candidateScore > elite.behaviorVector.get(i)) {
 				archive.set(i, candidate.copy()); // Replace elite
 				// Need to save all elites so that re-load on resume works
-				if(saveElites) {
+				if(saveElites && journal == null) {
+					long checkpointStart = Profiler.start(Phase.CHECKPOINT);
 					// Easier to reload on resume if file name is uniform. Will also save space by overwriting
 					String binPath = archiveDir + File.separator + mapping.binLabels().get(i);
 					Easy.save(candidate.individual, binPath + File.separator + "elite.xml");
@@ -103,20 +117,28 @@ public class Archive<T> {
 						for(Double score : candidate.behaviorVector) {
 							ps.println(score);
 						}
+						ps.close();
 					} catch (FileNotFoundException e) {
 						System.out.println("Could not write scores for " + candidate.individual.getId() + ":" + candidate.behaviorVector);
 						e.printStackTrace();
 						System.exit(1);
 					}
+					Profiler.stop(Phase.CHECKPOINT, checkpointStart);
 				}
 				return true;
 			} else {
 				return false;
 			}
-		}).count(); // Number of bins whose elite was replaced
-		//System.out.println(newElites + " elites were replaced");
+		}).toArray(); // Bins whose elite was replaced
+		//System.out.println(newElites.length + " elites were replaced");
+		if(newElites.length > 0 && journal != null) {
+			// Saved once, no matter how many bins were replaced
+			long checkpointStart = Profiler.start(Phase.CHECKPOINT);
+			journal.recordElite(candidate, newElites);
+			Profiler.stop(Phase.CHECKPOINT, checkpointStart);
+		}
 		// Whether any elites were replaced
-		return newElites > 0;
+		return newElites.length > 0;
 	}
 
 	/**
@@ -0,0 +1,408 @@
+package edu.southwestern.evolution.mapelites;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+import edu.southwestern.evolution.EvolutionaryHistory;
+import edu.southwestern.evolution.genotypes.Genotype;
+import edu.southwestern.parameters.Parameters;
+import edu.southwestern.scores.Score;
+import edu.southwestern.util.PopulationUtil;
+import edu.southwestern.util.file.FileUtilities;
+import edu.southwestern.util.random.RandomNumbers;
+import wox.serial.Easy;
+
+/**
+ * Write-ahead journal that lets a MAP Elites run resume exactly where it
+ * stopped after a crash. Each elite is saved once, by genotype id, in the
+ * elites directory of the archive, no matter how many bins it occupies.
+ * Each insertion into the archive is then appended to the journal as the
+ * list of bins that the elite took over. After every call to newIndividual,
+ * a commit record stores the iteration counters, the genotype id and
+ * innovation counters, and the state of the random generator.
+ * 
+ * Periodically the whole archive is written as a compact snapshot (bin to
+ * genotype id), the journal is emptied, and saved elites that no longer
+ * occupy any bin are deleted. Resuming reads the snapshot, then replays
+ * the journal up to its last commit. Insertions after the last commit
+ * belong to an iteration that did not finish, and are ignored.
+ * 
+ * The journal is flushed after every commit, so killing the process loses
+ * nothing. Snapshots are written to a temporary file, synced, and then
+ * moved into place, so a crash during a snapshot leaves the previous
+ * snapshot and journal intact.
+ */
+public class ArchiveJournal<T> {
+
+	private static final String SNAPSHOT_FILE = "snapshot.txt";
+	private static final String JOURNAL_FILE = "journal.txt";
+	private static final String ELITE_DIR = "elites";
+	// Record markers
+	private static final String ELITE_RECORD = "E";
+	private static final String COMMIT_RECORD = "C";
+	private static final String BIN_RECORD = "B";
+
+	/**
+	 * Counters stored in each commit
+	 */
+	public static class Progress {
+		public final int iterations;
+		public final int iterationsWithoutElite;
+
+		public Progress(int iterations, int iterationsWithoutElite) {
+			this.iterations = iterations;
+			this.iterationsWithoutElite = iterationsWithoutElite;
+		}
+	}
+
+	private final Archive<T> archive;
+	private final String directory;
+	private final String eliteDirectory;
+	private PrintStream journal = null;
+	// Iteration of the most recent snapshot
+	private int lastSnapshot = 0;
+
+	/**
+	 * @param archive Archive to track. Its directory holds the journal files.
+	 */
+	public ArchiveJournal(Archive<T> archive) {
+		this.archive = archive;
+		this.directory = archive.getArchiveDirectory();
+		this.eliteDirectory = directory + File.separator + ELITE_DIR;
+		new File(eliteDirectory).mkdirs();
+	}
+
+	/**
+	 * A resume is possible if a snapshot was saved, and the parameters
+	 * of the run were saved too. Without the parameter file, the experiment
+	 * is a fresh start that happens to use an old directory.
+	 * @return Whether the run can be resumed from this journal
+	 */
+	public boolean canResume() {
+		String parameterFile = FileUtilities.getSaveDirectory() + "/" + Parameters.parameters.stringParameter("log")
+				+ Parameters.parameters.integerParameter("runNumber") + "_parameters.txt";
+		return new File(directory, SNAPSHOT_FILE).exists() && new File(parameterFile).exists();
+	}
+
+	/**
+	 * Record that a new elite replaced the contents of some bins. Must be called
+	 * before the commit of the iteration that produced the elite.
+	 * @param elite Score of the new elite
+	 * @param bins Indices of bins that the elite now occupies
+	 */
+	public synchronized void recordElite(Score<T> elite, int[] bins) {
+		long id = elite.individual.getId();
+		String base = eliteDirectory + File.separator + id;
+		// Files first, so that the journal never refers to a missing elite.
+		// Scores are written before the genotype, so an existing genotype means both exist.
+		File xml = new File(base + ".xml");
+		if (!xml.exists()) {
+			File scores = new File(base + ".txt");
+			File tempScores = new File(base + ".txt.tmp");
+			try {
+				PrintStream ps = new PrintStream(tempScores);
+				for (Double score : elite.behaviorVector) {
+					ps.println(score);
+				}
+				ps.close();
+			} catch (FileNotFoundException e) {
+				System.out.println("Could not write scores for " + id);
+				e.printStackTrace();
+				System.exit(1);
+			}
+			moveIntoPlace(tempScores, scores);
+			File temp = new File(base + ".xml.tmp");
+			Easy.save(elite.individual, temp.getPath());
+			moveIntoPlace(temp, xml);
+		}
+		StringBuilder record = new StringBuilder(ELITE_RECORD).append('\t').append(id).append('\t');
+		for (int i = 0; i < bins.length; i++) {
+			if (i > 0) record.append(',');
+			record.append(bins[i]);
+		}
+		journal().println(record);
+	}
+
+	/**
+	 * Mark the end of a complete iteration. Everything recorded before
+	 * this point will be restored on resume.
+	 * @param iterations Completed iterations
+	 * @param iterationsWithoutElite Iterations since an elite was last added
+	 */
+	public synchronized void commit(int iterations, int iterationsWithoutElite) {
+		PrintStream ps = journal();
+		ps.println(commitRecord(iterations, iterationsWithoutElite));
+		ps.flush();
+		if (ps.checkError()) {
+			System.out.println("Could not write to MAP Elites journal");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Whether enough iterations have passed since the last snapshot
+	 * @param iterations Current iteration
+	 * @return Whether to call snapshot
+	 */
+	public boolean snapshotDue(int iterations) {
+		return iterations - lastSnapshot >= Parameters.parameters.integerParameter("journalSnapshotFrequency");
+	}
+
+	/**
+	 * Save the entire archive and counters, then empty the journal and
+	 * delete elites that are no longer in the archive.
+	 * @param iterations Completed iterations
+	 * @param iterationsWithoutElite Iterations since an elite was last added
+	 */
+	public synchronized void snapshot(int iterations, int iterationsWithoutElite) {
+		File snapshot = new File(directory, SNAPSHOT_FILE);
+		File temp = new File(directory, SNAPSHOT_FILE + ".tmp");
+		HashSet<Long> live = new HashSet<Long>();
+		try {
+			FileOutputStream out = new FileOutputStream(temp);
+			PrintStream ps = new PrintStream(out);
+			ps.println(commitRecord(iterations, iterationsWithoutElite));
+			for (int i = 0; i < archive.archive.size(); i++) {
+				Score<T> elite = archive.archive.get(i);
+				if (elite != null) {
+					long id = elite.individual.getId();
+					live.add(id);
+					ps.println(BIN_RECORD + "\t" + i + "\t" + id);
+				}
+			}
+			ps.flush();
+			out.getFD().sync();
+			ps.close();
+		} catch (IOException e) {
+			System.out.println("Could not write MAP Elites snapshot");
+			e.printStackTrace();
+			System.exit(1);
+		}
+		moveIntoPlace(temp, snapshot);
+		// Snapshot is safe on disk, so the journal can start over
+		if (journal != null) {
+			journal.close();
+			journal = null;
+		}
+		new File(directory, JOURNAL_FILE).delete();
+		// Remove elites that have been displaced from every bin
+		File[] saved = new File(eliteDirectory).listFiles();
+		if (saved != null) {
+			for (File f : saved) {
+				String name = f.getName();
+				int dot = name.indexOf('.');
+				try {
+					if (dot > 0 && !live.contains(Long.parseLong(name.substring(0, dot)))) {
+						f.delete();
+					}
+				} catch (NumberFormatException e) {
+					// Not a saved elite
+				}
+			}
+		}
+		lastSnapshot = iterations;
+		// Parameters are only needed to find the run again, so are saved with each snapshot
+		Parameters.parameters.setInteger("lastSavedGeneration", iterations);
+		Parameters.parameters.saveParameters();
+	}
+
+	/**
+	 * Fill the archive from the snapshot and journal, and restore the
+	 * genotype id and innovation counters and the random generator.
+	 * @return Counters of the last committed iteration
+	 */
+	public synchronized Progress restore() {
+		int numBins = archive.archive.size();
+		long[] binIds = new long[numBins];
+		Arrays.fill(binIds, -1);
+		String[] lastCommit = null;
+
+		try {
+			Scanner snapshot = new Scanner(new File(directory, SNAPSHOT_FILE));
+			lastCommit = snapshot.nextLine().split("\t");
+			while (snapshot.hasNextLine()) {
+				String[] parts = snapshot.nextLine().split("\t");
+				binIds[Integer.parseInt(parts[1])] = Long.parseLong(parts[2]);
+			}
+			snapshot.close();
+		} catch (FileNotFoundException e) {
+			System.out.println("Could not read MAP Elites snapshot in " + directory);
+			e.printStackTrace();
+			System.exit(1);
+		}
+
+		File journalFile = new File(directory, JOURNAL_FILE);
+		int replayed = 0;
+		if (journalFile.exists()) {
+			try {
+				Scanner in = new Scanner(journalFile);
+				// Insertions are held back until the commit of their iteration is seen
+				List<String[]> pending = new ArrayList<String[]>();
+				while (in.hasNextLine()) {
+					String[] parts = in.nextLine().split("\t");
+					if (parts[0].equals(ELITE_RECORD) && parts.length == 3) {
+						pending.add(parts);
+					} else if (parts[0].equals(COMMIT_RECORD) && parts.length == 6) {
+						for (String[] elite : pending) {
+							long id = Long.parseLong(elite[1]);
+							for (String bin : elite[2].split(",")) {
+								binIds[Integer.parseInt(bin)] = id;
+							}
+						}
+						pending.clear();
+						lastCommit = parts;
+						replayed++;
+					} // Anything else is a record cut off by the crash
+				}
+				in.close();
+			} catch (FileNotFoundException e) {
+				System.out.println("Could not read MAP Elites journal in " + directory);
+				e.printStackTrace();
+				System.exit(1);
+			}
+		}
+
+		// Load each elite once, even if it occupies many bins
+		HashMap<Long, Score<T>> loaded = new HashMap<Long, Score<T>>();
+		for (int i = 0; i < numBins; i++) {
+			if (binIds[i] != -1) {
+				Score<T> elite = loaded.get(binIds[i]);
+				if (elite == null) {
+					elite = loadElite(binIds[i]);
+					loaded.put(binIds[i], elite);
+				}
+				archive.archive.set(i, elite.copy());
+			}
+		}
+
+		// Restore counters and random state
+		int iterations = Integer.parseInt(lastCommit[1]);
+		int iterationsWithoutElite = Integer.parseInt(lastCommit[2]);
+		long innovation = Long.parseLong(lastCommit[3]);
+		long genotypeId = Long.parseLong(lastCommit[4]);
+		EvolutionaryHistory.setInnovation(innovation);
+		Parameters.parameters.setLong("lastInnovation", innovation);
+		EvolutionaryHistory.setHighestGenotypeId(genotypeId);
+		Parameters.parameters.setLong("lastGenotypeId", genotypeId);
+		RandomNumbers.randomGenerator = decodeRandom(lastCommit[5]);
+		Parameters.parameters.setInteger("lastSavedGeneration", iterations);
+		System.out.println("Resumed MAP Elites at iteration " + iterations + " with " + loaded.size() + " elites, after replaying " + replayed + " journal commits");
+
+		// Continue the journal from a fresh snapshot of the restored state
+		snapshot(iterations, iterationsWithoutElite);
+		return new Progress(iterations, iterationsWithoutElite);
+	}
+
+	/**
+	 * Close the journal file
+	 */
+	public synchronized void close() {
+		if (journal != null) {
+			journal.close();
+			journal = null;
+		}
+	}
+
+	private Score<T> loadElite(long id) {
+		String base = eliteDirectory + File.separator + id;
+		Genotype<T> genotype = PopulationUtil.extractGenotype(base + ".xml");
+		ArrayList<Double> scores = new ArrayList<Double>(archive.archive.size());
+		try {
+			Scanner scoresFile = new Scanner(new File(base + ".txt"));
+			while (scoresFile.hasNextDouble()) {
+				scores.add(scoresFile.nextDouble());
+			}
+			scoresFile.close();
+		} catch (FileNotFoundException e) {
+			System.out.println("Could not read " + base + ".txt");
+			e.printStackTrace();
+			System.exit(1);
+		}
+		return new Score<T>(genotype, new double[0], scores);
+	}
+
+	private PrintStream journal() {
+		if (journal == null) {
+			try {
+				// Append, since a journal may already follow the latest snapshot
+				journal = new PrintStream(new FileOutputStream(new File(directory, JOURNAL_FILE), true));
+			} catch (FileNotFoundException e) {
+				System.out.println("Could not open MAP Elites journal in " + directory);
+				e.printStackTrace();
+				System.exit(1);
+			}
+		}
+		return journal;
+	}
+
+	private static String commitRecord(int iterations, int iterationsWithoutElite) {
+		return COMMIT_RECORD + "\t" + iterations + "\t" + iterationsWithoutElite + "\t"
+				+ Parameters.parameters.longParameter("lastInnovation") + "\t"
+				+ Parameters.parameters.longParameter("lastGenotypeId") + "\t"
+				+ encodeRandom(RandomNumbers.randomGenerator);
+	}
+
+	/**
+	 * @param random Generator to save
+	 * @return Serialized state of the generator as Base64 text
+	 */
+	static String encodeRandom(Random random) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(random);
+			out.close();
+			return Base64.getEncoder().encodeToString(bytes.toByteArray());
+		} catch (IOException e) {
+			// Writing to memory
+			throw new IllegalStateException("Could not serialize random generator", e);
+		}
+	}
+
+	/**
+	 * @param text Result of encodeRandom
+	 * @return Generator in exactly the saved state
+	 */
+	static Random decodeRandom(String text) {
+		try {
+			ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(text)));
+			Random result = (Random) in.readObject();
+			in.close();
+			return result;
+		} catch (IOException | ClassNotFoundException e) {
+			throw new IllegalStateException("Could not restore random generator", e);
+		}
+	}
+
+	/**
+	 * Replace target with source in one step, so that target is never partially written
+	 * @param source Completely written file
+	 * @param target File to replace
+	 */
+	private static void moveIntoPlace(File source, File target) {
+		try {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.out.println("Could not move " + source + " to " + target);
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+}
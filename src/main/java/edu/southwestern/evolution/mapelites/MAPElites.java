@@ -20,6 +20,8 @@ import edu.southwestern.scores.Score;
 import edu.southwestern.tasks.LonerTask;
 import edu.southwestern.util.PopulationUtil;
 import edu.southwestern.util.file.FileUtilities;
+import edu.southwestern.util.profiling.Phase;
+import edu.southwestern.util.profiling.Profiler;
 import edu.southwestern.util.random.RandomNumbers;
 import wox.serial.Easy;
 
@@ -34,12 +36,19 @@ public class MAPElites<T> implements SteadyStateEA<T> {
 	private int iterations;
 	private int iterationsWithoutElite;
 	private int individualsPerGeneration;
+	// Records archive changes so that a crashed run can resume exactly. Null if elites are not saved.
+	private ArchiveJournal<T> journal = null;
 	
 	@SuppressWarnings("unchecked")
 	public MAPElites() {
 		this.task = (LonerTask<T>) MMNEAT.task;
 		this.io = Parameters.parameters.booleanParameter("io"); // write logs
 		this.archive = new Archive<>(Parameters.parameters.booleanParameter("netio"));
+		if(Parameters.parameters.booleanParameter("netio") && Parameters.parameters.booleanParameter("mapElitesJournal")) {
+			journal = new ArchiveJournal<>(archive);
+			archive.setJournal(journal);
+		}
+		this.individualsPerGeneration = Parameters.parameters.integerParameter("steadyStateIndividualsPerGeneration");
 		if(io) {
 			String infix = "MAPElites";
 			// Logging in RAW mode so that can append to log file on experiment resume
@@ -54,7 +63,6 @@ public class MAPElites<T> implements SteadyStateEA<T> {
 			File plot = new File(fullName);
 			// Write to file
 			try {
-				this.individualsPerGeneration = Parameters.parameters.integerParameter("steadyStateIndividualsPerGeneration");
 				PrintStream ps = new PrintStream(plot);
 				ps.println("set term pdf enhanced");
 				ps.println("unset key");
@@ -75,7 +83,7 @@ public class MAPElites<T> implements SteadyStateEA<T> {
 		this.mating = Parameters.parameters.booleanParameter("mating");
 		this.crossoverRate = Parameters.parameters.doubleParameter("crossoverRate");
 		this.iterations = Parameters.parameters.integerParameter("lastSavedGeneration");
-		this.iterationsWithoutElite = 0; // Not accurate on resume
+		this.iterationsWithoutElite = 0; // Not accurate on resume, unless restored from the journal
 	}
 	
 	/**
@@ -93,7 +101,13 @@ public class MAPElites<T> implements SteadyStateEA<T> {
 	 */
 	@Override
 	public void initialize(Genotype<T> example) {
-		if(iterations > 0) {
+		if(journal != null && journal.canResume()) {
+			// Exact resume: archive, counters and random state
+			ArchiveJournal.Progress progress = journal.restore();
+			iterations = progress.iterations;
+			iterationsWithoutElite = progress.iterationsWithoutElite;
+		} else if(iterations > 0) {
+			// Resume from archive saved in each bin directory
 			int numLabels = archive.getBinMapping().binLabels().size();
 			// Loading from saved archive
 			String archiveDir = archive.getArchiveDirectory();
@@ -125,18 +139,39 @@ public class MAPElites<T> implements SteadyStateEA<T> {
 			int startSize = Parameters.parameters.integerParameter("mu");
 			ArrayList<Genotype<T>> startingPopulation = PopulationUtil.initialPopulation(example, startSize);
 			for(Genotype<T> g : startingPopulation) {
-				Score<T> s = task.evaluate(g);
+				Score<T> s = evaluate(g);
 				archive.add(s); // Fill the archive with random starting individuals
 			}	
+			if(journal != null) {
+				// Evaluating the initial population is never repeated after this point
+				EvolutionaryHistory.saveArchetype(0);
+				journal.snapshot(iterations, iterationsWithoutElite);
+			}
 		}
 	}
 
 	private void log() {
 		if(io && iterations % individualsPerGeneration == 0) {
+			long loggingStart = Profiler.start(Phase.LOGGING);
 			// When all iterations were logged, the file got too large
 			//log.log(iterations + "\t" + iterationsWithoutElite + "\t" + StringUtils.join(ArrayUtils.toObject(archive.getEliteScores()), "\t"));
 			// Just log every "generation" instead
 			log.log((iterations/individualsPerGeneration) + "\t" + StringUtils.join(ArrayUtils.toObject(archive.getEliteScores()), "\t"));
+			Profiler.stop(Phase.LOGGING, loggingStart);
+		}
+	}
+	
+	/**
+	 * Evaluate an individual, timing the evaluation for the profiler
+	 * @param g Genotype to evaluate
+	 * @return Score from the task
+	 */
+	private Score<T> evaluate(Genotype<T> g) {
+		long simulationStart = Profiler.start(Phase.SIMULATION);
+		try {
+			return task.evaluate(g);
+		} finally {
+			Profiler.stop(Phase.SIMULATION, simulationStart);
 		}
 	}
 	
@@ -150,6 +185,7 @@ public class MAPElites<T> implements SteadyStateEA<T> {
 	 */
 	@Override
 	public void newIndividual() {
+		boolean changed = false; // Whether any child was added to the archive
 		int index = archive.randomBinIndex();
 		Genotype<T> parent1 = archive.getElite(index).individual;
 		long parentId1 = parent1.getId(); // Parent Id comes from original genome
@@ -164,32 +200,74 @@ public class MAPElites<T> implements SteadyStateEA<T> {
 			Genotype<T> child2 = parent2.copy(); // Copy with different Id (further modified below)
 			
 			// Replace child2 with a crossover result, and modify child1 in the process (two new children)
-			child2 = child1.crossover(child2);
-			child2.mutate(); // Probabilistic mutation of child
+			long crossoverStart = Profiler.start(Phase.CROSSOVER);
+			try {
+				child2 = child1.crossover(child2);
+			} finally {
+				Profiler.stop(Phase.CROSSOVER, crossoverStart);
+			}
+			long mutationStart = Profiler.start(Phase.MUTATION);
+			try {
+				child2.mutate(); // Probabilistic mutation of child
+			} finally {
+				Profiler.stop(Phase.MUTATION, mutationStart);
+			}
 			EvolutionaryHistory.logLineageData(parentId1,parentId2,child2);
 			// Evaluate and add child to archive
-			Score<T> s2 = task.evaluate(child2);
+			Score<T> s2 = evaluate(child2);
 			// Indicate whether elite was added
 			boolean child2WasElite = archive.add(s2);
+			changed = child2WasElite;
 			fileUpdates(child2WasElite); // Log for each individual produced
 		}
 		
-		child1.mutate(); // Was potentially modified by crossover
+		long mutationStart = Profiler.start(Phase.MUTATION);
+		try {
+			child1.mutate(); // Was potentially modified by crossover
+		} finally {
+			Profiler.stop(Phase.MUTATION, mutationStart);
+		}
 		if (parentId2 == -1) {
 			EvolutionaryHistory.logLineageData(parentId1,child1);
 		} else {
 			EvolutionaryHistory.logLineageData(parentId1,parentId2,child1);
 		}
 		// Evaluate and add child to archive
-		Score<T> s1 = task.evaluate(child1);
+		Score<T> s1 = evaluate(child1);
 		// Indicate whether elite was added
 		boolean child1WasElite = archive.add(s1);
+		changed = changed || child1WasElite;
 		fileUpdates(child1WasElite); // Log for each individual produced
+		if(journal != null) {
+			commit(changed);
+		}
+	}
+	
+	/**
+	 * Make the results of a call to newIndividual permanent. The journal
+	 * is only committed after the archetype is saved, so that every
+	 * restored elite has its genes in the archetype.
+	 * @param changed Whether the archive changed during this iteration
+	 */
+	private void commit(boolean changed) {
+		long checkpointStart = Profiler.start(Phase.CHECKPOINT);
+		if(changed) {
+			EvolutionaryHistory.saveArchetype(0);
+		}
+		journal.commit(iterations, iterationsWithoutElite);
+		if(journal.snapshotDue(iterations)) {
+			journal.snapshot(iterations, iterationsWithoutElite);
+		}
+		Profiler.stop(Phase.CHECKPOINT, checkpointStart);
 	}
 	
 	public void fileUpdates(boolean newEliteProduced) {
 		// Log to file
 		log();
+		if(iterations % individualsPerGeneration == 0) {
+			// Profiler statistics cover one "generation" worth of iterations
+			Profiler.endGeneration(iterations/individualsPerGeneration);
+		}
 		Parameters.parameters.setInteger("lastSavedGeneration", iterations);
 		// Track total iterations
 		iterations++;
@@ -214,6 +292,10 @@ public class MAPElites<T> implements SteadyStateEA<T> {
 
 	@Override
 	public void finalCleanup() {
+		if(journal != null) {
+			journal.snapshot(iterations, iterationsWithoutElite);
+			journal.close();
+		}
 		task.finalCleanup();
 	}
 
@@ -237,4 +319,12 @@ public class MAPElites<T> implements SteadyStateEA<T> {
 	public boolean populationChanged() {
 		return iterationsWithoutElite == 0;
 	}
+
+	/**
+	 * The journal saves parameters and the archetype when needed
+	 */
+	@Override
+	public boolean managesCheckpoints() {
+		return journal != null;
+	}
 }
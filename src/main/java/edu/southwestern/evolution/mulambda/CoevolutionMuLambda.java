@@ -21,6 +21,7 @@ import edu.southwestern.util.random.RandomNumbers;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.concurrent.TimeUnit;
+import pacman.Executor;
 
 /**
  * A class which supports cooevolution. Contains many extensions of
@@ -225,6 +226,10 @@ public abstract class CoevolutionMuLambda implements MultiplePopulationGeneratio
 
 		generation++;
 		CommonConstants.trialsByGenerationUpdate(generation);
+		if (Executor.deaths != null) { // For pacman
+			// Write this generation's deaths to the log
+			Executor.deaths.deathCount();
+		}
 		VariableDirectionKStepDeathScentBlock.updateScentMaps(); // For pacman
 		DangerousAreaModeSelector.updateScentMaps(); // For pacman
 		return finalKeepers;
@@ -26,7 +26,10 @@ import edu.southwestern.tasks.mspacman.multitask.DangerousAreaModeSelector;
 import edu.southwestern.tasks.mspacman.sensors.directional.scent.VariableDirectionKStepDeathScentBlock;
 import edu.southwestern.util.PopulationUtil;
 import edu.southwestern.util.datastructures.ArrayUtil;
+import edu.southwestern.util.profiling.Phase;
+import edu.southwestern.util.profiling.Profiler;
 import edu.southwestern.util.stats.StatisticsUtilities;
+import pacman.Executor;
 
 /**
  *
@@ -238,15 +241,26 @@ public abstract class MuLambda<T> implements SinglePopulationGenerationalEA<T> {
 	 */
 	public ArrayList<Score<T>> processChildren(ArrayList<Score<T>> parentScores) {
 		// Get offspring from parents
-		ArrayList<Genotype<T>> children = performDeltaCoding(generation)
-				? PopulationUtil.getBestAndDeltaCode(parentScores) : generateChildren(lambda, parentScores);
-				// Evaluate the children
-				ArrayList<Score<T>> childrenScores = task.evaluateAll(children);
-				// Log child information to file
-				if (writeOutput && CommonConstants.logChildScores) {
-					childLog.log(childrenScores, generation);
-				}
-				return childrenScores;
+		long reproductionStart = Profiler.start(Phase.REPRODUCTION);
+		ArrayList<Genotype<T>> children;
+		try {
+			children = performDeltaCoding(generation)
+					? PopulationUtil.getBestAndDeltaCode(parentScores) : generateChildren(lambda, parentScores);
+		} finally {
+			Profiler.stop(Phase.REPRODUCTION, reproductionStart);
+		}
+		// Evaluate the children
+		ArrayList<Score<T>> childrenScores = task.evaluateAll(children);
+		// Log child information to file
+		if (writeOutput && CommonConstants.logChildScores) {
+			long loggingStart = Profiler.start(Phase.LOGGING);
+			try {
+				childLog.log(childrenScores, generation);
+			} finally {
+				Profiler.stop(Phase.LOGGING, loggingStart);
+			}
+		}
+		return childrenScores;
 	}
 
 	/**
@@ -278,8 +292,14 @@ public abstract class MuLambda<T> implements SinglePopulationGenerationalEA<T> {
 	 * @return New parent population
 	 */
 	public ArrayList<Genotype<T>> selectAndAdvance(ArrayList<Score<T>> parentScores, ArrayList<Score<T>> childrenScores) {
-		ArrayList<Score<T>> population = prepareSourcePopulation(parentScores, childrenScores);
-		ArrayList<Genotype<T>> newParents = selection(mu, population);
+		long selectionStart = Profiler.start(Phase.SELECTION);
+		ArrayList<Genotype<T>> newParents;
+		try {
+			ArrayList<Score<T>> population = prepareSourcePopulation(parentScores, childrenScores);
+			newParents = selection(mu, population);
+		} finally {
+			Profiler.stop(Phase.SELECTION, selectionStart);
+		}
 		EvolutionaryHistory.logMutationData("---Gen " + generation + " Over-----------------");
 		EvolutionaryHistory.logLineageData("---Gen " + generation + " Over-----------------");
 		generation++;
@@ -295,6 +315,10 @@ public abstract class MuLambda<T> implements SinglePopulationGenerationalEA<T> {
 			if (Parameters.parameters.booleanParameter("incrementallyDecreasingLairTime")) { // For pacman
 				MsPacManInitialization.setLairTimeBasedOnGeneration(generation);
 			}
+			if (Executor.deaths != null) { // For pacman
+				// Write this generation's deaths to the log
+				Executor.deaths.deathCount();
+			}
 			VariableDirectionKStepDeathScentBlock.updateScentMaps(); // For pacman
 			DangerousAreaModeSelector.updateScentMaps(); // For pacman
 		}
@@ -389,12 +413,17 @@ public abstract class MuLambda<T> implements SinglePopulationGenerationalEA<T> {
 		// getting out of sync.
 		// This way, all logs are updated at once, along with the generation
 		// param being advanced.
-		logParentInfo(parentScores);
-		if (writeOutput) {
-			ArrayList<Score<T>> combined = new ArrayList<Score<T>>(mu + lambda);
-			combined.addAll(parentScores);
-			combined.addAll(childrenScores);
-			MMNEAT.logPerformanceInformation(combined, generation);
+		long loggingStart = Profiler.start(Phase.LOGGING);
+		try {
+			logParentInfo(parentScores);
+			if (writeOutput) {
+				ArrayList<Score<T>> combined = new ArrayList<Score<T>>(mu + lambda);
+				combined.addAll(parentScores);
+				combined.addAll(childrenScores);
+				MMNEAT.logPerformanceInformation(combined, generation);
+			}
+		} finally {
+			Profiler.stop(Phase.LOGGING, loggingStart);
 		}
 		ArrayList<Genotype<T>> result = selectAndAdvance(parentScores, childrenScores);
 		if(CommonConstants.hybrID && currentGeneration() == Parameters.parameters.integerParameter("hybrIDSwitchGeneration")) {	
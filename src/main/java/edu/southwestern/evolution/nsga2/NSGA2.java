@@ -13,6 +13,8 @@ import edu.southwestern.scores.Score;
 import edu.southwestern.tasks.NoisyLonerTask;
 import edu.southwestern.tasks.SinglePopulationTask;
 import edu.southwestern.util.datastructures.Pair;
+import edu.southwestern.util.profiling.Phase;
+import edu.southwestern.util.profiling.Profiler;
 import edu.southwestern.util.random.RandomNumbers;
 
 import java.util.ArrayList;
@@ -139,7 +141,12 @@ public class NSGA2<T> extends MuPlusLambda<T> {
 						Genotype<T> other = otherSource.copy();
 						// Genotype e is directly modified by the crossover call.
 						// Genotype otherOffspring is now a modified version of other.
-						otherOffspring = e.crossover(other);
+						long crossoverStart = Profiler.start(Phase.CROSSOVER);
+						try {
+							otherOffspring = e.crossover(other);
+						} finally {
+							Profiler.stop(Phase.CROSSOVER, crossoverStart);
+						}
 						assert otherOffspring.getId() != otherSource.getId() : "otherOffspring should be a newly created genotype. otherSource.getId() is " + otherSource.getId() + 
 																	           ", and otherOffspring.getId() is "+otherOffspring.getId()+", and other.getId() is "+other.getId();
 					}
@@ -150,13 +157,23 @@ public class NSGA2<T> extends MuPlusLambda<T> {
 					 * always be added.
 					 */
 					if (i < numChildren) {
-						otherOffspring.mutate();
+						long mutationStart = Profiler.start(Phase.MUTATION);
+						try {
+							otherOffspring.mutate();
+						} finally {
+							Profiler.stop(Phase.MUTATION, mutationStart);
+						}
 						offspring.add(otherOffspring);
 						EvolutionaryHistory.logLineageData(parentId1,parentId2,otherOffspring);
 					}
 				}
 
-				e.mutate();// randomly mutates copied source
+				long mutationStart = Profiler.start(Phase.MUTATION);
+				try {
+					e.mutate();// randomly mutates copied source
+				} finally {
+					Profiler.stop(Phase.MUTATION, mutationStart);
+				}
 			}
 
 			offspring.add(e);
@@ -15,6 +15,8 @@ import edu.southwestern.tasks.BlueprintTask;
 import edu.southwestern.tasks.MultiplePopulationTask;
 import edu.southwestern.util.file.FileUtilities;
 import edu.southwestern.util.PopulationUtil;
+import edu.southwestern.util.profiling.Phase;
+import edu.southwestern.util.profiling.Profiler;
 import edu.southwestern.util.random.RandomNumbers;
 import java.io.File;
 import java.util.ArrayList;
@@ -211,6 +213,7 @@ public abstract class MultiplePopulationGenerationalEAExperiment implements Expe
 					EvolutionaryHistory.cleanArchetype(i, tweannPopulation, gen);
 				}
 			}
+			long checkpointStart = Profiler.start(Phase.CHECKPOINT);
 			if (writeOutput) {
 				ScoreHistory.save(); // Only saves if actually being used
 			}
@@ -237,6 +240,9 @@ public abstract class MultiplePopulationGenerationalEAExperiment implements Expe
 					lastDir.delete();
 				}
 			}
+			Profiler.stop(Phase.CHECKPOINT, checkpointStart);
+			// Generation gen - 1 is now complete
+			Profiler.endGeneration(gen - 1);
 		}
 		ea.close(populations);
 		if (blueprintLog != null) {
@@ -11,6 +11,8 @@ import edu.southwestern.experiment.Experiment;
 import edu.southwestern.parameters.Parameters;
 import edu.southwestern.util.PopulationUtil;
 import edu.southwestern.util.file.FileUtilities;
+import edu.southwestern.util.profiling.Phase;
+import edu.southwestern.util.profiling.Profiler;
 import edu.southwestern.util.random.RandomNumbers;
 import java.io.File;
 import java.util.ArrayList;
@@ -222,6 +224,7 @@ public abstract class SinglePopulationGenerationalEAExperiment<T> implements Exp
 				}
 				EvolutionaryHistory.cleanArchetype(0, tweannPopulation, gen);
 			}
+			long checkpointStart = Profiler.start(Phase.CHECKPOINT);
 			if (writeOutput) {
 				ScoreHistory.save(); // Only saves if actually being used
 			}
@@ -240,6 +243,9 @@ public abstract class SinglePopulationGenerationalEAExperiment<T> implements Exp
 					}
 				}
 			}
+			Profiler.stop(Phase.CHECKPOINT, checkpointStart);
+			// Generation gen - 1 is now complete
+			Profiler.endGeneration(gen - 1);
 		}
 		ea.close(population);
 		System.out.println("Finished evolving");
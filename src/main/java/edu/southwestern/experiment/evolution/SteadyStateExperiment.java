@@ -9,6 +9,8 @@ import edu.southwestern.evolution.genotypes.Genotype;
 import edu.southwestern.evolution.genotypes.TWEANNGenotype;
 import edu.southwestern.experiment.Experiment;
 import edu.southwestern.parameters.Parameters;
+import edu.southwestern.util.profiling.Phase;
+import edu.southwestern.util.profiling.Profiler;
 
 public class SteadyStateExperiment<T> implements Experiment {
 
@@ -38,9 +40,13 @@ public class SteadyStateExperiment<T> implements Experiment {
 	public void run() {
 		while(!shouldStop()) { // Until done
 			ea.newIndividual(); // Make new individuals
-			Parameters.parameters.saveParameters(); // Save the parameters and the archetype
-			if(ea.populationChanged()) { // In steady state, not every individual is added to the population
-				EvolutionaryHistory.saveArchetype(0);
+			if(!ea.managesCheckpoints()) {
+				long checkpointStart = Profiler.start(Phase.CHECKPOINT);
+				Parameters.parameters.saveParameters(); // Save the parameters and the archetype
+				if(ea.populationChanged()) { // In steady state, not every individual is added to the population
+					EvolutionaryHistory.saveArchetype(0);
+				}
+				Profiler.stop(Phase.CHECKPOINT, checkpointStart);
 			}
 			if(cleanArchetype) { // Periodically clean extinct genes from the archetype
 				ArrayList<Genotype<T>> pop = ea.getPopulation();
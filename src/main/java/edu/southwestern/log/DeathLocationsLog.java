@@ -6,9 +6,26 @@ import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import pacman.game.Constants;
+import pacman.game.Game;
 
 /**
+ * Log of every location where Ms. Pac-Man died, one "maze:location" line
+ * per death. Deaths are counted in memory as they happen, with lock-free
+ * increments per maze node, so games evaluated in parallel can all record
+ * deaths. The new deaths are appended to the file whenever a snapshot is
+ * taken with deathCount. The mu/lambda EAs take one at the end of every
+ * generation, before the death scent sensors refresh their own snapshots,
+ * and one is taken when the log is closed. Every reader of a snapshot
+ * therefore sees the same counts for the whole generation, no matter how
+ * many deaths are recorded meanwhile.
+ *
+ * Lines of the file that are malformed, or name a maze or location that
+ * does not exist, are reported and skipped when the file is read back.
  *
  * @author Jacob
  */
@@ -18,18 +35,117 @@ public class DeathLocationsLog extends MMNEATLog {
     
 	private HashMap<Integer, HashMap<Integer, ArrayList<Integer>>> intensities = null;
 	private HashMap<Integer, ArrayList<Integer>> sortedKeys = null;
+	// Deaths per node of each maze, including those loaded from the file
+	private final AtomicReferenceArray<AtomicIntegerArray> counts = new AtomicReferenceArray<AtomicIntegerArray>(Constants.NUM_MAZES);
+	// Deaths per node already written to the file
+	private final int[][] written = new int[Constants.NUM_MAZES][];
+	private volatile Map<Integer, Map<Integer, Integer>> snapshot;
 
 	public DeathLocationsLog() {
 		super("DeathLocations", false, true);
+		// Deaths from before a resume are in the file already
+		Map<Integer, Map<Integer, Integer>> old = readFile();
+		for (Integer maze : old.keySet()) {
+			for (Integer location : old.get(maze).keySet()) {
+				int count = old.get(maze).get(location);
+				mazeCounts(maze).addAndGet(location, count);
+				written[maze][location] += count;
+			}
+		}
+		snapshot = old;
+	}
+
+	/**
+	 * Counts for one maze, created the first time a death happens there
+	 */
+	private AtomicIntegerArray mazeCounts(int maze) {
+		AtomicIntegerArray mazeCounts = counts.get(maze);
+		if (mazeCounts == null) {
+			synchronized (written) {
+				mazeCounts = counts.get(maze);
+				if (mazeCounts == null) {
+					int numNodes = Game.getMaze(maze).graph.length;
+					// Ready before the counts are visible to deathCount
+					written[maze] = new int[numNodes];
+					mazeCounts = new AtomicIntegerArray(numNodes);
+					counts.set(maze, mazeCounts);
+				}
+			}
+		}
+		return mazeCounts;
 	}
 
 	/**
-	 * Returns (maze, (location, death count)) hash
+	 * Record a death. Safe to call from any number of threads at once.
+	 *
+	 * @param maze
+	 *            maze index
+	 * @param location
+	 *            node index where Ms. Pac-Man died
+	 */
+	public void recordDeath(int maze, int location) {
+		mazeCounts(maze).incrementAndGet(location);
+	}
+
+	/**
+	 * Write all deaths recorded since the previous snapshot to the file, and
+	 * make the current counts the snapshot seen by readers.
+	 *
+	 * @return unmodifiable (maze, (location, death count)) map
+	 */
+	public synchronized Map<Integer, Map<Integer, Integer>> deathCount() {
+		HashMap<Integer, Map<Integer, Integer>> result = new HashMap<Integer, Map<Integer, Integer>>();
+		for (int maze = 0; maze < Constants.NUM_MAZES; maze++) {
+			AtomicIntegerArray mazeCounts = counts.get(maze);
+			if (mazeCounts == null) {
+				continue;
+			}
+			HashMap<Integer, Integer> mazeHash = new HashMap<Integer, Integer>();
+			for (int location = 0; location < mazeCounts.length(); location++) {
+				int count = mazeCounts.get(location);
+				if (count > 0) {
+					mazeHash.put(location, count);
+					if (stream != null) {
+						for (int i = written[maze][location]; i < count; i++) {
+							log(maze + ":" + location);
+						}
+						written[maze][location] = count;
+					}
+				}
+			}
+			result.put(maze, Collections.unmodifiableMap(mazeHash));
+		}
+		if (stream != null) {
+			stream.flush();
+		}
+		snapshot = Collections.unmodifiableMap(result);
+		return snapshot;
+	}
+
+	/**
+	 * @return unmodifiable counts as of the most recent call to deathCount
+	 */
+	public Map<Integer, Map<Integer, Integer>> latestSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Write out any remaining deaths before closing
+	 */
+	@Override
+	public void close() {
+		deathCount();
+		super.close();
+	}
+
+	/**
+	 * Returns (maze, (location, death count)) hash of the deaths in the file.
+	 * Lines that do not name a node of a maze are reported and skipped.
 	 *
 	 * @return
 	 */
-	public HashMap<Integer, HashMap<Integer, Integer>> deathCount() {
-		HashMap<Integer, HashMap<Integer, Integer>> result = new HashMap<Integer, HashMap<Integer, Integer>>();
+	private Map<Integer, Map<Integer, Integer>> readFile() {
+		HashMap<Integer, Map<Integer, Integer>> result = new HashMap<Integer, Map<Integer, Integer>>();
 		Scanner read;
 		try {
 			read = new Scanner(getFile());
@@ -39,29 +155,32 @@ public class DeathLocationsLog extends MMNEATLog {
 		while (read.hasNextLine()) {
 			String line = read.nextLine();
 			// System.out.println("Read: " + line);
-			Scanner pair = new Scanner(line);
-			pair.useDelimiter(":");
-			if (!pair.hasNext()) {
+			String[] pair = line.trim().split(":");
+			int maze;
+			int location;
+			try {
+				if (pair.length != 2) {
+					throw new NumberFormatException();
+				}
+				maze = Integer.parseInt(pair[0]);
+				location = Integer.parseInt(pair[1]);
+			} catch (NumberFormatException e) {
 				System.out.println("Death Location Log read error on line: " + line);
 				continue;
 			}
-			int maze = pair.nextInt();
-			// System.out.print("maze:" + maze);
-			if (!pair.hasNext()) {
-				System.out.println("Death Location Log read error on line: " + line);
+			if (maze < 0 || maze >= Constants.NUM_MAZES || location < 0
+					|| location >= Game.getMaze(maze).graph.length) {
+				System.out.println("Death Location Log location out of range on line: " + line);
 				continue;
 			}
-			int location = pair.nextInt();
-			// System.out.println(":location:" + location);
 			if (!result.containsKey(maze)) {
 				result.put(maze, new HashMap<Integer, Integer>());
 			}
-			HashMap<Integer, Integer> mazeHash = result.get(maze);
+			Map<Integer, Integer> mazeHash = result.get(maze);
 			if (!mazeHash.containsKey(location)) {
 				mazeHash.put(location, 0);
 			}
 			mazeHash.put(location, mazeHash.get(location) + 1);
-			pair.close();
 		}
 		read.close();
 		// System.out.println("Return death count");
@@ -76,7 +195,7 @@ public class DeathLocationsLog extends MMNEATLog {
 	 *            (location, death count) hash
 	 * @return
 	 */
-	public HashMap<Integer, ArrayList<Integer>> intensityGroups(HashMap<Integer, Integer> deaths) {
+	public HashMap<Integer, ArrayList<Integer>> intensityGroups(Map<Integer, Integer> deaths) {
 		HashMap<Integer, ArrayList<Integer>> result = new HashMap<Integer, ArrayList<Integer>>();
 		for (Integer location : deaths.keySet()) {
 			int count = deaths.get(location);
@@ -95,7 +214,7 @@ public class DeathLocationsLog extends MMNEATLog {
 	 */
 	public void heatMap(GameFacade g) {
 		if (intensities == null) {
-			HashMap<Integer, HashMap<Integer, Integer>> deaths = deathCount();
+			Map<Integer, Map<Integer, Integer>> deaths = latestSnapshot();
 			intensities = new HashMap<Integer, HashMap<Integer, ArrayList<Integer>>>();
 			sortedKeys = new HashMap<Integer, ArrayList<Integer>>();
 			for (Integer maze : deaths.keySet()) {
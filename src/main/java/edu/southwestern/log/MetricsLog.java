@@ -0,0 +1,18 @@
+package edu.southwestern.log;
+
+import edu.southwestern.util.profiling.Profiler;
+
+/**
+ * Per-generation profiler statistics. Logs in raw mode so that a
+ * resumed experiment appends to the existing file.
+ */
+public class MetricsLog extends MMNEATLog {
+
+	public MetricsLog() {
+		super("Metrics", false, false, false, true);
+		if (getFile().length() == 0) {
+			// Commented header so that gnuplot skips it
+			log("# " + Profiler.Snapshot.logHeader());
+		}
+	}
+}
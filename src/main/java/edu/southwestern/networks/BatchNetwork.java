@@ -0,0 +1,24 @@
+package edu.southwestern.networks;
+
+/**
+ * A network that can process many independent input vectors in one call.
+ * Only networks without recurrent state between calls can do this, since
+ * each row of the batch may come from a different evaluation.
+ */
+public interface BatchNetwork extends Network {
+
+	/**
+	 * Process batchSize input vectors stored one after the other in a single
+	 * array, and store the output vectors the same way. Row i of the input
+	 * starts at i * numInputs() and row i of the output at i * numOutputs().
+	 *
+	 * @param inputs
+	 *            batchSize * numInputs() input values
+	 * @param batchSize
+	 *            number of rows to process
+	 * @param outputs
+	 *            array of at least batchSize * numOutputs() values, filled by
+	 *            side effect
+	 */
+	public void processBatch(double[] inputs, int batchSize, double[] outputs);
+}
@@ -13,6 +13,8 @@ import edu.southwestern.util.CombinatoricUtilities;
 import edu.southwestern.util.graphics.DrawingPanel;
 import edu.southwestern.util.graphics.GraphicsUtil;
 import edu.southwestern.util.graphics.Plot;
+import edu.southwestern.util.profiling.Phase;
+import edu.southwestern.util.profiling.Profiler;
 import edu.southwestern.util.random.RandomNumbers;
 import edu.southwestern.util.stats.StatisticsUtilities;
 
@@ -648,31 +650,36 @@ public class TWEANN implements Network {
 		assert(inputs.length == numIn) : "Input mismatch! numIn = " + numIn + "\n" + "inputs.length = " + inputs.length + "\n" + Arrays.toString(inputs);
 		assert(numIn <= nodes.size()) : "Input mismatch! numIn = " + numIn + "\n" + "nodes.size() = " + nodes.size() + "\n" + nodes;
 
+		long forwardStart = Profiler.start(Phase.FORWARD);
 		try {
-			// Load inputs
-			for (int i = 0; i < numIn; i++) {
-				assert !Double.isNaN(inputs[i]) : "Input " + i + " is NaN!" + Arrays.toString(inputs);
-				nodes.get(i).load(inputs[i]);
+			try {
+				// Load inputs
+				for (int i = 0; i < numIn; i++) {
+					assert !Double.isNaN(inputs[i]) : "Input " + i + " is NaN!" + Arrays.toString(inputs);
+					nodes.get(i).load(inputs[i]);
+				}
+			} catch(ArrayIndexOutOfBoundsException e) {
+				System.out.println("CRASH! inputs = " + Arrays.toString(inputs));
+				throw e;
 			}
-		} catch(ArrayIndexOutOfBoundsException e) {
-			System.out.println("CRASH! inputs = " + Arrays.toString(inputs));
-			throw e;
-		}
 
-		// Activate nodes in forward order
-		for (int i = 0; i < nodes.size(); i++) {
-			nodes.get(i).activateAndTransmit();
-		}
+			// Activate nodes in forward order
+			for (int i = 0; i < nodes.size(); i++) {
+				nodes.get(i).activateAndTransmit();
+			}
 		
-		// Option: if there is remaining activation in the output neurons, 
-		// then process it. Used when importing CPPNs from original Picbreeder
-		if(finalPassOnOutputActivation) {
-			for(int i = this.outputStart; i < nodes.size(); i++) {
-				// This means input arrived after last reset
-				if(nodes.get(i).sum != nodes.get(i).bias) {
-					nodes.get(i).activateAndTransmit();
+			// Option: if there is remaining activation in the output neurons, 
+			// then process it. Used when importing CPPNs from original Picbreeder
+			if(finalPassOnOutputActivation) {
+				for(int i = this.outputStart; i < nodes.size(); i++) {
+					// This means input arrived after last reset
+					if(nodes.get(i).sum != nodes.get(i).bias) {
+						nodes.get(i).activateAndTransmit();
+					}
 				}
 			}
+		} finally {
+			Profiler.stop(Phase.FORWARD, forwardStart);
 		}
 		
 		// All outputs
@@ -4,7 +4,7 @@ import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.factory.Nd4j;
 
-import edu.southwestern.networks.Network;
+import edu.southwestern.networks.BatchNetwork;
 import edu.southwestern.util.datastructures.ArrayUtil;
 
 /**
@@ -15,7 +15,7 @@ import edu.southwestern.util.datastructures.ArrayUtil;
  * Network class as a facade to access those method.
  * @author Jacob Schrum
  */
-public class DL4JNetworkWrapper implements Network {
+public class DL4JNetworkWrapper implements BatchNetwork {
 
 	public static final int INDEX_INPUT_BATCH = 0;
 	public static final int INDEX_INPUT_CHANNELS = 1;
@@ -113,6 +113,22 @@ public class DL4JNetworkWrapper implements Network {
 		return ArrayUtil.doubleArrayFromINDArray(flat);
 	}
 	
+	/**
+	 * Stack all input rows along the batch dimension of the input shape,
+	 * so that the DL4J network processes the whole batch in a single
+	 * forward pass, then copy the output rows back into the flat array.
+	 */
+	@Override
+	public void processBatch(double[] inputs, int batchSize, double[] outputs) {
+		int[] batchShape = inputShape.clone();
+		batchShape[INDEX_INPUT_BATCH] = batchSize;
+		INDArray tensorInput = Nd4j.create(ArrayUtil.portion(inputs, 0, batchSize * numInputs() - 1), batchShape, 'c');
+		INDArray tensorOutput = net.output(tensorInput);
+		INDArray flat = Nd4j.toFlattened('c', tensorOutput);
+		double[] result = ArrayUtil.doubleArrayFromINDArray(flat);
+		System.arraycopy(result, 0, outputs, 0, batchSize * outputCount);
+	}
+	
 	/**
 	 * Take linear array of network inputs and reshape into
 	 * an INDArray according to the inputShape.
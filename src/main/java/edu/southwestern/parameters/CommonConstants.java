@@ -53,6 +53,8 @@ public class CommonConstants {
 	public static boolean nicheRestrictionOnModeMutation;
 	public static boolean onlyModeMutationWhenModesSame;
 	public static boolean pacmanFatalTimeLimit;
+	public static boolean pacmanBatchTrials;
+	public static boolean pacmanHeadless;
 	public static boolean pacManSensorCaching;
 	public static boolean polynomialWeightMutation;
 	public static boolean probabilisticSelection;
@@ -163,6 +165,8 @@ public class CommonConstants {
 		nicheRestrictionOnModeMutation = Parameters.parameters.booleanParameter("nicheRestrictionOnModeMutation");
 		onlyModeMutationWhenModesSame = Parameters.parameters.booleanParameter("onlyModeMutationWhenModesSame");
 		pacmanFatalTimeLimit = Parameters.parameters.booleanParameter("pacmanFatalTimeLimit");
+		pacmanBatchTrials = Parameters.parameters.booleanParameter("pacmanBatchTrials");
+		pacmanHeadless = Parameters.parameters.booleanParameter("pacmanHeadless");
 		pacManSensorCaching = Parameters.parameters.booleanParameter("pacManSensorCaching");
 		polynomialWeightMutation = Parameters.parameters.booleanParameter("polynomialWeightMutation");
 		probabilisticSelection = Parameters.parameters.booleanParameter("probabilisticSelection");
@@ -42,6 +42,7 @@ import edu.southwestern.util.sound.SoundUtilExamples;
 import edu.southwestern.util.stats.Average;
 import edu.southwestern.util.stats.Max;
 import micro.ai.RandomBiasedAI;
+import micro.ai.abstraction.pathfinding.AStarPathFinding;
 import micro.ai.mcts.uct.UCT;
 import pacman.controllers.examples.Legacy;
 import pacman.controllers.examples.StarterPacMan;
@@ -249,6 +250,7 @@ public class Parameters {
 		integerOptions.add("lastSavedGeneration", 0, "Last generation where genotypes were saved");
 		integerOptions.add("runNumber", 0, "Number to designate this run of an experiment");
 		integerOptions.add("threads", 4, "Number of threads if evaluating in parallel");
+		integerOptions.add("profilePort", -1, "Local port serving profiler statistics over HTTP (-1 for none)");
 		integerOptions.add("multitaskModes", 1, "Number of multitask modes (1 if not multitask at all)");
 		integerOptions.add("pacmanLives", 1, "Lives that a pacman agent starts with");
 		integerOptions.add("hiddenMLPNeurons", 10, "Number of hidden neurons for MLPs");
@@ -312,6 +314,7 @@ public class Parameters {
 		integerOptions.add("maxPause", 500, "Maximum pause length between each iteraton of animation in AnimationBreeder");
 		integerOptions.add("defaultFramePause", 50, "Default pause length between frames in AnimationBreeder");
 		integerOptions.add("steadyStateIndividualsPerGeneration", 400, "How many individuals count as a log generation for SteadyStateEAs");
+		integerOptions.add("journalSnapshotFrequency", 1000, "Iterations between compacted snapshots of the MAP Elites archive journal");
 		integerOptions.add("numShapeInnovationSamples", 3, "Number of angles to take 2D image of 3D shape from for shape innovation task");
 		integerOptions.add("receptiveFieldSize", 3, "Size of input windows for convolutional structures");
 		integerOptions.add("stride", 1, "Offset between receptive fields in convolutional structures");
@@ -320,6 +323,8 @@ public class Parameters {
 		integerOptions.add("defaultPitch", 36, "Default pitch value for 3DObjectbreeder vertical rotation");
 		integerOptions.add("defaultHeading", 36, "Default heading value for 3DObjectbreeder horizaontal rotation");
 		integerOptions.add("microRTSInputSize", 1, "x by x cells in the game that are condensed into a single input");
+		integerOptions.add("microRTSLeafBatchSize", 1, "Number of MCTS playouts in microRTS whose final states are evaluated together by the evaluation function");
+		integerOptions.add("microRTSSearchThreads", 1, "Number of threads used by ParallelNaiveMCTS in microRTS");
 		integerOptions.add("boardGameStaticOpponentRuns", 1, "Number of Board Game matches to play against the Static Opponent Fitness Function");
 		integerOptions.add("hallOfFamePastGens", 10, "Number of Generations in the past to use for the Hall Of Fame");
 		integerOptions.add("hallOfFameNumChamps", 10, "Number of Champions from the Hall Of Fame to play against");
@@ -380,7 +385,11 @@ public class Parameters {
 		booleanOptions.add("overrideImageSize", false, "For image match task, draw CPPNs with different size than actual image size");
 		booleanOptions.add("logTWEANNData", false, "Whether or not to log TWEANN data");
 		booleanOptions.add("logMutationAndLineage", false, "Whether or not to log information about the mutations and lineage");
+		booleanOptions.add("lineageStore", false, "Lineage browser keeps lineage in an indexed store on disk rather than in memory");
 		booleanOptions.add("logPerformance", false, "Whether or not to log performance information in a performance log");
+		booleanOptions.add("mapElitesJournal", false, "MAP Elites records archive changes in a journal that allows exact resume after a crash");
+		booleanOptions.add("profile", false, "Record time spent in each phase of every generation in a Metrics log");
+		booleanOptions.add("profileJMX", false, "Make profiler statistics available through JMX");
 		booleanOptions.add("indivPredMinDistIndivPrey", false, "Turn on to encourage the individual predator to be as close to the individual prey as possible by the end of the game");
 		booleanOptions.add("indivPredMinDist", false, "Turn on to encourage the individual predator to be as close to the prey as possible by the end of the game");
 		booleanOptions.add("indivPreyMaxDistIndivPred", false, "Turn on to encourage the individual prey to be as far from the individual predator as possible by the end of the game");
@@ -454,6 +463,8 @@ public class Parameters {
 		booleanOptions.add("getRemainingPills", false, "CEC 2011 rule that Ms. Pac-Man gets the pills in the level when time runs out");
 		booleanOptions.add("evolveGhosts", false, "Evolve ghosts instead of pacman");
 		booleanOptions.add("timedPacman", false, "Pacman moves have time limit, even in non-visual mode");
+		booleanOptions.add("pacmanHeadless", false, "Untimed pacman evals call controllers inline on the live game instead of on per-tick copies");
+		booleanOptions.add("pacmanBatchTrials", false, "Play all untimed trials of a pacman individual together, batching the network calls of the games");
 		booleanOptions.add("modePheremone", false, "Drop pheremone according to mode used");
 		booleanOptions.add("incrementallyDecreasingEdibleTime", false, "Edible time decreases as generations pass");
 		booleanOptions.add("incrementallyDecreasingLairTime", false, "Lair time decreases as generations pass");
@@ -646,6 +657,9 @@ public class Parameters {
 		booleanOptions.add("mRTSMyBuildingGradientMobileUnits", false, "whether there is a substrate with my mobile units scored using the gradient to the enemy buildings");
 		booleanOptions.add("heuristicOverrideTerminalStates", false, "Overrides the Network's evaluation of a terminal BoardGameState");
 		booleanOptions.add("microRTSGrowingEnemySet", false, "adds multiple enemies to a trial instead of cycling through them by generation");
+		booleanOptions.add("microRTSEvaluationCache", false, "Remember neural network evaluations of microRTS states that are reached more than once");
+		booleanOptions.add("microRTSIncrementalEncoding", true, "Only encode the cells of microRTS boards that changed since the last neural network evaluation");
+		booleanOptions.add("microRTSRootParallelism", false, "ParallelNaiveMCTS threads search separate trees instead of sharing one");
 		booleanOptions.add("hybrID", false, "Indicates whether HybrID is running or not");
 		booleanOptions.add("offsetHybrID", false, "Determines whether to implement preset-switch version of HybrID or offset version of HybrID");
 		booleanOptions.add("hallOfFame", false, "Creates a Hall Of Fame during Single Population Coevolution");
@@ -831,6 +845,7 @@ public class Parameters {
 		classOptions.add("microRTSFitnessFunction", WinLossFitnessFunction.class, "File containing fitness function for MicroRTSTask");
 		classOptions.add("microRTSAgent", UCT.class, "File containing AI to evolve in MicroRTSTask");
 		classOptions.add("microRTSOpponent", RandomBiasedAI.class, "File containing AI to play against in MicroRTSTask");
+		classOptions.add("microRTSPathFinding", AStarPathFinding.class, "Path finding of scripted microRTS AIs (WorkerRush, LightRush) created from parameters");
 		classOptions.add("microRTSOpponentEvaluationFunction", null, "File containing evaluation function for opponent in MicroRTSTask");
 		classOptions.add("microRTSEnemySequence", null, "class containing sequence of opponents for iterative evolution");
 		classOptions.add("microRTSMapSequence", null, "class containing sequence of maps for iterative evolution");
@@ -9,6 +9,7 @@ import edu.southwestern.evolution.genotypes.Genotype;
 import edu.southwestern.parameters.CommonConstants;
 import edu.southwestern.util.ClassCreation;
 import edu.southwestern.util.datastructures.ArrayUtil;
+import edu.southwestern.util.stats.MomentStatistic;
 import edu.southwestern.util.stats.Statistic;
 
 /**
@@ -24,7 +25,10 @@ public class Score<T> {
 	static {
 		if(CommonConstants.averageScoreHistory) {
 			try {
-				scoreHistoryStat = (Statistic) ClassCreation.createObject("noisyTaskStat");
+				Statistic stat = (Statistic) ClassCreation.createObject("noisyTaskStat");
+				// ScoreHistory only keeps running moments of the scores unless told to keep every score
+				ScoreHistory.retainAllScores(!(stat instanceof MomentStatistic));
+				scoreHistoryStat = stat;
 			} catch (NoSuchMethodException ex) {
 				ex.printStackTrace();
 				System.exit(1);
@@ -31,6 +31,8 @@ import edu.southwestern.util.PopulationUtil;
 import edu.southwestern.util.datastructures.Pair;
 import edu.southwestern.util.file.FileUtilities;
 import edu.southwestern.util.graphics.DrawingPanel;
+import edu.southwestern.util.profiling.Phase;
+import edu.southwestern.util.profiling.Profiler;
 import wox.serial.Easy;
 
 /**
@@ -54,6 +56,8 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 
 		private final Genotype<T> genotype;
 		private final LonerTask<T> task;
+		// Whether this is run by a thread pool
+		private final boolean pooled;
 
 		/**
 		 * a constructor for creating an evaluation thread
@@ -62,8 +66,19 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 		 * @param g
 		 */
 		public EvaluationThread(LonerTask<T> task, Genotype<T> g) {
+			this(task, g, false);
+		}
+
+		/**
+		 * @param task Task to evaluate in
+		 * @param g Genotype to evaluate
+		 * @param pooled Whether the evaluation is submitted to a thread pool,
+		 *               in which case its time counts towards pool utilization
+		 */
+		public EvaluationThread(LonerTask<T> task, Genotype<T> g, boolean pooled) {
 			this.genotype = g;
 			this.task = task;
+			this.pooled = pooled;
 		}
 
 		/**
@@ -76,6 +91,7 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 		@SuppressWarnings("unchecked")
 		@Override
 		public Score<T> call() {
+			long began = pooled ? Profiler.time() : 0;
 			// Before any evaluation happens
 			preEval();
 			//System.out.println("preEval done on gen " + MMNEAT.ea.currentGeneration());
@@ -89,8 +105,14 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 				MMNEAT.evalReport = new EvalLog("Eval-Net" + genotype.getId());
 			}
 			long before = System.currentTimeMillis();
-			// finds the score based on evaluation of the task's genotype
-			Score<T> score = task.evaluate(genotype);
+			long simulationStart = Profiler.start(Phase.SIMULATION);
+			Score<T> score;
+			try {
+				// finds the score based on evaluation of the task's genotype
+				score = task.evaluate(genotype);
+			} finally {
+				Profiler.stop(Phase.SIMULATION, simulationStart);
+			}
 			long after = System.currentTimeMillis();
 			// if there is an evalReport, save it
 			if (MMNEAT.evalReport != null) {
@@ -124,6 +146,7 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 			if(cppnPanel != null) {
 				cppnPanel.dispose();
 			}
+			Profiler.poolWork(began);
 			return score;
 		}
 	}
@@ -179,10 +202,11 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 		// it to the calls list
 		for (int i = 0; i < population.size(); i++) {
 			Genotype<T> genotype = population.get(i);
-			EvaluationThread callable = new EvaluationThread(this, genotype);
+			EvaluationThread callable = new EvaluationThread(this, genotype, parallel);
 			calls.add(callable);
 		}
 
+		long poolStart = parallel ? Profiler.time() : 0;
 		if (parallel) {
 			poolExecutor = Executors.newFixedThreadPool(threads);
 			futures = new ArrayList<Future<Score<T>>>(population.size());
@@ -233,6 +257,8 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 				System.exit(1);
 			}
 		}
+		// All pooled evaluations are complete once every result is retrieved
+		Profiler.poolBatch(poolStart, Math.min(threads, population.size()));
 
 		if (bestPacMan != null) {
 			// Save best pacman
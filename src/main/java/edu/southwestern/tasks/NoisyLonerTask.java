@@ -68,6 +68,22 @@ public abstract class NoisyLonerTask<T> extends LonerTask<T> {
 	 */
 	public abstract Pair<double[], double[]> oneEval(Genotype<T> individual, int num);
 
+	/**
+	 * All evaluations of a genotype at once, for domains that can play
+	 * several trials together. By default trials are run one at a time
+	 * by oneEval.
+	 *
+	 * @param individual
+	 *            genotype to be evaluated
+	 * @param numTrials
+	 *            number of evaluations to perform
+	 * @return result of oneEval for each evaluation, or null if the
+	 *         evaluations must be run one at a time
+	 */
+	public Pair<double[], double[]>[] allEvals(Genotype<T> individual, int numTrials) {
+		return null;
+	}
+
 	/**
 	 * Evaluate an agent by subjecting it to several separate evaluations/trials
 	 * in the domain. Return the fitness score(s)
@@ -95,13 +111,18 @@ public abstract class NoisyLonerTask<T> extends LonerTask<T> {
 		double[][] otherScores = new double[numTrials][this.numOtherScores()];
 		double evalTimeSum = 0;
 		
+		long batchStart = System.currentTimeMillis();
+		Pair<double[], double[]>[] batch = allEvals(individual, numTrials);
+		if (batch != null) {
+			evalTimeSum += System.currentTimeMillis() - batchStart;
+		}
 		// Carry out all trials and save all scores
 		for (int i = 0; i < numTrials; i++) {
 			long before = System.currentTimeMillis();
 			if (MMNEAT.evalReport != null) {
 				MMNEAT.evalReport.log("Eval " + i + ":");
 			}
-			Pair<double[], double[]> result = oneEval(individual, i);
+			Pair<double[], double[]> result = batch == null ? oneEval(individual, i) : batch[i];
 			if (printFitness) {
 				System.out.println(Arrays.toString(result.t1) + Arrays.toString(result.t2));
 				if (individual instanceof TWEANNGenotype) {
@@ -4,6 +4,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import edu.southwestern.MMNEAT.MMNEAT;
 import edu.southwestern.evolution.GenerationalEA;
@@ -16,15 +23,23 @@ import edu.southwestern.util.ClassCreation;
 import edu.southwestern.util.PopulationUtil;
 import edu.southwestern.util.datastructures.Pair;
 import edu.southwestern.util.graphics.DrawingPanel;
+import edu.southwestern.util.profiling.Profiler;
+import edu.southwestern.util.random.RandomNumbers;
 import edu.southwestern.util.stats.Statistic;
 
 public abstract class SinglePopulationCoevolutionTask<T> implements SinglePopulationTask<T>{
 
 	private Statistic stat;
 	public final boolean printFitness;
+	private final boolean parallel;
+	private final int threads;
+	// Task instances that evaluate groups in parallel, kept between generations
+	private ArrayList<SinglePopulationCoevolutionTask<T>> workers = null;
 
 	public SinglePopulationCoevolutionTask() {
 		this.printFitness = Parameters.parameters.booleanParameter("printFitness");
+		this.parallel = Parameters.parameters.booleanParameter("parallelEvaluations");
+		this.threads = Parameters.parameters.integerParameter("threads");
 		try {
 			stat = (Statistic) ClassCreation.createObject("noisyTaskStat");
 		} catch (NoSuchMethodException ex) {
@@ -69,61 +84,48 @@ public abstract class SinglePopulationCoevolutionTask<T> implements SinglePopula
 		Genotype<T>[] bestGenotypes = new Genotype[bestObjectives.length];
 		Score<T>[] bestScores = new Score[bestObjectives.length];
 		
+		// All groups of all trials are decided before any game is played, so that the
+		// groups are the same whether they are evaluated sequentially or in parallel
+		ArrayList<int[]> matchups = new ArrayList<int[]>(CommonConstants.trials * population.size() / groupSize);
 		for(int i = 0; i < CommonConstants.trials; i++){
-			Collections.shuffle(groupOrder); // Randomize who individuals are grouped with
+			Collections.shuffle(groupOrder, RandomNumbers.randomGenerator); // Randomize who individuals are grouped with
 			for(int j = 0; j < population.size(); j+= groupSize){ // for each group
-				// Assign individuals to the group to be evaluated
-				ArrayList<Genotype<T>> group = new ArrayList<Genotype<T>>(groupSize);
+				int[] members = new int[groupSize];
 				for(int k = 0; k < groupSize; k++) {
-					group.add(population.get(groupOrder.get(j+k)));
+					members[k] = groupOrder.get(j+k);
 				}
-				preEval();
-				
-				// Call getDrawingPanels here; every Genotype displays its control Network and CPPN panel
-				List<Pair<DrawingPanel, DrawingPanel>> drawPanels = new ArrayList<>(); // Stores the DrawingPanels to be drawn
-				
-				if(CommonConstants.watch){
-					for(Genotype<T> gene : group){ // Creates the DrawingPanels for each Genotype being evaluated
-						Pair<DrawingPanel, DrawingPanel> panels = CommonTaskUtil.getDrawingPanels(gene);
-						drawPanels.add(panels);
-					}
-					
-					// Draw Panels here
-					for(Pair<DrawingPanel, DrawingPanel> panelSet : drawPanels){
-						if(panelSet.t1 != null)
-							panelSet.t1.setVisibility(true);
-						if(panelSet.t2 != null)
-							panelSet.t2.setVisibility(true);
-					}
-				}
-				
-				// Get scores
-				ArrayList<Pair<double[], double[]>> result = evaluateGroup(group);
-				
-				if(printFitness) {
-					for(int q = 0; q < result.size(); q++) {
-						Pair<double[], double[]> pair = result.get(q);
-						System.out.println(group.get(q).getId()+": "+Arrays.toString(pair.t1)+Arrays.toString(pair.t2));
-					}
-					System.out.println("--------------------------");
-				}
-				
-				// Clean up all Panels here
-				for(Pair<DrawingPanel, DrawingPanel> panelSet : drawPanels){
-					if(panelSet.t1 != null)
-						panelSet.t1.dispose();
-					if(panelSet.t2 != null)
-						panelSet.t2.dispose();
-				}
-				drawPanels.clear();
-				
-				// Save scores in the right place
-				for(int k = 0; k < groupSize; k++) {
-					assert j+k < groupOrder.size() : "Should have "+j+"+"+k+" < " + groupOrder.size();
-					assert groupOrder.get(j+k) < allScores.size() : "Should have "+groupOrder.get(j+k)+" < "+allScores.size();
-					assert k < result.size() : "Should have "+k+" < "+result.size();
-					allScores.get(groupOrder.get(j+k)).add(result.get(k));
+				matchups.add(members);
+			}
+		}
+		
+		// Each matchup has its own slot, so workers can store results without locking
+		AtomicReferenceArray<ArrayList<Pair<double[], double[]>>> results = new AtomicReferenceArray<ArrayList<Pair<double[], double[]>>>(matchups.size());
+		ArrayList<SinglePopulationCoevolutionTask<T>> workers = parallel && !CommonConstants.watch ? getWorkers() : null;
+		if(workers == null) {
+			for(int m = 0; m < matchups.size(); m++) {
+				results.set(m, evaluateMatchup(group(population, matchups.get(m))));
+			}
+		} else {
+			evaluateInParallel(workers, population, matchups, results);
+		}
+		
+		// Save scores in the right place, in the order of the matchups
+		for(int m = 0; m < matchups.size(); m++) {
+			int[] members = matchups.get(m);
+			ArrayList<Pair<double[], double[]>> result = results.get(m);
+			
+			if(printFitness) {
+				for(int q = 0; q < result.size(); q++) {
+					Pair<double[], double[]> pair = result.get(q);
+					System.out.println(population.get(members[q]).getId()+": "+Arrays.toString(pair.t1)+Arrays.toString(pair.t2));
 				}
+				System.out.println("--------------------------");
+			}
+			
+			for(int k = 0; k < groupSize; k++) {
+				assert members[k] < allScores.size() : "Should have "+members[k]+" < "+allScores.size();
+				assert k < result.size() : "Should have "+k+" < "+result.size();
+				allScores.get(members[k]).add(result.get(k));
 			}
 		}
 		
@@ -184,6 +186,135 @@ public abstract class SinglePopulationCoevolutionTask<T> implements SinglePopula
 		return scores;
 	}
 
+	/**
+	 * The members of the population in one matchup
+	 * 
+	 * @param population Whole population
+	 * @param members Indices in the population of the group members
+	 * @return Group to evaluate
+	 */
+	private ArrayList<Genotype<T>> group(ArrayList<Genotype<T>> population, int[] members) {
+		ArrayList<Genotype<T>> group = new ArrayList<Genotype<T>>(members.length);
+		for(int k = 0; k < members.length; k++) {
+			group.add(population.get(members[k]));
+		}
+		return group;
+	}
+	
+	/**
+	 * Evaluates one group on the calling thread, showing the networks of its members if watching
+	 * 
+	 * @param group Genotypes to evaluate together
+	 * @return Scores of each member of the group
+	 */
+	private ArrayList<Pair<double[], double[]>> evaluateMatchup(ArrayList<Genotype<T>> group) {
+		preEval();
+		
+		// Call getDrawingPanels here; every Genotype displays its control Network and CPPN panel
+		List<Pair<DrawingPanel, DrawingPanel>> drawPanels = new ArrayList<>(); // Stores the DrawingPanels to be drawn
+		
+		if(CommonConstants.watch){
+			for(Genotype<T> gene : group){ // Creates the DrawingPanels for each Genotype being evaluated
+				Pair<DrawingPanel, DrawingPanel> panels = CommonTaskUtil.getDrawingPanels(gene);
+				drawPanels.add(panels);
+			}
+			
+			// Draw Panels here
+			for(Pair<DrawingPanel, DrawingPanel> panelSet : drawPanels){
+				if(panelSet.t1 != null)
+					panelSet.t1.setVisibility(true);
+				if(panelSet.t2 != null)
+					panelSet.t2.setVisibility(true);
+			}
+		}
+		
+		// Get scores
+		ArrayList<Pair<double[], double[]>> result = evaluateGroup(group);
+		
+		// Clean up all Panels here
+		for(Pair<DrawingPanel, DrawingPanel> panelSet : drawPanels){
+			if(panelSet.t1 != null)
+				panelSet.t1.dispose();
+			if(panelSet.t2 != null)
+				panelSet.t2.dispose();
+		}
+		drawPanels.clear();
+		return result;
+	}
+	
+	/**
+	 * Each worker takes the next matchup that nobody has taken yet until none are left,
+	 * and stores its result in the slot of that matchup.
+	 * 
+	 * @param workers Task instances with their own games and agents, one per thread
+	 * @param population Whole population
+	 * @param matchups Indices in the population of the members of each group
+	 * @param results Where the scores of each matchup are stored
+	 */
+	private void evaluateInParallel(ArrayList<SinglePopulationCoevolutionTask<T>> workers, final ArrayList<Genotype<T>> population, final ArrayList<int[]> matchups, final AtomicReferenceArray<ArrayList<Pair<double[], double[]>>> results) {
+		final AtomicInteger nextMatchup = new AtomicInteger(0);
+		ExecutorService poolExecutor = Executors.newFixedThreadPool(workers.size());
+		ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>(workers.size());
+		long poolStart = Profiler.time();
+		for(final SinglePopulationCoevolutionTask<T> worker : workers) {
+			futures.add(poolExecutor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					long began = Profiler.time();
+					int m;
+					while((m = nextMatchup.getAndIncrement()) < matchups.size()) {
+						worker.preEval();
+						results.set(m, worker.evaluateGroup(group(population, matchups.get(m))));
+					}
+					Profiler.poolWork(began);
+					return null;
+				}
+			}));
+		}
+		try {
+			for(Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException | ExecutionException ex) {
+			ex.printStackTrace();
+			System.exit(1);
+		}
+		Profiler.poolBatch(poolStart, workers.size());
+		poolExecutor.shutdown();
+	}
+	
+	/**
+	 * Task instances used by the threads that evaluate groups in parallel. This task is the first
+	 * of them, and the others are created the first time they are needed and kept afterwards.
+	 * 
+	 * @return One task per thread, or null if this task cannot evaluate groups in parallel
+	 */
+	private ArrayList<SinglePopulationCoevolutionTask<T>> getWorkers() {
+		if(workers == null) {
+			ArrayList<SinglePopulationCoevolutionTask<T>> created = new ArrayList<SinglePopulationCoevolutionTask<T>>(threads);
+			created.add(this);
+			for(int i = 1; i < threads; i++) {
+				SinglePopulationCoevolutionTask<T> worker = newWorker();
+				if(worker == null) return null;
+				created.add(worker);
+			}
+			workers = created;
+		}
+		return workers;
+	}
+	
+	/**
+	 * Creates another instance of this task, with its own games, agents and fitness functions,
+	 * so that it can evaluate groups on one thread while this task evaluates other groups on another.
+	 * Tasks whose evaluations share state that cannot be used by several threads at once return null,
+	 * and their groups are always evaluated sequentially.
+	 * 
+	 * @return New task to evaluate groups in parallel, or null
+	 */
+	protected SinglePopulationCoevolutionTask<T> newWorker() {
+		return null;
+	}
+
 	/**
 	 * Helper method; Extracts the information from an ArrayList of Pairs of Double Arrays
 	 * 
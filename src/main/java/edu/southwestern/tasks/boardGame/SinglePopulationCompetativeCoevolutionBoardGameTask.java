@@ -3,6 +3,7 @@ package edu.southwestern.tasks.boardGame;
 import java.util.ArrayList;
 import java.util.List;
 
+import edu.southwestern.boardGame.BoardGame;
 import edu.southwestern.boardGame.BoardGameState;
 import edu.southwestern.boardGame.agents.BoardGamePlayer;
 import edu.southwestern.boardGame.agents.HeuristicBoardGamePlayer;
@@ -29,6 +30,7 @@ import edu.southwestern.util.datastructures.Triple;
 
 public class SinglePopulationCompetativeCoevolutionBoardGameTask<T extends Network, S extends BoardGameState> extends SinglePopulationCoevolutionTask<T> implements NetworkTask, HyperNEATTask  {
 
+	BoardGame<S> boardGame;
 	BoardGamePlayer<S>[] players;
 	BoardGameFeatureExtractor<S> featExtract;
 	
@@ -37,6 +39,17 @@ public class SinglePopulationCompetativeCoevolutionBoardGameTask<T extends Netwo
 	
 	@SuppressWarnings("unchecked")
 	public SinglePopulationCompetativeCoevolutionBoardGameTask(){
+		this((BoardGame<S>) MMNEAT.boardGame, true);
+	}
+	
+	/**
+	 * @param boardGame Game played by this instance of the task
+	 * @param registerFitnessFunctions false for the copies of the task that evaluate
+	 *        groups in parallel, since the first instance already registered them
+	 */
+	@SuppressWarnings("unchecked")
+	private SinglePopulationCompetativeCoevolutionBoardGameTask(BoardGame<S> boardGame, boolean registerFitnessFunctions){
+		this.boardGame = boardGame;
 		try {
 			players = new BoardGamePlayer[groupSize()];
 			featExtract = (BoardGameFeatureExtractor<S>) ClassCreation.createObject("boardGameFeatureExtractor");
@@ -63,17 +76,21 @@ public class SinglePopulationCompetativeCoevolutionBoardGameTask<T extends Netwo
 			fitFunctions.add((BoardGameFitnessFunction<S>) new OthelloPieceFitness());
 		}
 		
-		for(BoardGameFitnessFunction<S> fit : fitFunctions){
-			MMNEAT.registerFitnessFunction(fit.getFitnessName());
+		if(registerFitnessFunctions){
+			for(BoardGameFitnessFunction<S> fit : fitFunctions){
+				MMNEAT.registerFitnessFunction(fit.getFitnessName());
+			}
 		}
 		
 		// Add Fitness Functions here to keep track of Other Scores
 		otherScores.add(new SimpleWinLoseDrawBoardGameFitness<S>());
-		otherScores.add(new StaticOtherOpponentFitness<S>()); // Automatically is set to boardGameOpponent
+		otherScores.add(new StaticOtherOpponentFitness<S>(boardGame)); // Automatically is set to boardGameOpponent
 		otherScores.add(new WinPercentageBoardGameFitness<S>());
 		
-		for(BoardGameFitnessFunction<S> fit : otherScores){
-			MMNEAT.registerFitnessFunction(fit.getFitnessName(), false);
+		if(registerFitnessFunctions){
+			for(BoardGameFitnessFunction<S> fit : otherScores){
+				MMNEAT.registerFitnessFunction(fit.getFitnessName(), false);
+			}
 		}
 		
 	}
@@ -111,7 +128,27 @@ public class SinglePopulationCompetativeCoevolutionBoardGameTask<T extends Netwo
 			evolved.setHeuristic((new NNBoardGameHeuristic<T,S>(gene.getId(), featExtract, gene)));
 			teamPlayers[index++] = evolved;
 		}
-		return BoardGameUtil.playGame(MMNEAT.boardGame, teamPlayers, fitFunctions, otherScores);
+		return BoardGameUtil.playGame(boardGame, teamPlayers, fitFunctions, otherScores);
+	}
+	
+	/**
+	 * Every copy has its own game, players and fitness functions. The Hall of Fame
+	 * is shared by all of them, so groups are evaluated sequentially when it is used.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	protected SinglePopulationCoevolutionTask<T> newWorker() {
+		if(Parameters.parameters.booleanParameter("hallOfFame")) {
+			return null;
+		}
+		try {
+			return new SinglePopulationCompetativeCoevolutionBoardGameTask<T,S>((BoardGame<S>) ClassCreation.createObject("boardGame"), false);
+		} catch (NoSuchMethodException e) {
+			e.printStackTrace();
+			System.out.println("BoardGame instance could not be loaded");
+			System.exit(1);
+			return null;
+		}
 	}
 
 	@Override
@@ -900,7 +900,7 @@ public abstract class InteractiveEvolutionTask<T extends Network> implements Sin
 	 */
 	@SuppressWarnings("unchecked")
 	public void drawLineage(long id, long childId, int x, int y, int depth) {
-		Offspring o = Offspring.lineage.get((int) id);
+		Offspring o = Offspring.get(id);
 		if(o != null && !drawnOffspring.contains(id)) { // Don't draw if already drawn
 			Genotype<T> g = (Genotype<T>) Offspring.getGenotype(o.xmlNetwork);
 			BufferedImage bi = getButtonImage(g.getPhenotype(), picSize/2, picSize/2, inputMultipliers);
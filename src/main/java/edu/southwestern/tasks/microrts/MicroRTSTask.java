@@ -24,6 +24,7 @@ import edu.southwestern.util.ClassCreation;
 import edu.southwestern.util.datastructures.Pair;
 import edu.southwestern.util.datastructures.Triple;
 import micro.ai.HasEvaluationFunction;
+import micro.ai.HasLeafBatchSize;
 import micro.ai.core.AI;
 import micro.gui.PhysicalGameStateJFrame;
 import micro.gui.PhysicalGameStatePanel;
@@ -302,6 +303,8 @@ public class MicroRTSTask<T extends Network> extends NoisyLonerTask<T> implement
 			System.exit(1);
 		}
 		ai1.setEvaluationFunction(ef);
+		if(ai1 instanceof HasLeafBatchSize)
+			((HasLeafBatchSize) ai1).setLeafBatchSize(Parameters.parameters.integerParameter("microRTSLeafBatchSize"));
 		if(Parameters.parameters.classParameter("microRTSOpponentEvaluationFunction")!= null)
 			((HasEvaluationFunction) ai2).setEvaluationFunction(ef2);
 		AiInitialized = true;
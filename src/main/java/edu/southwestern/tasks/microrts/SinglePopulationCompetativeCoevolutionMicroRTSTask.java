@@ -23,6 +23,7 @@ import edu.southwestern.util.ClassCreation;
 import edu.southwestern.util.datastructures.Pair;
 import edu.southwestern.util.datastructures.Triple;
 import micro.ai.HasEvaluationFunction;
+import micro.ai.HasLeafBatchSize;
 import micro.ai.core.AI;
 import micro.gui.PhysicalGameStateJFrame;
 import micro.gui.PhysicalGameStatePanel;
@@ -64,8 +65,16 @@ public class SinglePopulationCompetativeCoevolutionMicroRTSTask<T extends Networ
 	HasEvaluationFunction ai1 = null;
 	HasEvaluationFunction ai2 = null;
 
-	@SuppressWarnings("unchecked")
 	public SinglePopulationCompetativeCoevolutionMicroRTSTask() {
+		this(true);
+	}
+
+	/**
+	 * @param registerFitnessFunctions false for the copies of the task that evaluate
+	 *        groups in parallel, since the first instance already registered them
+	 */
+	@SuppressWarnings("unchecked")
+	private SinglePopulationCompetativeCoevolutionMicroRTSTask(boolean registerFitnessFunctions) {
 		utt = new UnitTypeTable();
 		//create objects
 		try {
@@ -83,8 +92,10 @@ public class SinglePopulationCompetativeCoevolutionMicroRTSTask<T extends Networ
 		ff.setCoevolution(true);
 		ef1.setCoevolution(true);
 		ef2.setCoevolution(true);
-		for(String function : ff.getFunctions()){
-			MMNEAT.registerFitnessFunction(function);
+		if(registerFitnessFunctions) {
+			for(String function : ff.getFunctions()){
+				MMNEAT.registerFitnessFunction(function);
+			}
 		}
 		//creates a copy of the physical game state so that it can be edited without changing initialPgs
 		pgs = initialPgs.clone();
@@ -204,9 +215,21 @@ public class SinglePopulationCompetativeCoevolutionMicroRTSTask<T extends Networ
 		}
 		ai1.setEvaluationFunction(ef1);
 		ai2.setEvaluationFunction(ef2);
+		if(ai1 instanceof HasLeafBatchSize) {
+			((HasLeafBatchSize) ai1).setLeafBatchSize(Parameters.parameters.integerParameter("microRTSLeafBatchSize"));
+			((HasLeafBatchSize) ai2).setLeafBatchSize(Parameters.parameters.integerParameter("microRTSLeafBatchSize"));
+		}
 		AiInitialized = true;
 	}
 
+	/**
+	 * Every copy has its own game, evaluation functions, fitness function and AIs
+	 */
+	@Override
+	protected SinglePopulationCoevolutionTask<T> newWorker() {
+		return new SinglePopulationCompetativeCoevolutionMicroRTSTask<T>(false);
+	}
+
 	@Override
 	public double[] minScores() {
 		return new double[numObjectives()]; //all 0's, not necessarily correct
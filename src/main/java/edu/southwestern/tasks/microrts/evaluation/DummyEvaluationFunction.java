@@ -1,5 +1,7 @@
 package edu.southwestern.tasks.microrts.evaluation;
 
+import java.util.Arrays;
+
 import edu.southwestern.networks.Network;
 import micro.rts.GameState;
 
@@ -33,6 +35,11 @@ public class DummyEvaluationFunction<T extends Network>  extends NNEvaluationFun
 		return 0;
 	}
 
+	@Override
+	public void evaluate(int maxplayer, int minplayer, GameState[] states, int n, float[] evaluations) {
+		Arrays.fill(evaluations, 0, n, 0);
+	}
+
 	@Override
 	public int getNumInputSubstrates() {
 		return 0;
@@ -0,0 +1,132 @@
+package edu.southwestern.tasks.microrts.evaluation;
+
+import java.util.Arrays;
+
+import micro.rts.GameState;
+import micro.rts.PhysicalGameState;
+import micro.rts.units.Unit;
+import micro.rts.units.UnitTypeTable;
+
+/**
+ * Encodes the cells of a microRTS board into one plane per feature, where the
+ * value of each cell only depends on the unit and terrain in that cell. The
+ * last encoding for each evaluated player is kept, and only the cells whose
+ * contents changed since then are encoded again. Search evaluates many states
+ * that differ from each other by a few units, so most cells are reused.
+ *
+ * Plane k of the encoding starts at k * width * height, and the cell at (x,y)
+ * is at x + y * width within its plane. The NN evaluation functions only lay
+ * out square boards that way, so they only use the encoder when supports is
+ * true, and encode other boards from scratch.
+ */
+public class IncrementalBoardEncoder {
+
+	/**
+	 * Value of a single cell of the board
+	 */
+	public interface CellFeature {
+		/**
+		 * @param u unit in the cell, or null if it is empty
+		 * @param terrain terrain of the cell
+		 * @param evaluatedPlayer index of player currently being evaluated
+		 * @return value of the cell in the plane of this feature
+		 */
+		public double cellValue(Unit u, int terrain, int evaluatedPlayer);
+	}
+
+	public static long cellsEncoded = 0; // for debugging
+	public static long cellsReused = 0; // for debugging
+
+	private final CellFeature[] features;
+	private int width = -1;
+	private int height = -1;
+	private UnitTypeTable utt = null;
+	// Contents of each cell at the last encoding, indexed by evaluated player.
+	// Type, player and terrain go in one key, hit points and resources in the other.
+	private long[][] cellKeys = new long[0][];
+	private long[][] amountKeys = new long[0][];
+	private double[][] encodings = new double[0][];
+
+	public IncrementalBoardEncoder(CellFeature[] features) {
+		this.features = features;
+	}
+
+	/**
+	 * @return number of planes in each encoding
+	 */
+	public int numPlanes() {
+		return features.length;
+	}
+
+	/**
+	 * @param pgs board to encode
+	 * @return whether the encoding has the layout of the NN evaluation
+	 *         functions, which is only the case for square boards
+	 */
+	public static boolean supports(PhysicalGameState pgs) {
+		return pgs.getWidth() == pgs.getHeight();
+	}
+
+	/**
+	 * Encodes the board of the game state, only recomputing the cells that
+	 * changed since the last encoding for the same player.
+	 *
+	 * @param gs game state to encode
+	 * @param evaluatedPlayer index of player currently being evaluated
+	 * @return all planes of the encoding. The array is reused by the next call
+	 *         for the same player, so it must not be modified or kept.
+	 */
+	public double[] encode(GameState gs, int evaluatedPlayer) {
+		PhysicalGameState pgs = gs.getPhysicalGameState();
+		int cells = pgs.getWidth() * pgs.getHeight();
+		if(pgs.getWidth() != width || pgs.getHeight() != height || gs.getUnitTypeTable() != utt) {
+			// Nothing from a different map or unit type table can be reused
+			width = pgs.getWidth();
+			height = pgs.getHeight();
+			utt = gs.getUnitTypeTable();
+			cellKeys = new long[0][];
+			amountKeys = new long[0][];
+			encodings = new double[0][];
+		}
+		if(evaluatedPlayer >= encodings.length) {
+			int players = evaluatedPlayer + 1;
+			cellKeys = Arrays.copyOf(cellKeys, players);
+			amountKeys = Arrays.copyOf(amountKeys, players);
+			encodings = Arrays.copyOf(encodings, players);
+		}
+		if(encodings[evaluatedPlayer] == null) {
+			cellKeys[evaluatedPlayer] = new long[cells];
+			amountKeys[evaluatedPlayer] = new long[cells];
+			Arrays.fill(cellKeys[evaluatedPlayer], -1); // No real cell has this key
+			encodings[evaluatedPlayer] = new double[cells * features.length];
+		}
+		long[] keys = cellKeys[evaluatedPlayer];
+		long[] amounts = amountKeys[evaluatedPlayer];
+		double[] encoding = encodings[evaluatedPlayer];
+
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < width; x++) {
+				int cell = x + y * width;
+				Unit u = pgs.getUnitAt(x, y);
+				int terrain = pgs.getTerrain(x, y);
+				long key = terrain << 1;
+				long amount = 0;
+				if(u != null) {
+					key |= 1 | ((long) (u.getPlayer() + 2)) << 8 | ((long) (u.getType().ID + 1)) << 32;
+					amount = ((long) u.getHitPoints()) << 32 | (u.getResources() & 0xFFFFFFFFL);
+				}
+				if(keys[cell] == key && amounts[cell] == amount) {
+					cellsReused++;
+					continue;
+				}
+				keys[cell] = key;
+				amounts[cell] = amount;
+				for(int k = 0; k < features.length; k++) {
+					encoding[k * cells + cell] = features[k].cellValue(u, terrain, evaluatedPlayer);
+				}
+				cellsEncoded++;
+			}
+		}
+		return encoding;
+	}
+}
@@ -1,5 +1,7 @@
 package edu.southwestern.tasks.microrts.evaluation;
 
+import java.util.Arrays;
+
 import edu.southwestern.MMNEAT.MMNEAT;
 import edu.southwestern.evolution.genotypes.Genotype;
 import edu.southwestern.networks.Network;
@@ -30,6 +32,16 @@ public class NN2DEvaluationFunction<T extends Network> extends NNEvaluationFunct
 	private static final double RANGED_WEIGHT = 3.75;
 	private static final double RAW_RESOURCE_WEIGHT = .01;
 	
+	// Only encodes the cells that changed since the previous state
+	private final IncrementalBoardEncoder encoder = new IncrementalBoardEncoder(new IncrementalBoardEncoder.CellFeature[]{
+		new IncrementalBoardEncoder.CellFeature() {
+			@Override
+			public double cellValue(Unit u, int terrain, int evaluatedPlayer) {
+				return u == null ? 0 : getWeightedValue(u, evaluatedPlayer);
+			}
+		}
+	});
+	
 	/**
 	 * constructor for FEStatePane and similar
 	 * @param NNfile
@@ -59,6 +71,22 @@ public class NN2DEvaluationFunction<T extends Network> extends NNEvaluationFunct
 	protected double[] gameStateToArray(GameState gs, int playerToEvaluate) {
 		pgs = gs.getPhysicalGameState();
 		double[] board = new double[pgs.getHeight()*pgs.getWidth()];
+		gameStateToArray(gs, playerToEvaluate, board, 0);
+		return board;
+	}
+
+	/**
+	 * fills the squares of the gameState into part of a larger array
+	 */
+	@Override
+	protected void gameStateToArray(GameState gs, int playerToEvaluate, double[] inputs, int offset) {
+		pgs = gs.getPhysicalGameState();
+		if(incrementalEncoding && IncrementalBoardEncoder.supports(pgs)){
+			double[] encoding = encoder.encode(gs, playerToEvaluate);
+			System.arraycopy(encoding, 0, inputs, offset, encoding.length);
+			return;
+		}
+		Arrays.fill(inputs, offset, offset + pgs.getHeight()*pgs.getWidth(), 0);
 		int boardIndex;
 		Unit currentUnit;
 		for(int j = 0; j < pgs.getHeight(); j++){
@@ -66,11 +94,10 @@ public class NN2DEvaluationFunction<T extends Network> extends NNEvaluationFunct
 				boardIndex = i + j * pgs.getHeight();
 				currentUnit = pgs.getUnitAt(i, j);
 				if(currentUnit != null){
-					board[boardIndex] = getWeightedValue(currentUnit, playerToEvaluate);
+					inputs[offset + boardIndex] = getWeightedValue(currentUnit, playerToEvaluate);
 				}
 			}//end inner loop
 		}//end outer loop
-		return board;
 	}
 
 	/**
@@ -28,6 +28,9 @@ public class NNComplexEvaluationFunction<T extends Network> extends NNEvaluation
 	//private int smudgeSize = Parameters.parameters.integerParameter("microRTSInputSize"); 
 	private ArrayList<Integer> activeSubs;
 	private ArrayList<MicroRTSSubstrateInputs> inputSubstrates;
+	// Encodes the substrates that only depend on single cells, and the plane of each substrate in it (-1 if not encoded)
+	private IncrementalBoardEncoder encoder;
+	private int[] encoderPlanes;
 	
 	//Indexes within areSubsActive
 	private final int MOBILE = 0;
@@ -181,6 +184,19 @@ public class NNComplexEvaluationFunction<T extends Network> extends NNEvaluation
 			inputSubstrates.add(currentSubstrate);
 		}
 
+		ArrayList<IncrementalBoardEncoder.CellFeature> cellSubstrates = new ArrayList<>();
+		encoderPlanes = new int[numSubstrates];
+		for(int i = 0; i < numSubstrates; i++){
+			MicroRTSSubstrateInputs substrate = inputSubstrates.get(i);
+			// Units on a gradient are scored by where the buildings are, not just by their own cell
+			if(substrate instanceof IncrementalBoardEncoder.CellFeature && !(substrate instanceof AllOfPlayerTypeOnGradientSubstrate)){
+				encoderPlanes[i] = cellSubstrates.size();
+				cellSubstrates.add((IncrementalBoardEncoder.CellFeature) substrate);
+			} else {
+				encoderPlanes[i] = -1;
+			}
+		}
+		encoder = new IncrementalBoardEncoder(cellSubstrates.toArray(new IncrementalBoardEncoder.CellFeature[cellSubstrates.size()]));
 	}
 
 	/**
@@ -197,7 +213,23 @@ public class NNComplexEvaluationFunction<T extends Network> extends NNEvaluation
 			numInputs = numInputs - substrateSize + 1;
 		}
 		double[] inputs = new double[numInputs];
+		gameStateToArray(gs, playerToEvaluate, inputs, 0);
+		return inputs;
+	}
+
+	/**
+	 * same as above, but fills part of a larger array
+	 */
+	@Override
+	protected void gameStateToArray(GameState gs, int playerToEvaluate, double[] inputs, int offset) {
+		pgs = gs.getPhysicalGameState();
+		substrateSize = pgs.getHeight()*pgs.getWidth();
+		double[] encoding = incrementalEncoding && encoder.numPlanes() > 0 && IncrementalBoardEncoder.supports(pgs) ? encoder.encode(gs, playerToEvaluate) : null;
 		for(int i = 0; i < numSubstrates; i++){ //for each active substrate:
+			if(encoding != null && encoderPlanes[i] >= 0){
+				System.arraycopy(encoding, encoderPlanes[i]*substrateSize, inputs, offset+(i*substrateSize), substrateSize);
+				continue;
+			}
 			double[][] twoDimensionalSubArray = inputSubstrates.get(i).getInputs(gs,playerToEvaluate);
 			assert twoDimensionalSubArray.length > 0 : "length < 0";
 			int thisSubstrateSize = twoDimensionalSubArray.length * twoDimensionalSubArray[0].length;
@@ -206,10 +238,9 @@ public class NNComplexEvaluationFunction<T extends Network> extends NNEvaluation
 				// The only reason using substrateSize in the calculation below is compatible with 
 				// SimpleResourceProportionSubstrate is that SimpleResourceProportionSubstrate must be the
 				// final substrate. Otherwise, problems would emerge.
-				inputs[(i*substrateSize)+j] = twoDimensionalSubArray[j%thisWidth][j/thisWidth];
+				inputs[offset+(i*substrateSize)+j] = twoDimensionalSubArray[j%thisWidth][j/thisWidth];
 			}
 		}
-		return inputs;
 	}
 
 	/**
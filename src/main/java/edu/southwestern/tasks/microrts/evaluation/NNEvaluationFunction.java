@@ -1,7 +1,10 @@
 package edu.southwestern.tasks.microrts.evaluation;
 
 import edu.southwestern.evolution.genotypes.Genotype;
+import edu.southwestern.networks.BatchNetwork;
 import edu.southwestern.networks.Network;
+import edu.southwestern.parameters.Parameters;
+import micro.ai.evaluation.EvaluationCache;
 import micro.ai.evaluation.EvaluationFunction;
 import micro.rts.GameState;
 import micro.rts.PhysicalGameState;
@@ -20,12 +23,34 @@ public abstract class NNEvaluationFunction<T extends Network> extends Evaluation
 	
 	private int howManyEvals = 0;
 	
+	// Reused between evaluations: inputs for the max and min perspectives of each state in a batch,
+	// stored one row after the other, and the matching outputs
+	private double[] batchInputs = new double[0];
+	private double[] batchOutputs = new double[0];
+	private double[] rowInputs = new double[0];
+	private final GameState[] singleState = new GameState[1];
+	private final float[] singleEvaluation = new float[1];
+	
+	// Evaluations of the current network are remembered in the shared cache under this owner.
+	// Off by default, because recurrent networks can give different outputs for the same state.
+	protected boolean cacheEvaluations = Parameters.parameters != null && Parameters.parameters.booleanParameter("microRTSEvaluationCache");
+	private long cacheOwner = EvaluationCache.newOwner();
+	private GameState[] missing = new GameState[0];
+	private int[] missingIndex = new int[0];
+	private float[] missingEvaluations = new float[0];
+	
+	// Cells whose units did not change since the previous state are not encoded again
+	protected boolean incrementalEncoding = Parameters.parameters == null || Parameters.parameters.booleanParameter("microRTSIncrementalEncoding");
+	
 	public NNEvaluationFunction(){
 	}
 	
 	public void setNetwork(Genotype<T> g) {
 		howManyEvals = 0;
 		nn = g.getPhenotype();
+		// Evaluations of the previous network no longer apply
+		EvaluationCache.shared.clear(cacheOwner);
+		cacheOwner = EvaluationCache.newOwner();
 	}
 	
 	/**
@@ -33,6 +58,19 @@ public abstract class NNEvaluationFunction<T extends Network> extends Evaluation
 	 */
 	protected abstract double[] gameStateToArray(GameState gs, int playerToEvaluate);
 	
+	/**
+	 * Writes the inputs given to the NN into part of a larger array, so that
+	 * the inputs of many states can be stored together. Subclasses that can
+	 * fill the array directly override this to avoid allocating a new array.
+	 * 
+	 * @param inputs array to fill by side effect
+	 * @param offset index where the inputs for this state start
+	 */
+	protected void gameStateToArray(GameState gs, int playerToEvaluate, double[] inputs, int offset) {
+		double[] array = gameStateToArray(gs, playerToEvaluate);
+		System.arraycopy(array, 0, inputs, offset, array.length);
+	}
+	
 	/**
 	 * 
 	 * @return labels of sensors given to nn
@@ -59,28 +97,97 @@ public abstract class NNEvaluationFunction<T extends Network> extends Evaluation
 	 */
 	@Override
 	public float evaluate(int maxplayer, int minplayer, GameState gs) {
-		howManyEvals++;
-		
-		// Score from max perspective
-		double[] inputs1 = gameStateToArray(gs, maxplayer);
-		double[] outputs1 = nn.process(inputs1);
-		float score1 = (float) outputs1[0];
-		
-//		if(Parameters.parameters.booleanParameter("stepByStep")){
-//			MiscUtil.waitForReadStringAndEnterKeyPress();
-//		}
-		
-		// Score from min perspective
-		double[] inputs2 = gameStateToArray(gs, minplayer);
-		double[] outputs2 = nn.process(inputs2);
-		float score2 = (float) outputs2[0];
-
-//		if(Parameters.parameters.booleanParameter("stepByStep")){
-//			MiscUtil.waitForReadStringAndEnterKeyPress();
-//		}
-		
-		// tanh squashes result to ]-1,1[ range
-		return (float) Math.tanh(score1 - score2);
+		singleState[0] = gs;
+		evaluate(maxplayer, minplayer, singleState, 1, singleEvaluation);
+		singleState[0] = null;
+		return singleEvaluation[0];
+	}
+	
+	/**
+	 * Evaluates several states with as few network calls as possible. When
+	 * evaluations are cached, only the states that are not in the cache are
+	 * given to the network.
+	 * 
+	 * @param maxplayer - player to be evaluated
+	 * @param minplayer - opponent
+	 * @param states - states of the game, only the first n are evaluated
+	 * @param n - number of states to evaluate
+	 * @param evaluations - filled with a number from -1 to 1 for each state
+	 */
+	@Override
+	public void evaluate(int maxplayer, int minplayer, GameState[] states, int n, float[] evaluations) {
+		howManyEvals += n;
+		if(!cacheEvaluations) {
+			evaluateWithNetwork(maxplayer, minplayer, states, n, evaluations);
+			return;
+		}
+		if(missing.length < n) {
+			missing = new GameState[n];
+			missingIndex = new int[n];
+			missingEvaluations = new float[n];
+		}
+		int numMissing = 0;
+		for(int i = 0; i < n; i++) {
+			evaluations[i] = EvaluationCache.shared.get(cacheOwner, states[i].getHash(), maxplayer, minplayer);
+			if(Float.isNaN(evaluations[i])) {
+				missing[numMissing] = states[i];
+				missingIndex[numMissing] = i;
+				numMissing++;
+			}
+		}
+		if(numMissing > 0) {
+			evaluateWithNetwork(maxplayer, minplayer, missing, numMissing, missingEvaluations);
+			for(int i = 0; i < numMissing; i++) {
+				evaluations[missingIndex[i]] = missingEvaluations[i];
+				EvaluationCache.shared.put(cacheOwner, missing[i].getHash(), maxplayer, minplayer, missingEvaluations[i]);
+				missing[i] = null;
+			}
+		}
+	}
+	
+	/**
+	 * A BatchNetwork processes both perspectives of every state in a single
+	 * forward pass. Other networks (like TWEANNs, which may be recurrent)
+	 * process one input vector at a time, in the same order as repeated
+	 * calls to evaluate would.
+	 */
+	private void evaluateWithNetwork(int maxplayer, int minplayer, GameState[] states, int n, float[] evaluations) {
+		int numInputs = nn.numInputs();
+		int numOutputs = nn.numOutputs();
+		if(nn instanceof BatchNetwork) {
+			if(batchInputs.length < 2 * n * numInputs) {
+				batchInputs = new double[2 * n * numInputs];
+			}
+			if(batchOutputs.length < 2 * n * numOutputs) {
+				batchOutputs = new double[2 * n * numOutputs];
+			}
+			for(int i = 0; i < n; i++) {
+				// Score from max perspective, then from min perspective
+				gameStateToArray(states[i], maxplayer, batchInputs, 2 * i * numInputs);
+				gameStateToArray(states[i], minplayer, batchInputs, (2 * i + 1) * numInputs);
+			}
+			((BatchNetwork) nn).processBatch(batchInputs, 2 * n, batchOutputs);
+			for(int i = 0; i < n; i++) {
+				float score1 = (float) batchOutputs[2 * i * numOutputs];
+				float score2 = (float) batchOutputs[(2 * i + 1) * numOutputs];
+				// tanh squashes result to ]-1,1[ range
+				evaluations[i] = (float) Math.tanh(score1 - score2);
+			}
+		} else {
+			if(rowInputs.length != numInputs) {
+				rowInputs = new double[numInputs];
+			}
+			for(int i = 0; i < n; i++) {
+				// Score from max perspective
+				gameStateToArray(states[i], maxplayer, rowInputs, 0);
+				float score1 = (float) nn.process(rowInputs)[0];
+				// Score from min perspective
+				gameStateToArray(states[i], minplayer, rowInputs, 0);
+				float score2 = (float) nn.process(rowInputs)[0];
+				// tanh squashes result to ]-1,1[ range
+				evaluations[i] = (float) Math.tanh(score1 - score2);
+			}
+		}
 	}
 	
 	/**
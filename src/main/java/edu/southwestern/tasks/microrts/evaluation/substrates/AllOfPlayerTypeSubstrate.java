@@ -2,12 +2,13 @@ package edu.southwestern.tasks.microrts.evaluation.substrates;
 
 import java.util.ArrayList;
 
+import edu.southwestern.tasks.microrts.evaluation.IncrementalBoardEncoder;
 import edu.southwestern.util.datastructures.Pair;
 import micro.rts.GameState;
 import micro.rts.PhysicalGameState;
 import micro.rts.units.Unit;
 
-public class AllOfPlayerTypeSubstrate extends MicroRTSSubstrateInputs{
+public class AllOfPlayerTypeSubstrate extends MicroRTSSubstrateInputs implements IncrementalBoardEncoder.CellFeature {
 
 	private boolean terrain;
 	private ArrayList<Pair<String, Integer>> typesAndPlayers;
@@ -37,17 +38,22 @@ public class AllOfPlayerTypeSubstrate extends MicroRTSSubstrateInputs{
 
 		for(int i = 0; i < pgs.getHeight(); i++){
 			for(int j = 0; j < pgs.getWidth(); j++){
-				Unit u = pgs.getUnitAt(j, i);
-				if(u != null){
-					inputs[j][i] = valueInSub(u, evaluatedPlayer);
-				} else if(terrain && pgs.getTerrain(j, i) == PhysicalGameState.TERRAIN_WALL){
-					inputs[j][i] = 1;
-				}
+				inputs[j][i] = cellValue(pgs.getUnitAt(j, i), pgs.getTerrain(j, i), evaluatedPlayer);
 			}
 		}
 		return inputs;
 	}
 	
+	@Override
+	public double cellValue(Unit u, int terrain, int evaluatedPlayer) {
+		if(u != null){
+			return valueInSub(u, evaluatedPlayer);
+		} else if(this.terrain && terrain == PhysicalGameState.TERRAIN_WALL){
+			return 1;
+		}
+		return 0;
+	}
+	
 	/**
 	 * Different types of units can have different scores associated with them
 	 * @param u Unit to score
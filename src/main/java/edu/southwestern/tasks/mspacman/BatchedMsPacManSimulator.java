@@ -0,0 +1,297 @@
+package edu.southwestern.tasks.mspacman;
+
+import static pacman.game.Constants.DELAY;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+
+import edu.southwestern.networks.BatchNetwork;
+import edu.southwestern.networks.Network;
+import edu.southwestern.tasks.mspacman.agentcontroller.pacman.MultinetworkMsPacManController;
+import edu.southwestern.tasks.mspacman.agentcontroller.pacman.NNPacManController;
+import edu.southwestern.tasks.mspacman.agentcontroller.pacman.ReactiveNNPacManController;
+import edu.southwestern.tasks.mspacman.data.NodeCollection;
+import edu.southwestern.tasks.mspacman.data.ScentPath;
+import edu.southwestern.tasks.mspacman.facades.GameFacade;
+import edu.southwestern.tasks.mspacman.sensors.MsPacManControllerInputOutputMediator;
+import pacman.HeadlessRunner;
+import pacman.controllers.Controller;
+import pacman.controllers.NewPacManController;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+/**
+ * Plays several independent Ms. Pac-Man games in lockstep, headless. Each
+ * tick the sensor vectors of all games whose network must pick a move are
+ * collected into one contiguous matrix (one row per game). Rows belonging to
+ * the same BatchNetwork are then processed by a single forward pass, and the
+ * outputs are turned into moves by each game's controller, exactly as
+ * ReactiveNNPacManController would have done on its own. Networks that cannot
+ * process batches (such as TWEANNs, which keep recurrent state) process their
+ * rows one at a time.
+ *
+ * Sensor blocks keep state from one tick to the next (the recurrent network
+ * of a SubNetworkBlock, for instance), so every game's controller must have a
+ * mediator of its own. The mediator sensors also read some static state that
+ * belongs to a single game: the escape nodes and the scent path. Each game
+ * keeps its own copy, which is swapped in whenever that game's controller
+ * runs, and the shared state is put back afterwards. Ghost controllers are
+ * called like in HeadlessRunner.
+ *
+ * Controllers and mediators cannot be shared between games, and neither can
+ * a network that is not a BatchNetwork, since its recurrent state would mix.
+ */
+public class BatchedMsPacManSimulator {
+
+	/**
+	 * One game with its controllers and its copy of the per-game sensor state
+	 */
+	private static class Slot {
+		final GameFacade game;
+		final ReactiveNNPacManController pacman;
+		final Controller<EnumMap<GHOST, MOVE>> ghosts;
+		NodeCollection escapeNodes;
+		ScentPath scents;
+		int action;
+
+		Slot(GameFacade game, ReactiveNNPacManController pacman, Controller<EnumMap<GHOST, MOVE>> ghosts) {
+			this.game = game;
+			this.pacman = pacman;
+			this.ghosts = ghosts;
+			this.escapeNodes = MsPacManControllerInputOutputMediator.escapeNodes.copy();
+			this.escapeNodes.reset();
+			this.scents = new ScentPath();
+		}
+	}
+
+	private final ArrayList<Slot> slots = new ArrayList<Slot>();
+	private final int numIn;
+	private final int numOut;
+	// Matrix of sensor values for the games waiting on the network, one row each
+	private double[] inputs = new double[0];
+	private double[] outputs = new double[0];
+	// Smaller matrices for the rows of one network, when several networks are used
+	private double[] groupInputs = new double[0];
+	private double[] groupOutputs = new double[0];
+	// Outputs of one row, handed to its controller
+	private final double[] outputRow;
+	// Slot and unflattened inputs for each row of the matrix
+	private final ArrayList<Slot> pending = new ArrayList<Slot>();
+	private final ArrayList<double[]> pendingInputs = new ArrayList<double[]>();
+	// Rows of each batch network in the current tick. Lists are kept between ticks.
+	private final IdentityHashMap<BatchNetwork, ArrayList<Integer>> groups = new IdentityHashMap<BatchNetwork, ArrayList<Integer>>();
+
+	/**
+	 * @param numIn
+	 *            number of sensors of every controller's mediator
+	 * @param numOut
+	 *            number of outputs of every network
+	 */
+	public BatchedMsPacManSimulator(int numIn, int numOut) {
+		this.numIn = numIn;
+		this.numOut = numOut;
+		this.outputRow = new double[numOut];
+	}
+
+	/**
+	 * Add a game to the batch. Games can be added between ticks, and play
+	 * until they end.
+	 *
+	 * @param game
+	 *            game to play, modified by side effects
+	 * @param pacman
+	 *            controller used only for this game, with its own mediator
+	 * @param ghosts
+	 *            ghost team used only for this game
+	 */
+	public void add(GameFacade game, ReactiveNNPacManController pacman, Controller<EnumMap<GHOST, MOVE>> ghosts) {
+		if (pacman instanceof MultinetworkMsPacManController) {
+			throw new IllegalArgumentException("Controllers that combine several networks cannot be batched");
+		}
+		for (Slot other : slots) {
+			if (other.pacman == pacman || other.pacman.inputMediator == pacman.inputMediator || other.ghosts == ghosts) {
+				throw new IllegalArgumentException("Games cannot share controllers or mediators, since their state would mix");
+			}
+			if (other.pacman.getNetwork() == pacman.getNetwork() && !(pacman.getNetwork() instanceof BatchNetwork)) {
+				throw new IllegalArgumentException("Only a BatchNetwork can be shared between games");
+			}
+		}
+		Slot slot = new Slot(game, pacman, ghosts);
+		NodeCollection sharedEscapeNodes = MsPacManControllerInputOutputMediator.escapeNodes;
+		ScentPath sharedScents = ScentPath.scents;
+		enter(slot);
+		pacman.reset();
+		leave(slot);
+		MsPacManControllerInputOutputMediator.escapeNodes = sharedEscapeNodes;
+		ScentPath.scents = sharedScents;
+		slots.add(slot);
+	}
+
+	/**
+	 * @return number of games in the batch, finished or not
+	 */
+	public int size() {
+		return slots.size();
+	}
+
+	/**
+	 * @param i
+	 *            index in order of addition
+	 * @return the game
+	 */
+	public GameFacade getGame(int i) {
+		return slots.get(i).game;
+	}
+
+	/**
+	 * Play all games to completion
+	 */
+	public void run() {
+		while (step()) {
+		}
+	}
+
+	/**
+	 * Advance every unfinished game by one tick
+	 *
+	 * @return whether any game is still unfinished
+	 */
+	public boolean step() {
+		pending.clear();
+		pendingInputs.clear();
+		long due = System.currentTimeMillis() + DELAY;
+		NodeCollection sharedEscapeNodes = MsPacManControllerInputOutputMediator.escapeNodes;
+		ScentPath sharedScents = ScentPath.scents;
+		try {
+			for (Slot s : slots) {
+				if (!s.game.gameOver()) {
+					prepare(s);
+				}
+			}
+			forward();
+		} finally {
+			MsPacManControllerInputOutputMediator.escapeNodes = sharedEscapeNodes;
+			ScentPath.scents = sharedScents;
+		}
+		boolean running = false;
+		for (Slot s : slots) {
+			if (!s.game.gameOver()) {
+				advance(s, due);
+				running |= !s.game.gameOver();
+			}
+		}
+		return running;
+	}
+
+	/**
+	 * Controller bookkeeping, and the sensor row if the network must decide
+	 */
+	private void prepare(Slot s) {
+		Game g = s.game.newG;
+		long seed = g.rnd.getSeed();
+		int version = g.getStateVersion();
+		enter(s);
+		s.action = s.pacman.prepareAction(s.game);
+		if (s.action == NNPacManController.NETWORK_DECIDES) {
+			double[] row = s.pacman.sensorInputs(s.game);
+			assert row.length == numIn : "Mediator has " + row.length + " sensors instead of " + numIn;
+			pending.add(s);
+			pendingInputs.add(row);
+		}
+		leave(s);
+		HeadlessRunner.restore(g, seed, version, s.pacman);
+	}
+
+	/**
+	 * Process all pending rows: one call per BatchNetwork, and one call per
+	 * row for other networks. Every row then becomes an action.
+	 */
+	private void forward() {
+		int rows = pending.size();
+		if (inputs.length < rows * numIn) {
+			inputs = new double[rows * numIn];
+			outputs = new double[rows * numOut];
+		}
+		for (int r = 0; r < rows; r++) {
+			System.arraycopy(pendingInputs.get(r), 0, inputs, r * numIn, numIn);
+		}
+		// Rows of each batch network, which are gathered into one smaller matrix
+		for (ArrayList<Integer> group : groups.values()) {
+			group.clear();
+		}
+		for (int r = 0; r < rows; r++) {
+			Network nn = pending.get(r).pacman.getNetwork();
+			if (nn instanceof BatchNetwork) {
+				ArrayList<Integer> group = groups.get(nn);
+				if (group == null) {
+					group = new ArrayList<Integer>();
+					groups.put((BatchNetwork) nn, group);
+				}
+				group.add(r);
+			} else {
+				System.arraycopy(nn.process(pendingInputs.get(r)), 0, outputs, r * numOut, numOut);
+			}
+		}
+		for (BatchNetwork nn : groups.keySet()) {
+			ArrayList<Integer> group = groups.get(nn);
+			if (!group.isEmpty()) {
+				processGroup(nn, group);
+			}
+		}
+		for (int r = 0; r < rows; r++) {
+			Slot s = pending.get(r);
+			// preferencesFromOutputs changes the row, but does not keep it
+			System.arraycopy(outputs, r * numOut, outputRow, 0, numOut);
+			enter(s);
+			s.action = s.pacman.chooseDirection(s.pacman.preferencesFromOutputs(s.game, outputRow));
+			leave(s);
+		}
+	}
+
+	/**
+	 * One forward pass for all rows of the same network
+	 */
+	private void processGroup(BatchNetwork nn, ArrayList<Integer> group) {
+		if (group.size() == pending.size()) {
+			// Every row uses this network, so the full matrix is already in order
+			nn.processBatch(inputs, group.size(), outputs);
+			return;
+		}
+		if (groupInputs.length < group.size() * numIn) {
+			groupInputs = new double[group.size() * numIn];
+			groupOutputs = new double[group.size() * numOut];
+		}
+		for (int i = 0; i < group.size(); i++) {
+			System.arraycopy(inputs, group.get(i) * numIn, groupInputs, i * numIn, numIn);
+		}
+		nn.processBatch(groupInputs, group.size(), groupOutputs);
+		for (int i = 0; i < group.size(); i++) {
+			System.arraycopy(groupOutputs, i * numOut, outputs, group.get(i) * numOut, numOut);
+		}
+	}
+
+	/**
+	 * Ask the ghosts for their moves and advance the game
+	 */
+	private void advance(Slot s, long due) {
+		HeadlessRunner.advance(NewPacManController.moveFromAction(s.action), s.ghosts, s.game.newG, due);
+	}
+
+	/**
+	 * Make the static sensor state belong to the slot's game
+	 */
+	private static void enter(Slot s) {
+		MsPacManControllerInputOutputMediator.escapeNodes = s.escapeNodes;
+		ScentPath.scents = s.scents;
+	}
+
+	/**
+	 * Keep whatever the controller left in the static sensor state
+	 */
+	private static void leave(Slot s) {
+		s.escapeNodes = MsPacManControllerInputOutputMediator.escapeNodes;
+		s.scents = ScentPath.scents;
+	}
+}
@@ -11,6 +11,7 @@ import edu.southwestern.evolution.Organism;
 import edu.southwestern.evolution.genotypes.Genotype;
 import edu.southwestern.evolution.genotypes.NetworkGenotype;
 import edu.southwestern.evolution.nsga2.tug.TUGTask;
+import edu.southwestern.networks.BatchNetwork;
 import edu.southwestern.networks.Network;
 import edu.southwestern.networks.NetworkTask;
 import edu.southwestern.networks.hyperneat.HyperNEATTask;
@@ -23,6 +24,7 @@ import edu.southwestern.tasks.NoisyLonerTask;
 import edu.southwestern.tasks.mspacman.agentcontroller.ghosts.SharedNNGhosts;
 import edu.southwestern.tasks.mspacman.agentcontroller.pacman.MultinetworkMsPacManController;
 import edu.southwestern.tasks.mspacman.agentcontroller.pacman.NNMsPacMan;
+import edu.southwestern.tasks.mspacman.agentcontroller.pacman.ReactiveNNPacManController;
 import edu.southwestern.tasks.mspacman.data.TrainingCampManager;
 import edu.southwestern.tasks.mspacman.facades.ExecutorFacade;
 import edu.southwestern.tasks.mspacman.facades.GameFacade;
@@ -57,6 +59,7 @@ import edu.southwestern.tasks.mspacman.objectives.SurvivalAndSpeedTimeScore;
 import edu.southwestern.tasks.mspacman.objectives.TimeFramesGhostScore;
 import edu.southwestern.tasks.mspacman.objectives.TimeFramesPillScore;
 import edu.southwestern.tasks.mspacman.objectives.TimeToEatAllGhostsScore;
+import edu.southwestern.tasks.mspacman.sensors.MsPacManControllerInputOutputMediator;
 import edu.southwestern.util.ClassCreation;
 import edu.southwestern.util.datastructures.Pair;
 import edu.southwestern.util.datastructures.Triple;
@@ -145,6 +148,9 @@ public class MsPacManTask<T extends Network> extends NoisyLonerTask<T>implements
 	private final boolean eachComponentTracksScoreToo;
 	private final boolean plainGhostScore;
 	private final TrainingCampManager tcManager;
+	// Separate mediator and ghosts for each game played together by allEvals
+	private final ArrayList<MsPacManControllerInputOutputMediator> trialMediators = new ArrayList<MsPacManControllerInputOutputMediator>();
+	private final ArrayList<NewGhostController> trialGhosts = new ArrayList<NewGhostController>();
 
 	/**
 	 * Default constructor
@@ -485,6 +491,18 @@ public class MsPacManTask<T extends Network> extends NoisyLonerTask<T>implements
 			((NetworkGenotype<T>) individual).setModuleUsage(((MultinetworkMsPacManController) mspacman.newP).fullUsage);
 		}
 
+		return score(game, organism);
+	}
+
+	/**
+	 * Fitness and other scores of an organism after it played a game
+	 * 
+	 * @param game finished game
+	 * @param organism organism that was evaluated
+	 * @return fitness scores and other scores
+	 */
+	@SuppressWarnings("rawtypes")
+	private Pair<double[], double[]> score(GameFacade game, Organism<T> organism) {
 		double[] fitnesses = new double[this.numObjectives()];
 		double[] scores = new double[this.numOtherScores()];
 		// When evolving ghosts, all fitness scores are flipped to negative,
@@ -498,25 +516,98 @@ public class MsPacManTask<T extends Network> extends NoisyLonerTask<T>implements
 		return new Pair<double[], double[]>(fitnesses, scores);
 	}
 
+	/**
+	 * When pacmanBatchTrials is set, all trials are played together by a
+	 * BatchedMsPacManSimulator. Every game has its own controller, mediator
+	 * and ghost team, so no sensor or controller state is shared between
+	 * games. A network that can process batches is shared by all games so
+	 * that its calls are batched. Evaluations that are watched, timed,
+	 * recorded or reported, and controllers the simulator cannot drive,
+	 * are run one trial at a time instead.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public Pair<double[], double[]>[] allEvals(Genotype<T> individual, int numTrials) {
+		// Subclasses change how a trial is set up and scored
+		if (!CommonConstants.pacmanBatchTrials || getClass() != MsPacManTask.class || evolveGhosts
+				|| CommonConstants.watch || CommonConstants.recordPacman || CommonConstants.timedPacman
+				|| MMNEAT.evalReport != null || TrainingCampManager.recentStates != null) {
+			return null;
+		}
+		ArrayList<NNMsPacMan<T>> organisms = new ArrayList<NNMsPacMan<T>>(numTrials);
+		for (int i = 0; i < numTrials; i++) {
+			NNMsPacMan<T> organism = new NNMsPacMan<T>(individual);
+			if (organism.controller.getClass() != ReactiveNNPacManController.class) {
+				return null;
+			}
+			organisms.add(organism);
+		}
+		if (!loadTrialControllers(numTrials)) {
+			return null;
+		}
+		Network nn = ((ReactiveNNPacManController) organisms.get(0).controller).getNetwork();
+		BatchedMsPacManSimulator simulator = new BatchedMsPacManSimulator(nn.numInputs(), nn.numOutputs());
+		int[] campNums = new int[numTrials];
+		int[] startingLevels = new int[numTrials];
+		tcManager.preEval();
+		for (int i = 0; i < numTrials; i++) {
+			ReactiveNNPacManController controller = (ReactiveNNPacManController) organisms.get(i).controller;
+			if (i > 0 && nn instanceof BatchNetwork) {
+				controller = new ReactiveNNPacManController(nn);
+				organisms.get(i).controller = controller;
+			}
+			controller.inputMediator = trialMediators.get(i);
+			trialGhosts.get(i).reset();
+			GameFacade trialGame = newGame(i);
+			campNums[i] = tcManager.campSetup(trialGame, i);
+			startingLevels[i] = trialGame.getCurrentLevel();
+			simulator.add(trialGame, controller, trialGhosts.get(i));
+		}
+		simulator.run();
+		Pair<double[], double[]>[] results = new Pair[numTrials];
+		for (int i = 0; i < numTrials; i++) {
+			game = simulator.getGame(i);
+			tcManager.postEval(game, campNums[i], startingLevels[i]);
+			results[i] = score(game, organisms.get(i));
+		}
+		return results;
+	}
+
+	/**
+	 * Make sure there is a separate mediator and ghost team for each trial
+	 * played by allEvals. They are kept for later individuals, and reset at
+	 * the start of each game.
+	 * 
+	 * @param numTrials number of games played together
+	 * @return false if the mediator or ghost team cannot be recreated from
+	 *         the parameters, in which case trials are played one at a time
+	 */
+	private boolean loadTrialControllers(int numTrials) {
+		try {
+			while (trialMediators.size() < numTrials) {
+				MsPacManControllerInputOutputMediator mediator = (MsPacManControllerInputOutputMediator) ClassCreation.createObject("pacmanInputOutputMediator");
+				// Some setups build the mediator by hand instead
+				if (mediator == null || mediator.getClass() != MMNEAT.pacmanInputOutputMediator.getClass()) {
+					return false;
+				}
+				NewGhostController ghostTeam = (NewGhostController) ClassCreation.createObject("ghostTeam");
+				trialMediators.add(mediator);
+				trialGhosts.add(ghostTeam);
+			}
+		} catch (NoSuchMethodException ex) {
+			// The regular evaluation does not need these copies
+			return false;
+		}
+		return true;
+	}
+
 	public GameFacade agentEval(PacManControllerFacade mspacman, int num) {
 		// System.out.println("Agent Eval");
 		if (!evolveGhosts) {
 			loadGhosts();
 		}
 		tcManager.preEval();
-		game = new GameFacade(new Game(deterministic ? num : RandomNumbers.randomGenerator.nextLong()));
-		game.setExitLairEdible(exitLairEdible);
-		game.setEndOnlyOnTimeLimit(endOnlyOnTimeLimit);
-		game.setRandomLairExit(randomLairExit);
-		game.setLairExitDatabase(lairExitDatabase);
-		game.setSimultaneousLairExit(simultaneousLairExit);
-		game.setGhostsStartOutsideLair(ghostsStartOutsideLair);
-		game.setOnlyOneLairExitAllowed(onlyOneLairExitAllowed);
-		game.setEndAfterGhostEatingChances(endAfterGhostEatingChances);
-		game.setRemovePillsNearPowerPills(removePillsNearPowerPills);
-		game.playWithoutPills(noPills);
-		game.playWithoutPowerPills(noPowerPills);
-		game.setEndAfterPowerPillsEaten(luringTask);
+		game = newGame(num);
 		int campNum = tcManager.campSetup(game, num);
 		int startingLevel = game.getCurrentLevel();
 		mspacman.reset();
@@ -532,6 +623,8 @@ public class MsPacManTask<T extends Network> extends NoisyLonerTask<T>implements
 			// exec.runGameTimed(new HumanController(new KeyBoardInput()),ghosts, true, game);
 		} else if (CommonConstants.timedPacman) {
 			exec.runGameTimedNonVisual(game, mspacman, ghosts);
+		} else if (CommonConstants.pacmanHeadless) {
+			exec.runExperimentHeadless(mspacman, ghosts, game);
 		} else {
 			exec.runExperiment(mspacman, ghosts, game);
 		}
@@ -543,6 +636,29 @@ public class MsPacManTask<T extends Network> extends NoisyLonerTask<T>implements
 		return game;
 	}
 
+	/**
+	 * A new game for the given trial, configured by the command line parameters
+	 * 
+	 * @param num which evaluation is being performed
+	 * @return the game
+	 */
+	private GameFacade newGame(int num) {
+		GameFacade game = new GameFacade(new Game(deterministic ? num : RandomNumbers.randomGenerator.nextLong()));
+		game.setExitLairEdible(exitLairEdible);
+		game.setEndOnlyOnTimeLimit(endOnlyOnTimeLimit);
+		game.setRandomLairExit(randomLairExit);
+		game.setLairExitDatabase(lairExitDatabase);
+		game.setSimultaneousLairExit(simultaneousLairExit);
+		game.setGhostsStartOutsideLair(ghostsStartOutsideLair);
+		game.setOnlyOneLairExitAllowed(onlyOneLairExitAllowed);
+		game.setEndAfterGhostEatingChances(endAfterGhostEatingChances);
+		game.setRemovePillsNearPowerPills(removePillsNearPowerPills);
+		game.playWithoutPills(noPills);
+		game.playWithoutPowerPills(noPowerPills);
+		game.setEndAfterPowerPillsEaten(luringTask);
+		return game;
+	}
+
 	@Override
 	public int numOtherScores() {
 		return otherScores.size();
@@ -3,8 +3,8 @@ package edu.southwestern.tasks.mspacman.agentcontroller.pacman;
 import edu.southwestern.networks.Network;
 import edu.southwestern.parameters.CommonConstants;
 import edu.southwestern.tasks.mspacman.facades.GameFacade;
-import edu.southwestern.util.datastructures.Pair;
 import java.awt.Color;
+import pacman.game.Game;
 
 /**
  *
@@ -12,32 +12,39 @@ import java.awt.Color;
  */
 public abstract class AfterStateNNPacManController extends NNDirectionalPacManController {
 
+	private final int[] startState = new int[Game.PACKED_STATE_LENGTH];
+
 	public AfterStateNNPacManController(Network n) {
 		super(n);
 	}
 
 	@Override
 	public double[] getDirectionPreferences(GameFacade gf) {
-		// Each index is for a possible direction
-		Pair<int[], GameFacade[]> afterPair = getAfterStates(gf.copy());
-		int[] movesIntoAfterStates = afterPair.t1;
-		GameFacade[] afterstates = afterPair.t2;
+		// One copy of the game is moved into each after-state in turn,
+		// and returned to the packed start state in between
+		GameFacade afterstate = gf.copy();
+		afterstate.saveState(startState);
+		prepareAfterStates(afterstate);
 		double[] directionPreferences = new double[GameFacade.NUM_DIRS];
 		for (int i = 0; i < GameFacade.NUM_DIRS; i++) {
+			if (i > 0) {
+				afterstate.restoreState(startState);
+			}
+			// Each index is for a possible direction
+			int lastDir = advanceToAfterState(afterstate, i);
 			if (CommonConstants.watch) {
-				afterstates[i].addLines(Color.green, gf.getPacmanCurrentNodeIndex(),
-						afterstates[i].getPacmanCurrentNodeIndex());
+				afterstate.addLines(Color.green, gf.getPacmanCurrentNodeIndex(),
+						afterstate.getPacmanCurrentNodeIndex());
 			}
-			if (afterstates[i].getPacmanNumberOfLivesRemaining() < this.lives) {
+			if (afterstate.getPacmanNumberOfLivesRemaining() < this.lives) {
 				directionPreferences[i] = -1;
 			} else {
-				int lastDir = movesIntoAfterStates[i];
 				if (nn.isMultitask()) {
-					ms.giveGame(afterstates[i]);
+					ms.giveGame(afterstate);
 					nn.chooseMode(ms.mode());
 				}
-				inputMediator.mediatorStateUpdate(afterstates[i]);
-				double[] inputs = inputMediator.getInputs(afterstates[i], lastDir);
+				inputMediator.mediatorStateUpdate(afterstate);
+				double[] inputs = inputMediator.getInputs(afterstate, lastDir);
 				nn.flush();
 				// Should just be one output for preference
 				double[] outputs = nn.process(inputs);
@@ -48,5 +55,22 @@ public abstract class AfterStateNNPacManController extends NNDirectionalPacManCo
 		return directionPreferences;
 	}
 
-	public abstract Pair<int[], GameFacade[]> getAfterStates(GameFacade startState);
+	/**
+	 * Called once per decision, before any after-state is generated
+	 *
+	 * @param startState
+	 *            copy of the current game, in the state every after-state starts from
+	 */
+	public abstract void prepareAfterStates(GameFacade startState);
+
+	/**
+	 * Advance the start state into the after-state for one direction
+	 *
+	 * @param state
+	 *            copy of the game in the start state, modified by side effects
+	 * @param dir
+	 *            direction being evaluated
+	 * @return the move that led into the after-state
+	 */
+	public abstract int advanceToAfterState(GameFacade state, int dir);
 }
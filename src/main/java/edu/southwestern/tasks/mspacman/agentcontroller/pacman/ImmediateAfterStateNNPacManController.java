@@ -7,7 +7,6 @@ package edu.southwestern.tasks.mspacman.agentcontroller.pacman;
 import edu.southwestern.networks.Network;
 import edu.southwestern.parameters.CommonConstants;
 import edu.southwestern.tasks.mspacman.facades.GameFacade;
-import edu.southwestern.util.datastructures.Pair;
 
 /**
  *
@@ -15,26 +14,23 @@ import edu.southwestern.util.datastructures.Pair;
  */
 public class ImmediateAfterStateNNPacManController extends AfterStateNNPacManController {
 
+	private final int[] ghostMoves = new int[CommonConstants.numActiveGhosts];
+
 	public ImmediateAfterStateNNPacManController(Network n) {
 		super(n);
 	}
 
 	@Override
-	public Pair<int[], GameFacade[]> getAfterStates(GameFacade startState) {
-		int[] moves = new int[GameFacade.NUM_DIRS];
-		GameFacade[] states = new GameFacade[GameFacade.NUM_DIRS];
-		int[] ghostMoves = new int[CommonConstants.numActiveGhosts];
+	public void prepareAfterStates(GameFacade startState) {
 		int current = startState.getPacmanCurrentNodeIndex();
 		for (int i = 0; i < ghostMoves.length; i++) {
-			if (startState.doesGhostRequireAction(i)) {
-				ghostMoves[i] = startState.getNextGhostDirTowards(i, current);
-			}
-		}
-		for (int i = 0; i < GameFacade.NUM_DIRS; i++) {
-			moves[i] = i;
-			states[i] = startState.copy();
-			states[i].advanceGame(i, ghostMoves);
+			ghostMoves[i] = startState.doesGhostRequireAction(i) ? startState.getNextGhostDirTowards(i, current) : 0;
 		}
-		return new Pair<int[], GameFacade[]>(moves, states);
+	}
+
+	@Override
+	public int advanceToAfterState(GameFacade state, int dir) {
+		state.advanceGame(dir, ghostMoves);
+		return dir;
 	}
 }
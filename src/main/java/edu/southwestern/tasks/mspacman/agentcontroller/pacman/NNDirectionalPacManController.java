@@ -30,7 +30,17 @@ public abstract class NNDirectionalPacManController extends NNPacManController {
 	 * @return direction
 	 */
 	public int getDirection(GameFacade gs) {
-		double[] dirPreferences = getDirectionPreferences(gs);
+		return chooseDirection(getDirectionPreferences(gs));
+	}
+
+	/**
+	 * Remember the preferences and pick a direction from them
+	 * 
+	 * @param dirPreferences
+	 *            preferences for each absolute direction
+	 * @return direction
+	 */
+	public int chooseDirection(double[] dirPreferences) {
 		System.arraycopy(dirPreferences, 0, previousPreferences, 0, GameFacade.NUM_DIRS);
 		// if (watch && (nn instanceof TWEANN) && ((TWEANN) nn).numModes() > 1)
 		// {
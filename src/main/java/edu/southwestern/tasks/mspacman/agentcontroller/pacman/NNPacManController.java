@@ -29,6 +29,8 @@ public abstract class NNPacManController extends NewPacManController {
 	public static int timesAllLevelsBeaten = 0;
 	public static int timesTimeLimitReached = 0;
 	public static int timesDied = 0;
+	// Returned by prepareAction when no special action overrides the network
+	public static final int NETWORK_DECIDES = Integer.MIN_VALUE;
 
 	/**
 	 * Called once a generation by Performance log resets the data for the times
@@ -85,6 +87,21 @@ public abstract class NNPacManController extends NewPacManController {
 	 * @return the action to take or a number indicating the end of the game
 	 */
 	public int getAction(GameFacade gs, long timeDue) {
+		int action = prepareAction(gs);
+		return action == NETWORK_DECIDES ? getDirection(gs) : action;
+	}
+
+	/**
+	 * Everything getAction does before the network is consulted: track
+	 * scents, levels, lives and the time limit, and update the mediator.
+	 * Batched simulators call this, then compute the direction themselves.
+	 * 
+	 * @param gs
+	 *            the gameFacade
+	 * @return END_GAME_CODE, a neutral action, or NETWORK_DECIDES if the
+	 *         network should pick the direction
+	 */
+	public int prepareAction(GameFacade gs) {
 		ScentPath.scents.visit(gs, gs.getPacmanCurrentNodeIndex());
 		int curLevel = gs.getCurrentLevel();
 		if (curLevel >= maxLevel) {
@@ -127,7 +144,7 @@ public abstract class NNPacManController extends NewPacManController {
 			System.out.println("Ms. Pac-Man has no location");
 			return -1; // A neutral action
 		}
-		return getDirection(gs);
+		return NETWORK_DECIDES;
 	}
 
 	@Override
@@ -19,14 +19,38 @@ public class ReactiveNNPacManController extends NNDirectionalPacManController {
 
 	@Override
 	public double[] getDirectionPreferences(GameFacade gf) {
-		final int current = gf.getPacmanCurrentNodeIndex();
+		return preferencesFromOutputs(gf, nn.process(sensorInputs(gf)));
+	}
+
+	/**
+	 * Sensor values for the current state. If the network is multitask,
+	 * the mode is chosen as well, so the next call to process uses it.
+	 * 
+	 * @param gf
+	 *            the gameFacade
+	 * @return network inputs
+	 */
+	public double[] sensorInputs(GameFacade gf) {
 		double[] inputs = inputMediator.getInputs(gf, gf.getPacmanLastMoveMade());
 		if (nn.isMultitask()) {
 			ms.giveGame(gf);
 			nn.chooseMode(ms.mode());
 		}
-		double[] outputs = nn.process(inputs);
+		return inputs;
+	}
 
+	/**
+	 * Turn network outputs for the current state into preferences for
+	 * each absolute direction.
+	 * 
+	 * @param gf
+	 *            the gameFacade
+	 * @param outputs
+	 *            network outputs, which are modified
+	 * @return direction preferences
+	 */
+	public double[] preferencesFromOutputs(GameFacade gf, double[] outputs) {
+		final int current = gf.getPacmanCurrentNodeIndex();
 		// Make directions towards walls impossible to choose
 		final int referenceDir = CommonConstants.relativePacmanDirections ? gf.getPacmanLastMoveMade() : 0;
 		if (CommonConstants.eliminateImpossibleDirections) {
@@ -51,4 +75,11 @@ public class ReactiveNNPacManController extends NNDirectionalPacManController {
 
 		return absoluteDirectionPreferences;
 	}
+
+	/**
+	 * @return the network that produces the outputs
+	 */
+	public Network getNetwork() {
+		return nn;
+	}
 }
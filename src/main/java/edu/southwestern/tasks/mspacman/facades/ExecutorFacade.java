@@ -48,6 +48,16 @@ public class ExecutorFacade {
 		newE.runExperiment(mspacman.newP, ghosts.newG, game.newG);
 	}
 
+	/**
+	 * runs an experiment synchronously without copying the game every tick
+	 * @param mspacman facade contianing controller for ms pacman
+	 * @param ghosts facade containing controller for ghosts
+	 * @param game facade containing game
+	 */
+	public void runExperimentHeadless(PacManControllerFacade mspacman, GhostControllerFacade ghosts, GameFacade game) {
+		newE.runExperimentHeadless(mspacman.newP, ghosts.newG, game.newG);
+	}
+
 	/**
 	 * runs a timed game and records it
 	 * @param game facade of game 
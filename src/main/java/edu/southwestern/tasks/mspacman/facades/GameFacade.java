@@ -14,6 +14,7 @@ import pacman.game.Constants.DM;
 import pacman.game.Constants.GHOST;
 import pacman.game.Constants.MOVE;
 import pacman.game.Game;
+import pacman.game.internal.MazeTables;
 
 /**
  *Contains pac man game. Includes harnesses for both
@@ -29,6 +30,10 @@ public class GameFacade {
 	public static final int NUM_DIRS = 4;
 	public static final int DANGEROUS_TIME = 5;
 	public Game newG = null;
+	// Path and distance results for the current state of newG
+	private final GameQueryCache queries = new GameQueryCache();
+	// Reused by advanceGame, which does not keep or modify the array
+	private final MOVE[] ghostMoves = new MOVE[Constants.NUM_GHOSTS];
 
 	/**
 	 * returns what move to make based on the 
@@ -163,6 +168,21 @@ public class GameFacade {
 	 */
 	public static int[] neighbors(Game gs, int currentNodeIndex) {
 		assert currentNodeIndex != -1 : "-1 is not a valid node index";
+		MazeTables tables = gs.getMazeTables();
+		int[] result = new int[NUM_DIRS];
+		for (int i = 0; i < NUM_DIRS; i++) {
+			result[i] = tables.neighbour(currentNodeIndex, i);
+		}
+		assert Arrays.equals(result, neighborsFromGraph(gs, currentNodeIndex)) : "Maze tables out of date for "
+				+ currentNodeIndex + "; run MazeData to regenerate";
+		return result;
+	}
+
+	/**
+	 * Neighbors computed from the maze graph, which the precomputed tables
+	 * are checked against
+	 */
+	private static int[] neighborsFromGraph(Game gs, int currentNodeIndex) {
 		MOVE[] possible = gs.getPossibleMoves(currentNodeIndex);
 		int[] neighbors = gs.getNeighbouringNodes(currentNodeIndex);
 		int[] result = new int[NUM_DIRS];
@@ -191,6 +211,17 @@ public class GameFacade {
 		newG = g;
 	}
 
+	/**
+	 * Memoized query results for the current game state. The cache empties
+	 * itself whenever the game advances.
+	 *
+	 * @return cache valid for the current state
+	 */
+	public GameQueryCache queryCache() {
+		queries.validate(newG);
+		return queries;
+	}
+
 	/**
 	 * gets times taken to eat each pill
 	 * @return list of times
@@ -430,7 +461,13 @@ public class GameFacade {
 	 * @return int array containing nodes in shortest path
 	 */
 	public int[] getShortestPath(int from, int to) {
-		int[] result = newG.getShortestPath(from, to);
+		GameQueryCache cache = queryCache();
+		long key = GameQueryCache.key(GameQueryCache.SHORTEST_PATH, from, to, 0);
+		int[] result = cache.getPath(key);
+		if (result != null) {
+			return result;
+		}
+		result = cache.putPath(key, newG.getShortestPath(from, to));
 		assert(validPath(result)) : "Invalid path! " + Arrays.toString(result) + ":" + ("new");
 		assert(result.length == 0
 				|| result[result.length - 1] == to) : "Last element of path should be the to location! " + ("new");
@@ -472,6 +509,13 @@ public class GameFacade {
 	 * @return
 	 */
 	public int nextJunctionInDirection(int current, int currentDir, boolean powerPillsToo) {
+		if (!powerPillsToo) {
+			// The maze structure alone decides the answer, so it is looked up
+			int junction = newG.getMazeTables().nextJunction(current, currentDir);
+			if (junction != MazeTables.NOT_TABULATED) {
+				return junction;
+			}
+		}
 		int[] neighbors = restrictedNeighbors(current, currentDir);
 		int numBlocked = ArrayUtil.countOccurrences(-1, neighbors);
 		int pos = -1;
@@ -557,6 +601,18 @@ public class GameFacade {
 	 * @return whether the node is an elbow/corner
 	 */
 	public boolean isElbow(int current) {
+		return newG.getMazeTables().isElbow(current);
+	}
+
+	/**
+	 * isElbow computed by inspecting the neighbors, which the precomputed
+	 * tables must agree with
+	 *
+	 * @param current
+	 *            = node index
+	 * @return whether the node is an elbow/corner
+	 */
+	boolean isElbowFromNeighbors(int current) {
 		int[] neighbors = neighbors(current);
 		int numBlocked = ArrayUtil.countOccurrences(-1, neighbors);
 		if (numBlocked == 2) { // Possible elbow
@@ -977,17 +1033,16 @@ public class GameFacade {
 			assert targetNodeIndices[i] < newG.getCurrentMaze().graph.length : targetNodeIndices[i]
 					+ " is not an index in the maze " + newG.getCurrentLevel() + "/" + newG.getCurrentMaze().name
 					+ " : " + Arrays.toString(targetNodeIndices) + ":" + targetNodeIndices.length;
-			int[] path = getPathInDirFromNew(fromNodeIndex, targetNodeIndices[i], direction);
-			assert(path.length == 0 || path[path.length
-					- 1] == targetNodeIndices[i]) : ("Last element of path should be the to location! " + ("new"));
-			assert(path.length == 0 || path[0] != fromNodeIndex) : ("Path should NOT start at  location! " + ("new"));
+			int distance = getDirectionalPathDistance(fromNodeIndex, targetNodeIndices[i], direction);
 			// Shortest distance lower bound on direction distance
-			if (shortest ? path.length < extremeDistance : path.length > extremeDistance) {
-				extremeDistance = path.length;
+			if (shortest ? distance < extremeDistance : distance > extremeDistance) {
+				extremeDistance = distance;
 				target = targetNodeIndices[i];
-				extremePath = path;
 			}
 		}
+		if (target != -1) {
+			extremePath = getPathInDirFromNew(fromNodeIndex, target, direction);
+		}
 		assert extremePath != null : "Extreme path is null: targetNodeIndices:" + Arrays.toString(targetNodeIndices)
 				+ ":extremeDistance:" + extremeDistance;
 		return new Pair<Integer, int[]>(target, extremePath);
@@ -1000,8 +1055,13 @@ public class GameFacade {
 	 * @return euclidian distance
 	 */
 	public double getGhostPathDistance(int ghostIndex, int toNodeIndex) {
-		return newG.getDistance(getGhostCurrentNodeIndex(ghostIndex), toNodeIndex,
-				newG.getGhostLastMoveMade(indexToGhost(ghostIndex)), DM.PATH);
+		GameQueryCache cache = queryCache();
+		long key = GameQueryCache.key(GameQueryCache.GHOST_DISTANCE, toNodeIndex, 0, ghostIndex);
+		if (cache.hasDistance(key)) {
+			return cache.getDistance(key);
+		}
+		return cache.putDistance(key, (int) newG.getDistance(getGhostCurrentNodeIndex(ghostIndex), toNodeIndex,
+				newG.getGhostLastMoveMade(indexToGhost(ghostIndex)), DM.PATH));
 	}
 
 	/**
@@ -1038,7 +1098,13 @@ public class GameFacade {
 	 * @return shortest path ghost can take as array of int
 	 */
 	public int[] getGhostPath(int ghostIndex, int target) {
-		int[] result = newG.getShortestPath(getGhostCurrentNodeIndex(ghostIndex), target, newG.getGhostLastMoveMade(indexToGhost(ghostIndex)));
+		GameQueryCache cache = queryCache();
+		long key = GameQueryCache.key(GameQueryCache.GHOST_PATH, target, 0, ghostIndex);
+		int[] result = cache.getPath(key);
+		if (result != null) {
+			return result;
+		}
+		result = cache.putPath(key, newG.getShortestPath(getGhostCurrentNodeIndex(ghostIndex), target, newG.getGhostLastMoveMade(indexToGhost(ghostIndex))));
 		assert(result.length == 0 || result[result.length - 1] == target) : ("Last element of path should be the to location!");
 		assert(result.length == 0 || result[0] != this.getGhostCurrentNodeIndex(ghostIndex)) : ("Path should NOT start at  location!");
 		return result;
@@ -1194,11 +1260,32 @@ public class GameFacade {
 	 */
 	public boolean isGhostTrapped(int pacmanDir, int ghostIndex) {
 		int current = this.getPacmanCurrentNodeIndex();
-		int[] neighbors = this.neighbors(current);
-		assert neighbors[pacmanDir] != -1 : "Pacman dir is a wall: " + pacmanDir + "; " + Arrays.toString(neighbors);
+		int ghost = this.getGhostCurrentNodeIndex(ghostIndex);
+		MazeTables tables = newG.getMazeTables();
+		assert tables.neighbour(current, pacmanDir) != -1 : "Pacman dir is a wall: " + pacmanDir + "; "
+				+ Arrays.toString(this.neighbors(current));
+		int junctionDistance = tables.nextJunctionDistance(current, pacmanDir);
+		if (ghost != current && junctionDistance > 0 && getGhostLairTime(ghostIndex) == 0) {
+			// Heading in pacmanDir, the corridor up to the next junction is
+			// forced, so the ghost is trapped exactly when it is closer than
+			// that junction
+			return getDirectionalPathDistance(current, ghost, pacmanDir) < junctionDistance;
+		}
+		return isGhostTrappedOnPath(pacmanDir, ghostIndex);
+	}
+
+	/**
+	 * isGhostTrapped by checking every node of the path to the ghost
+	 */
+	boolean isGhostTrappedOnPath(int pacmanDir, int ghostIndex) {
+		int current = this.getPacmanCurrentNodeIndex();
 		int[] pacmanPath = this.getDirectionalPath(current, this.getGhostCurrentNodeIndex(ghostIndex), pacmanDir);
-		int[] junctions = this.getJunctionIndices();
-		return ArrayUtil.intersection(pacmanPath, junctions).length == 0;
+		for (int i = 0; i < pacmanPath.length; i++) {
+			if (newG.isJunction(pacmanPath[i])) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -1467,11 +1554,12 @@ public class GameFacade {
 	 * @param ghostDirs direction ghosts are to take
 	 */
 	public void advanceGame(int pacManDir, int[] ghostDirs) {
-		EnumMap<GHOST, MOVE> myMoves = new EnumMap<GHOST, MOVE>(GHOST.class);
+		// Indexed by GHOST ordinal. Inactive ghosts are left without a move.
+		Arrays.fill(ghostMoves, null);
 		for (int i = 0; i < CommonConstants.numActiveGhosts; i++) {
-			myMoves.put(indexToGhost(i), indexToMove(ghostDirs[i]));
+			ghostMoves[indexToGhost(i).ordinal()] = indexToMove(ghostDirs[i]);
 		}
-		newG.advanceGame(indexToMove(pacManDir), myMoves);
+		newG.advanceGame(indexToMove(pacManDir), ghostMoves);
 	}
 
 	/**
@@ -1488,11 +1576,16 @@ public class GameFacade {
 		int startLevel = this.getCurrentLevel();
 		int previousLives = getPacmanNumberOfLivesRemaining();
 		GameFacade copy = this;
+		int[] backup = null;
 		while (copy.getPacmanCurrentNodeIndex() != destination && copy.getCurrentLevel() == startLevel
 				&& !copy.gameOver()) {
 			int simCurrent = copy.getPacmanCurrentNodeIndex();
 			int dir = copy.getNextMoveTowardsTarget(simCurrent, destination);
-			copy = copy.simulateInDir(dir, ghostModel);
+			if (copy == this) { // One copy is advanced in place for the whole simulation
+				copy = this.copy();
+				backup = new int[Game.PACKED_STATE_LENGTH];
+			}
+			copy.advanceInDir(dir, ghostModel, backup);
 			if (previousLives > copy.getPacmanNumberOfLivesRemaining()) {
 				return null;
 			}
@@ -1527,11 +1620,16 @@ public class GameFacade {
 		int startLevel = this.getCurrentLevel();
 		int previousLives = getPacmanNumberOfLivesRemaining();
 		GameFacade copy = this;
+		int[] backup = null;
 		int steps = 0;
 		while (copy.getPacmanCurrentNodeIndex() != target && copy.getCurrentLevel() == startLevel && !copy.gameOver()) {
 			int simCurrent = copy.getPacmanCurrentNodeIndex();
 			dir = steps == 0 ? dir : copy.getRestrictedNextDir(simCurrent, target, dir);
-			copy = copy.simulateInDir(dir, ghostModel);
+			if (copy == this) { // One copy is advanced in place for the whole simulation
+				copy = this.copy();
+				backup = new int[Game.PACKED_STATE_LENGTH];
+			}
+			copy.advanceInDir(dir, ghostModel, backup);
 			steps++;
 			if (previousLives > copy.getPacmanNumberOfLivesRemaining()) {
 				return null;
@@ -1554,15 +1652,32 @@ public class GameFacade {
 	 */
 	public GameFacade simulateInDir(int dir, GhostControllerFacade ghostModel) {
 		GameFacade copy = this.copy();
-		int[] ghostDirs = ghostModel.getActions(copy, 0);
+		copy.advanceInDir(dir, ghostModel, new int[Game.PACKED_STATE_LENGTH]);
+		return copy;
+	}
 
-		GameFacade backup = copy.copy();
+	/**
+	 * Advance this game one step in direction, given model of how to move
+	 * ghosts. Don't allow reversals: the step is retried from a packed
+	 * backup of the state instead of from a fresh copy.
+	 *
+	 * @param dir
+	 *            direction to move
+	 * @param ghostModel
+	 *            how ghosts move
+	 * @param backup
+	 *            array of Game.PACKED_STATE_LENGTH ints used as scratch space
+	 */
+	private void advanceInDir(int dir, GhostControllerFacade ghostModel, int[] backup) {
+		int[] ghostDirs = ghostModel.getActions(this, 0);
+		newG.saveState(backup);
+		int powerPills = getNumActivePowerPills();
+		advanceGame(dir, ghostDirs);
 		// Loop prevents reversals
-		do {
-			copy = backup.copy();
-			copy.advanceGame(dir, ghostDirs);
-		} while (copy.ghostReversal() && copy.getNumActivePowerPills() == backup.getNumActivePowerPills());
-		return copy;
+		while (ghostReversal() && getNumActivePowerPills() == powerPills) {
+			newG.restoreState(backup);
+			advanceGame(dir, ghostDirs);
+		}
 	}
 
 	/**
@@ -1602,6 +1717,23 @@ public class GameFacade {
 		return new GameFacade(newG.copy());
 	}
 
+	/**
+	 * Packs the game state into an int array
+	 * @param state array of at least Game.PACKED_STATE_LENGTH ints
+	 * @return the state array
+	 */
+	public int[] saveState(int[] state) {
+		return newG.saveState(state);
+	}
+
+	/**
+	 * Returns the game to a packed state from saveState
+	 * @param state packed state
+	 */
+	public void restoreState(int[] state) {
+		newG.restoreState(state);
+	}
+
 	/**
 	 * Gets reverse of given move
 	 * @param move move made
@@ -1785,6 +1917,12 @@ public class GameFacade {
 	 * @return path from -> to in direction
 	 */
 	public int[] getPathInDirFromNew(int from, int to, int direction) {
+		GameQueryCache cache = queryCache();
+		long key = GameQueryCache.key(GameQueryCache.DIRECTIONAL_PATH, from, to, direction);
+		int[] cached = cache.getPath(key);
+		if (cached != null) {
+			return cached;
+		}
 		/**
 		 * This method depends on the newG method getShortestPath, which
 		 * excludes the opposite of "direction". The other neighbors need to be
@@ -1818,7 +1956,48 @@ public class GameFacade {
 				|| finalPath[finalPath.length - 1] == to) : ("Last element of path should be the to location!");
 		assert(finalPath.length == 0 || finalPath[0] != from) : ("Path should NOT start at  location!");
 		assert(validPath(finalPath)) : "Invalid path! " + Arrays.toString(finalPath);
-		return finalPath;
+		return cache.putPath(key, finalPath);
+	}
+
+	/**
+	 * Length of getPathInDirFromNew(from, to, direction), computed without
+	 * building the path.
+	 *
+	 * @param from
+	 *            from node (not counted)
+	 * @param to
+	 *            to node
+	 * @param direction
+	 *            direction to move in [0/UP, 1/RIGHT, 2/DOWN, 3/LEFT]
+	 * @return number of nodes in the directional path
+	 */
+	public int getDirectionalPathDistance(int from, int to, int direction) {
+		MazeTables tables = newG.getMazeTables();
+		if (tables.isJunction(from) && tables.isJunction(to)) {
+			int distance = tables.junctionDistance(from, direction, to);
+			assert distance != -1 : "Picked invalid direction " + direction + " from " + from;
+			return distance;
+		}
+		GameQueryCache cache = queryCache();
+		int[] path = cache.getPath(GameQueryCache.key(GameQueryCache.DIRECTIONAL_PATH, from, to, direction));
+		if (path != null) {
+			return path.length;
+		}
+		long key = GameQueryCache.key(GameQueryCache.DIRECTIONAL_DISTANCE, from, to, direction);
+		if (cache.hasDistance(key)) {
+			return cache.getDistance(key);
+		}
+		int fromNeighbor = newG.getNeighbour(from, indexToMove(direction));
+		assert fromNeighbor != -1 : "Picked invalid direction " + direction + " from " + from;
+		int distance;
+		if (newG.getNeighbour(from, indexToMove(getLeftOf(direction))) == -1
+				&& newG.getNeighbour(from, indexToMove(getRightOf(direction))) == -1) {
+			// Same cases as getPathInDirFromNew
+			distance = newG.getShortestPathDistance(from, to, indexToMove(direction));
+		} else {
+			distance = 1 + newG.getShortestPathDistance(fromNeighbor, to, indexToMove(direction));
+		}
+		return cache.putDistance(key, distance);
 	}
 
 	/**
@@ -0,0 +1,189 @@
+package edu.southwestern.tasks.mspacman.facades;
+
+import edu.southwestern.tasks.mspacman.sensors.blocks.SensorBlockRegistry;
+import edu.southwestern.util.datastructures.LongIntHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import pacman.game.Game;
+
+/**
+ * Remembers the results of path and distance queries made through a
+ * GameFacade for a single game state. Sensor blocks ask for the same paths
+ * many times per time step, and every path lookup allocates a new array, so
+ * results are stored under a key made from the query type and its arguments.
+ * Everything is forgotten as soon as the Game reports a new state version,
+ * or the facade points at a different Game.
+ *
+ * Paths handed out by the cache are shared, and must not be modified.
+ * Like the Game itself, a cache is meant to be used by one thread.
+ */
+public class GameQueryCache {
+
+	// Query types, stored in the top byte of each key
+	public static final int SHORTEST_PATH = 1;
+	public static final int DIRECTIONAL_PATH = 2;
+	public static final int GHOST_PATH = 3;
+	public static final int DIRECTIONAL_DISTANCE = 4;
+	public static final int GHOST_DISTANCE = 5;
+
+	private static final int MISSING = Integer.MIN_VALUE;
+
+	private Game game = null;
+	private int version;
+	// Key to index in pathList
+	private final LongIntHashMap paths = new LongIntHashMap(64, -1);
+	private final ArrayList<int[]> pathList = new ArrayList<int[]>();
+	private final LongIntHashMap distances = new LongIntHashMap(64, MISSING);
+	// Sensor values by shared block id, valid while their stamp matches the current one
+	private double[][] sensorValues = new double[0][];
+	private int[] sensorStamps = new int[0];
+	private int[] sensorDirections = new int[0];
+	private int stamp = 1;
+	// Ids above those of SensorBlockRegistry for blocks that are not shared, by block instance
+	private final IdentityHashMap<Object, Integer> localSensorIds = new IdentityHashMap<Object, Integer>();
+
+	/**
+	 * Combine a query type with up to three arguments. Node indices use
+	 * 24 bits each, and the extra argument (direction or ghost) 8 bits.
+	 *
+	 * @param type one of the query type constants
+	 * @param a first node index (or ghost index)
+	 * @param b second node index
+	 * @param extra direction or ghost index
+	 * @return key for the query
+	 */
+	public static long key(int type, int a, int b, int extra) {
+		return ((long) type << 56) | ((long) (extra & 0xFF) << 48) | ((long) (a & 0xFFFFFF) << 24) | (b & 0xFFFFFF);
+	}
+
+	/**
+	 * Forget everything if the game has moved on since the last query
+	 *
+	 * @param g game currently wrapped by the facade
+	 */
+	public void validate(Game g) {
+		if (g != game || g.getStateVersion() != version) {
+			if (g != game) {
+				// Blocks used in the previous game may never be used again
+				localSensorIds.clear();
+			}
+			game = g;
+			version = g.getStateVersion();
+			clear();
+		}
+	}
+
+	/**
+	 * Forget all stored results
+	 */
+	public void clear() {
+		if (!pathList.isEmpty()) {
+			paths.clear();
+			pathList.clear();
+		}
+		if (!distances.isEmpty()) {
+			distances.clear();
+		}
+		stamp++; // Invalidates all sensor values without touching the arrays
+	}
+
+	/**
+	 * @param key query key
+	 * @return stored path, or null
+	 */
+	public int[] getPath(long key) {
+		int index = paths.get(key);
+		return index == -1 ? null : pathList.get(index);
+	}
+
+	/**
+	 * @param key query key
+	 * @param path result of the query, which must not change afterwards
+	 * @return the path
+	 */
+	public int[] putPath(long key, int[] path) {
+		paths.put(key, pathList.size());
+		pathList.add(path);
+		return path;
+	}
+
+	/**
+	 * @param key query key
+	 * @return whether a distance is stored for the key
+	 */
+	public boolean hasDistance(long key) {
+		return distances.get(key) != MISSING;
+	}
+
+	/**
+	 * @param key query key
+	 * @return stored distance (only meaningful if hasDistance is true)
+	 */
+	public int getDistance(long key) {
+		return distances.get(key);
+	}
+
+	/**
+	 * @param key query key
+	 * @param distance result of the query
+	 * @return the distance
+	 */
+	public int putDistance(long key, int distance) {
+		distances.put(key, distance);
+		return distance;
+	}
+
+	/**
+	 * Id under which this cache stores the values of a block that has no
+	 * shared id. It is only valid for the current game.
+	 *
+	 * @param block sensor block whose shared id is SensorBlockRegistry.UNSHARED
+	 * @return id for getSensors and storeSensors
+	 */
+	public int localSensorId(Object block) {
+		Integer id = localSensorIds.get(block);
+		if (id == null) {
+			id = SensorBlockRegistry.MAX_SHARED + localSensorIds.size();
+			localSensorIds.put(block, id);
+		}
+		return id;
+	}
+
+	/**
+	 * @param blockId shared id of the sensor block, or its localSensorId
+	 * @param lastDirection direction the sensors were computed for
+	 * @return values stored for the block in this state, or null
+	 */
+	public double[] getSensors(int blockId, int lastDirection) {
+		if (blockId < sensorStamps.length && sensorStamps[blockId] == stamp
+				&& sensorDirections[blockId] == lastDirection) {
+			return sensorValues[blockId];
+		}
+		return null;
+	}
+
+	/**
+	 * Array to copy the sensor values of a block into. The array is reused
+	 * for the same block in later states.
+	 *
+	 * @param blockId shared id of the sensor block, or its localSensorId
+	 * @param lastDirection direction the sensors were computed for
+	 * @param size number of sensor values
+	 * @return array to fill
+	 */
+	public double[] storeSensors(int blockId, int lastDirection, int size) {
+		if (blockId >= sensorStamps.length) {
+			int length = Math.max(blockId + 1, 2 * sensorStamps.length);
+			sensorValues = Arrays.copyOf(sensorValues, length);
+			sensorStamps = Arrays.copyOf(sensorStamps, length);
+			sensorDirections = Arrays.copyOf(sensorDirections, length);
+		}
+		if (sensorValues[blockId] == null || sensorValues[blockId].length != size) {
+			sensorValues[blockId] = new double[size];
+		}
+		sensorStamps[blockId] = stamp;
+		sensorDirections[blockId] = lastDirection;
+		return sensorValues[blockId];
+	}
+}
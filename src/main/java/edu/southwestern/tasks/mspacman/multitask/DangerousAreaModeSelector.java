@@ -16,7 +16,7 @@ import pacman.game.Constants;
  */
 public class DangerousAreaModeSelector extends MsPacManModeSelector {
 
-	public static HashMap<Integer, HashMap<Integer, Integer>> scentMaps = null;
+	public static Map<Integer, Map<Integer, Integer>> scentMaps = null;
 	public static double[] mazeAverages = null;
 	public static final int DANGEROUS = 0;
 	public static final int SAFE = 1;
@@ -26,7 +26,7 @@ public class DangerousAreaModeSelector extends MsPacManModeSelector {
 	 */
 	public DangerousAreaModeSelector() {
 		super();
-		scentMaps = new HashMap<Integer, HashMap<Integer, Integer>>();
+		scentMaps = new HashMap<Integer, Map<Integer, Integer>>();
 		updateScentMaps();
 	}
 
@@ -40,7 +40,7 @@ public class DangerousAreaModeSelector extends MsPacManModeSelector {
 			mazeAverages = new double[Constants.NUM_MAZES];
 			for (int i = 0; i < mazeAverages.length; i++) {
 				if (scentMaps.containsKey(i)) { // maze present
-					HashMap<Integer, Integer> mazeDeaths = scentMaps.get(i); // (loc,count)
+					Map<Integer, Integer> mazeDeaths = scentMaps.get(i); // (loc,count)
 																				// pairs
 					double[] counts = ArrayUtil
 							.doubleArrayFromList(Collections.list(Collections.enumeration(mazeDeaths.values())));
@@ -62,7 +62,7 @@ public class DangerousAreaModeSelector extends MsPacManModeSelector {
 	public int mode() {
 		int maze = gs.getMazeIndex();
 		if (scentMaps.containsKey(maze)) {
-			HashMap<Integer, Integer> mazeDeaths = scentMaps.get(maze);
+			Map<Integer, Integer> mazeDeaths = scentMaps.get(maze);
 			int current = gs.getPacmanCurrentNodeIndex();
 			if (mazeDeaths.containsKey(current)) {
 				double count = mazeDeaths.get(current);
@@ -69,6 +69,10 @@ public class BlockLoadedInputOutputMediator extends MsPacManControllerInputOutpu
 		if (numSensors == 0) {
 			for (int i = 0; i < blocks.size(); i++) {
 				numSensors += blocks.get(i).numberAdded();
+				if (CommonConstants.pacManSensorCaching) {
+					// Resolve which blocks share values now, rather than during evaluation
+					blocks.get(i).sharedId();
+				}
 			}
 		}
 		return numSensors;
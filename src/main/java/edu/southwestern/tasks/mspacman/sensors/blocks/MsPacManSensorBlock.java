@@ -1,8 +1,7 @@
 package edu.southwestern.tasks.mspacman.sensors.blocks;
 
 import edu.southwestern.tasks.mspacman.facades.GameFacade;
-import edu.southwestern.util.datastructures.Pair;
-import java.util.HashMap;
+import edu.southwestern.tasks.mspacman.facades.GameQueryCache;
 
 /**
  *
@@ -10,9 +9,6 @@ import java.util.HashMap;
  */
 public abstract class MsPacManSensorBlock {
 
-	// Key is Block hash code, pair of level time and sensor values
-	private static HashMap<MsPacManSensorBlock, Pair<Integer, double[]>> sensorRecord = new HashMap<MsPacManSensorBlock, Pair<Integer, double[]>>();
-
 	/**
 	 * Takes a set of input values under construction, and from the index of
 	 * startPoint, starts adding sensor values. Then the index after the last
@@ -30,10 +26,35 @@ public abstract class MsPacManSensorBlock {
 	 */
 	public abstract int incorporateSensors(double[] inputs, int startPoint, GameFacade gf, int lastDirection);
 
+	// Id shared with all blocks that compute the same sensors, assigned on first use
+	private int sharedId;
+	private boolean hasSharedId = false;
+
+	/**
+	 * @return id from SensorBlockRegistry, the same for every block that
+	 *         computes the same sensors, or SensorBlockRegistry.UNSHARED
+	 */
+	public int sharedId() {
+		if (!hasSharedId) {
+			sharedId = SensorBlockRegistry.id(this);
+			hasSharedId = true;
+		}
+		return sharedId;
+	}
+
+	/**
+	 * @return whether blocks equal to this one may share its sensors. By
+	 *         default, only blocks whose class defines its own equality.
+	 */
+	public boolean sharesSensors() {
+		return SensorBlockRegistry.definesEquality(getClass());
+	}
+
 	/**
 	 * Performs the same action as incorporateSensors, but stores the result
-	 * statically, so that it can be retrieved by other calls that want to
-	 * access it on the same
+	 * in the query cache of the game facade, so that it can be retrieved by
+	 * other calls that want to access it on the same game state. Equal blocks
+	 * in other mediators share the stored result.
 	 * 
 	 * @param inputs
 	 * @param in
@@ -42,19 +63,21 @@ public abstract class MsPacManSensorBlock {
 	 * @return
 	 */
 	public int retrieveSensors(double[] inputs, int in, GameFacade gf, int lastDirection) {
-		Pair<Integer, double[]> previousCalculation = sensorRecord.get(this);
-		int currentTime = gf.getCurrentLevelTime();
+		GameQueryCache cache = gf.queryCache();
+		int id = sharedId();
+		if (id == SensorBlockRegistry.UNSHARED) {
+			id = cache.localSensorId(this);
+		}
 		int toAdd = numberAdded();
-		if (previousCalculation == null || previousCalculation.t1 != currentTime) {
+		double[] previousCalculation = cache.getSensors(id, lastDirection);
+		if (previousCalculation == null) {
 			int result = incorporateSensors(inputs, in, gf, lastDirection);
-			double[] store = new double[toAdd];
-			System.arraycopy(inputs, in, store, 0, toAdd);
-			sensorRecord.put(this, new Pair<Integer, double[]>(currentTime, store));
+			System.arraycopy(inputs, in, cache.storeSensors(id, lastDirection, toAdd), 0, toAdd);
 			return result;
 		} else {
 			// System.out.println("Retrieved cached sensor result: " +
 			// this.getClass().getSimpleName());
-			System.arraycopy(previousCalculation.t2, 0, inputs, in, toAdd);
+			System.arraycopy(previousCalculation, 0, inputs, in, toAdd);
 			return in + toAdd;
 		}
 	}
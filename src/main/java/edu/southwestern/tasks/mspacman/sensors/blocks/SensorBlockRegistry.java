@@ -0,0 +1,84 @@
+package edu.southwestern.tasks.mspacman.sensors.blocks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Gives every distinct sensor block a small integer id. Blocks with the same
+ * id compute the same sensors, so within one game state their values are
+ * computed once and shared through the GameQueryCache by every mediator and
+ * subnetwork that uses them, as happens with multinetwork controllers and
+ * cooperatively evolved teams.
+ *
+ * Only blocks whose own class defines hashCode and equals(MsPacManSensorBlock)
+ * are shared, since only those compare the settings the block was configured
+ * with (the same test UnionInputOutputMediator uses to merge blocks). Two such
+ * blocks are the same if they are equal and also produce the same labels.
+ *
+ * Every other block is UNSHARED, and the GameQueryCache of each game keeps
+ * its values under the block instance instead. Blocks that are created for
+ * every evaluation therefore do not make the registry grow. The registry
+ * also stops sharing once it holds MAX_SHARED distinct blocks, so ids always
+ * stay below MAX_SHARED.
+ */
+public class SensorBlockRegistry {
+
+	// Id of blocks whose sensors are not shared with other blocks
+	public static final int UNSHARED = -1;
+	// Most distinct blocks the registry will share
+	public static final int MAX_SHARED = 1024;
+
+	// Index of each block is its id
+	private static final ArrayList<MsPacManSensorBlock> shared = new ArrayList<MsPacManSensorBlock>();
+	private static final ArrayList<String[]> sharedLabels = new ArrayList<String[]>();
+
+	/**
+	 * @param block
+	 *            sensor block
+	 * @return id shared by all blocks that compute the same sensors, or
+	 *         UNSHARED
+	 */
+	public static synchronized int id(MsPacManSensorBlock block) {
+		if (!block.sharesSensors()) {
+			return UNSHARED;
+		}
+		String[] labels = new String[block.numberAdded()];
+		block.incorporateLabels(labels, 0);
+		for (int i = 0; i < shared.size(); i++) {
+			MsPacManSensorBlock other = shared.get(i);
+			if (other.getClass() == block.getClass() && other.hashCode() == block.hashCode()
+					&& block.equals(other) && Arrays.equals(labels, sharedLabels.get(i))) {
+				return i;
+			}
+		}
+		if (shared.size() == MAX_SHARED) {
+			return UNSHARED;
+		}
+		shared.add(block);
+		sharedLabels.add(labels);
+		return shared.size() - 1;
+	}
+
+	/**
+	 * @param c
+	 *            class of a sensor block
+	 * @return whether c itself defines hashCode and equals(MsPacManSensorBlock),
+	 *         rather than inheriting versions that ignore its settings
+	 */
+	public static boolean definesEquality(Class<? extends MsPacManSensorBlock> c) {
+		try {
+			c.getDeclaredMethod("hashCode");
+			c.getDeclaredMethod("equals", MsPacManSensorBlock.class);
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return number of distinct shared blocks seen so far
+	 */
+	public static synchronized int size() {
+		return shared.size();
+	}
+}
@@ -61,6 +61,14 @@ public class SubNetworkBlock<T extends Network> extends MsPacManSensorBlock {
 		return hash;
 	}
 
+	/**
+	 * The outputs depend on the current network, which equals ignores
+	 */
+	@Override
+	public boolean sharesSensors() {
+		return false;
+	}
+
 	public void changeNetwork(Genotype<? extends Network> g) {
 		changeNetwork(g.getPhenotype());
 	}
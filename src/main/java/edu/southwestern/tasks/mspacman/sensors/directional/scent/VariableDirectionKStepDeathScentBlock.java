@@ -15,7 +15,7 @@ public class VariableDirectionKStepDeathScentBlock extends VariableDirectionBloc
 
 	public static int stepCount;
 	public final boolean max;
-	public static HashMap<Integer, HashMap<Integer, Integer>> scentMaps = null;
+	public static Map<Integer, Map<Integer, Integer>> scentMaps = null;
 	// public static int[] maxDeathScents = new int[Constants.NUM_MAZES];
 	// public static int[] sumDeathScents = new int[Constants.NUM_MAZES];
 	public static int[] topSumDeathScents = new int[Constants.NUM_MAZES];
@@ -38,8 +38,8 @@ public class VariableDirectionKStepDeathScentBlock extends VariableDirectionBloc
 	}
 
 	/**
-	 * Pulls scent map data from file. Needs to be called every new generation
-	 * so that new data is accessible. The updates cannot simply be executed as
+	 * Takes a new snapshot of the death counts. Needs to be called every new
+	 * generation so that new data is accessible. The updates cannot simply be executed as
 	 * deaths occur, since then individuals evaluated later in a generation
 	 * would unfairly benefit from the death data of that same generation.
 	 */
@@ -82,7 +82,7 @@ public class VariableDirectionKStepDeathScentBlock extends VariableDirectionBloc
 		assert next != -1 : "The next direction is not viable!";
 		ArrayList<Integer> visited = new ArrayList<Integer>();
 		visited.add(currentLocation);
-		HashMap<Integer, Integer> mazeScentMap = scentMaps.get(gf.getMazeIndex());
+		Map<Integer, Integer> mazeScentMap = scentMaps.get(gf.getMazeIndex());
 		if (mazeScentMap == null) {
 			return 0; // Agents have never died in this maze before
 		}
@@ -97,7 +97,7 @@ public class VariableDirectionKStepDeathScentBlock extends VariableDirectionBloc
 	}
 
 	public static int countScentAlongPath(GameFacade gf, ArrayList<Integer> visited,
-			HashMap<Integer, Integer> previousDeathsAtLocations, int sourceLocation, int currentLocation,
+			Map<Integer, Integer> previousDeathsAtLocations, int sourceLocation, int currentLocation,
 			int remainingSteps, boolean max) {
 		assert visited.contains(sourceLocation) : "Must have visited source location";
 		if (remainingSteps == 0) {
@@ -0,0 +1,200 @@
+package edu.southwestern.util.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from primitive long keys to primitive int values.
+ * Avoids the boxing and per-entry objects of HashMap&lt;Long,Integer&gt;, which
+ * matters when tracking many genotype IDs. Uses linear probing with
+ * backward shift deletion, so no tombstones accumulate.
+ */
+public class LongIntHashMap {
+
+	private static final float LOAD_FACTOR = 0.5f;
+	private static final int DEFAULT_CAPACITY = 16;
+
+	// Returned by get when the key is not present
+	private final int missingValue;
+
+	private long[] keys;
+	private int[] values;
+	private boolean[] used;
+	private int size;
+	private int mask;
+
+	/**
+	 * Empty map that returns -1 for absent keys
+	 */
+	public LongIntHashMap() {
+		this(DEFAULT_CAPACITY, -1);
+	}
+
+	/**
+	 * @param expectedSize Number of entries to allocate room for
+	 * @param missingValue Value returned by get for absent keys
+	 */
+	public LongIntHashMap(int expectedSize, int missingValue) {
+		this.missingValue = missingValue;
+		allocate(tableSizeFor(expectedSize));
+	}
+
+	private static int tableSizeFor(int expectedSize) {
+		int capacity = DEFAULT_CAPACITY;
+		while (capacity * LOAD_FACTOR < expectedSize) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		used = new boolean[capacity];
+		mask = capacity - 1;
+		size = 0;
+	}
+
+	/**
+	 * Mix bits of key so that sequential IDs spread across the table
+	 * @param key Key to hash
+	 * @return Starting slot for the key
+	 */
+	private int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	/**
+	 * @param key Key to look for
+	 * @return Table index containing the key, or -1
+	 */
+	private int find(long key) {
+		int i = slot(key);
+		while (used[i]) {
+			if (keys[i] == key) {
+				return i;
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param key Key to look up
+	 * @return Associated value, or the missing value if absent
+	 */
+	public int get(long key) {
+		int i = find(key);
+		return i == -1 ? missingValue : values[i];
+	}
+
+	/**
+	 * @param key Key to look for
+	 * @return Whether the key is present
+	 */
+	public boolean containsKey(long key) {
+		return find(key) != -1;
+	}
+
+	/**
+	 * Associate value with key, replacing any previous value
+	 * @param key Key
+	 * @param value Value
+	 * @return Previous value, or the missing value if key was absent
+	 */
+	public int put(long key, int value) {
+		int i = slot(key);
+		while (used[i]) {
+			if (keys[i] == key) {
+				int old = values[i];
+				values[i] = value;
+				return old;
+			}
+			i = (i + 1) & mask;
+		}
+		used[i] = true;
+		keys[i] = key;
+		values[i] = value;
+		if (++size > keys.length * LOAD_FACTOR) {
+			rehash(keys.length << 1);
+		}
+		return missingValue;
+	}
+
+	/**
+	 * Remove key from the map
+	 * @param key Key
+	 * @return Value that was associated with key, or the missing value
+	 */
+	public int remove(long key) {
+		int i = find(key);
+		if (i == -1) {
+			return missingValue;
+		}
+		int old = values[i];
+		// Backward shift: move later entries of the probe run into the gap
+		int gap = i;
+		int j = (i + 1) & mask;
+		while (used[j]) {
+			int home = slot(keys[j]);
+			// Entry at j may fill the gap only if its home slot does not lie cyclically in (gap, j]
+			if (((j - home) & mask) >= ((j - gap) & mask)) {
+				keys[gap] = keys[j];
+				values[gap] = values[j];
+				gap = j;
+			}
+			j = (j + 1) & mask;
+		}
+		used[gap] = false;
+		size--;
+		return old;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		boolean[] oldUsed = used;
+		allocate(capacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i]) {
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+
+	/**
+	 * @return Number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return Whether there are no entries
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Remove all entries, keeping the allocated table
+	 */
+	public void clear() {
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+	/**
+	 * @return All keys currently in the map, in no particular order
+	 */
+	public long[] keys() {
+		long[] result = new long[size];
+		int k = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (used[i]) {
+				result[k++] = keys[i];
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,40 @@
+package edu.southwestern.util.profiling;
+
+/**
+ * Parts of a generation that the Profiler keeps separate timing
+ * statistics for. Time spent in a phase that is started while another
+ * phase is running is subtracted from the enclosing phase, so
+ * the reported times do not overlap. For example, SIMULATION
+ * wraps a whole evaluation, but only reports what is left after
+ * phenotype construction and network activation are removed.
+ */
+public enum Phase {
+	// Genotype to phenotype mapping, including CPPN queries made by HyperNEAT
+	PHENOTYPE("Phenotype", true),
+	// Activation of neural networks
+	FORWARD("Forward", false),
+	// Everything else done while evaluating an individual in its domain
+	SIMULATION("Simulation", false),
+	// Copying genotypes, which for TWEANNs also builds a network
+	COPY("Copy", true),
+	MUTATION("Mutation", false),
+	CROSSOVER("Crossover", false),
+	// Remaining child generation work: parent choice, lineage logging
+	REPRODUCTION("Reproduction", false),
+	SELECTION("Selection", false),
+	LOGGING("Logging", true),
+	// Saving of genotypes, archives and score histories
+	CHECKPOINT("Checkpoint", true);
+
+	public final String label;
+	/**
+	 * If true, phases started within this one are not tracked separately,
+	 * but counted as part of this phase.
+	 */
+	public final boolean absorbsNested;
+
+	Phase(String label, boolean absorbsNested) {
+		this.label = label;
+		this.absorbsNested = absorbsNested;
+	}
+}
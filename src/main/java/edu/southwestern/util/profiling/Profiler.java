@@ -0,0 +1,477 @@
+package edu.southwestern.util.profiling;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.sun.net.httpserver.HttpServer;
+
+import edu.southwestern.log.MetricsLog;
+import edu.southwestern.parameters.Parameters;
+
+/**
+ * Low overhead timing of the phases of a generation. Code being measured
+ * is wrapped like this:
+ * 
+ * long start = Profiler.start(Phase.MUTATION);
+ * g.mutate();
+ * Profiler.stop(Phase.MUTATION, start);
+ * 
+ * When profiling is disabled, start returns 0 after checking a single
+ * static flag, and stop returns immediately. When enabled, each phase
+ * keeps a count, a total time, a maximum, and a histogram with power of
+ * two buckets, all of which can be updated from many threads without
+ * locking. Timing of nested phases is exclusive: see Phase.
+ * 
+ * At the end of each generation, endGeneration takes a Snapshot of the
+ * statistics and resets them. The snapshot is written to the Metrics log,
+ * and can also be viewed through JMX or a local HTTP endpoint while the
+ * experiment runs.
+ */
+public class Profiler {
+
+	public static final String JMX_NAME = "edu.southwestern:type=Profiler";
+	// Enough histogram buckets for any positive long number of nanoseconds
+	private static final int BUCKETS = 63;
+	private static final Phase[] PHASES = Phase.values();
+
+	/**
+	 * Whether timing information is being collected. Not volatile: threads
+	 * only need to see changes eventually, and reading this must be cheap.
+	 */
+	public static boolean enabled = false;
+
+	private static final PhaseStats[] stats = new PhaseStats[PHASES.length];
+	static {
+		for (int i = 0; i < stats.length; i++) {
+			stats[i] = new PhaseStats();
+		}
+	}
+	// Time worker threads spent evaluating, and time they were available to do so
+	private static final LongAdder poolBusy = new LongAdder();
+	private static final LongAdder poolCapacity = new LongAdder();
+
+	// Each thread tracks time spent in phases nested within its currently running phases
+	private static final ThreadLocal<Frames> frames = new ThreadLocal<Frames>() {
+		@Override
+		protected Frames initialValue() {
+			return new Frames();
+		}
+	};
+
+	private static volatile Snapshot latest = null;
+	private static MetricsLog log = null;
+	private static HttpServer server = null;
+	private static ObjectName jmxName = null;
+
+	/**
+	 * Enable profiling according to the parameters, and set up the
+	 * log and endpoints that were requested.
+	 */
+	public static void setup() {
+		close();
+		enabled = Parameters.parameters.booleanParameter("profile");
+		if (!enabled) {
+			return;
+		}
+		reset();
+		if (Parameters.parameters.booleanParameter("io")) {
+			log = new MetricsLog();
+		}
+		if (Parameters.parameters.booleanParameter("profileJMX")) {
+			registerJMX();
+		}
+		int port = Parameters.parameters.integerParameter("profilePort");
+		if (port >= 0) {
+			startServer(port);
+		}
+	}
+
+	/**
+	 * Disable profiling, close the log and shut down any endpoints
+	 */
+	public static void close() {
+		enabled = false;
+		if (log != null) {
+			log.close();
+			log = null;
+		}
+		if (server != null) {
+			server.stop(0);
+			server = null;
+		}
+		if (jmxName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(jmxName);
+			} catch (JMException e) {
+				System.out.println("Could not unregister profiler MBean");
+			}
+			jmxName = null;
+		}
+	}
+
+	/**
+	 * Discard all timing information collected so far
+	 */
+	public static void reset() {
+		for (PhaseStats s : stats) {
+			s.snapshotAndReset(); // Result ignored
+		}
+		poolBusy.reset();
+		poolCapacity.reset();
+		latest = null;
+	}
+
+	/**
+	 * Begin timing a phase
+	 * @param phase Phase that is beginning
+	 * @return Start time to pass to stop, or 0 if this phase will not be recorded
+	 */
+	public static long start(Phase phase) {
+		if (!enabled) {
+			return 0;
+		}
+		Frames f = frames.get();
+		if (f.absorbing) {
+			return 0; // Counted as part of the enclosing phase
+		}
+		f.push(phase.absorbsNested);
+		return System.nanoTime();
+	}
+
+	/**
+	 * Finish timing a phase
+	 * @param phase Phase that is ending
+	 * @param start Value returned by the corresponding call to start
+	 */
+	public static void stop(Phase phase, long start) {
+		if (start == 0) {
+			return;
+		}
+		long elapsed = System.nanoTime() - start;
+		long nested = frames.get().pop(elapsed);
+		stats[phase.ordinal()].record(elapsed - nested);
+	}
+
+	/**
+	 * Current time for measuring thread pool use, or 0 if disabled
+	 * @return Time in nanoseconds
+	 */
+	public static long time() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * A pooled worker thread spent time on a task
+	 * @param start Result of time() when the task started
+	 */
+	public static void poolWork(long start) {
+		if (start != 0) {
+			poolBusy.add(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * A batch of tasks was run in a pool of threads. Along with poolWork,
+	 * this determines what fraction of the pool was busy.
+	 * @param start Result of time() before tasks were submitted
+	 * @param threads Number of threads in the pool
+	 */
+	public static void poolBatch(long start, int threads) {
+		if (start != 0) {
+			poolCapacity.add((System.nanoTime() - start) * threads);
+		}
+	}
+
+	/**
+	 * Take a snapshot of the statistics for the generation that just ended,
+	 * log it, make it available to the endpoints, and start over.
+	 * @param generation Generation that ended
+	 */
+	public static void endGeneration(int generation) {
+		if (!enabled) {
+			return;
+		}
+		Snapshot s = new Snapshot(generation);
+		if (log != null) {
+			log.log(s.toLogLine());
+		}
+		latest = s;
+	}
+
+	/**
+	 * @return Snapshot from the most recently completed generation, or null
+	 */
+	public static Snapshot latest() {
+		return latest;
+	}
+
+	private static void registerJMX() {
+		try {
+			MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+			jmxName = new ObjectName(JMX_NAME);
+			if (mbs.isRegistered(jmxName)) {
+				mbs.unregisterMBean(jmxName);
+			}
+			mbs.registerMBean(new Bean(), jmxName);
+		} catch (JMException e) {
+			System.out.println("Could not register profiler MBean");
+			e.printStackTrace();
+			jmxName = null;
+		}
+	}
+
+	private static void startServer(int port) {
+		try {
+			// Only bound to the local machine
+			server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+		} catch (IOException e) {
+			System.out.println("Could not serve profiler metrics on port " + port);
+			e.printStackTrace();
+			return;
+		}
+		server.createContext("/metrics", exchange -> {
+			Snapshot s = latest;
+			byte[] body = (s == null ? "No generation completed yet\n" : s.toString()).getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+			exchange.sendResponseHeaders(200, body.length);
+			OutputStream out = exchange.getResponseBody();
+			out.write(body);
+			out.close();
+		});
+		server.start();
+		System.out.println("Profiler metrics at http://localhost:" + port + "/metrics");
+	}
+
+	/**
+	 * Stack of phases running on one thread. Each level accumulates
+	 * the time spent in phases nested directly within it.
+	 */
+	private static final class Frames {
+		private long[] nested = new long[8];
+		private int depth = 0; // nested[0] is the level outside of any phase
+		private boolean absorbing = false;
+
+		private void push(boolean absorbs) {
+			if (++depth == nested.length) {
+				long[] bigger = new long[nested.length * 2];
+				System.arraycopy(nested, 0, bigger, 0, nested.length);
+				nested = bigger;
+			}
+			nested[depth] = 0;
+			absorbing = absorbs;
+		}
+
+		/**
+		 * @param elapsed Total time of the phase that is ending
+		 * @return Time spent in phases nested within the one that is ending
+		 */
+		private long pop(long elapsed) {
+			// Nothing is pushed above an absorbing phase, so it is always the top
+			absorbing = false;
+			long result = nested[depth--];
+			nested[depth] += elapsed;
+			return result;
+		}
+	}
+
+	/**
+	 * Thread-safe statistics of one phase
+	 */
+	static final class PhaseStats {
+		private final LongAdder count = new LongAdder();
+		private final LongAdder total = new LongAdder();
+		private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+		// Bucket i counts durations d with 2^i <= d < 2^(i+1) nanoseconds
+		private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+		void record(long nanos) {
+			if (nanos < 1) {
+				nanos = 1;
+			}
+			count.increment();
+			total.add(nanos);
+			max.accumulate(nanos);
+			histogram.incrementAndGet(63 - Long.numberOfLeadingZeros(nanos));
+		}
+
+		/**
+		 * @return count, total, max, followed by histogram bucket counts
+		 */
+		long[] snapshotAndReset() {
+			long[] result = new long[3 + BUCKETS];
+			result[0] = count.sumThenReset();
+			result[1] = total.sumThenReset();
+			result[2] = max.getThenReset();
+			for (int i = 0; i < BUCKETS; i++) {
+				result[3 + i] = histogram.getAndSet(i, 0);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Upper bound of the histogram bucket containing a given quantile
+	 * @param data Result of snapshotAndReset
+	 * @param q Quantile in (0,1]
+	 * @return Duration in nanoseconds
+	 */
+	static long quantile(long[] data, double q) {
+		long target = (long) Math.ceil(q * data[0]);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += data[3 + i];
+			if (seen >= target && seen > 0) {
+				// Never report more than the largest value actually seen
+				return Math.min(data[2], (1L << (i + 1)) - 1);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Statistics of every phase over one generation. Times are
+	 * stored in milliseconds.
+	 */
+	public static class Snapshot {
+		public final int generation;
+		public final long[] counts = new long[PHASES.length];
+		public final double[] totalMillis = new double[PHASES.length];
+		public final double[] medianMillis = new double[PHASES.length];
+		public final double[] p99Millis = new double[PHASES.length];
+		public final double[] maxMillis = new double[PHASES.length];
+		// Fraction of evaluation thread pool time spent evaluating, or NaN if no pool was used
+		public final double poolUtilization;
+
+		private Snapshot(int generation) {
+			this.generation = generation;
+			for (int i = 0; i < PHASES.length; i++) {
+				long[] data = stats[i].snapshotAndReset();
+				counts[i] = data[0];
+				totalMillis[i] = millis(data[1]);
+				maxMillis[i] = millis(data[2]);
+				medianMillis[i] = millis(quantile(data, 0.5));
+				p99Millis[i] = millis(quantile(data, 0.99));
+			}
+			long busy = poolBusy.sumThenReset();
+			long capacity = poolCapacity.sumThenReset();
+			poolUtilization = capacity == 0 ? Double.NaN : Math.min(1.0, busy / (double) capacity);
+		}
+
+		private static double millis(long nanos) {
+			return nanos / 1000000.0;
+		}
+
+		/**
+		 * @param phase A phase
+		 * @return Total milliseconds spent in that phase
+		 */
+		public double totalMillis(Phase phase) {
+			return totalMillis[phase.ordinal()];
+		}
+
+		/**
+		 * @param phase A phase
+		 * @return Number of times the phase was timed
+		 */
+		public long count(Phase phase) {
+			return counts[phase.ordinal()];
+		}
+
+		/**
+		 * Tab separated line: generation, then count, total, median, 99th
+		 * percentile and max for each phase in order, then pool utilization
+		 * @return line for the Metrics log
+		 */
+		public String toLogLine() {
+			StringBuilder sb = new StringBuilder();
+			sb.append(generation);
+			for (int i = 0; i < PHASES.length; i++) {
+				sb.append('\t').append(counts[i]);
+				sb.append('\t').append(totalMillis[i]);
+				sb.append('\t').append(medianMillis[i]);
+				sb.append('\t').append(p99Millis[i]);
+				sb.append('\t').append(maxMillis[i]);
+			}
+			sb.append('\t').append(poolUtilization);
+			return sb.toString();
+		}
+
+		/**
+		 * @return Column labels matching toLogLine
+		 */
+		public static String logHeader() {
+			StringBuilder sb = new StringBuilder("Generation");
+			for (Phase p : PHASES) {
+				sb.append('\t').append(p.label).append(" Count");
+				sb.append('\t').append(p.label).append(" Total ms");
+				sb.append('\t').append(p.label).append(" Median ms");
+				sb.append('\t').append(p.label).append(" P99 ms");
+				sb.append('\t').append(p.label).append(" Max ms");
+			}
+			sb.append("\tPool Utilization");
+			return sb.toString();
+		}
+
+		/**
+		 * Human readable table
+		 */
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append("Generation ").append(generation).append('\n');
+			sb.append(String.format("%-14s%10s%14s%12s%12s%12s%n", "Phase", "Count", "Total ms", "Median ms", "P99 ms", "Max ms"));
+			for (int i = 0; i < PHASES.length; i++) {
+				sb.append(String.format("%-14s%10d%14.3f%12.4f%12.4f%12.4f%n", PHASES[i].label, counts[i], totalMillis[i], medianMillis[i], p99Millis[i], maxMillis[i]));
+			}
+			sb.append(String.format("Pool Utilization: %.3f%n", poolUtilization));
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * JMX view of the latest snapshot
+	 */
+	public static class Bean implements ProfilerMXBean {
+		@Override
+		public int getGeneration() {
+			Snapshot s = latest;
+			return s == null ? -1 : s.generation;
+		}
+
+		@Override
+		public Map<String, Double> getPhaseTotalMillis() {
+			Snapshot s = latest;
+			Map<String, Double> result = new LinkedHashMap<String, Double>();
+			if (s != null) {
+				for (Phase p : PHASES) {
+					result.put(p.label, s.totalMillis(p));
+				}
+			}
+			return result;
+		}
+
+		@Override
+		public double getPoolUtilization() {
+			Snapshot s = latest;
+			return s == null ? Double.NaN : s.poolUtilization;
+		}
+
+		@Override
+		public String getReport() {
+			Snapshot s = latest;
+			return s == null ? "" : s.toString();
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package edu.southwestern.util.profiling;
+
+import java.util.Map;
+
+/**
+ * Profiler statistics from the most recently completed generation,
+ * exposed through JMX when the profileJMX parameter is true.
+ */
+public interface ProfilerMXBean {
+	/**
+	 * @return Most recently completed generation, or -1
+	 */
+	public int getGeneration();
+
+	/**
+	 * @return Total milliseconds of each phase, by phase label
+	 */
+	public Map<String, Double> getPhaseTotalMillis();
+
+	/**
+	 * @return Fraction of evaluation thread pool time that was used
+	 */
+	public double getPoolUtilization();
+
+	/**
+	 * @return Human readable table of all statistics
+	 */
+	public String getReport();
+}
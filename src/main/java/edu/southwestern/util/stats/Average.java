@@ -5,10 +5,15 @@ package edu.southwestern.util.stats;
  * 
  * @author Jacob Schrum
  */
-public class Average implements Statistic {
+public class Average implements MomentStatistic {
 
 	@Override
 	public double stat(double[] xs) {
 		return StatisticsUtilities.average(xs);
 	}
+
+	@Override
+	public double stat(long n, double mean, double m2, double min, double max) {
+		return mean;
+	}
 }
@@ -5,10 +5,15 @@ package edu.southwestern.util.stats;
  * 
  * @author Jacob Schrum
  */
-public class Max implements Statistic {
+public class Max implements MomentStatistic {
 
 	@Override
 	public double stat(double[] xs) {
 		return StatisticsUtilities.maximum(xs);
 	}
+
+	@Override
+	public double stat(long n, double mean, double m2, double min, double max) {
+		return max;
+	}
 }
@@ -0,0 +1,21 @@
+package edu.southwestern.util.stats;
+
+/**
+ * A statistic that can also be computed from running summary values
+ * instead of the full array of samples. Allows clients to keep constant
+ * memory per sample stream rather than storing every value.
+ */
+public interface MomentStatistic extends Statistic {
+
+	/**
+	 * Compute the statistic from streaming moments of the samples.
+	 * 
+	 * @param n Number of samples
+	 * @param mean Running mean of the samples
+	 * @param m2 Running sum of squared deviations from the mean (Welford's M2)
+	 * @param min Smallest sample
+	 * @param max Largest sample
+	 * @return Same value stat would produce on the full array of samples
+	 */
+	public double stat(long n, double mean, double m2, double min, double max);
+}
@@ -10,5 +10,7 @@ import micro.rts.PlayerAction;
 public interface HasEvaluationFunction {
 	public void setEvaluationFunction(EvaluationFunction a_ef);
 
+	public EvaluationFunction getEvaluationFunction();
+
 	public PlayerAction getAction(int i, GameState gs) throws Exception;
 }
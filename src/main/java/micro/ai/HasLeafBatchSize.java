@@ -0,0 +1,11 @@
+package micro.ai;
+
+/**
+ * Search AIs that can run several playouts before evaluating their
+ * final states together with EvaluationFunction.evaluate(..., states, n, ...)
+ */
+public interface HasLeafBatchSize {
+	public void setLeafBatchSize(int a_lbs);
+
+	public int getLeafBatchSize();
+}
@@ -5,6 +5,7 @@
 package micro.ai.abstraction;
 
 import micro.rts.GameState;
+import micro.rts.PhysicalGameState;
 import micro.rts.ResourceUsage;
 import micro.rts.UnitAction;
 import micro.rts.units.Unit;
@@ -32,6 +33,20 @@ public abstract class AbstractAction {
     }
     
     
+    // Points the action at the current versions of its units, since states cloned with
+    // GameState.cloneCopyOnWrite replace units by copies when they change:
+    public void updateUnits(PhysicalGameState pgs) {
+        unit = currentUnit(unit, pgs);
+    }
+    
+    
+    static Unit currentUnit(Unit u, PhysicalGameState pgs) {
+        if (u==null) return null;
+        Unit current = pgs.getUnit(u.getID());
+        return current==null ? u:current;
+    }
+    
+    
     public abstract boolean completed(GameState pgs);
     
     
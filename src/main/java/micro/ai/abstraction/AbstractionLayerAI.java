@@ -58,32 +58,40 @@ public abstract class AbstractionLayerAI extends AIWithComputationBudget {
         PlayerAction pa = new PlayerAction();
         List<Pair<Unit,UnitAction>> desires = new ArrayList<>();
         
+        // Key the actions by the current units, looked up by ID, since states cloned with
+        // GameState.cloneCopyOnWrite replace units by copies when they change. An action given
+        // to the current version of a unit replaces the one given to an older version:
+        List<AbstractAction> previous = new ArrayList<>(actions.values());
+        actions.clear();
+        for(AbstractAction aa:previous) {
+            if (pgs.getUnit(aa.unit.getID())!=null) {
+                aa.updateUnits(pgs);
+                actions.put(aa.unit, aa);
+            }
+            // otherwise, the unit is dead
+        }
+
         // Execute abstract actions:
         List<Unit> toDelete = new ArrayList<>();
          ResourceUsage ru = new ResourceUsage();
         for(AbstractAction aa:actions.values()) {
-            if (!pgs.getUnits().contains(aa.unit)) {
-                // The unit is dead:
+            if (aa.completed(gs)) {
+                // the action is complete:
                 toDelete.add(aa.unit);
             } else {
-                if (aa.completed(gs)) {
-                    // the action is complete:
-                    toDelete.add(aa.unit);
-                } else {
-                    if (gs.getActionAssignment(aa.unit)==null) {
-                        UnitAction ua = aa.execute(gs,ru);
-                        if (ua!=null) {
-                            if (VERIFY_ACTION_CORRECTNESS) {
-                                // verify that the action is actually feasible:
-                                List<UnitAction> ual = aa.unit.getUnitActions(gs);
-                                if (ual.contains(ua)) desires.add(new Pair<>(aa.unit,ua));
-                            } else { 
-                                desires.add(new Pair<>(aa.unit,ua));
-                            }
-                        	ru.merge(ua.resourceUsage(aa.unit, pgs));
+                if (gs.getActionAssignment(aa.unit)==null) {
+                    UnitAction ua = aa.execute(gs,ru);
+                    if (ua!=null) {
+                        if (VERIFY_ACTION_CORRECTNESS) {
+                            // verify that the action is actually feasible:
+                            List<UnitAction> ual = aa.unit.getUnitActions(gs);
+                            if (ual.contains(ua)) desires.add(new Pair<>(aa.unit,ua));
+                        } else { 
+                            desires.add(new Pair<>(aa.unit,ua));
                         }
-                        
+                    	ru.merge(ua.resourceUsage(aa.unit, pgs));
                     }
+                    
                 }
             }
         }
@@ -224,4 +232,10 @@ public abstract class AbstractionLayerAI extends AIWithComputationBudget {
     public void setPathFinding(PathFinding a_pf) {
         pf = a_pf;
     }
+
+
+    @Override
+    public void unshare() {
+        if (pf!=null) pf = pf.clone();
+    }
 }   
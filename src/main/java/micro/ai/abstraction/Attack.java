@@ -25,6 +25,11 @@ public class Attack extends AbstractAction  {
         pf = a_pf;
     }
     
+    public void updateUnits(PhysicalGameState pgs) {
+        super.updateUnits(pgs);
+        target = currentUnit(target, pgs);
+    }
+    
     public boolean completed(GameState gs) {
         PhysicalGameState pgs = gs.getPhysicalGameState();
         if (!pgs.getUnits().contains(target)) return true;
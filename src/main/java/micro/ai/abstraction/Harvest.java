@@ -38,6 +38,13 @@ public class Harvest extends AbstractAction  {
     }
     
     
+    public void updateUnits(PhysicalGameState pgs) {
+        super.updateUnits(pgs);
+        target = currentUnit(target, pgs);
+        base = currentUnit(base, pgs);
+    }
+    
+    
     public boolean completed(GameState gs) {
         if (!gs.getPhysicalGameState().getUnits().contains(target)) return true;
         return false;
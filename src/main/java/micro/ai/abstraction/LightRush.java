@@ -42,7 +42,7 @@ public class LightRush extends AbstractionLayerAI {
     // If we have a worker: do this if needed: build base, build barracks, harvest resources
 
     public LightRush(){
-    	this(((MicroRTSInformation) MMNEAT.task).getUnitTypeTable());
+    	this(((MicroRTSInformation) MMNEAT.task).getUnitTypeTable(), PathFinding.fromParameters());
     }
     
     public LightRush(UnitTypeTable a_utt) {
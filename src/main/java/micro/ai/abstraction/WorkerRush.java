@@ -38,7 +38,7 @@ public class WorkerRush extends AbstractionLayerAI {
     // If we have a worker: do this if needed: build base, harvest resources
     
     public WorkerRush(){
-    	this(((MicroRTSInformation) MMNEAT.task).getUnitTypeTable());
+    	this(((MicroRTSInformation) MMNEAT.task).getUnitTypeTable(), PathFinding.fromParameters());
     }
     public WorkerRush(UnitTypeTable a_utt) {
         this(a_utt, new AStarPathFinding());
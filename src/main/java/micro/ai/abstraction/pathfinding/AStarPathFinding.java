@@ -250,5 +250,9 @@ public class AStarPathFinding extends PathFinding {
     int manhattanDistance(int x, int y, int x2, int y2) {
         return Math.abs(x-x2) + Math.abs(y-y2);
     }
-        
+
+
+    public PathFinding clone() {
+        return new AStarPathFinding();
+    }
 }
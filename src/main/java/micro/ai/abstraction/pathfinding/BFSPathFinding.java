@@ -169,5 +169,9 @@ public class BFSPathFinding extends PathFinding {
         if (findPathToPositionInRange(start,targetpos,range,gs,ru)!=null) return true;
         return false;
     }
-        
+
+
+    public PathFinding clone() {
+        return new BFSPathFinding();
+    }
 }
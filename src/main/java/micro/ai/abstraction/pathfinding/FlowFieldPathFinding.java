@@ -0,0 +1,201 @@
+package micro.ai.abstraction.pathfinding;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import micro.rts.GameState;
+import micro.rts.PhysicalGameState;
+import micro.rts.ResourceUsage;
+import micro.rts.UnitAction;
+import micro.rts.units.Unit;
+
+/**
+ * Path finding with flow fields. A field holds, for every position of the map, the number of
+ * steps to the closest position in range of a target, and is computed with a single breadth-first
+ * search starting from all the positions in range. Units then just step to the neighbor closest
+ * to the target, so all the units heading to the same resource, base or enemy share one search.
+ *
+ * Fields only go around static obstacles: terrain and the units that cannot move (like bases and
+ * resources). So they are kept (one per target and range) until those change (see
+ * PhysicalGameState.getStaticHash), rather than every time a unit moves. The units that can move
+ * are dynamic obstacles: a unit only steps to a neighbor closer to the target that is free (see
+ * GameState.free) and not reserved in the ResourceUsage, and waits if there is none. When nothing
+ * is in the way, paths are as short as those of BFSPathFinding, although ties between paths of the
+ * same length may be broken differently.
+ *
+ * The least recently used fields are dropped past MAX_FIELDS, since targets that move (like enemy
+ * units) leave fields behind.
+ */
+public class FlowFieldPathFinding extends PathFinding {
+
+    public int fields_computed = 0;   // this is a debugging variable
+    public int fields_reused = 0;   // this is a debugging variable
+
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+    static final int MAX_FIELDS = 256;
+
+    static class FlowField {
+        long staticHash;
+        int width, height;
+        int distance[];
+    }
+
+    // fields by range and target position, the least recently used first:
+    LinkedHashMap<Long,FlowField> fields = new LinkedHashMap<Long,FlowField>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<Long,FlowField> eldest) {
+            return size()>MAX_FIELDS;
+        }
+    };
+    boolean free[] = null;
+    int open[] = null;
+
+
+    public UnitAction findPath(Unit start, int targetpos, GameState gs, ResourceUsage ru) {
+        return findPathToPositionInRange(start,targetpos,0,gs,ru);
+    }
+
+
+    public UnitAction findPathToPositionInRange(Unit start, int targetpos, int range, GameState gs, ResourceUsage ru) {
+        PhysicalGameState pgs = gs.getPhysicalGameState();
+        int w = pgs.getWidth();
+        int x = start.getX();
+        int y = start.getY();
+        int targetx = targetpos%w;
+        int targety = targetpos/w;
+        if ((x-targetx)*(x-targetx)+(y-targety)*(y-targety)<=range*range) return null;
+
+        int distance[] = getField(targetpos, range, gs).distance;
+        List<Integer> reserved = (ru==null ? null:ru.getPositionsUsed());
+        int pos = x + y*w;
+        if (distance[pos]==UNREACHABLE) return null;
+        int closer = distance[pos]-1;
+        // same order as BFSPathFinding, so that ties are broken in a similar way:
+        if (y>0 && distance[pos-w]==closer && canStep(x, y-1, pos-w, gs, reserved)) {
+            return new UnitAction(UnitAction.TYPE_MOVE, UnitAction.DIRECTION_UP);
+        }
+        if (x<w-1 && distance[pos+1]==closer && canStep(x+1, y, pos+1, gs, reserved)) {
+            return new UnitAction(UnitAction.TYPE_MOVE, UnitAction.DIRECTION_RIGHT);
+        }
+        if (y<pgs.getHeight()-1 && distance[pos+w]==closer && canStep(x, y+1, pos+w, gs, reserved)) {
+            return new UnitAction(UnitAction.TYPE_MOVE, UnitAction.DIRECTION_DOWN);
+        }
+        if (x>0 && distance[pos-1]==closer && canStep(x-1, y, pos-1, gs, reserved)) {
+            return new UnitAction(UnitAction.TYPE_MOVE, UnitAction.DIRECTION_LEFT);
+        }
+        // the way is blocked by other units for now:
+        return null;
+    }
+
+
+    // Whether no unit is in the way of stepping to (x,y), which is "pos":
+    boolean canStep(int x, int y, int pos, GameState gs, List<Integer> reserved) {
+        return gs.free(x, y) && (reserved==null || !reserved.contains(pos));
+    }
+
+
+    // Returns the field for "targetpos" and "range", computing it again if the static obstacles changed:
+    FlowField getField(int targetpos, int range, GameState gs) {
+        PhysicalGameState pgs = gs.getPhysicalGameState();
+        int w = pgs.getWidth();
+        int h = pgs.getHeight();
+        long staticHash = pgs.getStaticHash();
+        Long key = (((long)range)<<32) | targetpos;
+        FlowField field = fields.get(key);
+        if (field!=null && field.staticHash==staticHash && field.width==w && field.height==h) {
+            fields_reused++;
+            return field;
+        }
+        if (field==null) {
+            field = new FlowField();
+            fields.put(key, field);
+        }
+        if (field.distance==null || field.width!=w || field.height!=h) {
+            field.distance = new int[w*h];
+        }
+        if (open==null || open.length<w*h) {
+            open = new int[w*h];
+            free = new boolean[w*h];
+        }
+        field.staticHash = staticHash;
+        field.width = w;
+        field.height = h;
+        fields_computed++;
+
+        // positions without static obstacles:
+        for(int y = 0;y<h;y++) {
+            for(int x = 0;x<w;x++) {
+                free[x+y*w] = (pgs.getTerrain(x, y)==PhysicalGameState.TERRAIN_NONE);
+            }
+        }
+        for(Unit u:pgs.getUnits()) {
+            if (!u.getType().canMove) free[u.getX()+u.getY()*w] = false;
+        }
+
+        // breadth-first search from all the free positions in range of the target:
+        int distance[] = field.distance;
+        for(int i = 0;i<distance.length;i++) distance[i] = UNREACHABLE;
+        int openinsert = 0;
+        int openremove = 0;
+        int targetx = targetpos%w;
+        int targety = targetpos/w;
+        int sq_range = range*range;
+        for(int y = Math.max(0, targety-range);y<=Math.min(h-1, targety+range);y++) {
+            for(int x = Math.max(0, targetx-range);x<=Math.min(w-1, targetx+range);x++) {
+                if ((x-targetx)*(x-targetx)+(y-targety)*(y-targety)<=sq_range && free[x+y*w]) {
+                    distance[x+y*w] = 0;
+                    open[openinsert++] = x+y*w;
+                }
+            }
+        }
+        while(openremove<openinsert) {
+            int pos = open[openremove++];
+            int x = pos%w;
+            int y = pos/w;
+            int d = distance[pos]+1;
+            if (y>0 && distance[pos-w]==UNREACHABLE && free[pos-w]) {
+                distance[pos-w] = d;
+                open[openinsert++] = pos-w;
+            }
+            if (x<w-1 && distance[pos+1]==UNREACHABLE && free[pos+1]) {
+                distance[pos+1] = d;
+                open[openinsert++] = pos+1;
+            }
+            if (y<h-1 && distance[pos+w]==UNREACHABLE && free[pos+w]) {
+                distance[pos+w] = d;
+                open[openinsert++] = pos+w;
+            }
+            if (x>0 && distance[pos-1]==UNREACHABLE && free[pos-1]) {
+                distance[pos-1] = d;
+                open[openinsert++] = pos-1;
+            }
+        }
+        return field;
+    }
+
+
+    public UnitAction findPathToAdjacentPosition(Unit start, int targetpos, GameState gs, ResourceUsage ru) {
+        return findPathToPositionInRange(start, targetpos, 1, gs, ru);
+    }
+
+
+    public boolean pathExists(Unit start, int targetpos, GameState gs, ResourceUsage ru) {
+        return pathToPositionInRangeExists(start,targetpos,0,gs,ru);
+    }
+
+
+    // Units that are in the way for now do not count, since they can move:
+    public boolean pathToPositionInRangeExists(Unit start, int targetpos, int range, GameState gs, ResourceUsage ru) {
+        int w = gs.getPhysicalGameState().getWidth();
+        int x = targetpos%w;
+        int y = targetpos/w;
+        int d = (x-start.getX())*(x-start.getX()) + (y-start.getY())*(y-start.getY());
+        if (d<=range*range) return true;
+        return getField(targetpos, range, gs).distance[start.getX()+start.getY()*w]!=UNREACHABLE;
+    }
+
+
+    public PathFinding clone() {
+        return new FlowFieldPathFinding();
+    }
+}
@@ -112,5 +112,9 @@ public class GreedyPathFinding extends PathFinding {
         if (findPathToPositionInRange(start,targetpos,range,gs,ru)!=null) return true;
         return false;
     }
-        
+
+
+    public PathFinding clone() {
+        return new GreedyPathFinding();
+    }
 }
@@ -4,6 +4,7 @@
  */
 package micro.ai.abstraction.pathfinding;
 
+import edu.southwestern.util.ClassCreation;
 import micro.rts.GameState;
 import micro.rts.ResourceUsage;
 import micro.rts.UnitAction;
@@ -20,6 +21,22 @@ public abstract class PathFinding {
     public abstract UnitAction findPathToPositionInRange(Unit start, int targetpos, int range, GameState gs, ResourceUsage ru);
     public abstract UnitAction findPathToAdjacentPosition(Unit start, int targetpos, GameState gs, ResourceUsage ru);
 
+    // A new path finding of the same kind. Path finders reuse their data structures from one
+    // search to the next, so AIs used from different threads need their own (see AI.unshare):
+    @Override
+    public abstract PathFinding clone();
+
+    // The path finding chosen with the "microRTSPathFinding" parameter:
+    public static PathFinding fromParameters() {
+        try {
+            return (PathFinding) ClassCreation.createObject("microRTSPathFinding");
+        } catch (NoSuchMethodException e) {
+            e.printStackTrace();
+            System.exit(1);
+            return null;
+        }
+    }
+
     public String toString() {
         return getClass().getSimpleName();
     }
@@ -165,6 +165,15 @@ public class AHTNAI extends AIWithComputationBudget implements HasEvaluationFunc
             return null;
         }
     }
+
+
+    @Override
+    public void unshare() {
+        if (playoutAI!=null) {
+            playoutAI = playoutAI.clone();
+            playoutAI.unshare();
+        }
+    }
     
     @Override
     public String toString() {
@@ -648,6 +648,12 @@ public class AdversarialBoundedDepthPlannerAlphaBeta implements HasEvaluationFun
 		}
 
 
+		@Override
+		public EvaluationFunction getEvaluationFunction() {
+			return f;
+		}
+
+
 		@Override
 		public PlayerAction getAction(int i, GameState gs) throws Exception {
 //			return playout(i, gs);
@@ -23,8 +23,15 @@ public abstract class AI {
     @Override
     public abstract AI clone();   // this function is not supposed to do an exact clone with all the internal state, etc.
                                   // just a copy of the AI with the same configuration.
-    
-    
+
+
+    // Clones share objects that keep state between calls (like path finding or playout policies),
+    // which is fine as long as they are used from the same thread. This gives this AI its own
+    // copies of them, so that it can be used in a different thread than the AI it was cloned from.
+    public void unshare() {
+    }
+
+
     // This method can be used to report any meaningful statistics once the game is over 
     // (for example, average nodes explored per move, etc.)
     public String statisticsString() {
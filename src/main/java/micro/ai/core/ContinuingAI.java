@@ -85,6 +85,13 @@ public class ContinuingAI extends AI {
         }
     }
 
+
+    @Override
+    public void unshare() {
+        m_AI = m_AI.clone();
+        m_AI.unshare();
+    }
+
     
     @Override
     public String toString() {
@@ -0,0 +1,77 @@
+package micro.ai.evaluation;
+
+import micro.rts.GameState;
+
+/**
+ * Remembers the evaluations of another function in the shared EvaluationCache, so that states
+ * reached several times (e.g., through different orders of the same actions) are evaluated once.
+ * Only functions that look at nothing but the board (see GameState.getHash) can be cached this
+ * way: not, e.g., EvaluationFunctionForwarding, which also looks at the pending unit actions.
+ */
+public class CachedEvaluationFunction extends EvaluationFunction {
+    
+    EvaluationFunction baseFunction = null;
+    EvaluationCache cache = EvaluationCache.shared;
+    long owner = EvaluationCache.newOwner();
+    
+    GameState missing[] = new GameState[0];
+    int missingIdx[] = new int[0];
+    float missingEvaluations[] = new float[0];
+    
+    public CachedEvaluationFunction(EvaluationFunction base) {
+        baseFunction = base;
+    }
+    
+    
+    public float evaluate(int maxplayer, int minplayer, GameState gs) {
+        long hash = gs.getHash();
+        float evaluation = cache.get(owner, hash, maxplayer, minplayer);
+        if (Float.isNaN(evaluation)) {
+            evaluation = baseFunction.evaluate(maxplayer, minplayer, gs);
+            cache.put(owner, hash, maxplayer, minplayer, evaluation);
+        }
+        return evaluation;
+    }
+    
+    
+    // the states that are not cached are evaluated with a single call to the base function:
+    public void evaluate(int maxplayer, int minplayer, GameState states[], int n, float evaluations[]) {
+        if (missing.length<n) {
+            missing = new GameState[n];
+            missingIdx = new int[n];
+            missingEvaluations = new float[n];
+        }
+        int nmissing = 0;
+        for(int i = 0;i<n;i++) {
+            evaluations[i] = cache.get(owner, states[i].getHash(), maxplayer, minplayer);
+            if (Float.isNaN(evaluations[i])) {
+                missing[nmissing] = states[i];
+                missingIdx[nmissing] = i;
+                nmissing++;
+            }
+        }
+        if (nmissing==0) return;
+        baseFunction.evaluate(maxplayer, minplayer, missing, nmissing, missingEvaluations);
+        for(int i = 0;i<nmissing;i++) {
+            evaluations[missingIdx[i]] = missingEvaluations[i];
+            cache.put(owner, missing[i].getHash(), maxplayer, minplayer, missingEvaluations[i]);
+            missing[i] = null;
+        }
+    }
+    
+    
+    // call this if the base function changes:
+    public void clear() {
+        cache.clear(owner);
+    }
+    
+    
+    public float upperBound(GameState gs) {
+        return baseFunction.upperBound(gs);
+    }
+    
+    
+    public String toString() {
+        return getClass().getSimpleName() + "(" + baseFunction + ")";
+    }
+}
@@ -0,0 +1,84 @@
+package micro.ai.evaluation;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded table of evaluations that can be shared by every evaluation function and thread.
+ * Entries are keyed by the hash of the state (GameState.getHash), the two players, and an
+ * "owner": a number obtained from newOwner() that identifies the evaluation function (and, for
+ * learned functions, its current parameters). Each slot holds one entry, which is replaced by any
+ * later entry that maps to the same slot. The slots are split among a fixed number of locks, so
+ * threads evaluating different states rarely wait for each other.
+ */
+public class EvaluationCache {
+    public static final EvaluationCache shared = new EvaluationCache(1<<16, 64);
+    
+    static final AtomicLong lastOwner = new AtomicLong();
+    
+    final long hashes[];
+    final long keys[];      // owner and players of each slot, 0 when empty
+    final float values[];
+    final Object locks[];
+    final int slotMask;
+    final int lockMask;
+    
+    // "size" and "nlocks" must be powers of two:
+    public EvaluationCache(int size, int nlocks) {
+        hashes = new long[size];
+        keys = new long[size];
+        values = new float[size];
+        locks = new Object[nlocks];
+        for(int i = 0;i<nlocks;i++) locks[i] = new Object();
+        slotMask = size-1;
+        lockMask = nlocks-1;
+    }
+    
+    
+    public static long newOwner() {
+        return lastOwner.incrementAndGet();
+    }
+    
+    
+    static long key(long owner, int maxplayer, int minplayer) {
+        return (owner<<4) | ((maxplayer&3)<<2) | (minplayer&3);
+    }
+    
+    
+    int slot(long hash, long key) {
+        return (int)((hash ^ (key * 0x9e3779b97f4a7c15L)) >>> 16) & slotMask;
+    }
+    
+    
+    // Returns the stored evaluation, or NaN if there is none:
+    public float get(long owner, long hash, int maxplayer, int minplayer) {
+        long key = key(owner, maxplayer, minplayer);
+        int slot = slot(hash, key);
+        synchronized(locks[slot & lockMask]) {
+            if (keys[slot]==key && hashes[slot]==hash) return values[slot];
+        }
+        return Float.NaN;
+    }
+    
+    
+    public void put(long owner, long hash, int maxplayer, int minplayer, float evaluation) {
+        long key = key(owner, maxplayer, minplayer);
+        int slot = slot(hash, key);
+        synchronized(locks[slot & lockMask]) {
+            hashes[slot] = hash;
+            keys[slot] = key;
+            values[slot] = evaluation;
+        }
+    }
+    
+    
+    // Forgets all the evaluations of an owner (e.g., when the network of a neural evaluation changes):
+    public void clear(long owner) {
+        for(int l = 0;l<locks.length;l++) {
+            synchronized(locks[l]) {
+                for(int slot = l;slot<keys.length;slot+=locks.length) {
+                    if ((keys[slot]>>>4)==owner) keys[slot] = 0;
+                }
+            }
+        }
+    }
+}
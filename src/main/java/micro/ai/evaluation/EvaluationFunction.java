@@ -14,6 +14,15 @@ public abstract class EvaluationFunction {
     public static float VICTORY = 10000;
     
     public abstract float evaluate(int maxplayer, int minplayer, GameState gs);
+    
+    // evaluates the first n states (all from the same players' perspective), storing the
+    // results in the same positions of "evaluations". Functions that can share work between
+    // states (e.g., a single neural network pass for all of them) override this:
+    public void evaluate(int maxplayer, int minplayer, GameState states[], int n, float evaluations[]) {
+        for(int i = 0;i<n;i++) {
+            evaluations[i] = evaluate(maxplayer, minplayer, states[i]);
+        }
+    }
     public abstract float upperBound(GameState gs);
     
     public String toString() {
@@ -0,0 +1,44 @@
+package micro.ai.evaluation;
+
+import micro.rts.GameState;
+
+/**
+ * Lets one thread at a time use another evaluation function. Evaluation functions keep
+ * buffers (e.g., the inputs of a neural network), so threads that share one (like the
+ * threads of a parallel search, or AIs cloned for matches played in parallel) wrap it in
+ * this class. All the wrappers of the same function lock on that function.
+ */
+public class SynchronizedEvaluationFunction extends EvaluationFunction {
+
+    EvaluationFunction baseFunction = null;
+
+    public SynchronizedEvaluationFunction(EvaluationFunction base) {
+        baseFunction = base;
+    }
+
+
+    public float evaluate(int maxplayer, int minplayer, GameState gs) {
+        synchronized(baseFunction) {
+            return baseFunction.evaluate(maxplayer, minplayer, gs);
+        }
+    }
+
+
+    public void evaluate(int maxplayer, int minplayer, GameState states[], int n, float evaluations[]) {
+        synchronized(baseFunction) {
+            baseFunction.evaluate(maxplayer, minplayer, states, n, evaluations);
+        }
+    }
+
+
+    public float upperBound(GameState gs) {
+        synchronized(baseFunction) {
+            return baseFunction.upperBound(gs);
+        }
+    }
+
+
+    public String toString() {
+        return baseFunction.toString();
+    }
+}
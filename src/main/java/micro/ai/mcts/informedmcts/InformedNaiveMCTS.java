@@ -36,7 +36,7 @@ import micro.ai.core.InterruptibleAI;
  * @author santi
  * 
  */
-public class InformedNaiveMCTS extends AIWithComputationBudget implements InterruptibleAI, HasEvaluationFunction {
+public class InformedNaiveMCTS extends AIWithComputationBudget implements InterruptibleAI, HasEvaluationFunction, HasLeafBatchSize {
     public static int DEBUG = 0;
     public EvaluationFunction ef = null;
     UnitTypeTable utt = null;
@@ -53,6 +53,12 @@ public class InformedNaiveMCTS extends AIWithComputationBudget implements Interr
     public int MAXSIMULATIONTIME = 1024;
     public int MAX_TREE_DEPTH = 10;
     
+    // number of playouts whose final states are evaluated together (1: evaluate after each playout):
+    public int LEAF_BATCH_SIZE = 1;
+    InformedNaiveMCTSNode batch_leaves[] = null;
+    GameState batch_states[] = null;
+    float batch_evaluations[] = null;
+    
     int player;
     
     public float epsilon_0 = 0.2f;
@@ -184,8 +190,17 @@ public class InformedNaiveMCTS extends AIWithComputationBudget implements Interr
         
     
     public AI clone() {
-        return new InformedNaiveMCTS(TIME_BUDGET, ITERATIONS_BUDGET, MAXSIMULATIONTIME, MAX_TREE_DEPTH, epsilon_l, discount_l, epsilon_g, discount_g, epsilon_0, discount_0, playoutPolicy, bias, ef, utt);
+        InformedNaiveMCTS clone = new InformedNaiveMCTS(TIME_BUDGET, ITERATIONS_BUDGET, MAXSIMULATIONTIME, MAX_TREE_DEPTH, epsilon_l, discount_l, epsilon_g, discount_g, epsilon_0, discount_0, playoutPolicy, bias, ef, utt);
+        clone.LEAF_BATCH_SIZE = LEAF_BATCH_SIZE;
+        return clone;
     }    
+
+
+    @Override
+    public void unshare() {
+        playoutPolicy = playoutPolicy.clone();
+        playoutPolicy.unshare();
+    }
     
     
     public PlayerAction getAction(int player, GameState gs) throws Exception
@@ -229,8 +244,16 @@ public class InformedNaiveMCTS extends AIWithComputationBudget implements Interr
         long end = start;
         long count = 0;
         while(true) {
-            if (!iteration(player)) break;
-            count++;
+            if (LEAF_BATCH_SIZE>1) {
+                int n = LEAF_BATCH_SIZE;
+                if (ITERATIONS_BUDGET>=0) n = (int)Math.min(n, ITERATIONS_BUDGET - count);
+                int done = batchIteration(player, n);
+                if (done==0) break;
+                count+=done;
+            } else {
+                if (!iteration(player)) break;
+                count++;
+            }
             end = System.currentTimeMillis();
             if (TIME_BUDGET>=0 && (end - start)>=TIME_BUDGET) break; 
             if (ITERATIONS_BUDGET>=0 && count>=ITERATIONS_BUDGET) break;             
@@ -270,6 +293,52 @@ public class InformedNaiveMCTS extends AIWithComputationBudget implements Interr
         return true;
     }
     
+    // Selects up to n leaves and runs their playouts, then evaluates all the final states with a
+    // single call to the evaluation function (see NaiveMCTS.batchIteration). Returns the number of
+    // playouts performed.
+    public int batchIteration(int player, int n) throws Exception {
+        if (batch_leaves==null || batch_leaves.length<n) {
+            batch_leaves = new InformedNaiveMCTSNode[n];
+            batch_states = new GameState[n];
+            batch_evaluations = new float[n];
+        }
+        int selected = 0;
+        while(selected<n) {
+            InformedNaiveMCTSNode leaf = tree.selectLeaf(player, 1-player, epsilon_l, epsilon_g, epsilon_0, global_strategy, MAX_TREE_DEPTH, current_iteration++);
+            if (leaf==null) break;
+            leaf.addVirtualLoss(1, null);
+            GameState gs2 = leaf.gs.clone();
+            simulate(gs2, gs2.getTime() + MAXSIMULATIONTIME);
+            batch_leaves[selected] = leaf;
+            batch_states[selected] = gs2;
+            selected++;
+        }
+        if (selected==0) {
+            // no actions to choose from :)
+            System.err.println(this.getClass().getSimpleName() + ": claims there are no more leafs to explore...");
+            return 0;
+        }
+
+        ef.evaluate(player, 1-player, batch_states, selected, batch_evaluations);
+        for(int i = 0;i<selected;i++) {
+            InformedNaiveMCTSNode leaf = batch_leaves[i];
+            int time = batch_states[i].getTime() - gs_to_start_from.getTime();
+            double evaluation = batch_evaluations[i]*Math.pow(0.99,time/10.0);
+
+            leaf.addVirtualLoss(-1, null);
+            leaf.propagateEvaluation(evaluation,null);
+            batch_leaves[i] = null;
+            batch_states[i] = null;
+
+            // update the epsilon values:
+            epsilon_0*=discount_0;
+            epsilon_l*=discount_l;
+            epsilon_g*=discount_g;
+            total_runs++;
+        }
+        return selected;
+    }
+    
     public PlayerAction getBestActionSoFar() {
         int idx = getMostVisitedActionIdx();
         if (idx==-1) {
@@ -464,6 +533,16 @@ public class InformedNaiveMCTS extends AIWithComputationBudget implements Interr
     public void setMaxTreeDepth(int a_mtd) {
         MAX_TREE_DEPTH = a_mtd;
     }
+    
+    
+    public int getLeafBatchSize() {
+        return LEAF_BATCH_SIZE;
+    }
+    
+    
+    public void setLeafBatchSize(int a_lbs) {
+        LEAF_BATCH_SIZE = a_lbs;
+    }
 
 
     public float getE_l() {
@@ -348,6 +348,33 @@ public class InformedNaiveMCTSNode extends MCTSNode {
         }
     }
 
+    // Counts pending visits of this node and its ancestors (or takes them back, when "visits" is
+    // negative), each with the worst evaluation for the player choosing at that level. This
+    // "virtual loss" makes the search select other leaves while this one waits to be evaluated:
+    public void addVirtualLoss(int visits, InformedNaiveMCTSNode child) {
+        if (parent != null) {
+            accum_evaluation += visits * (parent.type==0 ? -evaluation_bound : evaluation_bound);
+        }
+        visit_count += visits;
+
+        if (child != null) {
+            double loss = visits * (type==0 ? -evaluation_bound : evaluation_bound);
+            int idx = children.indexOf(child);
+            PlayerAction pa = actions.get(idx);
+
+            for (Pair<Unit, UnitAction> ua : pa.getActions()) {
+                InformedUnitActionTableEntry actionTable = getActionTableEntry(ua.m_a);
+                idx = actionTable.actions.indexOf(ua.m_b);
+                actionTable.accum_evaluation[idx] += loss;
+                actionTable.visit_count[idx] += visits;
+            }
+        }
+
+        if (parent != null) {
+            ((InformedNaiveMCTSNode)parent).addVirtualLoss(visits, this);
+        }
+    }
+
     public void printUnitActionTable() {
         for (InformedUnitActionTableEntry uat : unitActionTable) {
             System.out.println("Actions for unit " + uat.u);
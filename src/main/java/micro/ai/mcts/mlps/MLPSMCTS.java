@@ -89,6 +89,13 @@ public class MLPSMCTS extends AIWithComputationBudget implements InterruptibleAI
     public AI clone() {
         return new MLPSMCTS(TIME_BUDGET, ITERATIONS_BUDGET, MAXSIMULATIONTIME, MAX_TREE_DEPTH, C, randomAI, ef);
     }    
+
+
+    @Override
+    public void unshare() {
+        randomAI = randomAI.clone();
+        randomAI.unshare();
+    }
     
     
     public PlayerAction getAction(int player, GameState gs) throws Exception
@@ -26,7 +26,7 @@ import micro.ai.core.InterruptibleAI;
  *
  * @author santi
  */
-public class NaiveMCTS extends AIWithComputationBudget implements InterruptibleAI {
+public class NaiveMCTS extends AIWithComputationBudget implements InterruptibleAI, HasEvaluationFunction, HasLeafBatchSize {
     public static int DEBUG = 0;
     public EvaluationFunction ef = null;
        
@@ -41,6 +41,12 @@ public class NaiveMCTS extends AIWithComputationBudget implements InterruptibleA
     public int MAXSIMULATIONTIME = 1024;
     public int MAX_TREE_DEPTH = 10;
     
+    // number of playouts whose final states are evaluated together (1: evaluate after each playout):
+    public int LEAF_BATCH_SIZE = 1;
+    NaiveMCTSNode batch_leaves[] = null;
+    GameState batch_states[] = null;
+    float batch_evaluations[] = null;
+    
     int player;
     
     public float epsilon_0 = 0.2f;
@@ -142,8 +148,17 @@ public class NaiveMCTS extends AIWithComputationBudget implements InterruptibleA
         
     
     public AI clone() {
-        return new NaiveMCTS(TIME_BUDGET, ITERATIONS_BUDGET, MAXSIMULATIONTIME, MAX_TREE_DEPTH, epsilon_l, discount_l, epsilon_g, discount_g, epsilon_0, discount_0, playoutPolicy, ef, forceExplorationOfNonSampledActions);
+        NaiveMCTS clone = new NaiveMCTS(TIME_BUDGET, ITERATIONS_BUDGET, MAXSIMULATIONTIME, MAX_TREE_DEPTH, epsilon_l, discount_l, epsilon_g, discount_g, epsilon_0, discount_0, playoutPolicy, ef, forceExplorationOfNonSampledActions);
+        clone.LEAF_BATCH_SIZE = LEAF_BATCH_SIZE;
+        return clone;
     }    
+
+
+    @Override
+    public void unshare() {
+        playoutPolicy = playoutPolicy.clone();
+        playoutPolicy.unshare();
+    }
     
     
     public PlayerAction getAction(int player, GameState gs) throws Exception
@@ -189,8 +204,16 @@ public class NaiveMCTS extends AIWithComputationBudget implements InterruptibleA
         long end = start;
         long count = 0;
         while(true) {
-            if (!iteration(player)) break;
-            count++;
+            if (LEAF_BATCH_SIZE>1) {
+                int n = LEAF_BATCH_SIZE;
+                if (ITERATIONS_BUDGET>=0) n = (int)Math.min(n, ITERATIONS_BUDGET - count);
+                int done = batchIteration(player, n);
+                if (done==0) break;
+                count+=done;
+            } else {
+                if (!iteration(player)) break;
+                count++;
+            }
             end = System.currentTimeMillis();
             if (TIME_BUDGET>=0 && (end - start)>=TIME_BUDGET) break; 
             if (ITERATIONS_BUDGET>=0 && count>=ITERATIONS_BUDGET) break;             
@@ -206,7 +229,7 @@ public class NaiveMCTS extends AIWithComputationBudget implements InterruptibleA
         NaiveMCTSNode leaf = tree.selectLeaf(player, 1-player, epsilon_l, epsilon_g, epsilon_0, global_strategy, MAX_TREE_DEPTH, current_iteration++);
 
         if (leaf!=null) {            
-            GameState gs2 = leaf.gs.clone();
+            GameState gs2 = leaf.gs.cloneCopyOnWrite();
             simulate(gs2, gs2.getTime() + MAXSIMULATIONTIME);
 
             int time = gs2.getTime() - gs_to_start_from.getTime();
@@ -230,6 +253,53 @@ public class NaiveMCTS extends AIWithComputationBudget implements InterruptibleA
         return true;
     }
     
+    // Selects up to n leaves and runs their playouts, then evaluates all the final states with a
+    // single call to the evaluation function (which can, e.g., run a neural network once for all
+    // of them). Leaves waiting for their evaluation carry a virtual loss, so that the selections in
+    // the same batch spread over the tree. Returns the number of playouts performed.
+    public int batchIteration(int player, int n) throws Exception {
+        if (batch_leaves==null || batch_leaves.length<n) {
+            batch_leaves = new NaiveMCTSNode[n];
+            batch_states = new GameState[n];
+            batch_evaluations = new float[n];
+        }
+        int selected = 0;
+        while(selected<n) {
+            NaiveMCTSNode leaf = tree.selectLeaf(player, 1-player, epsilon_l, epsilon_g, epsilon_0, global_strategy, MAX_TREE_DEPTH, current_iteration++);
+            if (leaf==null) break;
+            leaf.addVirtualLoss(1, null);
+            GameState gs2 = leaf.gs.cloneCopyOnWrite();
+            simulate(gs2, gs2.getTime() + MAXSIMULATIONTIME);
+            batch_leaves[selected] = leaf;
+            batch_states[selected] = gs2;
+            selected++;
+        }
+        if (selected==0) {
+            // no actions to choose from :)
+            System.err.println(this.getClass().getSimpleName() + ": claims there are no more leafs to explore...");
+            return 0;
+        }
+
+        ef.evaluate(player, 1-player, batch_states, selected, batch_evaluations);
+        for(int i = 0;i<selected;i++) {
+            NaiveMCTSNode leaf = batch_leaves[i];
+            int time = batch_states[i].getTime() - gs_to_start_from.getTime();
+            double evaluation = batch_evaluations[i]*Math.pow(0.99,time/10.0);
+
+            leaf.addVirtualLoss(-1, null);
+            leaf.propagateEvaluation(evaluation,null);
+            batch_leaves[i] = null;
+            batch_states[i] = null;
+
+            // update the epsilon values:
+            epsilon_0*=discount_0;
+            epsilon_l*=discount_l;
+            epsilon_g*=discount_g;
+            total_runs++;
+        }
+        return selected;
+    }
+    
     public PlayerAction getBestActionSoFar() {
         int idx = getMostVisitedActionIdx();
         if (idx==-1) {
@@ -303,14 +373,19 @@ public class NaiveMCTS extends AIWithComputationBudget implements InterruptibleA
     
         
     public void simulate(GameState gs, int time) throws Exception {
+        simulate(gs, time, playoutPolicy);
+    }
+    
+    
+    public void simulate(GameState gs, int time, AI policy) throws Exception {
         boolean gameover = false;
 
         do{
             if (gs.isComplete()) {
                 gameover = gs.cycle();
             } else {
-                gs.issue(playoutPolicy.getAction(0, gs));
-                gs.issue(playoutPolicy.getAction(1, gs));
+                gs.issue(policy.getAction(0, gs));
+                gs.issue(policy.getAction(1, gs));
             }
         }while(!gameover && gs.getTime()<time);   
     }
@@ -384,6 +459,16 @@ public class NaiveMCTS extends AIWithComputationBudget implements InterruptibleA
     }
     
     
+    public int getLeafBatchSize() {
+        return LEAF_BATCH_SIZE;
+    }
+    
+    
+    public void setLeafBatchSize(int a_lbs) {
+        LEAF_BATCH_SIZE = a_lbs;
+    }
+    
+    
     public float getE_l() {
         return epsilon_l;
     }
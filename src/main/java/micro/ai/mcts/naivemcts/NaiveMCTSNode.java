@@ -315,7 +315,7 @@ public class NaiveMCTSNode extends MCTSNode {
         if (pate==null) {
             actions.add(pa2);            
             GameState gs2 = gs.cloneIssue(pa2);
-            NaiveMCTSNode node = new NaiveMCTSNode(maxplayer, minplayer, gs2.clone(), this, evaluation_bound, a_creation_ID, forceExplorationOfNonSampledActions);
+            NaiveMCTSNode node = new NaiveMCTSNode(maxplayer, minplayer, gs2.cloneCopyOnWrite(), this, evaluation_bound, a_creation_ID, forceExplorationOfNonSampledActions);
             childrenMap.put(actionCode,node);
             children.add(node);          
             return node;                
@@ -363,6 +363,33 @@ public class NaiveMCTSNode extends MCTSNode {
         }
     }
 
+    // Counts pending visits of this node and its ancestors (or takes them back, when "visits" is
+    // negative), each with the worst evaluation for the player choosing at that level. This
+    // "virtual loss" makes the search select other leaves while this one waits to be evaluated:
+    public void addVirtualLoss(int visits, NaiveMCTSNode child) {
+        if (parent != null) {
+            accum_evaluation += visits * (parent.type==0 ? -evaluation_bound : evaluation_bound);
+        }
+        visit_count += visits;
+
+        if (child != null) {
+            double loss = visits * (type==0 ? -evaluation_bound : evaluation_bound);
+            int idx = children.indexOf(child);
+            PlayerAction pa = actions.get(idx);
+
+            for (Pair<Unit, UnitAction> ua : pa.getActions()) {
+                UnitActionTableEntry actionTable = getActionTableEntry(ua.m_a);
+                idx = actionTable.actions.indexOf(ua.m_b);
+                actionTable.accum_evaluation[idx] += loss;
+                actionTable.visit_count[idx] += visits;
+            }
+        }
+
+        if (parent != null) {
+            ((NaiveMCTSNode)parent).addVirtualLoss(visits, this);
+        }
+    }
+
     public void printUnitActionTable() {
         for (UnitActionTableEntry uat : unitActionTable) {
             System.out.println("Actions for unit " + uat.u);
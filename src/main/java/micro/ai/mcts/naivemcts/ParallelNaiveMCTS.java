@@ -0,0 +1,326 @@
+package micro.ai.mcts.naivemcts;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.southwestern.parameters.Parameters;
+import micro.ai.core.AI;
+import micro.ai.core.ParameterSpecification;
+import micro.ai.evaluation.EvaluationFunction;
+import micro.ai.evaluation.SynchronizedEvaluationFunction;
+import micro.rts.GameState;
+import micro.rts.PlayerAction;
+import micro.rts.units.UnitTypeTable;
+
+/**
+ * NaiveMCTS running its playouts on several threads, in one of two ways:
+ * - tree parallelism: all threads search the same tree. Selection, expansion and
+ *   backpropagation are done holding a lock on the tree, and playouts and evaluations
+ *   without it. Leaves waiting for their evaluation carry a virtual loss, so that the
+ *   threads spread over the tree.
+ * - root parallelism: each thread searches its own tree from its own copy of the state,
+ *   and the visits of each action at the roots are added up to choose the action.
+ * The playout budget is shared by all threads. With a single thread, the search is exactly
+ * the one of NaiveMCTS, so it is reproducible given the seed of the random generator.
+ *
+ * Evaluation functions (like the neural network ones) are not thread-safe, so threads
+ * evaluate their leaves one at a time holding a lock on the evaluation function.
+ * LEAF_BATCH_SIZE is only used with a single thread.
+ */
+public class ParallelNaiveMCTS extends NaiveMCTS {
+    public int NUM_THREADS = 1;
+    public boolean ROOT_PARALLELISM = false;
+
+    // threads other than the one calling computeDuringOneGameFrame:
+    ExecutorService pool = null;
+    int pool_size = 0;
+    final Object treeLock = new Object();
+    AtomicLong playouts_started = new AtomicLong();
+    long deadline = 0;
+    EvaluationFunction lockedEF = null;
+
+    // root parallelism: one search per thread
+    NaiveMCTS roots[] = null;
+    // playout policy of each thread (see threadPolicies)
+    AI policies[] = null;
+
+
+    public ParallelNaiveMCTS(UnitTypeTable utt) {
+        super(utt);
+    }
+
+
+    public ParallelNaiveMCTS(int available_time, int max_playouts, int lookahead, int max_depth,
+                               float e_l, float discout_l,
+                               float e_g, float discout_g,
+                               float e_0, float discout_0,
+                               AI policy, EvaluationFunction a_ef,
+                               boolean fensa, int threads, boolean rootParallelism) {
+        super(available_time, max_playouts, lookahead, max_depth, e_l, discout_l, e_g, discout_g, e_0, discout_0, policy, a_ef, fensa);
+        NUM_THREADS = threads;
+        ROOT_PARALLELISM = rootParallelism;
+    }
+
+
+    public ParallelNaiveMCTS() {
+        super();
+        NUM_THREADS = Parameters.parameters.integerParameter("microRTSSearchThreads");
+        ROOT_PARALLELISM = Parameters.parameters.booleanParameter("microRTSRootParallelism");
+    }
+
+
+    public AI clone() {
+        ParallelNaiveMCTS clone = new ParallelNaiveMCTS(TIME_BUDGET, ITERATIONS_BUDGET, MAXSIMULATIONTIME, MAX_TREE_DEPTH, epsilon_l, discount_l, epsilon_g, discount_g, epsilon_0, discount_0, playoutPolicy, ef, forceExplorationOfNonSampledActions, NUM_THREADS, ROOT_PARALLELISM);
+        clone.LEAF_BATCH_SIZE = LEAF_BATCH_SIZE;
+        return clone;
+    }
+
+
+    public void reset() {
+        super.reset();
+        roots = null;
+    }
+
+
+    public void startNewComputation(int a_player, GameState gs) throws Exception {
+        roots = null;
+        if (NUM_THREADS>1 && ROOT_PARALLELISM) {
+            // the states are copied here, since even copy-on-write clones change the state they come from:
+            lockedEF = new SynchronizedEvaluationFunction(ef);
+            roots = new NaiveMCTS[NUM_THREADS];
+            for(int i = 0;i<NUM_THREADS;i++) {
+                roots[i] = new NaiveMCTS(TIME_BUDGET, ITERATIONS_BUDGET, MAXSIMULATIONTIME, MAX_TREE_DEPTH, initial_epsilon_l, discount_l, initial_epsilon_g, discount_g, initial_epsilon_0, discount_0, threadPolicies()[i], lockedEF, forceExplorationOfNonSampledActions);
+                roots[i].global_strategy = global_strategy;
+                roots[i].startNewComputation(a_player, i==0 ? gs:gs.clone());
+            }
+            player = a_player;
+            tree = roots[0].tree;
+            gs_to_start_from = gs;
+            max_actions_so_far = Math.max(roots[0].max_actions_so_far, max_actions_so_far);
+        } else {
+            super.startNewComputation(a_player, gs);
+        }
+    }
+
+
+    public void computeDuringOneGameFrame() throws Exception {
+        if (NUM_THREADS<=1) {
+            super.computeDuringOneGameFrame();
+            return;
+        }
+        long start = System.currentTimeMillis();
+        deadline = start + TIME_BUDGET;
+        playouts_started.set(0);
+        if (!ROOT_PARALLELISM) lockedEF = new SynchronizedEvaluationFunction(ef);
+        threadPolicies();
+
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+        for(int i = 1;i<NUM_THREADS;i++) {
+            final int thread = i;
+            futures.add(getPool().submit(new Callable<Integer>() {
+                public Integer call() throws Exception {
+                    return search(thread);
+                }
+            }));
+        }
+        search(0);
+        for(Future<Integer> future:futures) {
+            try {
+                future.get();
+            } catch(ExecutionException e) {
+                // unwrap the root cause
+                if (e.getCause() instanceof Exception) throw (Exception)e.getCause();
+                throw e;
+            }
+        }
+        if (ROOT_PARALLELISM) {
+            for(NaiveMCTS root:roots) {
+                total_runs += root.total_runs;
+                root.total_runs = 0;
+            }
+        }
+        total_time += (System.currentTimeMillis() - start);
+        total_cycles_executed++;
+    }
+
+
+    // The playout policy of each thread: playoutPolicy for the calling thread, and copies of it
+    // with their own path finding and such for the others. They are kept from one search to the
+    // next, so that the policies can reuse what they computed before:
+    AI[] threadPolicies() {
+        if (policies==null || policies.length!=NUM_THREADS || policies[0]!=playoutPolicy) {
+            policies = new AI[NUM_THREADS];
+            policies[0] = playoutPolicy;
+            for(int i = 1;i<NUM_THREADS;i++) {
+                policies[i] = playoutPolicy.clone();
+                policies[i].unshare();
+            }
+        }
+        return policies;
+    }
+
+
+    // Runs playouts on the calling thread until the budget runs out. Returns the number of playouts:
+    int search(int thread) throws Exception {
+        // the searches of root parallelism already have the policy of their thread:
+        AI policy = policies[thread];
+        int count = 0;
+        while(claimPlayout()) {
+            boolean done;
+            if (ROOT_PARALLELISM) {
+                done = roots[thread].iteration(player);
+            } else {
+                done = treeIteration(player, policy);
+            }
+            if (!done) break;
+            count++;
+            if (TIME_BUDGET>=0 && System.currentTimeMillis()>=deadline) break;
+        }
+        return count;
+    }
+
+
+    // Counts a playout against the budget shared by all threads, if there is any left:
+    boolean claimPlayout() {
+        if (ITERATIONS_BUDGET<0) return true;
+        return playouts_started.getAndIncrement()<ITERATIONS_BUDGET;
+    }
+
+
+    // One playout on the shared tree. The tree (including the states in its nodes, which
+    // change when they are cloned) is only touched while holding "treeLock":
+    boolean treeIteration(int player, AI policy) throws Exception {
+        NaiveMCTSNode leaf;
+        GameState gs2;
+        synchronized(treeLock) {
+            leaf = tree.selectLeaf(player, 1-player, epsilon_l, epsilon_g, epsilon_0, global_strategy, MAX_TREE_DEPTH, current_iteration++);
+            if (leaf==null) {
+                // no actions to choose from :)
+                System.err.println(this.getClass().getSimpleName() + ": claims there are no more leafs to explore...");
+                return false;
+            }
+            leaf.addVirtualLoss(1, null);
+            gs2 = leaf.gs.cloneCopyOnWrite();
+        }
+        simulate(gs2, gs2.getTime() + MAXSIMULATIONTIME, policy);
+        int time = gs2.getTime() - gs_to_start_from.getTime();
+        double evaluation = lockedEF.evaluate(player, 1-player, gs2)*Math.pow(0.99,time/10.0);
+
+        synchronized(treeLock) {
+            leaf.addVirtualLoss(-1, null);
+            leaf.propagateEvaluation(evaluation,null);
+
+            // update the epsilon values:
+            epsilon_0*=discount_0;
+            epsilon_l*=discount_l;
+            epsilon_g*=discount_g;
+            total_runs++;
+        }
+        return true;
+    }
+
+
+    ExecutorService getPool() {
+        if (pool==null || pool_size!=NUM_THREADS-1) {
+            if (pool!=null) pool.shutdown();
+            pool_size = NUM_THREADS-1;
+            // daemon threads, so that an AI that is not used any more does not keep the program running:
+            pool = Executors.newFixedThreadPool(pool_size, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "ParallelNaiveMCTS");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return pool;
+    }
+
+
+    public PlayerAction getBestActionSoFar() {
+        if (roots==null) return super.getBestActionSoFar();
+        total_actions_issued++;
+
+        // add up the visits of each action over all the trees (actions are identified by their codes,
+        // which are the same in all of them, since they come from copies of the same state):
+        Map<BigInteger,Integer> visits = new LinkedHashMap<BigInteger,Integer>();
+        Map<BigInteger,PlayerAction> actions = new LinkedHashMap<BigInteger,PlayerAction>();
+        for(NaiveMCTS root:roots) {
+            NaiveMCTSNode t = root.tree;
+            if (t.children==null) continue;
+            for(Map.Entry<BigInteger,NaiveMCTSNode> entry:t.childrenMap.entrySet()) {
+                Integer v = visits.get(entry.getKey());
+                visits.put(entry.getKey(), (v==null ? 0:v) + entry.getValue().visit_count);
+                if (!actions.containsKey(entry.getKey())) {
+                    actions.put(entry.getKey(), t.actions.get(t.children.indexOf(entry.getValue())));
+                }
+            }
+        }
+        BigInteger best = null;
+        for(Map.Entry<BigInteger,Integer> entry:visits.entrySet()) {
+            if (best==null || entry.getValue()>visits.get(best)) best = entry.getKey();
+        }
+        if (best==null) {
+            if (DEBUG>=1) System.out.println("ParallelNaiveMCTS no children selected. Returning an empty asction");
+            return new PlayerAction();
+        }
+        if (DEBUG>=1) System.out.println("ParallelNaiveMCTS selected children " + actions.get(best) + " explored " + visits.get(best) + " times in " + roots.length + " trees");
+        return actions.get(best);
+    }
+
+
+    // The trees searched by each thread with root parallelism (null otherwise):
+    public NaiveMCTSNode[] getRootTrees() {
+        if (roots==null) return null;
+        NaiveMCTSNode trees[] = new NaiveMCTSNode[roots.length];
+        for(int i = 0;i<roots.length;i++) trees[i] = roots[i].tree;
+        return trees;
+    }
+
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + TIME_BUDGET + ", " + ITERATIONS_BUDGET + ", " + MAXSIMULATIONTIME + "," + MAX_TREE_DEPTH + "," + epsilon_l + ", " + discount_l + ", " + epsilon_g + ", " + discount_g + ", " + epsilon_0 + ", " + discount_0 + ", " + playoutPolicy + ", " + ef + ", " + NUM_THREADS + ", " + (ROOT_PARALLELISM ? "root":"tree") + ")";
+    }
+
+
+    @Override
+    public List<ParameterSpecification> getParameters() {
+        List<ParameterSpecification> parameters = super.getParameters();
+
+        parameters.add(new ParameterSpecification("Threads",int.class,1));
+        parameters.add(new ParameterSpecification("RootParallelism",boolean.class,false));
+
+        return parameters;
+    }
+
+
+    public int getThreads() {
+        return NUM_THREADS;
+    }
+
+
+    public void setThreads(int a_threads) {
+        NUM_THREADS = a_threads;
+    }
+
+
+    public boolean getRootParallelism() {
+        return ROOT_PARALLELISM;
+    }
+
+
+    public void setRootParallelism(boolean a_rp) {
+        ROOT_PARALLELISM = a_rp;
+    }
+}
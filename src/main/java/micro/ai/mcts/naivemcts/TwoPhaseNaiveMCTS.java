@@ -136,6 +136,13 @@ public class TwoPhaseNaiveMCTS extends AIWithComputationBudget implements Interr
                                              phase2_epsilon_l, phase2_epsilon_g, phase2_epsilon_0,
                                              phase1_ratio, randomAI, ef, forceExplorationOfNonSampledActions);
     }    
+
+
+    @Override
+    public void unshare() {
+        randomAI = randomAI.clone();
+        randomAI.unshare();
+    }
     
     
     public final PlayerAction getAction(int player, GameState gs) throws Exception
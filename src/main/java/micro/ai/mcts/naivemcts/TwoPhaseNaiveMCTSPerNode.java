@@ -132,6 +132,13 @@ public class TwoPhaseNaiveMCTSPerNode extends AIWithComputationBudget implements
                                              phase2_epsilon_l, phase2_epsilon_g, phase2_epsilon_0,
                                              phase1_budget, randomAI, ef, forceExplorationOfNonSampledActions);
     }    
+
+
+    @Override
+    public void unshare() {
+        randomAI = randomAI.clone();
+        randomAI.unshare();
+    }
     
     
     public final PlayerAction getAction(int player, GameState gs) throws Exception
@@ -79,6 +79,13 @@ public class DownsamplingUCT extends AIWithComputationBudget implements Interrup
     public AI clone() {
         return new DownsamplingUCT(TIME_BUDGET, ITERATIONS_BUDGET, MAXSIMULATIONTIME, MAXACTIONS, MAX_TREE_DEPTH, randomAI, ef);
     }  
+
+
+    @Override
+    public void unshare() {
+        randomAI = randomAI.clone();
+        randomAI.unshare();
+    }
     
     
     public final PlayerAction getAction(int player, GameState gs) throws Exception
@@ -6,6 +6,7 @@ package micro.ai.mcts.uct;
 
 import micro.ai.core.AI;
 import micro.ai.HasEvaluationFunction;
+import micro.ai.HasLeafBatchSize;
 import micro.ai.RandomBiasedAI;
 import micro.ai.core.AIWithComputationBudget;
 import micro.ai.core.ParameterSpecification;
@@ -25,7 +26,7 @@ import micro.ai.core.InterruptibleAI;
  *
  * @author santi
  */
-public class UCT extends AIWithComputationBudget implements InterruptibleAI, HasEvaluationFunction{
+public class UCT extends AIWithComputationBudget implements InterruptibleAI, HasEvaluationFunction, HasLeafBatchSize {
 	public static int DEBUG = 0;
 	EvaluationFunction ef = null;
 
@@ -46,6 +47,12 @@ public class UCT extends AIWithComputationBudget implements InterruptibleAI, Has
 		int MAXSIMULATIONTIME = 1024;
 		int MAX_TREE_DEPTH = 10;
 
+		// number of playouts whose final states are evaluated together (1: evaluate after each playout):
+		int LEAF_BATCH_SIZE = 1;
+		UCTNode batch_leaves[] = null;
+		GameState batch_states[] = null;
+		float batch_evaluations[] = null;
+
 		int playerForThisComputation;
 
 		//for MMNEAT ClassCreator
@@ -93,10 +100,19 @@ public class UCT extends AIWithComputationBudget implements InterruptibleAI, Has
 
 
 		public AI clone() {
-			return new UCT(TIME_BUDGET, ITERATIONS_BUDGET, MAXSIMULATIONTIME, MAX_TREE_DEPTH, randomAI, ef);
+			UCT clone = new UCT(TIME_BUDGET, ITERATIONS_BUDGET, MAXSIMULATIONTIME, MAX_TREE_DEPTH, randomAI, ef);
+			clone.LEAF_BATCH_SIZE = LEAF_BATCH_SIZE;
+			return clone;
 		}  
 
 
+		@Override
+		public void unshare() {
+			randomAI = randomAI.clone();
+			randomAI.unshare();
+		}
+
+
 		public PlayerAction getAction(int player, GameState gs) throws Exception
 		{
 			if (gs.canExecuteAnyAction(player)) {
@@ -139,8 +155,16 @@ public class UCT extends AIWithComputationBudget implements InterruptibleAI, Has
 			while(true) {
 				if (cutOffTime>0 && System.currentTimeMillis() > cutOffTime) break;
 				if (ITERATIONS_BUDGET>0 && nPlayouts>ITERATIONS_BUDGET) break;
-				monteCarloRun(playerForThisComputation, cutOffTime);
-				nPlayouts++;
+				if (LEAF_BATCH_SIZE>1) {
+					int n = LEAF_BATCH_SIZE;
+					if (ITERATIONS_BUDGET>0) n = Math.min(n, ITERATIONS_BUDGET + 1 - nPlayouts);
+					int done = batchMonteCarloRun(playerForThisComputation, cutOffTime, n);
+					if (done==0) break;
+					nPlayouts+=done;
+				} else {
+					monteCarloRun(playerForThisComputation, cutOffTime);
+					nPlayouts++;
+				}
 			}
 
 			total_cycles_executed++;
@@ -151,7 +175,7 @@ public class UCT extends AIWithComputationBudget implements InterruptibleAI, Has
 			UCTNode leaf = tree.UCTSelectLeaf(player, 1-player, cutOffTime, MAX_TREE_DEPTH);
 
 			if (leaf!=null) {
-				GameState gs2 = leaf.gs.clone();
+				GameState gs2 = leaf.gs.cloneCopyOnWrite();
 				simulate(gs2, gs2.getTime() + MAXSIMULATIONTIME);
 
 				int time = gs2.getTime() - gs_to_start_from.getTime();
@@ -175,6 +199,54 @@ public class UCT extends AIWithComputationBudget implements InterruptibleAI, Has
 		}
 
 
+		// Selects up to n leaves and runs their playouts, then evaluates all the final states with a
+		// single call to the evaluation function (which can, e.g., run a neural network once for all
+		// of them). Leaves waiting for their evaluation carry a virtual loss, so that the selections
+		// in the same batch spread over the tree. Returns the number of playouts performed.
+		public int batchMonteCarloRun(int player, long cutOffTime, int n) throws Exception {
+			if (batch_leaves==null || batch_leaves.length<n) {
+				batch_leaves = new UCTNode[n];
+				batch_states = new GameState[n];
+				batch_evaluations = new float[n];
+			}
+			int selected = 0;
+			while(selected<n) {
+				UCTNode leaf = tree.UCTSelectLeaf(player, 1-player, cutOffTime, MAX_TREE_DEPTH);
+				if (leaf==null) break;
+				leaf.addVirtualLoss(1);
+				GameState gs2 = leaf.gs.cloneCopyOnWrite();
+				simulate(gs2, gs2.getTime() + MAXSIMULATIONTIME);
+				batch_leaves[selected] = leaf;
+				batch_states[selected] = gs2;
+				selected++;
+			}
+			if (selected==0) {
+				// no actions to choose from :)
+				System.err.println(this.getClass().getSimpleName() + ": claims there are no more leafs to explore...");
+				return 0;
+			}
+
+			ef.evaluate(player, 1-player, batch_states, selected, batch_evaluations);
+			for(int i = 0;i<selected;i++) {
+				UCTNode leaf = batch_leaves[i];
+				int time = batch_states[i].getTime() - gs_to_start_from.getTime();
+				double evaluation = batch_evaluations[i]*Math.pow(0.99,time/10.0);
+
+				leaf.addVirtualLoss(-1);
+				while(leaf!=null) {
+					leaf.accum_evaluation += evaluation;
+					leaf.visit_count++;
+					leaf = leaf.parent;
+				}
+				batch_leaves[i] = null;
+				batch_states[i] = null;
+				total_runs++;
+				total_runs_this_move++;
+			}
+			return selected;
+		}
+
+
 		public PlayerAction getBestActionSoFar() {
 			total_actions_issued++;
 
@@ -285,6 +357,16 @@ public class UCT extends AIWithComputationBudget implements InterruptibleAI, Has
 		}
 
 
+		public int getLeafBatchSize() {
+			return LEAF_BATCH_SIZE;
+		}
+
+
+		public void setLeafBatchSize(int a_lbs) {
+			LEAF_BATCH_SIZE = a_lbs;
+		}
+
+
 		public AI getDefaultPolicy() {
 			return randomAI;
 		}
@@ -85,6 +85,13 @@ public class UCTFirstPlayUrgency extends AIWithComputationBudget implements Inte
     public AI clone() {
         return new UCTFirstPlayUrgency(TIME_BUDGET, ITERATIONS_BUDGET, MAXSIMULATIONTIME, MAX_TREE_DEPTH, randomAI, ef, FPUvalue);
     }  
+
+
+    @Override
+    public void unshare() {
+        randomAI = randomAI.clone();
+        randomAI.unshare();
+    }
      
     
     public PlayerAction getAction(int player, GameState gs) throws Exception
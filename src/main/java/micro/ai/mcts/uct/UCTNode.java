@@ -82,7 +82,7 @@ public class UCTNode {
             if (a!=null) {
                 actions.add(a);
                 GameState gs2 = gs.cloneIssue(a);                
-                UCTNode node = new UCTNode(maxplayer, minplayer, gs2.clone(), this, evaluation_bound);
+                UCTNode node = new UCTNode(maxplayer, minplayer, gs2.cloneCopyOnWrite(), this, evaluation_bound);
                 children.add(node);
                 return node;                
             } else {
@@ -127,6 +127,21 @@ public class UCTNode {
     }
     
     
+    // Counts pending visits of this node and its ancestors (or takes them back, when "visits" is
+    // negative), each with the worst evaluation for the player choosing at that level. This
+    // "virtual loss" makes the search select other leaves while this one waits to be evaluated:
+    public void addVirtualLoss(int visits) {
+        UCTNode node = this;
+        while(node!=null) {
+            if (node.parent!=null) {
+                node.accum_evaluation += visits * (node.parent.type==0 ? -evaluation_bound : evaluation_bound);
+            }
+            node.visit_count += visits;
+            node = node.parent;
+        }
+    }
+    
+    
     public void showNode(int depth, int maxdepth) {
         int mostVisitedIdx = -1;
         UCTNode mostVisited = null;
@@ -78,6 +78,13 @@ public class UCTUnitActions extends AIWithComputationBudget implements Interrupt
     public AI clone() {
         return new UCTUnitActions(TIME_BUDGET, MAXSIMULATIONTIME, MAX_TREE_DEPTH, randomAI, ef);
     }  
+
+
+    @Override
+    public void unshare() {
+        randomAI = randomAI.clone();
+        randomAI.unshare();
+    }
     
     
     public PlayerAction getAction(int player, GameState gs) throws Exception
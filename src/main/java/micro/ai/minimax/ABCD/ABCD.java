@@ -78,6 +78,15 @@ public class ABCD extends AI implements HasEvaluationFunction {
     public AI clone() {
         return new ABCD(MAXDEPTH, playoutAI, maxPlayoutTime, ef);
     }     
+
+
+    @Override
+    public void unshare() {
+        if (playoutAI!=null) {
+            playoutAI = playoutAI.clone();
+            playoutAI.unshare();
+        }
+    }
     
     public PlayerAction getAction(int player, GameState gs) throws Exception {
         
@@ -137,6 +137,15 @@ public class IDABCD extends AIWithComputationBudget implements InterruptibleAI {
     public AI clone() {
         return new IDABCD(TIME_BUDGET, ITERATIONS_BUDGET, playoutAI, maxPlayoutTime, ef, performGreedyActionScan);
     }
+
+
+    @Override
+    public void unshare() {
+        if (playoutAI!=null) {
+            playoutAI = playoutAI.clone();
+            playoutAI.unshare();
+        }
+    }
     
 
     public final PlayerAction getAction(int player, GameState gs) throws Exception
@@ -345,7 +354,7 @@ public class IDABCD extends AIWithComputationBudget implements InterruptibleAI {
                                 }
 
                                 // Run the play out:
-                                GameState gs2 = current.gs.clone();
+                                GameState gs2 = current.gs.cloneCopyOnWrite();
                                 AI playoutAI1 = playoutAI.clone();
                                 AI playoutAI2 = playoutAI.clone();
                                 int timeOut = gs2.getTime() + maxPlayoutTime;
@@ -473,7 +482,7 @@ public class IDABCD extends AIWithComputationBudget implements InterruptibleAI {
                         break;
                 case 2: // simulation node:
                         nNodes++;
-                        current.gs = current.gs.clone();
+                        current.gs = current.gs.cloneCopyOnWrite();
 
                         while (current.gs.winner() == -1 &&
                                 !current.gs.gameover() &&
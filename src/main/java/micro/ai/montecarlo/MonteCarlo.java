@@ -105,6 +105,13 @@ public class MonteCarlo extends AIWithComputationBudget implements Interruptible
     public AI clone() {
         return new MonteCarlo(TIME_BUDGET, ITERATIONS_BUDGET, MAXSIMULATIONTIME, MAXACTIONS, randomAI, ef);
     }
+
+
+    @Override
+    public void unshare() {
+        randomAI = randomAI.clone();
+        randomAI.unshare();
+    }
     
     
     public final PlayerAction getAction(int player, GameState gs) throws Exception
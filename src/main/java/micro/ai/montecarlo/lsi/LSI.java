@@ -124,6 +124,7 @@ public class LSI extends AIWithComputationBudget {
 
         // initialize
         sampling.resetSimulationCount();
+        sampling.resetRootState();
         elitePlayerActions.clear();
         List<UnitActionTableEntry> unitActionTable = prepareUnitActionTable(gameState, player);
         Set<Unit> units = new HashSet<Unit>();
@@ -1234,7 +1235,16 @@ public class LSI extends AIWithComputationBudget {
     
     public void setSimulationAI(AI a) {
         simulationAi = a;
+        sampling = new Sampling(agentOrderingType, lookAhead, simulationAi, evalFunction);
     }    
+
+
+    @Override
+    public void unshare() {
+        AI ai = simulationAi.clone();
+        ai.unshare();
+        setSimulationAI(ai);
+    }
     
 
     public EvaluationFunction getEvaluationFunction() {
@@ -1244,6 +1254,7 @@ public class LSI extends AIWithComputationBudget {
     
     public void setEvaluationFunction(EvaluationFunction a_ef) {
         evalFunction = a_ef;
+        sampling = new Sampling(agentOrderingType, lookAhead, simulationAi, evalFunction);
     }    
     
     
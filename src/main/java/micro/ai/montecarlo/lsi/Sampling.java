@@ -33,6 +33,10 @@ public class Sampling {
 
     private int simulationCount = 0;
 
+    // Copy of the state being searched, which the playouts of evaluatePlayerAction share units with
+    private GameState rootSource = null;
+    private GameState root = null;
+
     public Sampling(AgentOrderingType agentOrderingType, int lookAhead, AI simulationAi, EvaluationFunction evalFunction) {
         this.agentOrderingType = agentOrderingType;
         this.lookAhead = lookAhead;
@@ -43,11 +47,15 @@ public class Sampling {
     public double evaluatePlayerAction(int player, GameState gs, PlayerAction playerAction, int numEval) throws Exception {
         double evalMean = 0;
 
+        if (gs != rootSource) {
+            rootSource = gs;
+            root = gs.clone();
+        }
         for (int step = 0; step < numEval; step++) {
-            GameState gs2 = gs.cloneIssue(playerAction);
-            GameState gs3 = gs2.clone();
+            GameState gs3 = root.cloneCopyOnWrite();
+            gs3.issue(playerAction);
             simulate(gs3, gs3.getTime() + lookAhead);
-            int time = gs3.getTime() - gs2.getTime();
+            int time = gs3.getTime() - gs.getTime();
             double eval = evalFunction.evaluate(player, 1 - player, gs3)*Math.pow(0.99, time / 10.0);
 
             evalMean = (step * evalMean + eval) / (step + 1);
@@ -406,6 +414,12 @@ public class Sampling {
         simulationCount = 0;
     }
 
+    // Call this before searching a state again, since it may have changed in place
+    public void resetRootState() {
+        rootSource = null;
+        root = null;
+    }
+
     public int getSimulationCount() {
         return simulationCount;
     }
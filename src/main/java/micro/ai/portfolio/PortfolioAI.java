@@ -202,6 +202,17 @@ public class PortfolioAI extends AIWithComputationBudget implements Interruptibl
     public AI clone() {
         return new PortfolioAI(strategies, deterministic, TIME_BUDGET, ITERATIONS_BUDGET, LOOKAHEAD, ef);
     }
+
+
+    @Override
+    public void unshare() {
+        AI s[] = new AI[strategies.length];
+        for(int i = 0;i<strategies.length;i++) {
+            s[i] = strategies[i].clone();
+            s[i].unshare();
+        }
+        strategies = s;
+    }
     
     
     @Override
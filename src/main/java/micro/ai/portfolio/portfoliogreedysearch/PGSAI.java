@@ -72,7 +72,12 @@ public class PGSAI extends AIWithComputationBudget {
         evaluation = e;
         utt = a_utt;
         pf = a_pf;
+        createScripts();
+    }
+
 
+    // The scripts that units of each type can follow, which move units with pf:
+    void createScripts() {
         UnitScript harvest = new UnitScriptHarvest(pf,utt);
         UnitScript buildBarracks = new UnitScriptBuild(pf,utt.getUnitType("Barracks"));
         UnitScript buildBase = new UnitScriptBuild(pf,utt.getUnitType("Base"));
@@ -337,5 +342,12 @@ public class PGSAI extends AIWithComputationBudget {
     
     public void setPathFinding(PathFinding a_pf) {
         pf = a_pf;
-    }    
+        createScripts();
+    }
+
+
+    @Override
+    public void unshare() {
+        setPathFinding(pf.clone());
+    }
 }
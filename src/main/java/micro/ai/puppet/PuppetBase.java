@@ -108,6 +108,12 @@ public abstract class PuppetBase extends AI {
 		frameTime=0; totalTime = 0;
 	}
 
+	@Override
+	public void unshare() {
+		script=script.clone();
+		script.unshare();
+	}
+
 	boolean planBudgetExpired(){
 		return (PLAN_PLAYOUTS>=0 && totalLeaves>=PLAN_PLAYOUTS) 
 				|| (PLAN_TIME>=0 && totalTime>PLAN_TIME);
@@ -100,7 +100,7 @@ public class PuppetMCTSNode {
 			else//second player
 			{
 				if(gs.gameover())return this;
-				GameState gs2=gs.clone();
+				GameState gs2=gs.cloneCopyOnWrite();
 				ConfigurableScript<?> sc1=script.clone();
 				sc1.reset();
 				ConfigurableScript<?> sc2=script.clone();
@@ -54,6 +54,12 @@ public class PuppetNoPlan extends AIWithComputationBudget implements Interruptib
         return clone;
     }
 
+    @Override
+    public void unshare() {
+        puppet = (PuppetBase) puppet.clone();
+        puppet.unshare();
+    }
+
     public String toString() {
         return getClass().getSimpleName() + "(" + puppet.toString() + ")";
     }
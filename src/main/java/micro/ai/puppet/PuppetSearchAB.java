@@ -401,7 +401,7 @@ public class PuppetSearchAB extends PuppetBase implements HasEvaluationFunction
 						 }
 					 }
 					 if(gs2==null){
-						 GameState gsTemp = current.gs.gs.clone();
+						 GameState gsTemp = current.gs.gs.cloneCopyOnWrite();
 
 						 ConfigurableScript<?> sc1=script.clone();
 						 sc1.reset();
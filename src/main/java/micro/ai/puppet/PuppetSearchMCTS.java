@@ -104,6 +104,14 @@ public class PuppetSearchMCTS extends PuppetBase implements HasEvaluationFunctio
 		clearStats();
 	}
 	@Override
+	public void unshare() {
+		super.unshare();
+		policy1=policy1.clone();
+		policy1.unshare();
+		policy2=policy2.clone();
+		policy2.unshare();
+	}
+	@Override
 	public String statisticsString() {
 		return "Average Number of Leaves: "+allLeaves/allSearches+
 				", Average Time: "+allTime/allSearches;
@@ -227,7 +235,7 @@ public class PuppetSearchMCTS extends PuppetBase implements HasEvaluationFunctio
             totalLeaves++;
 			policy1.reset();
 			policy2.reset();
-			GameState gs2=leaf.gs.clone();
+			GameState gs2=leaf.gs.cloneCopyOnWrite();
 			simulate(gs2,policy1, policy2,leaf.parent.player(),leaf.player(),EVAL_PLAYOUT_TIME);
 			e=eval.evaluate(leaf.player(),1-leaf.player(), gs2);
 		}else{
@@ -68,6 +68,17 @@ public class SingleChoiceConfigurableScript extends ConfigurableScript<SingleCho
         return sc;
     }
 
+	@Override
+	public void unshare() {
+		super.unshare();
+		AI scripts2[]=new AI[scripts.length];
+		for(int i=0;i<scripts.length;i++) {
+			scripts2[i]=scripts[i].clone();
+			scripts2[i].unshare();
+		}
+		scripts=scripts2;
+	}
+
 	@Override
 	public PlayerAction getAction(int player, GameState gs) throws Exception {
 		return scripts[choices.get(SingleChoice.SINGLE)].getAction(player, gs);
@@ -27,6 +27,7 @@ import micro.ai.abstraction.partialobservability.POWorkerRush;
 import micro.ai.abstraction.pathfinding.AStarPathFinding;
 import micro.ai.abstraction.pathfinding.BFSPathFinding;
 import micro.ai.abstraction.pathfinding.FloodFillPathFinding;
+import micro.ai.abstraction.pathfinding.FlowFieldPathFinding;
 import micro.ai.abstraction.pathfinding.GreedyPathFinding;
 import micro.ai.abstraction.pathfinding.PathFinding;
 import micro.ai.ahtn.AHTNAI;
@@ -167,7 +168,8 @@ public class FEStatePane extends JPanel {
     PathFinding pathFinders[] = {new AStarPathFinding(),
                                  new BFSPathFinding(),
                                  new GreedyPathFinding(),
-                                 new FloodFillPathFinding()};
+                                 new FloodFillPathFinding(),
+                                 new FlowFieldPathFinding()};
     
     public static UnitTypeTable unitTypeTables[] = {new UnitTypeTable(UnitTypeTable.VERSION_ORIGINAL, UnitTypeTable.MOVE_CONFLICT_RESOLUTION_CANCEL_BOTH),
                                       new UnitTypeTable(UnitTypeTable.VERSION_ORIGINAL, UnitTypeTable.MOVE_CONFLICT_RESOLUTION_CANCEL_ALTERNATING),
@@ -231,7 +233,7 @@ public class FEStatePane extends JPanel {
                                 pgs.setTerrain(j,i,PhysicalGameState.TERRAIN_NONE);
                             }
                         }
-                        pgs.getUnits().clear();
+                        pgs.removeAllUnits();
                         statePanel.repaint();
                     }
                 });
@@ -13,12 +13,15 @@ import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileWriter;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
 import javax.swing.JFileChooser;
 import javax.swing.JPanel;
 import org.jdom.input.SAXBuilder;
+import micro.rts.BinaryTraceReader;
+import micro.rts.BinaryTraceWriter;
 import micro.rts.GameState;
 import micro.rts.PhysicalGameState;
 import micro.rts.PlayerAction;
@@ -67,7 +70,13 @@ public class FETracePane extends JPanel {
                     if (returnVal == JFileChooser.APPROVE_OPTION) {
                         File file = fileChooser.getSelectedFile();
                         try {
-                            currentTrace = new Trace(new SAXBuilder().build(file.getAbsolutePath()).getRootElement(), currentUtt);
+                            if (file.getName().endsWith(BinaryTraceWriter.EXTENSION)) {
+                                BinaryTraceReader reader = new BinaryTraceReader(new FileInputStream(file), currentUtt);
+                                currentTrace = reader.toTrace();
+                                reader.close();
+                            } else {
+                                currentTrace = new Trace(new SAXBuilder().build(file.getAbsolutePath()).getRootElement(), currentUtt);
+                            }
                             currentGameCycle = 0;
                             statePanel.setStateDirect(currentTrace.getGameStateAtCycle(currentGameCycle));
                             statePanel.repaint();
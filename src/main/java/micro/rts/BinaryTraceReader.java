@@ -0,0 +1,292 @@
+package micro.rts;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedList;
+import java.util.List;
+
+import micro.rts.units.Unit;
+import micro.rts.units.UnitTypeTable;
+import micro.util.Pair;
+
+/**
+ * Replays a binary trace written by BinaryTraceWriter, reading it as the game advances, so
+ * traces can be replayed while they are still being written or from a compressed stream.
+ *
+ * The game can only be moved forwards. When moving several cycles at once with
+ * getGameStateAtCycle, the actions before the last keyframe are skipped without simulating them.
+ */
+public class BinaryTraceReader {
+
+    // A record of the trace that has been read but not replayed yet:
+    static class Record {
+        int type;
+        int time;
+        GameState keyframe = null;
+        // positions of the units and their actions, for each PlayerAction:
+        int positions[][] = null;
+        UnitAction actions[][] = null;
+    }
+
+    InputStream in;
+    UnitTypeTable utt;
+    int keyframeInterval;
+    int lastRecordTime = 0;
+    GameState gs = null;
+    Record next = null;
+    int endTime = -1;   // known once the end of the trace has been read
+
+
+    // Reads the header and the first keyframe:
+    public BinaryTraceReader(InputStream a_in, UnitTypeTable a_utt) throws IOException {
+        in = new BufferedInputStream(a_in);
+        utt = a_utt;
+        int magic = 0;
+        for(int i = 0;i<4;i++) magic = (magic<<8) | readByte();
+        if (magic!=BinaryTraceWriter.MAGIC) throw new IOException("Not a binary microRTS trace");
+        int version = readVarInt();
+        if (version!=BinaryTraceWriter.VERSION) throw new IOException("Unsupported binary trace version: " + version);
+        keyframeInterval = readVarInt();
+        readNext();
+        if (next==null || next.type!=BinaryTraceWriter.RECORD_KEYFRAME) throw new IOException("Binary trace does not start with a keyframe");
+        gs = next.keyframe;
+        readNext();
+    }
+
+
+    // The state being replayed, before the actions of the current cycle are issued.
+    // It is changed by cycle and may be replaced by getGameStateAtCycle.
+    public GameState getGameState() {
+        return gs;
+    }
+
+
+    public int getKeyframeInterval() {
+        return keyframeInterval;
+    }
+
+
+    // The last cycle of the game, or -1 if the end of the trace has not been read yet:
+    public int getEndTime() {
+        return endTime;
+    }
+
+
+    // Issues the actions of the current cycle and moves to the next one. Returns false (and does
+    // nothing) once the end of the game has been reached.
+    public boolean cycle() throws IOException {
+        if (next==null && gs.getTime()>=endTime) return false;
+        while(next!=null && next.time==gs.getTime()) {
+            replay(next);
+            readNext();
+        }
+        gs.cycle();
+        return true;
+    }
+
+
+    // Moves the game forwards to "cycle", and returns the state before the actions of that
+    // cycle are issued.
+    public GameState getGameStateAtCycle(int cycle) throws IOException {
+        if (cycle<gs.getTime()) throw new IllegalArgumentException("Binary traces can only be replayed forwards (at cycle " + gs.getTime() + ", asked for " + cycle + ")");
+        // jump to the last keyframe before "cycle", only keeping the actions after it:
+        List<Record> pending = new LinkedList<Record>();
+        while(next!=null && (next.time<cycle || (next.time==cycle && next.type==BinaryTraceWriter.RECORD_KEYFRAME))) {
+            if (next.type==BinaryTraceWriter.RECORD_KEYFRAME) pending.clear();
+            pending.add(next);
+            readNext();
+        }
+        for(Record r:pending) {
+            if (r.type!=BinaryTraceWriter.RECORD_KEYFRAME) {
+                while(gs.getTime()<r.time) gs.cycle();
+            }
+            replay(r);
+        }
+        while(gs.getTime()<cycle) gs.cycle();
+        return gs;
+    }
+
+
+    // Replays the rest of the game as an XML trace, with an entry for every cycle with actions
+    // (like the traces saved by the tournaments).
+    public Trace toTrace() throws IOException {
+        Trace trace = new Trace(utt);
+        trace.addEntry(new TraceEntry(gs.getPhysicalGameState().clone(), gs.getTime()));
+        while(next!=null) {
+            getGameStateAtCycle(next.time);
+            if (next!=null && next.type==BinaryTraceWriter.RECORD_ACTIONS) {
+                PlayerAction pas[] = playerActions(next);
+                TraceEntry te = new TraceEntry(gs.getPhysicalGameState().clone(), gs.getTime());
+                // like in the traces loaded from XML, actions refer to the units of the entry:
+                for(PlayerAction pa:pas) {
+                    for(Pair<Unit,UnitAction> ua:pa.actions) te.addUnitAction(te.getPhysicalGameState().getUnit(ua.m_a.getID()), ua.m_b);
+                }
+                trace.addEntry(te);
+                for(PlayerAction pa:pas) gs.issueSafe(pa);
+                readNext();
+            }
+        }
+        getGameStateAtCycle(endTime);
+        trace.addEntry(new TraceEntry(gs.getPhysicalGameState().clone(), gs.getTime()));
+        return trace;
+    }
+
+
+    public void close() throws IOException {
+        in.close();
+    }
+
+
+    void replay(Record r) {
+        if (r.type==BinaryTraceWriter.RECORD_KEYFRAME) {
+            gs = r.keyframe;
+        } else {
+            for(PlayerAction pa:playerActions(r)) gs.issueSafe(pa);
+        }
+    }
+
+
+    // The actions of an ACTIONS record, given to the units of the current state:
+    PlayerAction[] playerActions(Record r) {
+        PhysicalGameState pgs = gs.getPhysicalGameState();
+        int w = pgs.getWidth();
+        PlayerAction pas[] = new PlayerAction[r.actions.length];
+        for(int i = 0;i<pas.length;i++) {
+            pas[i] = new PlayerAction();
+            for(int j = 0;j<r.actions[i].length;j++) {
+                Unit u = pgs.getUnitAt(r.positions[i][j]%w, r.positions[i][j]/w);
+                if (u==null) {
+                    System.err.println("BinaryTraceReader: no unit at position " + r.positions[i][j] + " in cycle " + r.time);
+                    continue;
+                }
+                pas[i].addUnitAction(u, r.actions[i][j]);
+            }
+        }
+        return pas;
+    }
+
+
+    // Reads the next record into "next" (or leaves it null after the end of the trace):
+    void readNext() throws IOException {
+        next = null;
+        if (endTime>=0) return;
+        Record r = new Record();
+        r.type = readVarInt();
+        r.time = lastRecordTime + readVarInt();
+        lastRecordTime = r.time;
+        switch(r.type) {
+            case BinaryTraceWriter.RECORD_KEYFRAME:
+                r.keyframe = readKeyframe(r.time);
+                break;
+            case BinaryTraceWriter.RECORD_ACTIONS:
+                int n = readVarInt();
+                r.positions = new int[n][];
+                r.actions = new UnitAction[n][];
+                for(int i = 0;i<n;i++) {
+                    int m = readVarInt();
+                    r.positions[i] = new int[m];
+                    r.actions[i] = new UnitAction[m];
+                    for(int j = 0;j<m;j++) {
+                        r.positions[i][j] = readVarInt();
+                        r.actions[i][j] = readUnitAction();
+                    }
+                }
+                break;
+            case BinaryTraceWriter.RECORD_END:
+                endTime = r.time;
+                return;
+            default:
+                throw new IOException("Unknown binary trace record: " + r.type);
+        }
+        next = r;
+    }
+
+
+    GameState readKeyframe(int time) throws IOException {
+        int unitCancelationCounter = readVarInt();
+        int width = readVarInt();
+        int height = readVarInt();
+        int terrain[] = new int[width*height];
+        int start = 0;
+        while(start<terrain.length) {
+            int value = readVarInt();
+            int length = readVarInt();
+            for(int i = 0;i<length;i++) terrain[start+i] = value;
+            start += length;
+        }
+        PhysicalGameState pgs = new PhysicalGameState(width, height, terrain);
+        int nplayers = readVarInt();
+        for(int i = 0;i<nplayers;i++) {
+            int ID = readVarInt();
+            pgs.addPlayer(new Player(ID, readSignedVarInt()));
+        }
+        int nunits = readVarInt();
+        for(int i = 0;i<nunits;i++) {
+            int type = readVarInt();
+            long ID = readVarLong();
+            int player = readSignedVarInt();
+            int x = readVarInt();
+            int y = readVarInt();
+            Unit u = new Unit(player, utt.getUnitType(type), x, y, readSignedVarInt());
+            u.setHitPoints(readSignedVarInt());
+            u.setID(ID);
+            Unit.reserveID(ID);
+            pgs.addUnit(u);
+        }
+
+        GameState keyframe = new GameState(pgs, utt);
+        keyframe.time = time;
+        keyframe.unitCancelationCounter = unitCancelationCounter;
+        int nactions = readVarInt();
+        for(int i = 0;i<nactions;i++) {
+            Unit u = pgs.getUnits().get(readVarInt());
+            UnitAction a = readUnitAction();
+            keyframe.unitActions.put(u, new UnitActionAssignment(u, a, time - readVarInt()));
+        }
+        return keyframe;
+    }
+
+
+    UnitAction readUnitAction() throws IOException {
+        UnitAction a = new UnitAction(readVarInt());
+        if (a.type==UnitAction.TYPE_ATTACK_LOCATION) {
+            a.x = readVarInt();
+            a.y = readVarInt();
+        } else {
+            a.parameter = readSignedVarInt();
+            int unitType = readVarInt();
+            if (unitType>0) a.unitType = utt.getUnitType(unitType-1);
+        }
+        return a;
+    }
+
+
+    int readByte() throws IOException {
+        int b = in.read();
+        if (b<0) throw new EOFException("Binary trace ended before its END record");
+        return b;
+    }
+
+
+    int readSignedVarInt() throws IOException {
+        int v = (int)readVarLong();
+        return (v>>>1) ^ -(v & 1);
+    }
+
+
+    int readVarInt() throws IOException {
+        return (int)readVarLong();
+    }
+
+
+    long readVarLong() throws IOException {
+        long v = 0;
+        for(int shift = 0;;shift += 7) {
+            int b = readByte();
+            v |= ((long)(b & 0x7f))<<shift;
+            if ((b & 0x80)==0) return v;
+        }
+    }
+}
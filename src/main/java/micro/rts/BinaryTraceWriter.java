@@ -0,0 +1,209 @@
+package micro.rts;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+import micro.rts.units.Unit;
+import micro.util.Pair;
+
+/**
+ * Records a game as a compact binary trace while it is being played. The state is only stored
+ * in full at the start and in "keyframes" every "keyframeInterval" cycles. In between, only the
+ * PlayerActions issued in each cycle are stored, with units identified by their position and
+ * all numbers written as variable length integers. BinaryTraceReader replays the game by
+ * simulating it from the closest keyframe.
+ *
+ * Format: the header (MAGIC, VERSION, keyframeInterval) and then a list of records, each of them
+ * starting with its type and the number of cycles since the previous record:
+ * - KEYFRAME: the state, that is, its PhysicalGameState and the actions units are executing.
+ * - ACTIONS: the PlayerActions issued in that cycle, in the order they were issued.
+ * - END: the end of the game.
+ * The first record is always a keyframe.
+ *
+ * Like the XML traces, replaying assumes that the game is deterministic. Attacks with random
+ * damage only stay faithful up to the next keyframe.
+ */
+public class BinaryTraceWriter {
+    public static final int MAGIC = 0x6d525453;   // "mRTS"
+    public static final int VERSION = 1;
+    public static final String EXTENSION = ".mrtstrace";
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 500;
+
+    static final int RECORD_KEYFRAME = 1;
+    static final int RECORD_ACTIONS = 2;
+    static final int RECORD_END = 3;
+
+    OutputStream out;
+    int keyframeInterval;
+    int lastRecordTime = 0;
+    int lastKeyframeTime = 0;
+
+
+    // Writes the header and "gs" as the first keyframe:
+    public BinaryTraceWriter(OutputStream a_out, GameState gs, int a_keyframeInterval) throws IOException {
+        out = new BufferedOutputStream(a_out);
+        keyframeInterval = a_keyframeInterval;
+        for(int i = 3;i>=0;i--) out.write(MAGIC>>(8*i));
+        writeVarInt(VERSION);
+        writeVarInt(keyframeInterval);
+        lastRecordTime = gs.getTime();
+        writeKeyframe(gs);
+    }
+
+
+    public BinaryTraceWriter(OutputStream a_out, GameState gs) throws IOException {
+        this(a_out, gs, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+
+    // To be called every cycle with the actions that are about to be issued in "gs" (the same
+    // place where a TraceEntry would be added). Cycles without actions take no space, other than
+    // the keyframes that are due.
+    public void record(GameState gs, PlayerAction... actions) throws IOException {
+        if (gs.getTime()-lastKeyframeTime>=keyframeInterval) writeKeyframe(gs);
+        boolean empty = true;
+        for(PlayerAction pa:actions) {
+            if (!pa.isEmpty()) empty = false;
+        }
+        if (empty) return;
+        int width = gs.getPhysicalGameState().getWidth();
+        writeRecordStart(RECORD_ACTIONS, gs.getTime());
+        writeVarInt(actions.length);
+        for(PlayerAction pa:actions) {
+            writeVarInt(pa.actions.size());
+            for(Pair<Unit,UnitAction> ua:pa.actions) {
+                writeVarInt(ua.m_a.getX() + ua.m_a.getY()*width);
+                writeUnitAction(ua.m_b);
+            }
+        }
+    }
+
+
+    // Marks the end of the game at the time of "gs", and closes the stream:
+    public void close(GameState gs) throws IOException {
+        writeRecordStart(RECORD_END, gs.getTime());
+        out.close();
+    }
+
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+
+    // Converts an XML trace, by simulating the game from its first entry. The state of each entry
+    // is only used to find the units that received the actions.
+    public static void write(Trace trace, OutputStream out, int keyframeInterval) throws IOException {
+        GameState gs = null;
+        BinaryTraceWriter w = null;
+        for(TraceEntry te:trace.getEntries()) {
+            if (gs==null) {
+                gs = new GameState(te.getPhysicalGameState().clone(), trace.getUnitTypeTable());
+                gs.time = te.getTime();
+                w = new BinaryTraceWriter(out, gs, keyframeInterval);
+            }
+            while(gs.getTime()<te.getTime()) gs.cycle();
+            if (te.getActions().isEmpty()) continue;
+
+            PhysicalGameState pgs = gs.getPhysicalGameState();
+            PlayerAction pa0 = new PlayerAction();
+            PlayerAction pa1 = new PlayerAction();
+            for(Pair<Unit,UnitAction> tmp:te.getActions()) {
+                Unit u = pgs.getUnitAt(tmp.m_a.getX(), tmp.m_a.getY());
+                if (u==null) continue;
+                if (tmp.m_a.getPlayer()==0) pa0.addUnitAction(u, tmp.m_b);
+                if (tmp.m_a.getPlayer()==1) pa1.addUnitAction(u, tmp.m_b);
+            }
+            w.record(gs, pa0, pa1);
+            gs.issueSafe(pa0);
+            gs.issueSafe(pa1);
+        }
+        if (w!=null) w.close(gs);
+    }
+
+
+    void writeKeyframe(GameState gs) throws IOException {
+        PhysicalGameState pgs = gs.getPhysicalGameState();
+        writeRecordStart(RECORD_KEYFRAME, gs.getTime());
+        lastKeyframeTime = gs.getTime();
+        writeVarInt(gs.unitCancelationCounter);
+
+        writeVarInt(pgs.getWidth());
+        writeVarInt(pgs.getHeight());
+        // terrain as runs of the same value:
+        int cells = pgs.getWidth()*pgs.getHeight();
+        int start = 0;
+        while(start<cells) {
+            int end = start+1;
+            while(end<cells && pgs.terrain[end]==pgs.terrain[start]) end++;
+            writeVarInt(pgs.terrain[start]);
+            writeVarInt(end-start);
+            start = end;
+        }
+        writeVarInt(pgs.getPlayers().size());
+        for(Player p:pgs.getPlayers()) {
+            writeVarInt(p.getID());
+            writeSignedVarInt(p.getResources());
+        }
+        writeVarInt(pgs.getUnits().size());
+        for(Unit u:pgs.getUnits()) {
+            writeVarInt(u.getType().ID);
+            writeVarLong(u.getID());
+            writeSignedVarInt(u.getPlayer());
+            writeVarInt(u.getX());
+            writeVarInt(u.getY());
+            writeSignedVarInt(u.getResources());
+            writeSignedVarInt(u.getHitPoints());
+        }
+
+        // the actions being executed, with units identified by their index:
+        writeVarInt(gs.unitActions.size());
+        for(Map.Entry<Unit,UnitActionAssignment> e:gs.unitActions.entrySet()) {
+            writeVarInt(pgs.getUnits().indexOf(e.getKey()));
+            writeUnitAction(e.getValue().action);
+            writeVarInt(gs.getTime()-e.getValue().time);
+        }
+    }
+
+
+    void writeRecordStart(int type, int time) throws IOException {
+        writeVarInt(type);
+        writeVarInt(time-lastRecordTime);
+        lastRecordTime = time;
+    }
+
+
+    void writeUnitAction(UnitAction a) throws IOException {
+        writeVarInt(a.type);
+        if (a.type==UnitAction.TYPE_ATTACK_LOCATION) {
+            writeVarInt(a.x);
+            writeVarInt(a.y);
+        } else {
+            writeSignedVarInt(a.parameter);
+            writeVarInt(a.unitType==null ? 0:a.unitType.ID+1);
+        }
+    }
+
+
+    // zig-zag encoding, so that small negative numbers (like -1 for "none") take a single byte:
+    void writeSignedVarInt(int v) throws IOException {
+        writeVarLong(((v<<1) ^ (v>>31)) & 0xffffffffL);
+    }
+
+
+    void writeVarInt(int v) throws IOException {
+        writeVarLong(v & 0xffffffffL);
+    }
+
+
+    // 7 bits per byte, with the highest bit set in all the bytes but the last:
+    void writeVarLong(long v) throws IOException {
+        while((v & ~0x7fL)!=0) {
+            out.write((int)((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int)v);
+    }
+}
@@ -23,6 +23,9 @@ public class GameState implements Serializable{
     int time = 0;
     PhysicalGameState pgs = null;
     HashMap<Unit,UnitActionAssignment> unitActions = new LinkedHashMap<Unit,UnitActionAssignment>();
+    // true when "unitActions" is shared with a state made by cloneCopyOnWrite, so it has to be
+    // copied before it is changed (UnitActionAssignments are never changed once in the map)
+    transient boolean unitActionsShared = false;
 
     UnitTypeTable utt = null;
 
@@ -37,7 +40,7 @@ public class GameState implements Serializable{
     
     public void removeUnit(Unit u) {
         pgs.removeUnit(u);
-        unitActions.remove(u);
+        if (unitActions.containsKey(u)) writableUnitActions().remove(u);
     }
     
     public Player getPlayer(int ID) {
@@ -53,6 +56,39 @@ public class GameState implements Serializable{
     }
     
     public HashMap<Unit,UnitActionAssignment> getUnitActions() {
+        return writableUnitActions();    // the caller may change the map
+    }
+    
+    // The unit of this state that "u" stands for. States made by cloneCopyOnWrite replace units by
+    // copies when they change, so older references are looked up by ID:
+    Unit currentUnit(Unit u) {
+        if (!pgs.sharesUnits) return u;
+        Unit current = pgs.getUnit(u.getID());
+        return current==null ? u:current;
+    }
+    
+    // See PhysicalGameState.getWritableUnit. When the unit is replaced by a copy, its action
+    // assignment (if any) is moved to the copy, keeping the order in which actions are executed.
+    public Unit getWritableUnit(Unit u) {
+        Unit current = currentUnit(u);
+        Unit writable = pgs.getWritableUnit(current);
+        if (writable!=current && unitActions.containsKey(current)) {
+            LinkedHashMap<Unit,UnitActionAssignment> newUnitActions = new LinkedHashMap<Unit,UnitActionAssignment>();
+            for(UnitActionAssignment uaa:unitActions.values()) {
+                if (uaa.unit==current) uaa = new UnitActionAssignment(writable, uaa.action, uaa.time);
+                newUnitActions.put(uaa.unit, uaa);
+            }
+            unitActions = newUnitActions;
+            unitActionsShared = false;
+        }
+        return writable;
+    }
+    
+    HashMap<Unit,UnitActionAssignment> writableUnitActions() {
+        if (unitActionsShared) {
+            unitActions = new LinkedHashMap<Unit,UnitActionAssignment>(unitActions);
+            unitActionsShared = false;
+        }
         return unitActions;
     }
     
@@ -88,18 +124,23 @@ public class GameState implements Serializable{
     public PhysicalGameState getPhysicalGameState() {
         return pgs;
     }
+    
+    // Hash of the board (see PhysicalGameState.getHash), which is kept up to date as the game
+    // advances. Pending unit actions and the time are not included, since evaluation functions
+    // only look at the board.
+    public long getHash() {
+        return pgs.getHash();
+    }
 
     public UnitTypeTable getUnitTypeTable() {
         return utt;
     }
-    
+
     
     // Returns true if there is no unit in the specified position and no unit is executing an action that will use that position
     public boolean free(int x,int y) {
         if (pgs.getTerrain(x, y)!=PhysicalGameState.TERRAIN_NONE) return false;
-        for(Unit u:pgs.units) {
-            if (u.getX()==x && u.getY()==y) return false;
-        }
+        if (pgs.getUnitAt(x, y)!=null) return false;
         for(UnitActionAssignment ua:unitActions.values()) {
             if (ua.action.type==UnitAction.TYPE_MOVE ||
                 ua.action.type==UnitAction.TYPE_PRODUCE) {
@@ -140,6 +181,7 @@ public class GameState implements Serializable{
     // returns "true" is any action different from NONE was issued
     public boolean issue(PlayerAction pa) {
         boolean returnValue = false;
+        writableUnitActions();
         
         for(Pair<Unit,UnitAction> p:pa.actions) {
 //            if (p.m_a==null) {
@@ -178,7 +220,10 @@ public class GameState implements Serializable{
                             }
                             int duration1 = uaa.action.ETA(uaa.unit);
                             int duration2 = p.m_b.ETA(p.m_a);
-                            if (cancel_old) uaa.action = new UnitAction(UnitAction.TYPE_NONE,Math.min(duration1,duration2));
+                            if (cancel_old) {
+                                // replaced rather than changed, since assignments can be shared by several states
+                                unitActions.put(uaa.unit, new UnitActionAssignment(uaa.unit, new UnitAction(UnitAction.TYPE_NONE,Math.min(duration1,duration2)), uaa.time));
+                            }
                             if (cancel_new) p.m_b = new UnitAction(UnitAction.TYPE_NONE,Math.min(duration1,duration2));
                         } else {
                             // This is more a problem, since it means there is a bug somewhere...
@@ -203,8 +248,11 @@ public class GameState implements Serializable{
                     }
                 }
                 
-                UnitActionAssignment uaa = new UnitActionAssignment(p.m_a, p.m_b, time);
-                unitActions.put(p.m_a,uaa);
+                // in states made by cloneCopyOnWrite, use the unit of this state even if "pa" was
+                // generated for a state that it was cloned from:
+                Unit u = currentUnit(p.m_a);
+                UnitActionAssignment uaa = new UnitActionAssignment(u, p.m_b, time);
+                unitActions.put(u,uaa);
                 if (p.m_b.type!=UnitAction.TYPE_NONE) returnValue = true;
 //                System.out.println("Issuing action " + p.m_b + " to " + p.m_a);                
 //            }
@@ -224,7 +272,7 @@ public class GameState implements Serializable{
             }
             
             // get the unit that corresponds to that action (since the state might have been closed):
-            if (pgs.units.indexOf(p.m_a)==-1) {
+            if (pgs.getUnit(p.m_a.getID())!=p.m_a) {
                 boolean found = false;
                 for(Unit u:pgs.units) {
                     if (u.getClass()==p.m_a.getClass() &&
@@ -378,12 +426,14 @@ public class GameState implements Serializable{
         }
                 
         // execute the actions:
+        if (!readyToExecute.isEmpty()) writableUnitActions();
         for(UnitActionAssignment uaa:readyToExecute) {
-            unitActions.remove(uaa.unit);
+            Unit u = currentUnit(uaa.unit);
+            unitActions.remove(u);
             
 //            System.out.println("Executing action for " + u + " issued at time " + uaa.time + " with duration " + uaa.action.ETA(uaa.unit));
             
-            uaa.action.execute(uaa.unit,this);
+            uaa.action.execute(u,this);
         }
         
         return gameover();
@@ -395,9 +445,11 @@ public class GameState implements Serializable{
         for(UnitActionAssignment uaa:unitActions.values()) readyToExecute.add(uaa);
                 
         // execute all the actions:
+        writableUnitActions();
         for(UnitActionAssignment uaa:readyToExecute) {
-            unitActions.remove(uaa.unit);
-            uaa.action.execute(uaa.unit,this);
+            Unit u = currentUnit(uaa.unit);
+            unitActions.remove(u);
+            uaa.action.execute(u,this);
         }
     }
     
@@ -407,21 +459,32 @@ public class GameState implements Serializable{
         gs.unitCancelationCounter = unitCancelationCounter;
         for(UnitActionAssignment uaa:unitActions.values()) {
             Unit u = uaa.unit;
-            int idx = pgs.getUnits().indexOf(u);
-            if (idx==-1) {
+            if (pgs.getUnit(u.getID())!=u) {
                 System.out.println("Problematic game state:");
                 System.out.println(this);
                 System.out.println("Problematic action:");
                 System.out.println(uaa);
                 throw new Error("Inconsistent game state during cloning...");
             } else {
-                Unit u2 = gs.pgs.getUnits().get(idx);
+                Unit u2 = gs.pgs.getUnit(u.getID());
                 gs.unitActions.put(u2,new UnitActionAssignment(u2, uaa.action, uaa.time));
             }                
         }
         return gs;
     }
     
+    // This method does a quick clone that shares the units (and the unit assignments) with this state,
+    // copying each of them only when one of the two states changes it. Search algorithms use it for
+    // the states of their nodes and playouts (see PhysicalGameState.cloneCopyOnWrite):
+    public GameState cloneCopyOnWrite() {
+        GameState gs = new GameState(pgs.cloneCopyOnWrite(), utt);
+        gs.time = time;
+        gs.unitCancelationCounter = unitCancelationCounter;
+        gs.unitActions = unitActions;
+        unitActionsShared = gs.unitActionsShared = true;
+        return gs;
+    }
+    
     // This method does a quick clone, that shares the same PGS, but different unit assignments:
     public GameState cloneIssue(PlayerAction pa) {
         GameState gs = new GameState(pgs, utt);
@@ -443,6 +506,7 @@ public class GameState implements Serializable{
             if (u.getHitPoints() == u.getType().hp) u.setHitPoints(new_type.hp);
             u.setType(new_type);
         }
+        gs.pgs.invalidateHash();
         return gs;
     }
     
@@ -489,8 +553,7 @@ public class GameState implements Serializable{
         List<Unit> alreadyUsed = new LinkedList<Unit>();
         for(UnitActionAssignment uaa:unitActions.values()) {
             Unit u = uaa.unit;
-            int idx = pgs.getUnits().indexOf(u);
-            if (idx==-1) {
+            if (pgs.getUnit(u.getID())!=u) {
                 System.err.println("integrityCheck: unit does not exist!");
                 return false;
             }            
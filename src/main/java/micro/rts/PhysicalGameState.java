@@ -5,8 +5,12 @@ import java.io.Serializable;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 import org.jdom.Element;
 import org.jdom.JDOMException;
@@ -30,7 +34,33 @@ public class PhysicalGameState implements Serializable {
     int height = 8;
     int terrain[] = null;
     List<Player> players = new ArrayList<Player>();
-    List<Unit> units = new LinkedList<Unit>();
+    List<Unit> units = new ArrayList<Unit>();
+    
+    // Indexes over "units": the unit standing on each cell (x+y*width) and each unit by ID. They are
+    // kept in sync by addUnit, removeUnit and moveUnit, so unit positions should only change through
+    // moveUnit. They are rebuilt on demand when null (after a resize, or after deserialization).
+    // Clones share them until one of the two states changes them.
+    transient Unit unitGrid[] = null;
+    transient HashMap<Long,Unit> unitIndex = null;
+    transient boolean unitGridShared = false;
+    transient boolean unitIndexShared = false;
+    
+    // States made by cloneCopyOnWrite share their units with the state they were cloned from (which
+    // stops changing them in place as well). Only the units in "ownedUnits" (null when empty) belong
+    // to this state alone; any other unit is copied by getWritableUnit before it is changed.
+    transient boolean sharesUnits = false;
+    transient Set<Unit> ownedUnits = null;
+    
+    // Zobrist-style hash of the units (see getHash): the XOR of a pseudo-random key for each unit.
+    // It is kept up to date by addUnit, removeUnit, moveUnit, setHitPoints and setResources, so
+    // any other change to the units must be followed by invalidateHash(). States made by
+    // cloneKeepingUnits see the changes made to the units by the other state, so they always
+    // recompute it.
+    transient long unitHash = 0;
+    transient boolean unitHashValid = false;
+    transient boolean unitHashTracked = true;
+    transient long terrainHash = 0;
+    transient boolean terrainHashValid = false;
     
     
     public static PhysicalGameState load(String fileName, UnitTypeTable utt) throws JDOMException, IOException {
@@ -65,12 +95,16 @@ public class PhysicalGameState implements Serializable {
     //       you change the map width or height
     public void setWidth(int w) {
         width = w;
+        invalidateUnitIndex();
+        terrainHashValid = false;
     }
     
     // note: these functions do not change the terrain array, remember to change that when
     //       you change the map width or height
     public void setHeight(int h) {
         height = h;
+        invalidateUnitIndex();
+        terrainHashValid = false;
     }      
     
     public int getTerrain(int x,int y) {
@@ -79,10 +113,12 @@ public class PhysicalGameState implements Serializable {
     
     public void setTerrain(int x,int y, int v) {
         terrain[x+y*width] = v;
+        terrainHashValid = false;
     }
     
     public void setTerrain(int t[]){
         terrain = t;
+        terrainHashValid = false;
     }
     
     public void addPlayer(Player p) {
@@ -91,17 +127,202 @@ public class PhysicalGameState implements Serializable {
     }
     
     public void addUnit(Unit u) {
-    	for(Unit u2:units){
-    		if(u.getX()==u2.getX() && u.getY()==u2.getY() ){
-    			throw new IllegalArgumentException("PhysicalGameState.addUnit: added two units in position: ("
-    					+u.getX()+", "+u.getY()+")");
-    		}
+        ensureUnitIndex();
+    	if(getUnitAt(u.getX(), u.getY())!=null){
+    		throw new IllegalArgumentException("PhysicalGameState.addUnit: added two units in position: ("
+    				+u.getX()+", "+u.getY()+")");
     	}
         units.add(u);
+        if (unitHashValid) unitHash ^= unitHash(u);
+        if (inBounds(u.getX(), u.getY())) writableUnitGrid()[u.getX()+u.getY()*width] = u;
+        writableUnitIndex().put(u.getID(), u);
+        if (sharesUnits) own(u);
     }
     
     public void removeUnit(Unit u) {
-        units.remove(u);
+        if (!units.remove(u)) return;
+        if (unitHashValid) unitHash ^= unitHash(u);
+        if (unitGrid==null) return;    // the list has changed since the indexes were built
+        Unit indexed = writableUnitIndex().remove(u.getID());
+        if (indexed!=null && inBounds(indexed.getX(), indexed.getY()) &&
+            unitGrid[indexed.getX()+indexed.getY()*width]==indexed) {
+            writableUnitGrid()[indexed.getX()+indexed.getY()*width] = null;
+        }
+    }
+    
+    public void removeAllUnits() {
+        units.clear();
+        invalidateUnitIndex();
+    }
+    
+    // Changes the position of a unit, keeping the occupancy grid up to date:
+    public void moveUnit(Unit u, int x, int y) {
+        u = getWritableUnit(u);
+        ensureUnitIndex();
+        boolean inState = unitIndex.get(u.getID())==u;    // units that died this cycle can still move
+        if (inState && inBounds(u.getX(), u.getY()) && unitGrid[u.getX()+u.getY()*width]==u) {
+            writableUnitGrid()[u.getX()+u.getY()*width] = null;
+        }
+        if (inState && unitHashValid) unitHash ^= unitHash(u);
+        u.setX(x);
+        u.setY(y);
+        if (inState && unitHashValid) unitHash ^= unitHash(u);
+        if (inState && inBounds(x, y)) writableUnitGrid()[x+y*width] = u;
+    }
+    
+    // Changes the hit points of a unit, keeping the hash up to date:
+    public void setHitPoints(Unit u, int hp) {
+        u = getWritableUnit(u);
+        boolean inState = unitHashValid && getUnit(u.getID())==u;
+        if (inState) unitHash ^= unitHash(u);
+        u.setHitPoints(hp);
+        if (inState) unitHash ^= unitHash(u);
+    }
+    
+    // Changes the resources carried by a unit (or left in a resource field), keeping the hash up to date:
+    public void setResources(Unit u, int resources) {
+        u = getWritableUnit(u);
+        boolean inState = unitHashValid && getUnit(u.getID())==u;
+        if (inState) unitHash ^= unitHash(u);
+        u.setResources(resources);
+        if (inState) unitHash ^= unitHash(u);
+    }
+    
+    // Returns the unit of this state with the same ID as "u", which can be changed without
+    // affecting other states. In states made by cloneCopyOnWrite, this copies a unit that is still
+    // shared with other states and puts the copy in its place. Otherwise it just returns "u".
+    public Unit getWritableUnit(Unit u) {
+        if (!sharesUnits || owns(u)) return u;
+        ensureUnitIndex();
+        Unit current = unitIndex.get(u.getID());
+        if (current==null) {
+            // not (or no longer) in this state, so changes to it must not be seen anywhere else:
+            Unit copy = u.clone();
+            own(copy);
+            return copy;
+        }
+        if (owns(current)) return current;
+        Unit copy = current.clone();
+        for(int i = 0;i<units.size();i++) {
+            if (units.get(i)==current) {
+                units.set(i, copy);
+                break;
+            }
+        }
+        if (inBounds(current.getX(), current.getY()) && unitGrid[current.getX()+current.getY()*width]==current) {
+            writableUnitGrid()[current.getX()+current.getY()*width] = copy;
+        }
+        writableUnitIndex().put(copy.getID(), copy);
+        own(copy);
+        return copy;
+    }
+    
+    // Call this after changing the unit list or unit positions directly, rather than through
+    // addUnit, removeUnit or moveUnit:
+    public void invalidateUnitIndex() {
+        unitGrid = null;
+        unitIndex = null;
+        unitGridShared = unitIndexShared = false;
+        unitHashValid = false;
+    }
+    
+    // Call this after changing the type, hit points or resources of units directly:
+    public void invalidateHash() {
+        unitHashValid = false;
+    }
+    
+    // A 64 bit hash of everything evaluation functions look at: the map (size and terrain), the
+    // resources of each player, and the type, owner, position, hit points and resources of each
+    // unit (but not unit IDs). States that are equivalent in this sense have the same hash, however
+    // they were reached. The unit part is updated incrementally as units change.
+    public long getHash() {
+        if (!unitHashValid || !unitHashTracked) {
+            unitHash = 0;
+            for(Unit u:units) unitHash ^= unitHash(u);
+            unitHashValid = true;
+        }
+        long h = getTerrainHash() ^ unitHash;
+        for(Player p:players) {
+            h ^= mix(mix(PLAYER_KEY ^ p.getID()) ^ p.getResources());
+        }
+        return h;
+    }
+    
+    // A hash of the obstacles that stay where they are: the map (size and terrain), and the
+    // positions of the units that cannot move (like bases, barracks and resources). Path finders
+    // use it to know whether what they computed around those obstacles still holds.
+    public long getStaticHash() {
+        long h = getTerrainHash();
+        for(Unit u:units) {
+            if (!u.getType().canMove) h ^= mix(UNIT_KEY ^ (u.getX() + u.getY()*width));
+        }
+        return h;
+    }
+    
+    long getTerrainHash() {
+        if (!terrainHashValid) {
+            long h = mix(mix(width) ^ height);
+            for(int i = 0;i<terrain.length;i++) {
+                if (terrain[i]!=TERRAIN_NONE) h = mix(h ^ (((long)i<<8) | terrain[i]));
+            }
+            terrainHash = h;
+            terrainHashValid = true;
+        }
+        return terrainHash;
+    }
+    
+    static final long UNIT_KEY = 0x5851f42d4c957f2dL;
+    static final long PLAYER_KEY = 0x14057b7ef767814fL;
+    
+    static long unitHash(Unit u) {
+        long h = mix(UNIT_KEY ^ u.getType().ID);
+        h = mix(h ^ (u.getPlayer()+1));
+        h = mix(h ^ u.getX());
+        h = mix(h ^ u.getY());
+        h = mix(h ^ u.getHitPoints());
+        return mix(h ^ u.getResources());
+    }
+    
+    // the 64 bit finalizer of MurmurHash3, used to derive the pseudo-random keys:
+    static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+    
+    boolean inBounds(int x, int y) {
+        return x>=0 && y>=0 && x<width && y<height;
+    }
+    
+    void ensureUnitIndex() {
+        if (unitGrid!=null) return;
+        Unit grid[] = new Unit[width*height];
+        HashMap<Long,Unit> index = new HashMap<Long,Unit>();
+        for(Unit u:units) {
+            if (inBounds(u.getX(), u.getY()) && grid[u.getX()+u.getY()*width]==null) grid[u.getX()+u.getY()*width] = u;
+            index.put(u.getID(), u);
+        }
+        unitIndex = index;
+        unitGrid = grid;
+        unitGridShared = unitIndexShared = false;
+    }
+    
+    Unit[] writableUnitGrid() {
+        ensureUnitIndex();
+        if (unitGridShared) {
+            unitGrid = unitGrid.clone();
+            unitGridShared = false;
+        }
+        return unitGrid;
+    }
+    
+    HashMap<Long,Unit> writableUnitIndex() {
+        ensureUnitIndex();
+        if (unitIndexShared) {
+            unitIndex = new HashMap<Long,Unit>(unitIndex);
+            unitIndexShared = false;
+        }
+        return unitIndex;
     }
     
     public List<Unit> getUnits() {
@@ -117,23 +338,40 @@ public class PhysicalGameState implements Serializable {
     }
     
     public Unit getUnit(long ID) {
-        for(Unit u:units) if (u.getID()==ID) return u;
-        return null;
+        ensureUnitIndex();
+        return unitIndex.get(ID);
     }
     
     public Unit getUnitAt(int x, int y) {
-        for(Unit u:units) {
-            if (u.getX()==x && u.getY()==y) return u;
+        if (!inBounds(x, y)) {
+            for(Unit u:units) {
+                if (u.getX()==x && u.getY()==y) return u;
+            }
+            return null;
         }
-        return null;
+        ensureUnitIndex();
+        return unitGrid[x+y*width];
     }
     
     public Collection<Unit> getUnitsAround(int x, int y, int squareRange) {
     	List<Unit> closeUnits = new LinkedList<Unit>();
-        for(Unit u:units) {
-        	if((Math.abs(u.getX() - x)<=squareRange &&  Math.abs(u.getY() - y)<=squareRange)){
-        		closeUnits.add(u);
-        	}
+        int x0 = Math.max(0, x - squareRange), x1 = Math.min(width - 1, x + squareRange);
+        int y0 = Math.max(0, y - squareRange), y1 = Math.min(height - 1, y + squareRange);
+        if ((long)(x1 - x0 + 1) * (y1 - y0 + 1) >= units.size()) {
+            // the area is larger than the unit list, so scan the list instead:
+            for(Unit u:units) {
+            	if((Math.abs(u.getX() - x)<=squareRange &&  Math.abs(u.getY() - y)<=squareRange)){
+            		closeUnits.add(u);
+            	}
+            }
+            return closeUnits;
+        }
+        ensureUnitIndex();
+        for(int i = y0;i<=y1;i++) {
+            for(int j = x0;j<=x1;j++) {
+                Unit u = unitGrid[j+i*width];
+                if (u!=null) closeUnits.add(u);
+            }
         }
         return closeUnits;
     }
@@ -191,9 +429,8 @@ public class PhysicalGameState implements Serializable {
         for(Player p:players) {
             pgs.players.add(p.clone());
         }
-        for(Unit u:units) {
-            pgs.units.add(u.clone());
-        }
+        cloneUnitsInto(pgs);
+        shareTerrainHashWith(pgs);
         return pgs;
     }
 
@@ -203,11 +440,88 @@ public class PhysicalGameState implements Serializable {
         for(Player p:players) {
             pgs.players.add(p);
         }
-        for(Unit u:units) {
-            pgs.units.add(u);
+        pgs.units.addAll(units);
+        // The index is not shared: this state keeps moving the units in place without updating
+        // the clone's index, so the clone builds its own from the unit positions when first queried
+        if (sharesUnits) pgs.shareUnits();    // units that this state shares with others must still be copied
+        pgs.unitHashTracked = false;
+        shareTerrainHashWith(pgs);
+        return pgs;
+    }
+
+
+    // Clones this state without copying the units: both states share them, and each copies a unit
+    // the first time it changes it (see getWritableUnit). Search algorithms use this to expand nodes
+    // and run playouts, since most units are not changed before the next clone. Code that keeps
+    // references to units of either state across calls to GameState.cycle should look them up again
+    // by ID, as they may have been replaced by copies.
+    public PhysicalGameState cloneCopyOnWrite() {
+        PhysicalGameState pgs = new PhysicalGameState(width, height, terrain);  // The terrain is shared amongst all instances, since it never changes
+        for(Player p:players) {
+            pgs.players.add(p.clone());
         }
+        pgs.units.addAll(units);
+        shareUnitIndexWith(pgs);
+        shareUnits();
+        pgs.shareUnits();
+        pgs.unitHash = unitHash;
+        pgs.unitHashValid = unitHashValid && unitHashTracked;
+        shareTerrainHashWith(pgs);
         return pgs;
     }
+    
+    
+    void shareUnits() {
+        sharesUnits = true;
+        ownedUnits = null;
+    }
+    
+    
+    boolean owns(Unit u) {
+        return ownedUnits!=null && ownedUnits.contains(u);
+    }
+    
+    
+    void own(Unit u) {
+        if (ownedUnits==null) ownedUnits = Collections.newSetFromMap(new IdentityHashMap<Unit,Boolean>());
+        ownedUnits.add(u);
+    }
+    
+    
+    void shareTerrainHashWith(PhysicalGameState pgs) {
+        pgs.terrainHash = terrainHash;
+        pgs.terrainHashValid = terrainHashValid;
+    }
+    
+    
+    void shareUnitIndexWith(PhysicalGameState pgs) {
+        if (unitGrid==null) return;
+        pgs.unitGrid = unitGrid;
+        pgs.unitIndex = unitIndex;
+        unitGridShared = unitIndexShared = true;
+        pgs.unitGridShared = pgs.unitIndexShared = true;
+    }
+
+    
+    // Adds copies of the units to "pgs" (which has the same dimensions), indexing the copies as they are made:
+    void cloneUnitsInto(PhysicalGameState pgs) {
+        pgs.unitHash = unitHash;
+        pgs.unitHashValid = unitHashValid && unitHashTracked;
+        if (unitGrid==null) {
+            for(Unit u:units) pgs.units.add(u.clone());
+            return;
+        }
+        Unit grid[] = new Unit[unitGrid.length];
+        HashMap<Long,Unit> index = new HashMap<Long,Unit>(unitIndex.size()*2);
+        for(Unit u:units) {
+            Unit u2 = u.clone();
+            pgs.units.add(u2);
+            if (inBounds(u.getX(), u.getY()) && unitGrid[u.getX()+u.getY()*width]==u) grid[u.getX()+u.getY()*width] = u2;
+            index.put(u2.getID(), u2);
+        }
+        pgs.unitGrid = grid;
+        pgs.unitIndex = index;
+    }
 
     
     public PhysicalGameState cloneIncludingTerrain() {
@@ -217,9 +531,8 @@ public class PhysicalGameState implements Serializable {
         for(Player p:players) {
             pgs.players.add(p.clone());
         }
-        for(Unit u:units) {
-            pgs.units.add(u.clone());
-        }
+        cloneUnitsInto(pgs);
+        shareTerrainHashWith(pgs);
         return pgs;
     }
     
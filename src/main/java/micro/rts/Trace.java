@@ -4,6 +4,7 @@
  */
 package micro.rts;
 
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import org.jdom.Element;
@@ -88,6 +89,7 @@ public class Trace {
             }
             
             // synchronize the traces (some times the unit IDs might go off):
+            boolean resynchronized = false;
             for(Unit u1:gs.getUnits()) {
                 for(Unit u2:te.getPhysicalGameState().getUnits()) {
                     if (u1.getX()==u2.getX() &&
@@ -95,9 +97,16 @@ public class Trace {
                         u1.getType() == u2.getType() &&
                         u1.getID() != u2.getID()) {
                         u1.setID(u2.getID());
+                        resynchronized = true;
                     }
                 }
             }
+            if (resynchronized) {
+                // units are indexed and their actions hashed by ID:
+                gs.getPhysicalGameState().invalidateUnitIndex();
+                gs.unitActions = new LinkedHashMap<Unit,UnitActionAssignment>(gs.unitActions);
+                gs.unitActionsShared = false;
+            }
 
             if (gs.getTime()==cycle) {
                 getGameStateAtCycle_cache = gs;
@@ -174,23 +174,24 @@ public class UnitAction implements Serializable {
                 break;
             case TYPE_MOVE:
                 switch(parameter) {
-                    case DIRECTION_UP:      u.setY(u.getY()-1); break;
-                    case DIRECTION_RIGHT:   u.setX(u.getX()+1); break;
-                    case DIRECTION_DOWN:    u.setY(u.getY()+1); break;
-                    case DIRECTION_LEFT:    u.setX(u.getX()-1); break;
+                    case DIRECTION_UP:      pgs.moveUnit(u, u.getX(), u.getY()-1); break;
+                    case DIRECTION_RIGHT:   pgs.moveUnit(u, u.getX()+1, u.getY()); break;
+                    case DIRECTION_DOWN:    pgs.moveUnit(u, u.getX(), u.getY()+1); break;
+                    case DIRECTION_LEFT:    pgs.moveUnit(u, u.getX()-1, u.getY()); break;
                 }
                 break;
             case TYPE_ATTACK_LOCATION:
                 {
                     Unit u2 = pgs.getUnitAt(x, y);
                     if (u2!=null) {
+                        u2 = s.getWritableUnit(u2);
                         int damage;
                         if (u.getMinDamage() == u.getMaxDamage()) {
                             damage = u.getMinDamage();
                         } else {
                             damage = u.getMinDamage() + r.nextInt(1 + (u.getMaxDamage() - u.getMinDamage()));
                         }
-                        u2.setHitPoints(u2.getHitPoints() - damage);
+                        pgs.setHitPoints(u2, u2.getHitPoints() - damage);
                         if (u2.getHitPoints()<=0) {
                             s.removeUnit(u2);
                         }
@@ -207,11 +208,13 @@ public class UnitAction implements Serializable {
                         case DIRECTION_LEFT:    u2 = pgs.getUnitAt(u.getX()-1, u.getY()); break;
                     }
                     if (u2!=null&&u.getType().canHarvest&&u.getResources()==0) {                    
-                        u2.setResources(u2.getResources() - u.getHarvestAmount());
+                        u2 = s.getWritableUnit(u2);
+                        u = s.getWritableUnit(u);
+                        pgs.setResources(u2, u2.getResources() - u.getHarvestAmount());
                         if (u2.getResources()<=0) {
                             s.removeUnit(u2);
                         }
-                        u.setResources(u.getHarvestAmount());
+                        pgs.setResources(u, u.getHarvestAmount());
                     }
                 }
                 break;
@@ -227,7 +230,8 @@ public class UnitAction implements Serializable {
                 	if (base!=null&&base.getType().isStockpile&&u.getResources()>0) { 
                 		Player p = pgs.getPlayer(u.getPlayer());
                 		p.setResources(p.getResources() + u.getResources());
-                		u.setResources(0);
+                		u = s.getWritableUnit(u);
+                		pgs.setResources(u, 0);
                 	}else{//base is not there
                 		
                 	}
@@ -23,6 +23,8 @@ import micro.util.XMLWriter;
 public class Unit implements Serializable {
     UnitType type;
     
+    // shared by all the threads that create units (e.g. searches running in parallel),
+    // so it should be changed through getNextID and reserveID, which synchronize:
     public static long next_ID = 0;
     
     long ID;
@@ -31,6 +33,27 @@ public class Unit implements Serializable {
     int resources;
     int hitpoints = 0;
     
+    
+    /**
+     * Hands out unit IDs. Safe to call from several threads at once.
+     * @return a new unit ID
+     */
+    public static synchronized long getNextID() {
+        return next_ID++;
+    }
+    
+    
+    /**
+     * Makes sure that IDs handed out from now on are larger than ID, for
+     * units whose ID was read from a file or trace. Safe to call from several
+     * threads at once.
+     * @param ID an ID already in use
+     */
+    public static synchronized void reserveID(long ID) {
+        if (ID>=next_ID) next_ID = ID+1;
+    }
+    
+    
     public Unit(int a_player, UnitType a_type, int a_x, int a_y, int a_resources) {
         player = a_player;
         type = a_type;
@@ -38,7 +61,7 @@ public class Unit implements Serializable {
         y = a_y;
         resources = a_resources;
         hitpoints = a_type.hp;
-        ID = next_ID++;
+        ID = getNextID();
     }
 
     public Unit(int a_player, UnitType a_type, int a_x, int a_y) {
@@ -48,7 +71,7 @@ public class Unit implements Serializable {
         y = a_y;
         resources = 0;
         hitpoints = a_type.hp;
-        ID = next_ID++;
+        ID = getNextID();
     }
     
     
@@ -315,7 +338,7 @@ public class Unit implements Serializable {
         
         type = utt.getUnitType(typeName);
         ID = Integer.parseInt(IDStr);
-        if (ID>=next_ID) next_ID = ID+1;
+        reserveID(ID);
         player = Integer.parseInt(playerStr);
         x = Integer.parseInt(xStr);
         y = Integer.parseInt(yStr);
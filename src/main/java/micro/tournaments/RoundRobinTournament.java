@@ -6,22 +6,10 @@
 package micro.tournaments;
 
 import micro.ai.core.AI;
-import micro.ai.core.AIWithComputationBudget;
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
-import micro.rts.GameState;
-import micro.rts.PartiallyObservableGameState;
-import micro.rts.PhysicalGameState;
-import micro.rts.PlayerAction;
-import micro.rts.Trace;
-import micro.rts.TraceEntry;
 import micro.rts.units.UnitTypeTable;
-import micro.util.XMLWriter;
 
 /**
  *
@@ -45,6 +33,29 @@ public class RoundRobinTournament {
             String traceOutputfolder,
             Writer out,
             Writer progress) throws Exception {
+        runTournament(AIs, maps, iterations, maxGameLength, timeBudget, iterationsBudget,
+                fullObservability, selfMatches, timeoutCheck, runGC, utt, traceOutputfolder,
+                out, progress, 1, null);
+    }
+
+    // Plays the matches on "threads" threads, and keeps their results in "checkpointFile" (if
+    // not null) so that the tournament can be resumed (see TournamentRunner):
+    public static void runTournament(List<AI> AIs,
+            List<String> maps,
+            int iterations,
+            int maxGameLength,
+            int timeBudget,
+            int iterationsBudget,
+            boolean fullObservability,
+            boolean selfMatches,
+            boolean timeoutCheck,
+            boolean runGC,
+            UnitTypeTable utt,
+            String traceOutputfolder,
+            Writer out,
+            Writer progress,
+            int threads,
+            String checkpointFile) throws Exception {
         if (progress != null) {
             progress.write("RoundRobinTournament: Starting tournament\n");
         }
@@ -73,187 +84,47 @@ public class RoundRobinTournament {
         out.write("runGC\t" + runGC + "\n");
         out.write("iteration\tmap\tai1\tai2\ttime\twinner\tcrashed\ttimedout\n");
         out.flush();
+        List<TournamentRunner.Match> matches = new ArrayList<>();
         for (int iteration = 0; iteration < iterations; iteration++) {
             for (int map_idx = 0; map_idx < maps.size(); map_idx++) {
-                PhysicalGameState pgs = PhysicalGameState.load(maps.get(map_idx), utt);
                 for (int ai1_idx = 0; ai1_idx < AIs.size(); ai1_idx++) {
                     for (int ai2_idx = 0; ai2_idx < AIs.size(); ai2_idx++) {
                         if (!selfMatches && ai1_idx == ai2_idx) {
                             continue;
                         }
-                        AI ai1 = AIs.get(ai1_idx).clone();
-                        AI ai2 = AIs.get(ai2_idx).clone();
-
-                        if (ai1 instanceof AIWithComputationBudget) {
-                            ((AIWithComputationBudget) ai1).setTimeBudget(timeBudget);
-                            ((AIWithComputationBudget) ai1).setIterationsBudget(iterationsBudget);
-                        }
-                        if (ai2 instanceof AIWithComputationBudget) {
-                            ((AIWithComputationBudget) ai2).setTimeBudget(timeBudget);
-                            ((AIWithComputationBudget) ai2).setIterationsBudget(iterationsBudget);
-                        }
-
-                        ai1.reset();
-                        ai2.reset();
-
-                        GameState gs = new GameState(pgs.clone(), utt);
-
-                        if (progress != null) {
-                            progress.write("MATCH UP: " + ai1 + " vs " + ai2);
-                        }
-
-                        boolean gameover = false;
-                        int crashed = -1;
-                        int timedout = -1;
-                        Trace trace = null;
-                        TraceEntry te;
-                        if (traceOutputfolder != null) {
-                            trace = new Trace(utt);
-                            te = new TraceEntry(gs.getPhysicalGameState().clone(), gs.getTime());
-                            trace.addEntry(te);
-                        }
-                        do {
-                            PlayerAction pa1 = null;
-                            PlayerAction pa2 = null;
-                            long AI1start = 0, AI2start = 0, AI1end = 0, AI2end = 0;
-                            if (fullObservability) {
-                                if (runGC) {
-                                    System.gc();
-                                }
-                                try {
-                                    AI1start = System.currentTimeMillis();
-                                    pa1 = ai1.getAction(0, gs);
-                                    AI1end = System.currentTimeMillis();
-                                } catch (Exception e) {
-                                    crashed = 0;
-                                    break;
-                                }
-                                if (runGC) {
-                                    System.gc();
-                                }
-                                try {
-                                    AI2start = System.currentTimeMillis();
-                                    pa2 = ai2.getAction(1, gs);
-                                    AI2end = System.currentTimeMillis();
-                                } catch (Exception e) {
-                                    crashed = 1;
-                                    break;
-                                }
-                            } else {
-                                if (runGC) {
-                                    System.gc();
-                                }
-                                try {
-                                    PartiallyObservableGameState po_gs = new PartiallyObservableGameState(gs, 0);
-                                    AI1start = System.currentTimeMillis();
-                                    pa1 = ai1.getAction(0, po_gs);
-                                    AI1end = System.currentTimeMillis();
-                                } catch (Exception e) {
-                                    crashed = 0;
-                                    break;
-                                }
-                                if (runGC) {
-                                    System.gc();
-                                }
-                                try {
-                                    PartiallyObservableGameState po_gs = new PartiallyObservableGameState(gs, 1);
-                                    AI2start = System.currentTimeMillis();
-                                    pa2 = ai2.getAction(1, po_gs);
-                                    AI2end = System.currentTimeMillis();
-                                } catch (Exception e) {
-                                    crashed = 1;
-                                    break;
-                                }
-                            }
-                            if (timeoutCheck) {
-                                long AI1time = AI1end - AI1start;
-                                long AI2time = AI2end - AI2start;
-                                if (AI1time > timeBudget + TIMEOUT_CHECK_TOLERANCE) {
-                                    timedout = 0;
-                                    break;
-                                }
-                                if (AI2time > timeBudget + TIMEOUT_CHECK_TOLERANCE) {
-                                    timedout = 1;
-                                    break;
-                                }
-                            }
-                            if (traceOutputfolder != null && (!pa1.isEmpty() || !pa2.isEmpty())) {
-                                te = new TraceEntry(gs.getPhysicalGameState().clone(), gs.getTime());
-                                te.addPlayerAction(pa1.clone());
-                                te.addPlayerAction(pa2.clone());
-                                trace.addEntry(te);
-                            }
-
-                            gs.issueSafe(pa1);
-                            gs.issueSafe(pa2);
-                            gameover = gs.cycle();
-                        } while (!gameover
-                                && (gs.getTime() < maxGameLength));
-                        
-                        if (traceOutputfolder != null) {
-                            File folder = new File(traceOutputfolder);
-                            if (!folder.exists()) folder.mkdirs();
-                            te = new TraceEntry(gs.getPhysicalGameState().clone(), gs.getTime());
-                            trace.addEntry(te);
-                            XMLWriter xml;
-                            ZipOutputStream zip = null;
-                            String filename = ai1_idx + "-vs-" + ai2_idx + "-" + map_idx + "-" + iteration;
-                            filename = filename.replace("/", "");
-                            filename = filename.replace(")", "");
-                            filename = filename.replace("(", "");
-                            filename = traceOutputfolder + "/" + filename;
-                            zip = new ZipOutputStream(new FileOutputStream(filename + ".zip"));
-                            zip.putNextEntry(new ZipEntry("game.xml"));
-                            xml = new XMLWriter(new OutputStreamWriter(zip));
-                            trace.toxml(xml);
-                            xml.flush();
-                            zip.closeEntry();
-                            zip.close();
-                        }
-
-                        int winner = -1;
-                        if (crashed != -1) {
-                            winner = 1 - crashed;
-                            if (crashed == 0) {
-                                AIcrashes[ai1_idx][ai2_idx]++;
-                            }
-                            if (crashed == 1) {
-                                AIcrashes[ai2_idx][ai1_idx]++;
-                            }
-                        } else if (timedout != -1) {
-                            winner = 1 - timedout;
-                            if (timedout == 0) {
-                                AItimeout[ai1_idx][ai2_idx]++;
-                            }
-                            if (timedout == 1) {
-                                AItimeout[ai2_idx][ai1_idx]++;
-                            }
-                        } else {
-                            winner = gs.winner();
-                        }
-                        out.write(iteration + "\t" + map_idx + "\t" + ai1_idx + "\t" + ai2_idx + "\t"
-                                + gs.getTime() + "\t" + winner + "\t" + crashed + "\t" + timedout + "\n");
-                        out.flush();
-                        if (progress != null) {
-                            progress.write("Winner: " + winner + "  in " + gs.getTime() + " cycles");
-                        }
-                        if (progress != null) {
-                            progress.write(ai1 + " : " + ai1.statisticsString() + "\n");
-                        }
-                        if (progress != null) {
-                            progress.write(ai2 + " : " + ai2.statisticsString() + "\n");
-                        }
-                        progress.flush();
-                        if (winner == -1) {
-                            ties[ai1_idx][ai2_idx]++;
-                        } else if (winner == 0) {
-                            wins[ai1_idx][ai2_idx]++;
-                        }
-                        accumTime[ai1_idx][ai2_idx] += gs.getTime();
+                        matches.add(new TournamentRunner.Match(iteration, map_idx, ai1_idx, ai2_idx, AIs.get(ai1_idx), AIs.get(ai2_idx)));
                     }
                 }
             }
         }
+        TournamentRunner runner = new TournamentRunner(maps, maxGameLength, timeBudget, iterationsBudget,
+                fullObservability, timeoutCheck, runGC, utt, traceOutputfolder, out, progress);
+        runner.timeoutCheckTolerance = TIMEOUT_CHECK_TOLERANCE;
+        runner.run(matches, threads, checkpointFile);
+
+        for (TournamentRunner.Match m : matches) {
+            if (m.crashed != -1) {
+                if (m.crashed == 0) {
+                    AIcrashes[m.ai1_idx][m.ai2_idx]++;
+                }
+                if (m.crashed == 1) {
+                    AIcrashes[m.ai2_idx][m.ai1_idx]++;
+                }
+            } else if (m.timedout != -1) {
+                if (m.timedout == 0) {
+                    AItimeout[m.ai1_idx][m.ai2_idx]++;
+                }
+                if (m.timedout == 1) {
+                    AItimeout[m.ai2_idx][m.ai1_idx]++;
+                }
+            }
+            if (m.winner == -1) {
+                ties[m.ai1_idx][m.ai2_idx]++;
+            } else if (m.winner == 0) {
+                wins[m.ai1_idx][m.ai2_idx]++;
+            }
+            accumTime[m.ai1_idx][m.ai2_idx] += m.time;
+        }
 
         out.write("Wins:\n");
         for (int ai1_idx = 0; ai1_idx < AIs.size(); ai1_idx++) {
@@ -293,7 +164,7 @@ public class RoundRobinTournament {
         out.flush();
         if (progress != null) {
             progress.write("RoundRobinTournament: tournament ended\n");
+            progress.flush();
         }
-        progress.flush();
     }
 }
@@ -0,0 +1,394 @@
+package micro.tournaments;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import micro.ai.HasEvaluationFunction;
+import micro.ai.core.AI;
+import micro.ai.core.AIWithComputationBudget;
+import micro.ai.evaluation.SynchronizedEvaluationFunction;
+import micro.rts.BinaryTraceWriter;
+import micro.rts.GameState;
+import micro.rts.PartiallyObservableGameState;
+import micro.rts.PhysicalGameState;
+import micro.rts.PlayerAction;
+import micro.rts.Trace;
+import micro.rts.TraceEntry;
+import micro.rts.units.UnitTypeTable;
+import micro.util.XMLWriter;
+
+/**
+ * Plays the matches of a tournament, on several threads if asked to. Each match is played by
+ * clones of the AIs, since AIs keep the state of their search, and the clones get their own path
+ * finding and playout policies (see AI.unshare). Evaluation functions that the clones of an AI
+ * share are used by one match at a time.
+ *
+ * The results can also be appended to a checkpoint file as matches end. When the file already
+ * exists, the matches it lists are not played again, so an interrupted tournament can be resumed
+ * by running it again with the same checkpoint file.
+ *
+ * Matches played at the same time compete for the processor, so timeoutCheck should not be used
+ * with more threads than cores.
+ */
+public class TournamentRunner {
+
+    // A game between two AIs, and its result once it has been played:
+    public static class Match {
+        public final int iteration, map_idx, ai1_idx, ai2_idx;
+        final AI ai1, ai2;
+        public boolean played = false;
+        public int time = 0;
+        public int winner = -1;
+        public int crashed = -1;
+        public int timedout = -1;
+
+        public Match(int a_iteration, int a_map_idx, int a_ai1_idx, int a_ai2_idx, AI a_ai1, AI a_ai2) {
+            iteration = a_iteration;
+            map_idx = a_map_idx;
+            ai1_idx = a_ai1_idx;
+            ai2_idx = a_ai2_idx;
+            ai1 = a_ai1;
+            ai2 = a_ai2;
+        }
+
+        String key() {
+            return iteration + "\t" + map_idx + "\t" + ai1_idx + "\t" + ai2_idx;
+        }
+
+        // same format as the per-match lines of the tournament output:
+        String resultLine() {
+            return key() + "\t" + time + "\t" + winner + "\t" + crashed + "\t" + timedout + "\n";
+        }
+    }
+
+    List<PhysicalGameState> maps = new ArrayList<>();
+    int maxGameLength;
+    int timeBudget;
+    int iterationsBudget;
+    boolean fullObservability;
+    boolean timeoutCheck;
+    boolean runGC;
+    UnitTypeTable utt;
+    String traceOutputfolder;
+    Writer out;
+    Writer progress;
+    Writer checkpoint = null;
+    public int timeoutCheckTolerance = 20;   // milliseconds over the time budget that are not counted as a timeout
+    public boolean binaryTraces = false;     // traces are recorded with BinaryTraceWriter instead of as zipped XML
+
+
+    public TournamentRunner(List<String> a_maps,
+                            int a_maxGameLength,
+                            int a_timeBudget,
+                            int a_iterationsBudget,
+                            boolean a_fullObservability,
+                            boolean a_timeoutCheck,
+                            boolean a_runGC,
+                            UnitTypeTable a_utt,
+                            String a_traceOutputfolder,
+                            Writer a_out,
+                            Writer a_progress) throws Exception {
+        for(String map:a_maps) maps.add(PhysicalGameState.load(map, a_utt));
+        maxGameLength = a_maxGameLength;
+        timeBudget = a_timeBudget;
+        iterationsBudget = a_iterationsBudget;
+        fullObservability = a_fullObservability;
+        timeoutCheck = a_timeoutCheck;
+        runGC = a_runGC;
+        utt = a_utt;
+        traceOutputfolder = a_traceOutputfolder;
+        out = a_out;
+        progress = a_progress;
+    }
+
+
+    // Plays all the matches that are not in the checkpoint file (which can be null) using
+    // "threads" threads. With a single thread, matches are played in order in this thread.
+    public void run(List<Match> matches, int threads, String checkpointFile) throws Exception {
+        List<Match> toPlay = matches;
+        if (checkpointFile!=null) {
+            toPlay = resume(matches, checkpointFile);
+            File file = new File(checkpointFile);
+            boolean endsWithNewLine = true;
+            if (file.length()>0) {
+                RandomAccessFile raf = new RandomAccessFile(file, "r");
+                raf.seek(file.length()-1);
+                endsWithNewLine = (raf.read()=='\n');
+                raf.close();
+            }
+            checkpoint = new FileWriter(checkpointFile, true);
+            // a line cut short when the tournament was interrupted should not run into the next result:
+            if (!endsWithNewLine) checkpoint.write("\n");
+        }
+        try {
+            if (threads<=1) {
+                for(Match m:toPlay) play(m, false);
+            } else {
+                ExecutorService pool = Executors.newFixedThreadPool(threads);
+                try {
+                    List<Future<Object>> futures = new ArrayList<>();
+                    for(final Match m:toPlay) {
+                        futures.add(pool.submit(new Callable<Object>() {
+                            public Object call() throws Exception {
+                                play(m, true);
+                                return null;
+                            }
+                        }));
+                    }
+                    for(Future<Object> future:futures) {
+                        try {
+                            future.get();
+                        } catch(ExecutionException e) {
+                            // unwrap the root cause
+                            if (e.getCause() instanceof Exception) throw (Exception)e.getCause();
+                            throw e;
+                        }
+                    }
+                } finally {
+                    pool.shutdownNow();
+                }
+            }
+        } finally {
+            if (checkpoint!=null) checkpoint.close();
+            checkpoint = null;
+        }
+    }
+
+
+    // Reads the results saved in the checkpoint file, and returns the matches still to be played:
+    List<Match> resume(List<Match> matches, String checkpointFile) throws Exception {
+        Map<String,Match> byKey = new HashMap<>();
+        for(Match m:matches) byKey.put(m.key(), m);
+        if (new File(checkpointFile).exists()) {
+            BufferedReader br = new BufferedReader(new FileReader(checkpointFile));
+            try {
+                String line;
+                while((line = br.readLine())!=null) {
+                    String tokens[] = line.split("\t");
+                    if (tokens.length!=8) continue;     // e.g., a line cut short
+                    Match m = byKey.get(tokens[0] + "\t" + tokens[1] + "\t" + tokens[2] + "\t" + tokens[3]);
+                    if (m==null || m.played) continue;
+                    try {
+                        int time = Integer.parseInt(tokens[4]);
+                        int winner = Integer.parseInt(tokens[5]);
+                        int crashed = Integer.parseInt(tokens[6]);
+                        int timedout = Integer.parseInt(tokens[7]);
+                        m.time = time;
+                        m.winner = winner;
+                        m.crashed = crashed;
+                        m.timedout = timedout;
+                    } catch(NumberFormatException e) {
+                        // e.g., a line cut short in the middle of a number; the match is played again
+                        continue;
+                    }
+                    m.played = true;
+                    out.write(m.resultLine());
+                }
+            } finally {
+                br.close();
+            }
+            out.flush();
+        }
+        List<Match> toPlay = new ArrayList<>();
+        for(Match m:matches) {
+            if (!m.played) toPlay.add(m);
+        }
+        if (progress!=null && toPlay.size()<matches.size()) progress.write("Resuming tournament: " + (matches.size() - toPlay.size()) + " matches already played\n");
+        return toPlay;
+    }
+
+
+    AI prepare(AI prototype, boolean parallel) {
+        AI ai = prototype.clone();
+        if (ai instanceof AIWithComputationBudget) {
+            ((AIWithComputationBudget) ai).setTimeBudget(timeBudget);
+            ((AIWithComputationBudget) ai).setIterationsBudget(iterationsBudget);
+        }
+        // clones share the path finding and playout policies of the prototype, which keep state
+        // between calls (like the abstract actions of the scripted AIs), so each match gets its own:
+        ai.unshare();
+        if (parallel && ai instanceof HasEvaluationFunction) {
+            HasEvaluationFunction hef = (HasEvaluationFunction) ai;
+            if (hef.getEvaluationFunction()!=null) {
+                hef.setEvaluationFunction(new SynchronizedEvaluationFunction(hef.getEvaluationFunction()));
+            }
+        }
+        ai.reset();
+        return ai;
+    }
+
+
+    void play(Match m, boolean parallel) throws Exception {
+        AI ai1 = prepare(m.ai1, parallel);
+        AI ai2 = prepare(m.ai2, parallel);
+
+        PhysicalGameState pgs = maps.get(m.map_idx);
+        GameState gs;
+        synchronized(pgs) {
+            gs = new GameState(pgs.clone(), utt);
+        }
+
+        writeProgress("MATCH UP: " + ai1 + " vs " + ai2);
+
+        boolean gameover = false;
+        int crashed = -1;
+        int timedout = -1;
+        Trace trace = null;
+        BinaryTraceWriter binaryTrace = null;
+        TraceEntry te;
+        String filename = null;
+        if (traceOutputfolder != null) {
+            File folder = new File(traceOutputfolder);
+            if (!folder.exists()) folder.mkdirs();
+            filename = m.ai1_idx + "-vs-" + m.ai2_idx + "-" + m.map_idx + "-" + m.iteration;
+            filename = filename.replace("/", "");
+            filename = filename.replace(")", "");
+            filename = filename.replace("(", "");
+            filename = traceOutputfolder + "/" + filename;
+            if (binaryTraces) {
+                binaryTrace = new BinaryTraceWriter(new FileOutputStream(filename + BinaryTraceWriter.EXTENSION), gs);
+            } else {
+                trace = new Trace(utt);
+                te = new TraceEntry(gs.getPhysicalGameState().clone(), gs.getTime());
+                trace.addEntry(te);
+            }
+        }
+        do {
+            PlayerAction pa1 = null;
+            PlayerAction pa2 = null;
+            long AI1start = 0, AI2start = 0, AI1end = 0, AI2end = 0;
+            if (fullObservability) {
+                if (runGC) System.gc();
+                try {
+                    AI1start = System.currentTimeMillis();
+                    pa1 = ai1.getAction(0, gs);
+                    AI1end = System.currentTimeMillis();
+                }catch(Exception e) {
+                    crashed = 0;
+                    break;
+                }
+                if (runGC) System.gc();
+                try {
+                    AI2start = System.currentTimeMillis();
+                    pa2 = ai2.getAction(1, gs);
+                    AI2end = System.currentTimeMillis();
+                }catch(Exception e) {
+                    crashed = 1;
+                    break;
+                }
+            } else {
+                if (runGC) System.gc();
+                try {
+                    PartiallyObservableGameState po_gs = new PartiallyObservableGameState(gs,0);
+                    AI1start = System.currentTimeMillis();
+                    pa1 = ai1.getAction(0, po_gs);
+                    AI1end = System.currentTimeMillis();
+                }catch(Exception e) {
+                    crashed = 0;
+                    break;
+                }
+                if (runGC) System.gc();
+                try {
+                    PartiallyObservableGameState po_gs = new PartiallyObservableGameState(gs,1);
+                    AI2start = System.currentTimeMillis();
+                    pa2 = ai2.getAction(1, po_gs);
+                    AI2end = System.currentTimeMillis();
+                }catch(Exception e) {
+                    crashed = 1;
+                    break;
+                }
+            }
+            if (timeoutCheck) {
+                long AI1time = AI1end - AI1start;
+                long AI2time = AI2end - AI2start;
+                if (AI1time>timeBudget + timeoutCheckTolerance) {
+                    timedout = 0;
+                    break;
+                }
+                if (AI2time>timeBudget + timeoutCheckTolerance) {
+                    timedout = 1;
+                    break;
+                }
+            }
+            if (binaryTrace != null) {
+                binaryTrace.record(gs, pa1, pa2);
+            } else if (traceOutputfolder != null && (!pa1.isEmpty() || !pa2.isEmpty())) {
+                te = new TraceEntry(gs.getPhysicalGameState().clone(), gs.getTime());
+                te.addPlayerAction(pa1.clone());
+                te.addPlayerAction(pa2.clone());
+                trace.addEntry(te);
+            }
+
+            gs.issueSafe(pa1);
+            gs.issueSafe(pa2);
+            gameover = gs.cycle();
+        } while (!gameover &&
+                 (gs.getTime() < maxGameLength));
+
+        if (binaryTrace != null) {
+            binaryTrace.close(gs);
+        } else if (traceOutputfolder != null) {
+            te = new TraceEntry(gs.getPhysicalGameState().clone(), gs.getTime());
+            trace.addEntry(te);
+            XMLWriter xml;
+            ZipOutputStream zip = null;
+            zip = new ZipOutputStream(new FileOutputStream(filename + ".zip"));
+            zip.putNextEntry(new ZipEntry("game.xml"));
+            xml = new XMLWriter(new OutputStreamWriter(zip));
+            trace.toxml(xml);
+            xml.flush();
+            zip.closeEntry();
+            zip.close();
+        }
+
+        int winner = -1;
+        if (crashed!=-1) {
+            winner = 1 - crashed;
+        } else if (timedout!=-1) {
+            winner = 1 - timedout;
+        } else {
+            winner = gs.winner();
+        }
+        m.time = gs.getTime();
+        m.winner = winner;
+        m.crashed = crashed;
+        m.timedout = timedout;
+        m.played = true;
+
+        synchronized(this) {
+            out.write(m.resultLine());
+            out.flush();
+            if (checkpoint!=null) {
+                checkpoint.write(m.resultLine());
+                checkpoint.flush();
+            }
+            writeProgress("Winner: " + winner + "  in " + gs.getTime() + " cycles");
+            writeProgress(ai1 + " : " + ai1.statisticsString() + "\n");
+            writeProgress(ai2 + " : " + ai2.statisticsString() + "\n");
+        }
+    }
+
+
+    synchronized void writeProgress(String message) throws Exception {
+        if (progress==null) return;
+        progress.write(message);
+        progress.flush();
+    }
+}
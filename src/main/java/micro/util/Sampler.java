@@ -13,14 +13,20 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 
+import edu.southwestern.util.random.RandomNumbers;
+
 public class Sampler {
-    static Random generator = new Random();
+    // seeded like the rest of the search, so that it can be reproduced. It is read on every call,
+    // since reseeding RandomNumbers replaces the generator:
+    static Random generator() {
+        return RandomNumbers.randomGenerator;
+    }
 
     /*
      * Returns a random element in the distribution
      */
     public static int random(double[] distribution) {
-        return generator.nextInt(distribution.length);
+        return generator().nextInt(distribution.length);
     }
 
     /*
@@ -44,7 +50,7 @@ public class Sampler {
         }
 
         if (best.size() > 0) {
-            return best.get(generator.nextInt(best.size()));
+            return best.get(generator().nextInt(best.size()));
         }
 
         throw new Exception("Input distribution empty in Sampler.max!");
@@ -86,7 +92,7 @@ public class Sampler {
         
         if (total==0) return random(distribution);
 
-        tmp = generator.nextDouble() * total;
+        tmp = generator().nextDouble() * total;
         for (int i = 0; i < distribution.length; i++) {
             accum += distribution[i];
             if (accum >= tmp) {
@@ -108,9 +114,9 @@ public class Sampler {
             total += f;
         }
         
-        if (total==0) return outputs.get(generator.nextInt(outputs.size()));
+        if (total==0) return outputs.get(generator().nextInt(outputs.size()));
 
-        tmp = generator.nextDouble() * total;
+        tmp = generator().nextDouble() * total;
         for (int i = 0; i < distribution.size(); i++) {
             accum += distribution.get(i);
             if (accum >= tmp) {
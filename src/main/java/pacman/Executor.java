@@ -17,6 +17,7 @@ import java.util.Random;
 import java.util.Scanner;
 import pacman.controllers.Controller;
 import pacman.controllers.HumanController;
+import pacman.controllers.NewGhostController;
 import pacman.controllers.examples.Legacy;
 import static pacman.game.Constants.DELAY;
 import pacman.game.Constants.GHOST;
@@ -24,6 +25,8 @@ import static pacman.game.Constants.INTERVAL_WAIT;
 import pacman.game.Constants.MOVE;
 import pacman.game.Game;
 import pacman.game.GameView;
+import pacman.game.ReplayReader;
+import pacman.game.ReplayWriter;
 
 /**
  * This class may be used to execute the game in timed or un-timed modes, with
@@ -157,8 +160,7 @@ public class Executor {
 			game = new Game(rnd.nextLong());
 
 			while (!game.gameOver()) {
-				game.advanceGame(pacManController.getMove(game.copy(), System.currentTimeMillis() + DELAY),
-						ghostController.getMove(game.copy(), System.currentTimeMillis() + DELAY));
+				advanceCopy(pacManController, ghostController, game, System.currentTimeMillis() + DELAY);
 			}
 
 			avgScore += game.getScore();
@@ -175,7 +177,7 @@ public class Executor {
 		while (!game.gameOver()) {
 			// long start = System.currentTimeMillis();
 			long due = System.currentTimeMillis() + DELAY;
-			game.advanceGame(pacManController.getMove(game.copy(), due), ghostController.getMove(game.copy(), due));
+			advanceCopy(pacManController, ghostController, game, due);
 			// long end = System.currentTimeMillis();
 			// actionTimes.add(new Double(end - start));
 		}
@@ -184,6 +186,58 @@ public class Executor {
 		// StatisticsUtilities.average(ArrayUtil.doubleArrayFromArrayList(actionTimes)));
 	}
 
+	/**
+	 * Advance the game by one tick, with both controllers looking at a copy of
+	 * it. The copy is only made once: the random number generator of the copy
+	 * is rewound after the Ms Pac-Man controller is done, so the ghosts see
+	 * the same copy they would get from game.copy(). Only if the Ms Pac-Man
+	 * controller advanced its copy do the ghosts get a new one. Ghost
+	 * controllers that can decide their moves in an array do so, and the game
+	 * is advanced without a map.
+	 *
+	 * @param pacManController
+	 *            The Pac-Man controller
+	 * @param ghostController
+	 *            The Ghosts controller
+	 * @param game
+	 *            Game to advance, modified by side effects
+	 * @param due
+	 *            Time the moves are due
+	 */
+	private static void advanceCopy(Controller<MOVE> pacManController,
+			Controller<EnumMap<GHOST, MOVE>> ghostController, Game game, long due) {
+		Game copy = game.copy();
+		long seed = copy.rnd.getSeed();
+		int version = copy.getStateVersion();
+		MOVE pacManMove = pacManController.getMove(copy, due);
+		if (copy.getStateVersion() == version) {
+			copy.rnd.hardSetSeed(seed);
+		} else {
+			copy = game.copy();
+		}
+		if (ghostController instanceof NewGhostController) {
+			game.advanceGame(pacManMove, ((NewGhostController) ghostController).getMoveArray(copy, due));
+		} else {
+			game.advanceGame(pacManMove, ghostController.getMove(copy, due));
+		}
+	}
+
+	/**
+	 * Same result as runExperiment, but without copying the game for each
+	 * controller on every tick. See HeadlessRunner.
+	 *
+	 * @param pacManController
+	 *            The Pac-Man controller
+	 * @param ghostController
+	 *            The Ghosts controller
+	 * @param game
+	 *            Game to play until it is over
+	 */
+	public void runExperimentHeadless(Controller<MOVE> pacManController, Controller<EnumMap<GHOST, MOVE>> ghostController,
+			Game game) {
+		HeadlessRunner.run(pacManController, ghostController, game);
+	}
+
 	/**
 	 * Run a game in asynchronous mode: the game waits until a move is returned.
 	 * In order to slow thing down in case the controllers return very quickly,
@@ -210,7 +264,7 @@ public class Executor {
 		}
 
 		while (!game.gameOver()) {
-			game.advanceGame(pacManController.getMove(game.copy(), -1), ghostController.getMove(game.copy(), -1));
+			advanceCopy(pacManController, ghostController, game, -1);
 
 			try {
 				Thread.sleep(delay);
@@ -395,7 +449,12 @@ public class Executor {
 	 */
 	public void runGameTimedRecorded(Game game, Controller<MOVE> pacManController,
 			Controller<EnumMap<GHOST, MOVE>> ghostController, boolean visual, String fileName) {
-		StringBuilder replay = new StringBuilder();
+		ReplayWriter replay = null;
+		try {
+			replay = new ReplayWriter(new File(fileName), ReplayWriter.DEFAULT_KEYFRAME_INTERVAL);
+		} catch (IOException e) {
+			System.out.println("Could not save data!");
+		}
 
 		// Game game = new Game(0);
 		GameView gv = null;
@@ -427,13 +486,26 @@ public class Executor {
 				gv.repaint();
 			}
 
-			replay.append(game.getGameState() + "\n");
+			if (replay != null) {
+				try {
+					replay.write(game);
+				} catch (IOException e) {
+					System.out.println("Could not save data!");
+					replay = null;
+				}
+			}
 		}
 
 		pacManController.terminate();
 		ghostController.terminate();
 
-		saveToFile(replay.toString(), fileName, false);
+		if (replay != null) {
+			try {
+				replay.close();
+			} catch (IOException e) {
+				System.out.println("Could not save data!");
+			}
+		}
 	}
 
 	/**
@@ -463,7 +535,22 @@ public class Executor {
 			}
 		}
 
-		ArrayList<String> timeSteps = loadReplay(fileName);
+		// Binary replays are restored tick by tick; older text replays are parsed up front
+		ReplayReader binary = null;
+		ArrayList<String> timeSteps = null;
+		int numTicks;
+		if (ReplayReader.isBinaryReplay(new File(fileName))) {
+			try {
+				binary = new ReplayReader(new File(fileName));
+			} catch (IOException e) {
+				e.printStackTrace();
+				return;
+			}
+			numTicks = binary.getNumTicks();
+		} else {
+			timeSteps = loadReplay(fileName);
+			numTicks = timeSteps.size();
+		}
 
 		Game game = new Game(0);
 
@@ -475,8 +562,12 @@ public class Executor {
 
 		int level = -1;
 		int lives = 10;
-		for (int j = 0; j < timeSteps.size(); j++) {
-			game.setGameState(timeSteps.get(j));
+		for (int j = 0; j < numTicks; j++) {
+			if (binary != null) {
+				binary.next(game);
+			} else {
+				game.setGameState(timeSteps.get(j));
+			}
 			if (game.getCurrentLevel() != level || game.getPacmanNumberOfLivesRemaining() < lives) {
 				level = game.getCurrentLevel();
 				lives = game.getPacmanNumberOfLivesRemaining();
@@ -484,6 +575,7 @@ public class Executor {
 					ScentPath.modeScents[i].reset();
 				}
 				if (level >= Parameters.parameters.integerParameter("pacmanMaxLevel")) {
+					closeReplay(binary);
 					return;
 				}
 			}
@@ -522,6 +614,17 @@ public class Executor {
 				gv.repaint();
 			}
 		}
+		closeReplay(binary);
+	}
+
+	private static void closeReplay(ReplayReader replay) {
+		if (replay != null) {
+			try {
+				replay.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
 	}
 
 	// save file for replays
@@ -0,0 +1,103 @@
+package pacman;
+
+import static pacman.game.Constants.DELAY;
+
+import java.util.EnumMap;
+
+import pacman.controllers.Controller;
+import pacman.controllers.NewGhostController;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+/**
+ * Runs Ms Pac-Man games synchronously, without controller threads, views or
+ * wall-clock waiting. Each tick both controllers are called inline, exactly
+ * in the order used by Executor.runExperiment, but they are handed the live
+ * game instead of two fresh copies. The random number generator of the game
+ * is rewound after each controller, so controllers that draw from game.rnd
+ * (as the Legacy ghosts do) see and leave the same random sequence that they
+ * would on a copy.
+ *
+ * Controllers must treat the game as read-only: a controller that advances
+ * the game it is given causes an IllegalStateException. Controllers that need
+ * to simulate ahead should copy the game themselves, as they already do.
+ */
+public class HeadlessRunner {
+
+	/**
+	 * Play the game until it is over
+	 *
+	 * @param pacManController
+	 *            The Pac-Man controller
+	 * @param ghostController
+	 *            The Ghosts controller
+	 * @param game
+	 *            Game to advance, modified by side effects
+	 */
+	public static void run(Controller<MOVE> pacManController, Controller<EnumMap<GHOST, MOVE>> ghostController, Game game) {
+		while (!game.gameOver()) {
+			step(pacManController, ghostController, game);
+		}
+	}
+
+	/**
+	 * Advance the game by a single tick
+	 *
+	 * @param pacManController
+	 *            The Pac-Man controller
+	 * @param ghostController
+	 *            The Ghosts controller
+	 * @param game
+	 *            Game to advance, modified by side effects
+	 */
+	public static void step(Controller<MOVE> pacManController, Controller<EnumMap<GHOST, MOVE>> ghostController, Game game) {
+		// Same time budget as runExperiment, which some anytime controllers use
+		long due = System.currentTimeMillis() + DELAY;
+		long seed = game.rnd.getSeed();
+		int version = game.getStateVersion();
+		MOVE pacManMove = pacManController.getMove(game, due);
+		restore(game, seed, version, pacManController);
+		advance(pacManMove, ghostController, game, due);
+	}
+
+	/**
+	 * Ask the ghosts for their moves and advance the game by a single tick.
+	 * Ghost controllers that can decide their moves in an array do so, and
+	 * the game is advanced without a map.
+	 *
+	 * @param pacManMove
+	 *            The move of Ms Pac-Man
+	 * @param ghostController
+	 *            The Ghosts controller
+	 * @param game
+	 *            Game to advance, modified by side effects
+	 * @param due
+	 *            Time the moves are due
+	 */
+	public static void advance(MOVE pacManMove, Controller<EnumMap<GHOST, MOVE>> ghostController, Game game, long due) {
+		long seed = game.rnd.getSeed();
+		int version = game.getStateVersion();
+		if (ghostController instanceof NewGhostController) {
+			MOVE[] ghostMoves = ((NewGhostController) ghostController).getMoveArray(game, due);
+			restore(game, seed, version, ghostController);
+			game.advanceGame(pacManMove, ghostMoves);
+		} else {
+			EnumMap<GHOST, MOVE> ghostMoves = ghostController.getMove(game, due);
+			restore(game, seed, version, ghostController);
+			game.advanceGame(pacManMove, ghostMoves);
+		}
+	}
+
+	/**
+	 * Undo the only side effect a read-only controller can have on the game,
+	 * and fail if the controller advanced it
+	 */
+	public static void restore(Game game, long seed, int version, Controller<?> controller) {
+		if (game.getStateVersion() != version) {
+			throw new IllegalStateException(controller.getClass().getName()
+					+ " changed the game it was given. It cannot be run headless.");
+		}
+		game.rnd.hardSetSeed(seed);
+	}
+}
@@ -6,6 +6,9 @@ package pacman.controllers;
 
 import java.util.EnumMap;
 import pacman.game.Constants;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
 
 /**
  *
@@ -13,7 +16,57 @@ import pacman.game.Constants;
  */
 public abstract class NewGhostController extends Controller<EnumMap<Constants.GHOST, Constants.MOVE>> {
 
+	// GHOST.values() clones its array on every call, so controllers loop over this instead
+	protected static final GHOST[] GHOSTS = GHOST.values();
+
+	private final MOVE[] moveArray = new MOVE[GHOSTS.length];
+
 	public void reset() {
 		super.threadRevive();
 	}
+
+	/**
+	 * Moves of all ghosts in an array indexed by GHOST ordinal, with null for
+	 * ghosts that were given no move, ready for Game.advanceGame. The same
+	 * array is returned and overwritten on every call, so no garbage is
+	 * created per tick. By default it is filled from getMove, but controllers
+	 * can override this to skip the map entirely.
+	 *
+	 * @param game
+	 *            current game state
+	 * @param timeDue
+	 *            time the move is due
+	 * @return reused array of moves, or null if every ghost should repeat
+	 *         its last move
+	 */
+	public MOVE[] getMoveArray(Game game, long timeDue) {
+		EnumMap<GHOST, MOVE> moves = getMove(game, timeDue);
+		if (moves == null) {
+			return null; // every ghost repeats its last move
+		}
+		for (GHOST ghost : GHOSTS) {
+			moveArray[ghost.ordinal()] = moves.get(ghost);
+		}
+		return moveArray;
+	}
+
+	/**
+	 * For controllers that decide their moves in getMoveArray: put the moves
+	 * of the array into a map, leaving out ghosts without a move.
+	 *
+	 * @param moves
+	 *            moves indexed by GHOST ordinal
+	 * @param map
+	 *            map to clear and fill
+	 * @return the same map
+	 */
+	protected static EnumMap<GHOST, MOVE> movesToMap(MOVE[] moves, EnumMap<GHOST, MOVE> map) {
+		map.clear();
+		for (GHOST ghost : GHOSTS) {
+			if (moves[ghost.ordinal()] != null) {
+				map.put(ghost, moves[ghost.ordinal()]);
+			}
+		}
+		return map;
+	}
 }
@@ -26,21 +26,7 @@ public abstract class NewPacManController extends Controller<MOVE> {
 		// game.getPacmanLastMoveMade() : "MOVE Last move is not consistent:" +
 		// lastMove + ":" + game.getPacmanLastMoveMade();
 		try {
-			int move = getAction(game, timeDue);
-			switch (move) {
-			case END_GAME_CODE:
-				return null;
-			case 0:
-				return MOVE.UP;
-			case 1:
-				return MOVE.RIGHT;
-			case 2:
-				return MOVE.DOWN;
-			case 3:
-				return MOVE.LEFT;
-			default:
-				return MOVE.NEUTRAL;
-			}
+			return moveFromAction(getAction(game, timeDue));
 		} catch (Exception e) {
 			System.out.println("Move failure");
 			e.printStackTrace();
@@ -49,6 +35,29 @@ public abstract class NewPacManController extends Controller<MOVE> {
 		}
 	}
 
+	/**
+	 * Convert an action returned by getAction into a move
+	 * 
+	 * @param action direction index, END_GAME_CODE, or anything else for neutral
+	 * @return corresponding move, or null to end the game
+	 */
+	public static MOVE moveFromAction(int action) {
+		switch (action) {
+		case END_GAME_CODE:
+			return null;
+		case 0:
+			return MOVE.UP;
+		case 1:
+			return MOVE.RIGHT;
+		case 2:
+			return MOVE.DOWN;
+		case 3:
+			return MOVE.LEFT;
+		default:
+			return MOVE.NEUTRAL;
+		}
+	}
+
 	public void reset() {
 		threadRevive();
 	}
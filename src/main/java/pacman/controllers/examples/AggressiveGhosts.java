@@ -28,6 +28,7 @@ public final class AggressiveGhosts extends NewGhostController {
 										// probability
 	private EnumMap<GHOST, MOVE> myMoves = new EnumMap<GHOST, MOVE>(GHOST.class);
 	private MOVE[] moves = MOVE.values();
+	private final MOVE[] myMoveArray = new MOVE[GHOSTS.length];
 
 	/*
 	 * (non-Javadoc)
@@ -35,25 +36,35 @@ public final class AggressiveGhosts extends NewGhostController {
 	 * @see pacman.controllers.Controller#getMove(pacman.game.Game, long)
 	 */
 	public EnumMap<GHOST, MOVE> getMove(Game game, long timeDue) {
-		myMoves.clear();
+		return movesToMap(getMoveArray(game, timeDue), myMoves);
+	}
 
-		for (GHOST ghost : GHOST.values()) // for each ghost
+	/*
+	 * Moves are decided here, so the game can be stepped without the map
+	 * 
+	 * @see pacman.controllers.NewGhostController#getMoveArray(pacman.game.Game, long)
+	 */
+	@Override
+	public MOVE[] getMoveArray(Game game, long timeDue) {
+		for (GHOST ghost : GHOSTS) // for each ghost
 		{
+			myMoveArray[ghost.ordinal()] = null;
 			if (game.doesGhostRequireAction(ghost)) // if it requires an action
 			{
 				if (game.rnd.nextFloat() < consistency) // approach/retreat from
 														// the current node that
 														// Ms Pac-Man is at
 				{
-					myMoves.put(ghost, game.getApproximateNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(ghost),
-							game.getPacmanCurrentNodeIndex(), game.getGhostLastMoveMade(ghost), DM.PATH));
+					myMoveArray[ghost.ordinal()] = game.getApproximateNextMoveTowardsTarget(
+							game.getGhostCurrentNodeIndex(ghost), game.getPacmanCurrentNodeIndex(),
+							game.getGhostLastMoveMade(ghost), DM.PATH);
 				} else // else take a random action
 				{
-					myMoves.put(ghost, moves[game.rnd.nextInt(moves.length)]);
+					myMoveArray[ghost.ordinal()] = moves[game.rnd.nextInt(moves.length)];
 				}
 			}
 		}
 
-		return myMoves;
+		return myMoveArray;
 	}
 }
\ No newline at end of file
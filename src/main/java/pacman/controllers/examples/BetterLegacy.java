@@ -22,35 +22,45 @@ public class BetterLegacy extends NewGhostController {
 	EnumMap<GHOST, MOVE> myMoves = new EnumMap<GHOST, MOVE>(GHOST.class);
 	MOVE[] moves = MOVE.values();
 
+	MOVE[] myMoveArray = new MOVE[GHOSTS.length];
+
 	/*
 	 * (non-Javadoc)
 	 * 
 	 * @see pacman.controllers.Controller#getMove(pacman.game.Game, long)
 	 */
 	public EnumMap<GHOST, MOVE> getMove(Game game, long timeDue) {
-		myMoves.clear();
+		return movesToMap(getMoveArray(game, timeDue), myMoves);
+	}
 
+	/*
+	 * Moves are decided here, so the game can be stepped without the map
+	 * 
+	 * @see pacman.controllers.NewGhostController#getMoveArray(pacman.game.Game, long)
+	 */
+	@Override
+	public MOVE[] getMoveArray(Game game, long timeDue) {
 		int targetNode = game.getPacmanCurrentNodeIndex();
 
-		if (game.doesGhostRequireAction(GHOST.BLINKY)) {
-			myMoves.put(GHOST.BLINKY, game.getNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(GHOST.BLINKY),
-					targetNode, game.getGhostLastMoveMade(GHOST.BLINKY), DM.PATH));
-		}
+		myMoveArray[GHOST.BLINKY.ordinal()] = game.doesGhostRequireAction(GHOST.BLINKY)
+				? game.getNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(GHOST.BLINKY), targetNode,
+						game.getGhostLastMoveMade(GHOST.BLINKY), DM.PATH)
+				: null;
 
-		if (game.doesGhostRequireAction(GHOST.INKY)) {
-			myMoves.put(GHOST.INKY, game.getNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(GHOST.INKY), targetNode,
-					game.getGhostLastMoveMade(GHOST.INKY), DM.MANHATTAN));
-		}
+		myMoveArray[GHOST.INKY.ordinal()] = game.doesGhostRequireAction(GHOST.INKY)
+				? game.getNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(GHOST.INKY), targetNode,
+						game.getGhostLastMoveMade(GHOST.INKY), DM.MANHATTAN)
+				: null;
 
-		if (game.doesGhostRequireAction(GHOST.PINKY)) {
-			myMoves.put(GHOST.PINKY, game.getNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(GHOST.PINKY),
-					targetNode, game.getGhostLastMoveMade(GHOST.PINKY), DM.EUCLID));
-		}
+		myMoveArray[GHOST.PINKY.ordinal()] = game.doesGhostRequireAction(GHOST.PINKY)
+				? game.getNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(GHOST.PINKY), targetNode,
+						game.getGhostLastMoveMade(GHOST.PINKY), DM.EUCLID)
+				: null;
 
-		if (game.doesGhostRequireAction(GHOST.SUE)) {
-			myMoves.put(GHOST.SUE, moves[game.rnd.nextInt(moves.length)]);
-		}
+		myMoveArray[GHOST.SUE.ordinal()] = game.doesGhostRequireAction(GHOST.SUE)
+				? moves[game.rnd.nextInt(moves.length)]
+				: null;
 
-		return myMoves;
+		return myMoveArray;
 	}
 }
\ No newline at end of file
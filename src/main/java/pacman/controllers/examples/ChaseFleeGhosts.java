@@ -22,55 +22,67 @@ public class ChaseFleeGhosts extends NewGhostController {
 	EnumMap<GHOST, MOVE> myMoves = new EnumMap<GHOST, MOVE>(GHOST.class);
 	MOVE[] moves = MOVE.values();
 
+	MOVE[] myMoveArray = new MOVE[GHOSTS.length];
+
 	/*
 	 * (non-Javadoc) @see
 	 * pacman.controllers.Controller#getMove(pacman.game.Game, long)
 	 */
 	public EnumMap<GHOST, MOVE> getMove(Game game, long timeDue) {
-		myMoves.clear();
+		return movesToMap(getMoveArray(game, timeDue), myMoves);
+	}
 
+	/*
+	 * Moves are decided here, so the game can be stepped without the map
+	 * 
+	 * @see pacman.controllers.NewGhostController#getMoveArray(pacman.game.Game, long)
+	 */
+	@Override
+	public MOVE[] getMoveArray(Game game, long timeDue) {
 		int targetNode = game.getPacmanCurrentNodeIndex();
 
+		myMoveArray[GHOST.BLINKY.ordinal()] = null;
 		if (game.doesGhostRequireAction(GHOST.BLINKY)) {
 			if (game.isGhostEdible(GHOST.BLINKY)) {
-				flee(myMoves, GHOST.BLINKY, game);
+				myMoveArray[GHOST.BLINKY.ordinal()] = flee(GHOST.BLINKY, game);
 			} else {
-				myMoves.put(GHOST.BLINKY,
-						game.getApproximateNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(GHOST.BLINKY),
-								targetNode, game.getGhostLastMoveMade(GHOST.BLINKY), DM.PATH));
+				myMoveArray[GHOST.BLINKY.ordinal()] = game.getApproximateNextMoveTowardsTarget(
+						game.getGhostCurrentNodeIndex(GHOST.BLINKY), targetNode,
+						game.getGhostLastMoveMade(GHOST.BLINKY), DM.PATH);
 			}
 		}
 
+		myMoveArray[GHOST.INKY.ordinal()] = null;
 		if (game.doesGhostRequireAction(GHOST.INKY)) {
 			if (game.isGhostEdible(GHOST.INKY)) {
-				flee(myMoves, GHOST.INKY, game);
+				myMoveArray[GHOST.INKY.ordinal()] = flee(GHOST.INKY, game);
 			} else {
-				myMoves.put(GHOST.INKY,
-						game.getApproximateNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(GHOST.INKY), targetNode,
-								game.getGhostLastMoveMade(GHOST.INKY), DM.MANHATTAN));
+				myMoveArray[GHOST.INKY.ordinal()] = game.getApproximateNextMoveTowardsTarget(
+						game.getGhostCurrentNodeIndex(GHOST.INKY), targetNode,
+						game.getGhostLastMoveMade(GHOST.INKY), DM.MANHATTAN);
 			}
 		}
 
+		myMoveArray[GHOST.PINKY.ordinal()] = null;
 		if (game.doesGhostRequireAction(GHOST.PINKY)) {
 			if (game.isGhostEdible(GHOST.PINKY)) {
-				flee(myMoves, GHOST.PINKY, game);
+				myMoveArray[GHOST.PINKY.ordinal()] = flee(GHOST.PINKY, game);
 			} else {
-				myMoves.put(GHOST.PINKY,
-						game.getApproximateNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(GHOST.PINKY), targetNode,
-								game.getGhostLastMoveMade(GHOST.PINKY), DM.EUCLID));
+				myMoveArray[GHOST.PINKY.ordinal()] = game.getApproximateNextMoveTowardsTarget(
+						game.getGhostCurrentNodeIndex(GHOST.PINKY), targetNode,
+						game.getGhostLastMoveMade(GHOST.PINKY), DM.EUCLID);
 			}
 		}
 
-		if (game.doesGhostRequireAction(GHOST.SUE)) {
-			myMoves.put(GHOST.SUE, moves[game.rnd.nextInt(moves.length)]);
-		}
+		myMoveArray[GHOST.SUE.ordinal()] = game.doesGhostRequireAction(GHOST.SUE)
+				? moves[game.rnd.nextInt(moves.length)]
+				: null;
 
-		return myMoves;
+		return myMoveArray;
 	}
 
-	private void flee(EnumMap<GHOST, MOVE> myMoves, GHOST ghost, Game game) {
-		myMoves.put(ghost, game.getApproximateNextMoveAwayFromTarget(game.getGhostCurrentNodeIndex(ghost),
-				game.getPacmanCurrentNodeIndex(), game.getGhostLastMoveMade(ghost), DM.PATH));
-
+	private MOVE flee(GHOST ghost, Game game) {
+		return game.getApproximateNextMoveAwayFromTarget(game.getGhostCurrentNodeIndex(ghost),
+				game.getPacmanCurrentNodeIndex(), game.getGhostLastMoveMade(ghost), DM.PATH);
 	}
 }
\ No newline at end of file
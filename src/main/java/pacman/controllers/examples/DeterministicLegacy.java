@@ -15,6 +15,8 @@ public class DeterministicLegacy extends NewGhostController {
 	EnumMap<GHOST, MOVE> myMoves = new EnumMap<GHOST, MOVE>(GHOST.class);
 	MOVE[] moves = MOVE.values();
 
+	MOVE[] myMoveArray = new MOVE[GHOSTS.length];
+
 	@Override
 	public void reset() {
 		super.reset();
@@ -33,28 +35,34 @@ public class DeterministicLegacy extends NewGhostController {
 	 * @see pacman.controllers.Controller#getMove(pacman.game.Game, long)
 	 */
 	public EnumMap<GHOST, MOVE> getMove(Game game, long timeDue) {
-		myMoves.clear();
+		return movesToMap(getMoveArray(game, timeDue), myMoves);
+	}
 
+	/*
+	 * Moves are decided here, so the game can be stepped without the map
+	 * 
+	 * @see pacman.controllers.NewGhostController#getMoveArray(pacman.game.Game, long)
+	 */
+	@Override
+	public MOVE[] getMoveArray(Game game, long timeDue) {
 		int targetNode = game.getPacmanCurrentNodeIndex();
 
-		if (game.doesGhostRequireAction(GHOST.BLINKY)) {
-			myMoves.put(GHOST.BLINKY,
-					game.getApproximateNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(GHOST.BLINKY), targetNode,
-							game.getGhostLastMoveMade(GHOST.BLINKY), DM.PATH));//
-		}
-		if (game.doesGhostRequireAction(GHOST.INKY)) {
-			myMoves.put(GHOST.INKY, game.getApproximateNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(GHOST.INKY),
-					targetNode, game.getGhostLastMoveMade(GHOST.INKY), DM.MANHATTAN));//
-		}
-		if (game.doesGhostRequireAction(GHOST.PINKY)) {
-			myMoves.put(GHOST.PINKY,
-					game.getApproximateNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(GHOST.PINKY), targetNode,
-							game.getGhostLastMoveMade(GHOST.PINKY), DM.EUCLID));//
-		}
-		if (game.doesGhostRequireAction(GHOST.SUE)) {
-			myMoves.put(GHOST.SUE, game.getApproximateNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(GHOST.SUE),
-					targetNode, game.getGhostLastMoveMade(GHOST.SUE), DM.PATH));//
-		}
-		return myMoves;
+		myMoveArray[GHOST.BLINKY.ordinal()] = game.doesGhostRequireAction(GHOST.BLINKY)
+				? game.getApproximateNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(GHOST.BLINKY), targetNode,
+						game.getGhostLastMoveMade(GHOST.BLINKY), DM.PATH)
+				: null;
+		myMoveArray[GHOST.INKY.ordinal()] = game.doesGhostRequireAction(GHOST.INKY)
+				? game.getApproximateNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(GHOST.INKY), targetNode,
+						game.getGhostLastMoveMade(GHOST.INKY), DM.MANHATTAN)
+				: null;
+		myMoveArray[GHOST.PINKY.ordinal()] = game.doesGhostRequireAction(GHOST.PINKY)
+				? game.getApproximateNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(GHOST.PINKY), targetNode,
+						game.getGhostLastMoveMade(GHOST.PINKY), DM.EUCLID)
+				: null;
+		myMoveArray[GHOST.SUE.ordinal()] = game.doesGhostRequireAction(GHOST.SUE)
+				? game.getApproximateNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(GHOST.SUE), targetNode,
+						game.getGhostLastMoveMade(GHOST.SUE), DM.PATH)
+				: null;
+		return myMoveArray;
 	}
 }
\ No newline at end of file
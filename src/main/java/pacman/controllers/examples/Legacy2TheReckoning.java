@@ -16,6 +16,7 @@ public class Legacy2TheReckoning extends NewGhostController {
 	public static final int PACMAN_DISTANCE = 10;
 	public static final int PILL_PROXIMITY = 15;
 	private final EnumMap<GHOST, MOVE> myMoves = new EnumMap<GHOST, MOVE>(GHOST.class);
+	private final MOVE[] myMoveArray = new MOVE[GHOSTS.length];
 	private final EnumMap<GHOST, Integer> cornerAllocation = new EnumMap<GHOST, Integer>(GHOST.class);
 
 	/**
@@ -34,16 +35,30 @@ public class Legacy2TheReckoning extends NewGhostController {
 	 * @see pacman.controllers.Controller#getMove(pacman.game.Game, long)
 	 */
 	public EnumMap<GHOST, MOVE> getMove(Game game, long timeDue) {
+		return movesToMap(getMoveArray(game, timeDue), myMoves);
+	}
+
+	/*
+	 * Moves are decided here, so the game can be stepped without the map.
+	 * The map used to be kept between calls, and the game writes the moves
+	 * the ghosts made back into it, so ghosts that need no action are given
+	 * the last move they made.
+	 * 
+	 * @see pacman.controllers.NewGhostController#getMoveArray(pacman.game.Game, long)
+	 */
+	@Override
+	public MOVE[] getMoveArray(Game game, long timeDue) {
 		int pacmanIndex = game.getPacmanCurrentNodeIndex();
 
-		for (GHOST ghost : GHOST.values()) {
+		for (GHOST ghost : GHOSTS) {
+			myMoveArray[ghost.ordinal()] = game.getGhostLastMoveMade(ghost);
 			if (game.doesGhostRequireAction(ghost)) {
 				int currentIndex = game.getGhostCurrentNodeIndex(ghost);
 
 				// if ghosts are all in close proximity and not near Ms Pac-Man,
 				// disperse
 				if (isCrowded(game) && !closeToMsPacMan(game, currentIndex)) {
-					myMoves.put(ghost, getRetreatActions(game, ghost)); // go
+					myMoveArray[ghost.ordinal()] = getRetreatActions(game, ghost); // go
 																		// towards
 																		// the
 																		// power
@@ -52,16 +67,16 @@ public class Legacy2TheReckoning extends NewGhostController {
 				} // if edible or Ms Pac-Man is close to power pill, move away
 					// from Ms Pac-Man
 				else if (game.getGhostEdibleTime(ghost) > 0 || closeToPower(game)) {
-					myMoves.put(ghost, game.getApproximateNextMoveAwayFromTarget(currentIndex, pacmanIndex,
-							game.getGhostLastMoveMade(ghost), DM.PATH)); // move
+					myMoveArray[ghost.ordinal()] = game.getApproximateNextMoveAwayFromTarget(currentIndex, pacmanIndex,
+							game.getGhostLastMoveMade(ghost), DM.PATH); // move
 																			// away
 																			// from
 																			// ms
 																			// pacman
 				} // else go towards Ms Pac-Man
 				else {
-					myMoves.put(ghost, game.getApproximateNextMoveTowardsTarget(currentIndex, pacmanIndex,
-							game.getGhostLastMoveMade(ghost), DM.PATH)); // go
+					myMoveArray[ghost.ordinal()] = game.getApproximateNextMoveTowardsTarget(currentIndex, pacmanIndex,
+							game.getGhostLastMoveMade(ghost), DM.PATH); // go
 																			// towards
 																			// ms
 																			// pacman
@@ -69,7 +84,7 @@ public class Legacy2TheReckoning extends NewGhostController {
 			}
 		}
 
-		return myMoves;
+		return myMoveArray;
 	}
 
 	/**
@@ -81,10 +96,12 @@ public class Legacy2TheReckoning extends NewGhostController {
 	 */
 	private boolean closeToPower(Game game) {
 		int pacmanIndex = game.getPacmanCurrentNodeIndex();
-		int[] powerPillIndices = game.getActivePowerPillsIndices();
+		// Checks each power pill instead of building the array of active ones
+		int[] powerPillIndices = game.getPowerPillIndices();
 
 		for (int i = 0; i < powerPillIndices.length; i++) {
-			if (game.getShortestPathDistance(powerPillIndices[i], pacmanIndex) < PILL_PROXIMITY) {
+			if (game.isPowerPillStillAvailable(i)
+					&& game.getShortestPathDistance(powerPillIndices[i], pacmanIndex) < PILL_PROXIMITY) {
 				return true;
 			}
 		}
@@ -117,13 +134,12 @@ public class Legacy2TheReckoning extends NewGhostController {
 	 * @return true, if is crowded
 	 */
 	private boolean isCrowded(Game game) {
-		GHOST[] ghosts = GHOST.values();
 		float distance = 0;
 
-		for (int i = 0; i < ghosts.length - 1; i++) {
-			for (int j = i + 1; j < ghosts.length; j++) {
-				distance += game.getShortestPathDistance(game.getGhostCurrentNodeIndex(ghosts[i]),
-						game.getGhostCurrentNodeIndex(ghosts[j]));
+		for (int i = 0; i < GHOSTS.length - 1; i++) {
+			for (int j = i + 1; j < GHOSTS.length; j++) {
+				distance += game.getShortestPathDistance(game.getGhostCurrentNodeIndex(GHOSTS[i]),
+						game.getGhostCurrentNodeIndex(GHOSTS[j]));
 			}
 		}
 
@@ -3,7 +3,7 @@ package pacman.controllers.examples;
 import edu.southwestern.util.random.RandomNumbers;
 import java.util.EnumMap;
 import java.util.Random;
-import pacman.controllers.Controller;
+import pacman.controllers.NewGhostController;
 import pacman.game.Game;
 import pacman.game.Constants.GHOST;
 import pacman.game.Constants.MOVE;
@@ -13,13 +13,14 @@ import static pacman.game.Constants.*;
 /**
  * The Class AttractRepelGhosts.
  */
-public final class PansyGhosts extends Controller<EnumMap<GHOST, MOVE>> {
+public final class PansyGhosts extends NewGhostController {
 
 	private final static float CONSISTENCY = 1.0f; // carry out intended move
 													// with this probability
 	private Random rnd = new Random(RandomNumbers.randomGenerator.nextInt());
 	private EnumMap<GHOST, MOVE> myMoves = new EnumMap<GHOST, MOVE>(GHOST.class);
 	private MOVE[] moves = MOVE.values();
+	private final MOVE[] myMoveArray = new MOVE[GHOSTS.length];
 
 	/*
 	 * (non-Javadoc)
@@ -27,25 +28,35 @@ public final class PansyGhosts extends Controller<EnumMap<GHOST, MOVE>> {
 	 * @see pacman.controllers.Controller#getMove(pacman.game.Game, long)
 	 */
 	public EnumMap<GHOST, MOVE> getMove(Game game, long timeDue) {
-		myMoves.clear();
+		return movesToMap(getMoveArray(game, timeDue), myMoves);
+	}
 
-		for (GHOST ghost : GHOST.values()) // for each ghost
+	/*
+	 * Moves are decided here, so the game can be stepped without the map
+	 * 
+	 * @see pacman.controllers.NewGhostController#getMoveArray(pacman.game.Game, long)
+	 */
+	@Override
+	public MOVE[] getMoveArray(Game game, long timeDue) {
+		for (GHOST ghost : GHOSTS) // for each ghost
 		{
+			myMoveArray[ghost.ordinal()] = null;
 			if (game.doesGhostRequireAction(ghost)) // if it requires an action
 			{
 				if (rnd.nextFloat() < CONSISTENCY) // approach/retreat from the
 													// current node that Ms
 													// Pac-Man is at
 				{
-					myMoves.put(ghost, game.getApproximateNextMoveAwayFromTarget(game.getGhostCurrentNodeIndex(ghost),
-							game.getPacmanCurrentNodeIndex(), game.getGhostLastMoveMade(ghost), DM.PATH));
+					myMoveArray[ghost.ordinal()] = game.getApproximateNextMoveAwayFromTarget(
+							game.getGhostCurrentNodeIndex(ghost), game.getPacmanCurrentNodeIndex(),
+							game.getGhostLastMoveMade(ghost), DM.PATH);
 				} else // else take a random action
 				{
-					myMoves.put(ghost, moves[rnd.nextInt(moves.length)]);
+					myMoveArray[ghost.ordinal()] = moves[rnd.nextInt(moves.length)];
 				}
 			}
 		}
 
-		return myMoves;
+		return myMoveArray;
 	}
 }
\ No newline at end of file
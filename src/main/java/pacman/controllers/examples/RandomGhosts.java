@@ -20,6 +20,7 @@ public final class RandomGhosts extends NewGhostController {
 
 	private EnumMap<GHOST, MOVE> moves = new EnumMap<GHOST, MOVE>(GHOST.class);
 	private MOVE[] allMoves = MOVE.values();
+	private final MOVE[] myMoveArray = new MOVE[GHOSTS.length];
 
 	/*
 	 * (non-Javadoc)
@@ -27,14 +28,22 @@ public final class RandomGhosts extends NewGhostController {
 	 * @see pacman.controllers.Controller#getMove(pacman.game.Game, long)
 	 */
 	public EnumMap<GHOST, MOVE> getMove(Game game, long timeDue) {
-		moves.clear();
+		return movesToMap(getMoveArray(game, timeDue), moves);
+	}
 
-		for (GHOST ghostType : GHOST.values()) {
-			if (game.doesGhostRequireAction(ghostType)) {
-				moves.put(ghostType, allMoves[game.rnd.nextInt(allMoves.length)]);
-			}
+	/*
+	 * Moves are decided here, so the game can be stepped without the map
+	 * 
+	 * @see pacman.controllers.NewGhostController#getMoveArray(pacman.game.Game, long)
+	 */
+	@Override
+	public MOVE[] getMoveArray(Game game, long timeDue) {
+		for (GHOST ghostType : GHOSTS) {
+			myMoveArray[ghostType.ordinal()] = game.doesGhostRequireAction(ghostType)
+					? allMoves[game.rnd.nextInt(allMoves.length)]
+					: null;
 		}
 
-		return moves;
+		return myMoveArray;
 	}
 }
\ No newline at end of file
@@ -24,6 +24,7 @@ public final class StarterGhosts extends NewGhostController {
 													// to a power pill, back
 													// away
 	EnumMap<GHOST, MOVE> myMoves = new EnumMap<GHOST, MOVE>(GHOST.class);
+	MOVE[] myMoveArray = new MOVE[GHOSTS.length];
 
 	@Override
 	public void reset() {
@@ -31,8 +32,22 @@ public final class StarterGhosts extends NewGhostController {
 	}
 
 	public EnumMap<GHOST, MOVE> getMove(Game game, long timeDue) {
-		for (GHOST ghost : GHOST.values()) // for each ghost
+		return movesToMap(getMoveArray(game, timeDue), myMoves);
+	}
+
+	/*
+	 * Moves are decided here, so the game can be stepped without the map.
+	 * The map used to be kept between calls, and the game writes the moves
+	 * the ghosts made back into it, so ghosts that need no action are given
+	 * the last move they made.
+	 * 
+	 * @see pacman.controllers.NewGhostController#getMoveArray(pacman.game.Game, long)
+	 */
+	@Override
+	public MOVE[] getMoveArray(Game game, long timeDue) {
+		for (GHOST ghost : GHOSTS) // for each ghost
 		{
+			myMoveArray[ghost.ordinal()] = game.getGhostLastMoveMade(ghost);
 			if (game.doesGhostRequireAction(ghost)) // if ghost requires an
 													// action
 			{
@@ -52,29 +67,30 @@ public final class StarterGhosts extends NewGhostController {
 																				// power
 																				// pill
 				{
-					myMoves.put(ghost, game.getApproximateNextMoveAwayFromTarget(game.getGhostCurrentNodeIndex(ghost),
-							game.getPacmanCurrentNodeIndex(), game.getGhostLastMoveMade(ghost), DM.PATH));
+					myMoveArray[ghost.ordinal()] = game.getApproximateNextMoveAwayFromTarget(
+							game.getGhostCurrentNodeIndex(ghost), game.getPacmanCurrentNodeIndex(),
+							game.getGhostLastMoveMade(ghost), DM.PATH);
 				} else {
 					if (game.rnd.nextFloat() < CONSISTENCY) // attack Ms Pac-Man
 															// otherwise (with
 															// certain
 															// probability)
 					{
-						myMoves.put(ghost,
-								game.getApproximateNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(ghost),
-										game.getPacmanCurrentNodeIndex(), game.getGhostLastMoveMade(ghost), DM.PATH));
+						myMoveArray[ghost.ordinal()] = game.getApproximateNextMoveTowardsTarget(
+								game.getGhostCurrentNodeIndex(ghost), game.getPacmanCurrentNodeIndex(),
+								game.getGhostLastMoveMade(ghost), DM.PATH);
 					} else // else take a random legal action (to be less
 							// predictable)
 					{
 						MOVE[] possibleMoves = game.getPossibleMoves(game.getGhostCurrentNodeIndex(ghost),
 								game.getGhostLastMoveMade(ghost));
-						myMoves.put(ghost, possibleMoves[game.rnd.nextInt(possibleMoves.length)]);
+						myMoveArray[ghost.ordinal()] = possibleMoves[game.rnd.nextInt(possibleMoves.length)];
 					}
 				}
 			}
 		}
 
-		return myMoves;
+		return myMoveArray;
 	}
 
 	// This helper function checks if Ms Pac-Man is close to an available power
@@ -22,34 +22,43 @@ public class VeryRandomLegacy extends NewGhostController {
 	EnumMap<GHOST, MOVE> myMoves = new EnumMap<GHOST, MOVE>(GHOST.class);
 	MOVE[] moves = MOVE.values();
 
+	MOVE[] myMoveArray = new MOVE[GHOSTS.length];
+
 	/*
 	 * (non-Javadoc)
 	 * 
 	 * @see pacman.controllers.Controller#getMove(pacman.game.Game, long)
 	 */
 	public EnumMap<GHOST, MOVE> getMove(Game game, long timeDue) {
-		myMoves.clear();
+		return movesToMap(getMoveArray(game, timeDue), myMoves);
+	}
 
+	/*
+	 * Moves are decided here, so the game can be stepped without the map
+	 * 
+	 * @see pacman.controllers.NewGhostController#getMoveArray(pacman.game.Game, long)
+	 */
+	@Override
+	public MOVE[] getMoveArray(Game game, long timeDue) {
 		int targetNode = game.getPacmanCurrentNodeIndex();
 
-		if (game.doesGhostRequireAction(GHOST.BLINKY)) {
-			myMoves.put(GHOST.BLINKY,
-					game.getApproximateNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(GHOST.BLINKY), targetNode,
-							game.getGhostLastMoveMade(GHOST.BLINKY), DM.PATH));
-		}
+		myMoveArray[GHOST.BLINKY.ordinal()] = game.doesGhostRequireAction(GHOST.BLINKY)
+				? game.getApproximateNextMoveTowardsTarget(game.getGhostCurrentNodeIndex(GHOST.BLINKY), targetNode,
+						game.getGhostLastMoveMade(GHOST.BLINKY), DM.PATH)
+				: null;
 
-		if (game.doesGhostRequireAction(GHOST.INKY)) {
-			myMoves.put(GHOST.INKY, moves[game.rnd.nextInt(moves.length)]);
-		}
+		myMoveArray[GHOST.INKY.ordinal()] = game.doesGhostRequireAction(GHOST.INKY)
+				? moves[game.rnd.nextInt(moves.length)]
+				: null;
 
-		if (game.doesGhostRequireAction(GHOST.PINKY)) {
-			myMoves.put(GHOST.PINKY, moves[game.rnd.nextInt(moves.length)]);
-		}
+		myMoveArray[GHOST.PINKY.ordinal()] = game.doesGhostRequireAction(GHOST.PINKY)
+				? moves[game.rnd.nextInt(moves.length)]
+				: null;
 
-		if (game.doesGhostRequireAction(GHOST.SUE)) {
-			myMoves.put(GHOST.SUE, moves[game.rnd.nextInt(moves.length)]);
-		}
+		myMoveArray[GHOST.SUE.ordinal()] = game.doesGhostRequireAction(GHOST.SUE)
+				? moves[game.rnd.nextInt(moves.length)]
+				: null;
 
-		return myMoves;
+		return myMoveArray;
 	}
 }
\ No newline at end of file
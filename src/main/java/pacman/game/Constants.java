@@ -141,6 +141,7 @@ public final class Constants {
 	// for Maze
 	public static final String pathMazes = "data/pacman/mazes";
 	public static final String pathDistances = "data/pacman/distances";
+	public static final String pathBinary = "data/pacman/binary"; // generated by MazeData
 	public static final String[] nodeNames = { "a", "b", "c", "d" };
 	public static final String[] distNames = { "da", "db", "dc", "dd" };
 	// for GameView
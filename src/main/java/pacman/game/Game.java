@@ -14,7 +14,7 @@ import edu.southwestern.util.random.ResumableRandom;
 import edu.southwestern.util.stats.StatisticsUtilities;
 import java.awt.Color;
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import pacman.Executor;
 import static pacman.game.Constants.*;
 import pacman.game.Constants.DM;
@@ -60,6 +60,8 @@ public final class Game {
 	private int levelCount2; // used with justMaze so difficulty is correct
 	private boolean gameOver, pacmanWasEaten, pillWasEaten, powerPillWasEaten;
 	private EnumMap<GHOST, Boolean> ghostsEaten;
+	// changes whenever positions, the maze or any game option change, so that cached queries can be invalidated
+	private int stateVersion;
 	// Jacob's parameters
 	public LinkedList<Integer> pillEatTimes;
 	public LinkedList<Integer> ghostEatTimes;
@@ -91,8 +93,13 @@ public final class Game {
 	// structures for clarity
 	private PacMan pacman;
 	private EnumMap<GHOST, Ghost> ghosts;
-	// mazes are only loaded once since they don't change over time
-	private static Maze[] mazes = new Maze[NUM_MAZES];
+	// Same ghosts as in the map, indexed by GHOST ordinal, so a step does not need map iterators
+	private Ghost[] ghostArray = new Ghost[NUM_GHOSTS];
+	// Reused to complete the ghost moves of each step
+	private MOVE[] ghostMoveScratch = new MOVE[NUM_GHOSTS];
+	// mazes are only loaded once since they don't change over time,
+	// and each one is loaded on first use
+	private static final AtomicReferenceArray<Maze> mazes = new AtomicReferenceArray<Maze>(NUM_MAZES);
 	private Maze currentMaze;
 	boolean pacManGainsLives = Parameters.parameters.booleanParameter("pacManGainsLives");
 	private ArrayList<Integer> scores;
@@ -103,29 +110,106 @@ public final class Game {
 	// For trouble shooting
 	// public static ArrayList<Integer> color = new ArrayList<Integer>();
 
-	static {
-		for (int i = 0; i < mazes.length; i++) {
-			mazes[i] = new Maze(i);
+	private static final AtomicReferenceArray<PathsCache> caches = new AtomicReferenceArray<PathsCache>(NUM_MAZES);
+	private static final AtomicReferenceArray<MazeTables> mazeTables = new AtomicReferenceArray<MazeTables>(NUM_MAZES);
+
+	/**
+	 * Maze with the given index, loaded the first time it is needed
+	 *
+	 * @param index maze index from 0 to NUM_MAZES - 1
+	 * @return the shared maze
+	 */
+	public static Maze getMaze(int index) {
+		Maze maze = mazes.get(index);
+		if (maze == null) {
+			synchronized (mazes) {
+				maze = mazes.get(index);
+				if (maze == null) {
+					maze = new Maze(index);
+					mazes.set(index, maze);
+				}
+			}
 		}
+		return maze;
 	}
 
-	public static PathsCache[] caches = new PathsCache[NUM_MAZES];
+	/**
+	 * Junction path cache for the maze with the given index, loaded
+	 * (or computed) the first time it is needed
+	 *
+	 * @param index maze index from 0 to NUM_MAZES - 1
+	 * @return the shared path cache
+	 */
+	public static PathsCache getPathsCache(int index) {
+		PathsCache cache = caches.get(index);
+		if (cache == null) {
+			Maze maze = getMaze(index); // Outside of the lock, since computing the cache creates Games
+			synchronized (caches) {
+				cache = caches.get(index);
+				if (cache == null) {
+					cache = MazeData.pathsCache(index, maze);
+					caches.set(index, cache);
+				}
+			}
+		}
+		return cache;
+	}
 
-	static {
-		resetPathCaches();
+	/**
+	 * Sensor tables of static maze structure for the maze with the given
+	 * index, loaded (or computed) the first time they are needed
+	 *
+	 * @param index maze index from 0 to NUM_MAZES - 1
+	 * @return the shared tables
+	 */
+	public static MazeTables getMazeTables(int index) {
+		MazeTables tables = mazeTables.get(index);
+		if (tables == null) {
+			Maze maze = getMaze(index);
+			PathsCache cache = getPathsCache(index);
+			synchronized (mazeTables) {
+				tables = mazeTables.get(index);
+				if (tables == null) {
+					tables = MazeData.tables(index, maze, cache);
+					mazeTables.set(index, tables);
+				}
+			}
+		}
+		return tables;
+	}
+
+	/**
+	 * @return sensor tables of the current maze
+	 */
+	public MazeTables getMazeTables() {
+		return getMazeTables(mazeIndex);
 	}
 
 	public static int amountCachedPathData() {
 		int total = 0;
-		for (int i = 0; i < mazes.length; i++) {
-			total += caches[i].junctionIndexConverter.size();
+		for (int i = 0; i < NUM_MAZES; i++) {
+			total += getPathsCache(i).junctionIndexConverter.size();
 		}
 		return total;
 	}
 
+	/**
+	 * Drop the path caches and sensor tables so that they are loaded again on next use
+	 */
 	public static void resetPathCaches() {
-		for (int i = 0; i < mazes.length; i++) {
-			caches[i] = new PathsCache(i);
+		for (int i = 0; i < NUM_MAZES; i++) {
+			caches.set(i, null);
+			mazeTables.set(i, null);
+		}
+	}
+
+	/**
+	 * Drop all maze data so that it is loaded again on next use
+	 */
+	public static void resetMazes() {
+		resetPathCaches();
+		for (int i = 0; i < NUM_MAZES; i++) {
+			mazes.set(i, null);
 		}
 	}
 
@@ -173,60 +257,74 @@ public final class Game {
 	}
 
 	public void setSimultaneousLairExit(boolean b) {
+		stateVersion++;
 		simultaneousLairExit = b;
 	}
 
 	public void setRandomLairExit(boolean b) {
+		stateVersion++;
 		randomLairExit = b;
 	}
 
 	public void setExitLairEdible(boolean b) {
+		stateVersion++;
 		exitLairEdible = b;
 	}
 
 	public void playWithoutPowerPills() {
+		stateVersion++;
 		noPowerPills = true;
 		powerPills.clear();
 	}
 
 	public void playWithPowerPills() {
+		stateVersion++;
 		noPowerPills = false;
 	}
 
 	public void setEndAfterPowerPillsEaten(boolean b) {
+		stateVersion++;
 		endAfterPowerPillsEaten = b;
 	}
 
 	public void setEndAfterGhostEatingChances(boolean b) {
+		stateVersion++;
 		endAfterGhostEatingChances = b;
 	}
 
 	public void playWithoutPills() {
+		stateVersion++;
 		playWithoutPillsUntilGhostsThreaten = true;
 		pills.clear();
 	}
 
 	public void playWithPills() {
+		stateVersion++;
 		playWithoutPillsUntilGhostsThreaten = false;
 	}
 
 	public void setEndOnlyOnTimeLimit(boolean b) {
+		stateVersion++;
 		endOnlyOnTimeLimit = b;
 	}
 
 	public void setGhostsStartOutsideLair(boolean b) {
+		stateVersion++;
 		ghostsStartOutsideLair = b;
 	}
 
 	public void setOnlyOneLairExitAllowed(boolean b) {
+		stateVersion++;
 		onlyOneLairExitAllowed = b;
 	}
 
 	public void setLairExitDatabase(boolean b) {
+		stateVersion++;
 		lairExitDatabase = b;
 	}
 
 	public void setRemovePillsNearPowerPills(boolean b) {
+		stateVersion++;
 		removePillsNearPowerPills = b;
 		if (b)
 			removePillsNearPowerPills();
@@ -273,7 +371,7 @@ public final class Game {
 			ghostsEaten.put(ghost, false);
 		}
 
-		_setPills(currentMaze = mazes[mazeIndex]);
+		_setPills(currentMaze = getMaze(mazeIndex));
 		_initGhosts();
 
 		int startingNode = currentMaze.initialPacManNodeIndex;
@@ -398,7 +496,7 @@ public final class Game {
 		}
 		levelCount++;
 		levelCount2++;
-		currentMaze = mazes[mazeIndex];
+		currentMaze = getMaze(mazeIndex);
 
 		currentLevelTime = 0;
 		ghostEatMultiplier = 1;
@@ -482,12 +580,32 @@ public final class Game {
 	 * _init ghosts.
 	 */
 	private void _initGhosts() {
-		ghosts = new EnumMap<GHOST, Ghost>(GHOST.class);
+		if (ghosts == null) {
+			ghosts = new EnumMap<GHOST, Ghost>(GHOST.class);
+			for (GHOST ghostType : GHOST_TYPES) {
+				ghosts.put(ghostType, new Ghost(ghostType, 0, 0, 0, MOVE.NEUTRAL));
+			}
+			_indexGhosts();
+		}
 
-		for (GHOST ghostType : GHOST.values()) {
-			ghosts.put(ghostType, new Ghost(ghostType, currentMaze.lairNodeIndex, 0,
-					(int) (ghostType.initialLairTime * (Math.pow(LAIR_REDUCTION, levelCount2 % LEVEL_RESET_REDUCTION))),
-					MOVE.NEUTRAL));
+		// Copies get ghosts of their own, so the ghosts are reset in place
+		// and losing a life does not allocate
+		for (Ghost ghost : ghostArray) {
+			ghost.currentNodeIndex = currentMaze.lairNodeIndex;
+			ghost.edibleTime = 0;
+			ghost.lairTime = (int) (ghost.type.initialLairTime
+					* (Math.pow(LAIR_REDUCTION, levelCount2 % LEVEL_RESET_REDUCTION)));
+			ghost.lastMoveMade = MOVE.NEUTRAL;
+		}
+	}
+
+	/**
+	 * Point ghostArray at the ghosts currently in the map. Needs to be called
+	 * whenever the map is replaced.
+	 */
+	private void _indexGhosts() {
+		for (GHOST ghostType : GHOST_TYPES) {
+			ghostArray[ghostType.ordinal()] = ghosts.get(ghostType);
 		}
 	}
 
@@ -571,6 +689,7 @@ public final class Game {
 	 *            The game state represented as a string
 	 */
 	public void setGameState(String gameState) {
+		stateVersion++;
 		// System.out.println("setGameState()");
 		String[] values = gameState.split(",");
 
@@ -618,8 +737,9 @@ public final class Game {
 					new Ghost(ghostType, Integer.parseInt(values[index++]), Integer.parseInt(values[index++]),
 							Integer.parseInt(values[index++]), MOVE.valueOf(values[index++])));
 		}
+		_indexGhosts();
 
-		_setPills(currentMaze = mazes[mazeIndex]);
+		_setPills(currentMaze = getMaze(mazeIndex));
 
 		for (int i = 0; i < values[index].length(); i++) {
 			if (values[index].charAt(i) == '1') {
@@ -708,10 +828,229 @@ public final class Game {
 			copy.ghosts.put(ghostType, ghosts.get(ghostType).copy());
 			copy.ghostsEaten.put(ghostType, ghostsEaten.get(ghostType));
 		}
+		copy._indexGhosts();
 
 		return copy;
 	}
 
+	// Layout of the packed game state used by saveState and restoreState
+	private static final int PACKED_SEED = 0; // two ints
+	private static final int PACKED_MAZE = 2;
+	private static final int PACKED_LEVEL = 3;
+	private static final int PACKED_LEVEL2 = 4;
+	private static final int PACKED_LEVEL_TIME = 5;
+	private static final int PACKED_TOTAL_TIME = 6;
+	private static final int PACKED_SCORE = 7;
+	private static final int PACKED_GHOST_MULTIPLIER = 8;
+	private static final int PACKED_LAST_REVERSAL = 9;
+	private static final int PACKED_FLAGS = 10;
+	private static final int PACKED_LURE_FITNESS = 11; // two ints
+	private static final int PACKED_DEAD_SPACE = 13; // two ints
+	private static final int PACKED_TIME_PILL_REWARD = 15;
+	private static final int PACKED_TIME_GHOST_REWARD = 16;
+	private static final int PACKED_GHOST_REWARD = 17;
+	private static final int PACKED_GHOST_REGRET = 18;
+	private static final int PACKED_EATEN_GHOSTS = 19;
+	private static final int PACKED_SPECIFIC_EATEN = 20; // one per ghost
+	private static final int PACKED_FAR_POWER_PILLS = 24;
+	private static final int PACKED_IMPROPER_POWER_PILLS = 25;
+	private static final int PACKED_PROPER_POWER_PILLS = 26;
+	private static final int PACKED_EATEN_PILLS = 27;
+	private static final int PACKED_MOVES = 28;
+	private static final int PACKED_PACMAN = 29; // node, move, lives
+	private static final int PACKED_GHOSTS = 32; // node, edible time, lair time, move for each ghost
+	private static final int PACKED_POWER_PILLS = 48;
+	private static final int PACKED_PILLS = 49; // one bit per pill
+	private static final int MAX_PILLS = 256;
+	private static final MOVE[] MOVES = MOVE.values();
+	private static final GHOST[] GHOST_TYPES = GHOST.values();
+	/**
+	 * Number of ints in a packed game state
+	 */
+	public static final int PACKED_STATE_LENGTH = PACKED_PILLS + MAX_PILLS / 32;
+
+	// Bits of the packed flags
+	private static final int FLAG_GAME_OVER = 1;
+	private static final int FLAG_PACMAN_EATEN = 1 << 1;
+	private static final int FLAG_PILL_EATEN = 1 << 2;
+	private static final int FLAG_POWER_PILL_EATEN = 1 << 3;
+	private static final int FLAG_EXTRA_LIFE = 1 << 4;
+	private static final int FLAG_NO_PILLS_UNTIL_THREAT = 1 << 5;
+	private static final int FLAG_NO_POWER_PILLS = 1 << 6;
+	private static final int FLAG_END_AFTER_GHOST_CHANCES = 1 << 7;
+	private static final int FLAG_END_AFTER_POWER_PILLS = 1 << 8;
+	private static final int FLAG_GHOSTS_START_OUTSIDE = 1 << 9;
+	private static final int FLAG_ONE_LAIR_EXIT = 1 << 10;
+	private static final int FLAG_GHOST_EATEN = 1 << 11; // shifted by ghost ordinal
+
+	/**
+	 * Writes everything that copy() would copy, plus the flags of the last
+	 * time step, into an array of PACKED_STATE_LENGTH ints. Saving allocates
+	 * nothing, and a saved state can be copied with a single array copy, so
+	 * look-ahead controllers can keep many states cheaply and return to them
+	 * with restoreState.
+	 *
+	 * @param state
+	 *            array of at least PACKED_STATE_LENGTH ints, filled by side
+	 *            effect
+	 * @return the state array
+	 */
+	public int[] saveState(int[] state) {
+		long seed = rnd.getSeed();
+		state[PACKED_SEED] = (int) (seed >>> 32);
+		state[PACKED_SEED + 1] = (int) seed;
+		state[PACKED_MAZE] = mazeIndex;
+		state[PACKED_LEVEL] = levelCount;
+		state[PACKED_LEVEL2] = levelCount2;
+		state[PACKED_LEVEL_TIME] = currentLevelTime;
+		state[PACKED_TOTAL_TIME] = totalTime;
+		state[PACKED_SCORE] = score;
+		state[PACKED_GHOST_MULTIPLIER] = ghostEatMultiplier;
+		state[PACKED_LAST_REVERSAL] = timeOfLastGlobalReversal;
+
+		int flags = 0;
+		flags |= gameOver ? FLAG_GAME_OVER : 0;
+		flags |= pacmanWasEaten ? FLAG_PACMAN_EATEN : 0;
+		flags |= pillWasEaten ? FLAG_PILL_EATEN : 0;
+		flags |= powerPillWasEaten ? FLAG_POWER_PILL_EATEN : 0;
+		flags |= pacman.hasReceivedExtraLife ? FLAG_EXTRA_LIFE : 0;
+		flags |= playWithoutPillsUntilGhostsThreaten ? FLAG_NO_PILLS_UNTIL_THREAT : 0;
+		flags |= noPowerPills ? FLAG_NO_POWER_PILLS : 0;
+		flags |= endAfterGhostEatingChances ? FLAG_END_AFTER_GHOST_CHANCES : 0;
+		flags |= endAfterPowerPillsEaten ? FLAG_END_AFTER_POWER_PILLS : 0;
+		flags |= ghostsStartOutsideLair ? FLAG_GHOSTS_START_OUTSIDE : 0;
+		flags |= onlyOneLairExitAllowed ? FLAG_ONE_LAIR_EXIT : 0;
+		for (GHOST ghostType : GHOST.values()) {
+			flags |= ghostsEaten.get(ghostType) ? FLAG_GHOST_EATEN << ghostType.ordinal() : 0;
+		}
+		state[PACKED_FLAGS] = flags;
+
+		long lure = Double.doubleToRawLongBits(lureDistanceFitness);
+		state[PACKED_LURE_FITNESS] = (int) (lure >>> 32);
+		state[PACKED_LURE_FITNESS + 1] = (int) lure;
+		state[PACKED_DEAD_SPACE] = (int) (timeInDeadSpace >>> 32);
+		state[PACKED_DEAD_SPACE + 1] = (int) timeInDeadSpace;
+		state[PACKED_TIME_PILL_REWARD] = timePillReward;
+		state[PACKED_TIME_GHOST_REWARD] = timeGhostReward;
+		state[PACKED_GHOST_REWARD] = ghostReward;
+		state[PACKED_GHOST_REGRET] = ghostRegret;
+		state[PACKED_EATEN_GHOSTS] = eatenGhosts;
+		System.arraycopy(specificEatenGhosts, 0, state, PACKED_SPECIFIC_EATEN, NUM_GHOSTS);
+		state[PACKED_FAR_POWER_PILLS] = powerPillsEatenWhenGhostFar;
+		state[PACKED_IMPROPER_POWER_PILLS] = improperlyEatenPowerPills;
+		state[PACKED_PROPER_POWER_PILLS] = properlyEatenPowerPills;
+		state[PACKED_EATEN_PILLS] = eatenPills;
+		state[PACKED_MOVES] = moves;
+
+		state[PACKED_PACMAN] = pacman.currentNodeIndex;
+		state[PACKED_PACMAN + 1] = pacman.lastMoveMade.ordinal();
+		state[PACKED_PACMAN + 2] = pacman.numberOfLivesRemaining;
+		for (Ghost ghost : ghostArray) {
+			int offset = PACKED_GHOSTS + 4 * ghost.type.ordinal();
+			state[offset] = ghost.currentNodeIndex;
+			state[offset + 1] = ghost.edibleTime;
+			state[offset + 2] = ghost.lairTime;
+			state[offset + 3] = ghost.lastMoveMade.ordinal();
+		}
+
+		if (currentMaze.pillIndices.length > MAX_PILLS || currentMaze.powerPillIndices.length > 32) {
+			throw new IllegalStateException("Maze " + currentMaze.name + " has too many pills to pack");
+		}
+		state[PACKED_POWER_PILLS] = 0;
+		for (int i = powerPills.nextSetBit(0); i >= 0; i = powerPills.nextSetBit(i + 1)) {
+			state[PACKED_POWER_PILLS] |= 1 << i;
+		}
+		Arrays.fill(state, PACKED_PILLS, PACKED_STATE_LENGTH, 0);
+		for (int i = pills.nextSetBit(0); i >= 0; i = pills.nextSetBit(i + 1)) {
+			state[PACKED_PILLS + (i >>> 5)] |= 1 << (i & 31);
+		}
+		return state;
+	}
+
+	/**
+	 * Return to a state written by saveState, which may come from this game
+	 * or from a copy of it. Pac-Man and the ghosts are updated in place, so
+	 * nothing is allocated. Like copy(), the bookkeeping lists used for
+	 * logging (pill and ghost eating times, scores per level) are not part of
+	 * the packed state and keep their current contents.
+	 *
+	 * @param state
+	 *            packed state
+	 */
+	public void restoreState(int[] state) {
+		stateVersion++;
+		rnd.hardSetSeed(((long) state[PACKED_SEED] << 32) | (state[PACKED_SEED + 1] & 0xFFFFFFFFL));
+		if (currentMaze == null || mazeIndex != state[PACKED_MAZE]) {
+			currentMaze = getMaze(state[PACKED_MAZE]);
+		}
+		mazeIndex = state[PACKED_MAZE];
+		levelCount = state[PACKED_LEVEL];
+		levelCount2 = state[PACKED_LEVEL2];
+		currentLevelTime = state[PACKED_LEVEL_TIME];
+		totalTime = state[PACKED_TOTAL_TIME];
+		score = state[PACKED_SCORE];
+		ghostEatMultiplier = state[PACKED_GHOST_MULTIPLIER];
+		timeOfLastGlobalReversal = state[PACKED_LAST_REVERSAL];
+
+		int flags = state[PACKED_FLAGS];
+		gameOver = (flags & FLAG_GAME_OVER) != 0;
+		pacmanWasEaten = (flags & FLAG_PACMAN_EATEN) != 0;
+		pillWasEaten = (flags & FLAG_PILL_EATEN) != 0;
+		powerPillWasEaten = (flags & FLAG_POWER_PILL_EATEN) != 0;
+		playWithoutPillsUntilGhostsThreaten = (flags & FLAG_NO_PILLS_UNTIL_THREAT) != 0;
+		noPowerPills = (flags & FLAG_NO_POWER_PILLS) != 0;
+		endAfterGhostEatingChances = (flags & FLAG_END_AFTER_GHOST_CHANCES) != 0;
+		endAfterPowerPillsEaten = (flags & FLAG_END_AFTER_POWER_PILLS) != 0;
+		ghostsStartOutsideLair = (flags & FLAG_GHOSTS_START_OUTSIDE) != 0;
+		onlyOneLairExitAllowed = (flags & FLAG_ONE_LAIR_EXIT) != 0;
+		for (GHOST ghostType : GHOST.values()) {
+			ghostsEaten.put(ghostType, (flags & (FLAG_GHOST_EATEN << ghostType.ordinal())) != 0);
+		}
+
+		lureDistanceFitness = Double.longBitsToDouble(((long) state[PACKED_LURE_FITNESS] << 32)
+				| (state[PACKED_LURE_FITNESS + 1] & 0xFFFFFFFFL));
+		timeInDeadSpace = ((long) state[PACKED_DEAD_SPACE] << 32) | (state[PACKED_DEAD_SPACE + 1] & 0xFFFFFFFFL);
+		timePillReward = state[PACKED_TIME_PILL_REWARD];
+		timeGhostReward = state[PACKED_TIME_GHOST_REWARD];
+		ghostReward = state[PACKED_GHOST_REWARD];
+		ghostRegret = state[PACKED_GHOST_REGRET];
+		eatenGhosts = state[PACKED_EATEN_GHOSTS];
+		System.arraycopy(state, PACKED_SPECIFIC_EATEN, specificEatenGhosts, 0, NUM_GHOSTS);
+		powerPillsEatenWhenGhostFar = state[PACKED_FAR_POWER_PILLS];
+		improperlyEatenPowerPills = state[PACKED_IMPROPER_POWER_PILLS];
+		properlyEatenPowerPills = state[PACKED_PROPER_POWER_PILLS];
+		eatenPills = state[PACKED_EATEN_PILLS];
+		moves = state[PACKED_MOVES];
+
+		pacman.currentNodeIndex = state[PACKED_PACMAN];
+		pacman.lastMoveMade = MOVES[state[PACKED_PACMAN + 1]];
+		pacman.numberOfLivesRemaining = state[PACKED_PACMAN + 2];
+		pacman.hasReceivedExtraLife = (flags & FLAG_EXTRA_LIFE) != 0;
+		for (Ghost ghost : ghostArray) {
+			int offset = PACKED_GHOSTS + 4 * ghost.type.ordinal();
+			ghost.currentNodeIndex = state[offset];
+			ghost.edibleTime = state[offset + 1];
+			ghost.lairTime = state[offset + 2];
+			ghost.lastMoveMade = MOVES[state[offset + 3]];
+		}
+
+		powerPills.clear();
+		for (int i = 0; i < currentMaze.powerPillIndices.length; i++) {
+			if ((state[PACKED_POWER_PILLS] & (1 << i)) != 0) {
+				powerPills.set(i);
+			}
+		}
+		pills.clear();
+		for (int word = PACKED_PILLS; word < PACKED_STATE_LENGTH; word++) {
+			int bits = state[word];
+			while (bits != 0) {
+				int bit = Integer.numberOfTrailingZeros(bits);
+				pills.set(((word - PACKED_PILLS) << 5) + bit);
+				bits &= bits - 1;
+			}
+		}
+	}
+
 	/////////////////////////////////////////////////////////////////////////////
 	/////////////////////////// Game-engine //////////////////////////////////
 	/////////////////////////////////////////////////////////////////////////////
@@ -726,6 +1065,44 @@ public final class Game {
 	 *            The moves supplied by the ghosts controller
 	 */
 	public void advanceGame(MOVE pacManMove, EnumMap<GHOST, MOVE> ghostMoves) {
+		if (_specialTermination(pacManMove)) {
+			return;
+		}
+		updatePacMan(pacManMove);
+		updateGhosts(ghostMoves);
+		_finishAdvance();
+	}
+
+	/**
+	 * Same as advanceGame with an EnumMap, but with the ghost moves in an
+	 * array indexed by GHOST ordinal. A null entry means the ghost was given
+	 * no move, and a null array means every ghost repeats its last move. The
+	 * array is not modified, and the step does not allocate, so a controller
+	 * can hand over the same array every tick.
+	 *
+	 * @param pacManMove
+	 *            The move supplied by the Ms Pac-Man controller
+	 * @param ghostMoves
+	 *            The moves supplied by the ghosts controller
+	 */
+	public void advanceGame(MOVE pacManMove, MOVE[] ghostMoves) {
+		if (_specialTermination(pacManMove)) {
+			return;
+		}
+		updatePacMan(pacManMove);
+		updateGhosts(ghostMoves);
+		_finishAdvance();
+	}
+
+	private void _finishAdvance() {
+		updateGame();
+		if (TrainingCampManager.recentStates != null) {
+			TrainingCampManager.recentStates.giveCurrentState(this);
+		}
+		moves++;
+	}
+
+	private boolean _specialTermination(MOVE pacManMove) {
 		// System.out.println("Seed: " + rnd.getSeed());
 		// System.out.println(this.getGameState());
 		// System.out.println(this.getCurrentLevelTime() +
@@ -743,18 +1120,18 @@ public final class Game {
 				System.out.println("NULL Action");
 			}
 			gameOver = true;
-			return;
+			return true;
 		}
+		return false;
+	}
+
+	public void advanceGameWithoutReverse(MOVE pacManMove, EnumMap<GHOST, MOVE> ghostMoves) {
 		updatePacMan(pacManMove);
-		updateGhosts(ghostMoves);
+		updateGhostsWithoutReverse(ghostMoves);
 		updateGame();
-		if (TrainingCampManager.recentStates != null) {
-			TrainingCampManager.recentStates.giveCurrentState(this);
-		}
-		moves++;
 	}
 
-	public void advanceGameWithoutReverse(MOVE pacManMove, EnumMap<GHOST, MOVE> ghostMoves) {
+	public void advanceGameWithoutReverse(MOVE pacManMove, MOVE[] ghostMoves) {
 		updatePacMan(pacManMove);
 		updateGhostsWithoutReverse(ghostMoves);
 		updateGame();
@@ -766,6 +1143,12 @@ public final class Game {
 		updateGame();
 	}
 
+	public void advanceGameWithForcedReverse(MOVE pacManMove, MOVE[] ghostMoves) {
+		updatePacMan(pacManMove);
+		updateGhostsWithForcedReverse(ghostMoves);
+		updateGame();
+	}
+
 	public void advanceGameWithPowerPillReverseOnly(MOVE pacManMove, EnumMap<GHOST, MOVE> ghostMoves) {
 		updatePacMan(pacManMove);
 
@@ -786,6 +1169,7 @@ public final class Game {
 	 *            The move supplied by the Ms Pac-Man controller
 	 */
 	public void updatePacMan(MOVE pacManMove) {
+		stateVersion++;
 		_updatePacMan(pacManMove); // move pac-man
 		_eatPill(); // eat a pill
 		_eatPowerPill(); // eat a power pill
@@ -802,21 +1186,70 @@ public final class Game {
 	 *            The moves supplied by the ghosts controller
 	 */
 	public void updateGhosts(EnumMap<GHOST, MOVE> ghostMoves) {
-		ghostMoves = _completeGhostMoves(ghostMoves);
+		updateGhosts(_movesFromMap(ghostMoves));
+		_movesToMap(ghostMoves);
+	}
+
+	/**
+	 * Updates the states of the ghosts given moves indexed by GHOST ordinal.
+	 *
+	 * @param ghostMoves
+	 *            The moves supplied by the ghosts controller, or null
+	 */
+	public void updateGhosts(MOVE[] ghostMoves) {
+		stateVersion++;
+		MOVE[] moves = _completeGhostMoves(ghostMoves);
 
-		if (!_reverseGhosts(ghostMoves, false)) {
-			_updateGhosts(ghostMoves);
+		if (!_reverseGhosts(moves, false)) {
+			_updateGhosts(moves);
 		}
 	}
 
 	public void updateGhostsWithoutReverse(EnumMap<GHOST, MOVE> ghostMoves) {
-		ghostMoves = _completeGhostMoves(ghostMoves);
-		_updateGhosts(ghostMoves);
+		updateGhostsWithoutReverse(_movesFromMap(ghostMoves));
+		_movesToMap(ghostMoves);
+	}
+
+	public void updateGhostsWithoutReverse(MOVE[] ghostMoves) {
+		stateVersion++;
+		_updateGhosts(_completeGhostMoves(ghostMoves));
 	}
 
 	public void updateGhostsWithForcedReverse(EnumMap<GHOST, MOVE> ghostMoves) {
-		ghostMoves = _completeGhostMoves(ghostMoves);
-		_reverseGhosts(ghostMoves, true);
+		updateGhostsWithForcedReverse(_movesFromMap(ghostMoves));
+		_movesToMap(ghostMoves);
+	}
+
+	public void updateGhostsWithForcedReverse(MOVE[] ghostMoves) {
+		stateVersion++;
+		_reverseGhosts(_completeGhostMoves(ghostMoves), true);
+	}
+
+	/**
+	 * Copy the moves of a map into the scratch array
+	 *
+	 * @return null if there is no map, so every ghost repeats its last move
+	 */
+	private MOVE[] _movesFromMap(EnumMap<GHOST, MOVE> ghostMoves) {
+		if (ghostMoves == null) {
+			return null;
+		}
+		for (GHOST ghostType : GHOST_TYPES) {
+			ghostMoveScratch[ghostType.ordinal()] = ghostMoves.get(ghostType);
+		}
+		return ghostMoveScratch;
+	}
+
+	/**
+	 * Controllers have always been able to see the completed moves in their
+	 * own map after a step, so the final moves are copied back
+	 */
+	private void _movesToMap(EnumMap<GHOST, MOVE> ghostMoves) {
+		if (ghostMoves != null) {
+			for (GHOST ghostType : GHOST_TYPES) {
+				ghostMoves.put(ghostType, ghostMoveScratch[ghostType.ordinal()]);
+			}
+		}
 	}
 
 	/**
@@ -826,6 +1259,7 @@ public final class Game {
 	 * the level or game is over.
 	 */
 	public void updateGame() {
+		stateVersion++;
 		_feast(); // ghosts eat pac-man or vice versa
 		_updateLairTimes();
 		_updatePacManExtraLife();
@@ -854,6 +1288,7 @@ public final class Game {
 	 */
 	public void updateGame(boolean feast, boolean updateLairTimes, boolean updateExtraLife, boolean updateTotalTime,
 			boolean updateLevelTime) {
+		stateVersion++;
 		if (feast) {
 			_feast(); // ghosts eat pac-man or vice versa
 		}
@@ -879,7 +1314,7 @@ public final class Game {
 	 */
 	private void _updateLairTimes() {
 		boolean exitOccurred = false;
-		for (Ghost ghost : ghosts.values()) {
+		for (Ghost ghost : ghostArray) {
 			// Control total number of ghosts by simply keeping non-active
 			// ghosts confined to lair
 			if (ghost.lairTime > 0 && GameFacade.ghostToIndex(ghost.type) < CommonConstants.numActiveGhosts) {
@@ -896,7 +1331,7 @@ public final class Game {
 		}
 		// See if others need to exit
 		if (simultaneousLairExit && exitOccurred) {
-			for (Ghost ghost : ghosts.values()) {
+			for (Ghost ghost : ghostArray) {
 				if (GameFacade.ghostToIndex(ghost.type) < CommonConstants.numActiveGhosts) {
 					ghost.lairTime = 0;
 					if (ghost.currentNodeIndex == currentMaze.lairNodeIndex) {
@@ -990,14 +1425,14 @@ public final class Game {
 	 * @param moves
 	 *            the moves
 	 */
-	private void _updateGhosts(EnumMap<GHOST, MOVE> moves) {
-		for (Entry<GHOST, MOVE> entry : moves.entrySet()) {
-			Ghost ghost = ghosts.get(entry.getKey());
+	private void _updateGhosts(MOVE[] moves) {
+		for (int i = 0; i < NUM_GHOSTS; i++) {
+			Ghost ghost = ghostArray[i];
 
 			if (ghost.lairTime == 0) {
 				if (ghost.edibleTime == 0 || ghost.edibleTime % GHOST_SPEED_REDUCTION != 0) {
-					ghost.lastMoveMade = _checkGhostDir(ghost, entry.getValue());
-					moves.put(entry.getKey(), ghost.lastMoveMade);
+					ghost.lastMoveMade = _checkGhostDir(ghost, moves[i]);
+					moves[i] = ghost.lastMoveMade;
 					ghost.currentNodeIndex = currentMaze.graph[ghost.currentNodeIndex].neighbourhood
 							.get(ghost.lastMoveMade);
 				}
@@ -1005,24 +1440,19 @@ public final class Game {
 		}
 	}
 
-	private EnumMap<GHOST, MOVE> _completeGhostMoves(EnumMap<GHOST, MOVE> moves) {
-		if (moves == null) {
-			moves = new EnumMap<GHOST, MOVE>(GHOST.class);
-
-			for (GHOST ghostType : GHOST.values()) {
-				moves.put(ghostType, ghosts.get(ghostType).lastMoveMade);
-			}
-		}
-
-		if (moves.size() < NUM_GHOSTS) {
-			for (GHOST ghostType : GHOST.values()) {
-				if (!moves.containsKey(ghostType)) {
-					moves.put(ghostType, MOVE.NEUTRAL);
-				}
+	/**
+	 * Fill the scratch array with a move for every ghost: the last move made
+	 * if there are no moves at all, and NEUTRAL for ghosts without a move
+	 */
+	private MOVE[] _completeGhostMoves(MOVE[] moves) {
+		for (int i = 0; i < NUM_GHOSTS; i++) {
+			if (moves == null) {
+				ghostMoveScratch[i] = ghostArray[i].lastMoveMade;
+			} else {
+				ghostMoveScratch[i] = moves[i] == null ? MOVE.NEUTRAL : moves[i];
 			}
 		}
-
-		return moves;
+		return ghostMoveScratch;
 	}
 
 	/**
@@ -1166,7 +1596,7 @@ public final class Game {
 
 			int newEdibleTime = newEdibleTime();
 
-			for (Ghost ghost : ghosts.values()) {
+			for (Ghost ghost : ghostArray) {
 				if (ghost.lairTime == 0) {
 					ghost.edibleTime = newEdibleTime;
 				} else {
@@ -1242,7 +1672,7 @@ public final class Game {
 		return this.properlyEatenPowerPills + this.improperlyEatenPowerPills;
 	}
 
-	private boolean _reverseGhosts(EnumMap<GHOST, MOVE> moves, boolean force) {
+	private boolean _reverseGhosts(MOVE[] moves, boolean force) {
 		boolean reversed = false;
 		boolean globalReverse = false;
 
@@ -1250,28 +1680,17 @@ public final class Game {
 			globalReverse = true;
 		}
 
-		try {
-			if (!moves.isEmpty()) {
-				for (Entry<GHOST, MOVE> entry : moves.entrySet()) {
-					Ghost ghost = ghosts.get(entry.getKey());
-
-					if (currentLevelTime > 1 && ghost.lairTime == 0 && ghost.lastMoveMade != MOVE.NEUTRAL) {
-						if (force || (powerPillWasEaten || globalReverse)) {
-							ghost.lastMoveMade = ghost.lastMoveMade.opposite();
-							ghost.currentNodeIndex = currentMaze.graph[ghost.currentNodeIndex].neighbourhood
-									.get(ghost.lastMoveMade);
-							reversed = true;
-							timeOfLastGlobalReversal = totalTime;
-						}
-					}
+		// Moves were completed for every ghost, so every ghost is considered
+		for (Ghost ghost : ghostArray) {
+			if (currentLevelTime > 1 && ghost.lairTime == 0 && ghost.lastMoveMade != MOVE.NEUTRAL) {
+				if (force || (powerPillWasEaten || globalReverse)) {
+					ghost.lastMoveMade = ghost.lastMoveMade.opposite();
+					ghost.currentNodeIndex = currentMaze.graph[ghost.currentNodeIndex].neighbourhood
+							.get(ghost.lastMoveMade);
+					reversed = true;
+					timeOfLastGlobalReversal = totalTime;
 				}
 			}
-		} catch (NoSuchElementException e) {
-			System.out.println("moves:" + moves);
-			System.out.println("moves.isEmpty:" + moves.isEmpty());
-			System.out.println("size:" + moves.size());
-			System.out.println("entrySet:" + moves.entrySet());
-			throw e;
 		}
 
 		return reversed;
@@ -1283,11 +1702,11 @@ public final class Game {
 	private void _feast() {
 		pacmanWasEaten = false;
 
-		for (GHOST ghost : GHOST.values()) {
+		for (GHOST ghost : GHOST_TYPES) {
 			ghostsEaten.put(ghost, false);
 		}
 
-		for (Ghost ghost : ghosts.values()) {
+		for (Ghost ghost : ghostArray) {
 			int distance = getShortestPathDistance(pacman.currentNodeIndex, ghost.currentNodeIndex);
 
 			if (distance <= EAT_DISTANCE && distance != -1) {
@@ -1340,7 +1759,7 @@ public final class Game {
 					pacman.numberOfLivesRemaining--;
 					pacmanWasEaten = true;
 					if (!CommonConstants.watch && Executor.deaths != null) {
-						Executor.deaths.log(this.mazeIndex + ":" + this.getPacmanCurrentNodeIndex());
+						Executor.deaths.recordDeath(this.mazeIndex, this.getPacmanCurrentNodeIndex());
 					}
 
 					if (pacman.numberOfLivesRemaining <= 0) {
@@ -1361,7 +1780,7 @@ public final class Game {
 			}
 		}
 
-		for (Ghost ghost : ghosts.values()) {
+		for (Ghost ghost : ghostArray) {
 			if (ghost.edibleTime > 0) {
 				ghost.edibleTime--;
 				// Ghost just became inedible, so a chance to eat it was missed
@@ -1790,6 +2209,17 @@ public final class Game {
 		return currentLevelTime;
 	}
 
+	/**
+	 * Counter that changes every time the characters move or the game state
+	 * is replaced. Two calls that see the same version (on the same Game)
+	 * see the same positions.
+	 *
+	 * @return the state version
+	 */
+	public int getStateVersion() {
+		return stateVersion;
+	}
+
 	/**
 	 * Total time the game has been played for (at most LEVEL_LIMIT*MAX_LEVELS).
 	 *
@@ -2018,9 +2448,9 @@ public final class Game {
 		if (fromNodeIndex == toNodeIndex) {
 			return 0;
 		} else if (fromNodeIndex < toNodeIndex) {
-			return currentMaze.shortestPathDistances[((toNodeIndex * (toNodeIndex + 1)) / 2) + fromNodeIndex];
+			return currentMaze.shortestPathDistances.get(((toNodeIndex * (toNodeIndex + 1)) / 2) + fromNodeIndex);
 		} else {
-			return currentMaze.shortestPathDistances[((fromNodeIndex * (fromNodeIndex + 1)) / 2) + toNodeIndex];
+			return currentMaze.shortestPathDistances.get(((fromNodeIndex * (fromNodeIndex + 1)) / 2) + toNodeIndex);
 		}
 	}
 
@@ -2181,12 +2611,17 @@ public final class Game {
 
 		double minDistance = Integer.MAX_VALUE;
 
-		for (Entry<MOVE, Integer> entry : currentMaze.graph[fromNodeIndex].neighbourhood.entrySet()) {
-			double distance = getDistance(entry.getValue(), toNodeIndex, distanceMeasure);
+		// Same neighbours in the same order as neighbourhood, without an entry iterator
+		Node from = currentMaze.graph[fromNodeIndex];
+		MOVE[] possibleMoves = from.allPossibleMoves.get(MOVE.NEUTRAL);
+		int[] neighbours = from.allNeighbouringNodes.get(MOVE.NEUTRAL);
+
+		for (int i = 0; i < possibleMoves.length; i++) {
+			double distance = getDistance(neighbours[i], toNodeIndex, distanceMeasure);
 
 			if (distance < minDistance) {
 				minDistance = distance;
-				move = entry.getKey();
+				move = possibleMoves[i];
 			}
 		}
 
@@ -2209,12 +2644,17 @@ public final class Game {
 
 		double maxDistance = Integer.MIN_VALUE;
 
-		for (Entry<MOVE, Integer> entry : currentMaze.graph[fromNodeIndex].neighbourhood.entrySet()) {
-			double distance = getDistance(entry.getValue(), toNodeIndex, distanceMeasure);
+		// Same neighbours in the same order as neighbourhood, without an entry iterator
+		Node from = currentMaze.graph[fromNodeIndex];
+		MOVE[] possibleMoves = from.allPossibleMoves.get(MOVE.NEUTRAL);
+		int[] neighbours = from.allNeighbouringNodes.get(MOVE.NEUTRAL);
+
+		for (int i = 0; i < possibleMoves.length; i++) {
+			double distance = getDistance(neighbours[i], toNodeIndex, distanceMeasure);
 
 			if (distance > maxDistance) {
 				maxDistance = distance;
-				move = entry.getKey();
+				move = possibleMoves[i];
 			}
 		}
 
@@ -2242,13 +2682,17 @@ public final class Game {
 
 		double minDistance = Integer.MAX_VALUE;
 
-		for (Entry<MOVE, Integer> entry : currentMaze.graph[fromNodeIndex].allNeighbourhoods.get(lastMoveMade)
-				.entrySet()) {
-			double distance = getDistance(entry.getValue(), toNodeIndex, distanceMeasure);
+		// Same neighbours in the same order as allNeighbourhoods, without an entry iterator
+		Node from = currentMaze.graph[fromNodeIndex];
+		MOVE[] possibleMoves = from.allPossibleMoves.get(lastMoveMade);
+		int[] neighbours = from.allNeighbouringNodes.get(lastMoveMade);
+
+		for (int i = 0; i < possibleMoves.length; i++) {
+			double distance = getDistance(neighbours[i], toNodeIndex, distanceMeasure);
 
 			if (distance < minDistance) {
 				minDistance = distance;
-				move = entry.getKey();
+				move = possibleMoves[i];
 			}
 		}
 
@@ -2276,13 +2720,17 @@ public final class Game {
 
 		double maxDistance = Integer.MIN_VALUE;
 
-		for (Entry<MOVE, Integer> entry : currentMaze.graph[fromNodeIndex].allNeighbourhoods.get(lastMoveMade)
-				.entrySet()) {
-			double distance = getDistance(entry.getValue(), toNodeIndex, distanceMeasure);
+		// Same neighbours in the same order as allNeighbourhoods, without an entry iterator
+		Node from = currentMaze.graph[fromNodeIndex];
+		MOVE[] possibleMoves = from.allPossibleMoves.get(lastMoveMade);
+		int[] neighbours = from.allNeighbouringNodes.get(lastMoveMade);
+
+		for (int i = 0; i < possibleMoves.length; i++) {
+			double distance = getDistance(neighbours[i], toNodeIndex, distanceMeasure);
 
 			if (distance > maxDistance) {
 				maxDistance = distance;
-				move = entry.getKey();
+				move = possibleMoves[i];
 			}
 		}
 
@@ -2308,17 +2756,21 @@ public final class Game {
 
 		double minDistance = Integer.MAX_VALUE;
 
-		for (Entry<MOVE, Integer> entry : currentMaze.graph[fromNodeIndex].allNeighbourhoods.get(lastMoveMade)
-				.entrySet()) {
+		// Same neighbours in the same order as allNeighbourhoods, without an entry iterator
+		Node from = currentMaze.graph[fromNodeIndex];
+		MOVE[] possibleMoves = from.allPossibleMoves.get(lastMoveMade);
+		int[] neighbours = from.allNeighbouringNodes.get(lastMoveMade);
+
+		for (int i = 0; i < possibleMoves.length; i++) {
 			// schrum2: 12/24: The last move made has to be updated, as it
 			// changes with each step on the path
-			lastMoveMade = entry.getKey();
+			lastMoveMade = possibleMoves[i];
 			/////////////////////////////
-			double distance = getDistance(entry.getValue(), toNodeIndex, lastMoveMade, distanceMeasure);
+			double distance = getDistance(neighbours[i], toNodeIndex, lastMoveMade, distanceMeasure);
 
 			if (distance < minDistance) {
 				minDistance = distance;
-				move = entry.getKey();
+				move = possibleMoves[i];
 			}
 		}
 
@@ -2344,13 +2796,17 @@ public final class Game {
 
 		double maxDistance = Integer.MIN_VALUE;
 
-		for (Entry<MOVE, Integer> entry : currentMaze.graph[fromNodeIndex].allNeighbourhoods.get(lastMoveMade)
-				.entrySet()) {
-			double distance = getDistance(entry.getValue(), toNodeIndex, lastMoveMade, distanceMeasure);
+		// Same neighbours in the same order as allNeighbourhoods, without an entry iterator
+		Node from = currentMaze.graph[fromNodeIndex];
+		MOVE[] possibleMoves = from.allPossibleMoves.get(lastMoveMade);
+		int[] neighbours = from.allNeighbouringNodes.get(lastMoveMade);
+
+		for (int i = 0; i < possibleMoves.length; i++) {
+			double distance = getDistance(neighbours[i], toNodeIndex, lastMoveMade, distanceMeasure);
 
 			if (distance > maxDistance) {
 				maxDistance = distance;
-				move = entry.getKey();
+				move = possibleMoves[i];
 			}
 		}
 
@@ -2387,7 +2843,7 @@ public final class Game {
 	 * @return the shortest path from start to target
 	 */
 	public int[] getShortestPath(int fromNodeIndex, int toNodeIndex) {
-		return caches[mazeIndex].getPathFromA2B(fromNodeIndex, toNodeIndex);
+		return getPathsCache(mazeIndex).getPathFromA2B(fromNodeIndex, toNodeIndex);
 	}
 
 	/**
@@ -2432,7 +2888,7 @@ public final class Game {
 		}
 		assert currentMaze.graph.length > fromNodeIndex : "From node " + fromNodeIndex + " not in graph";
 		assert currentMaze.graph.length > toNodeIndex : "To node " + toNodeIndex + " not in graph";
-		return caches[mazeIndex].getPathFromA2B(fromNodeIndex, toNodeIndex, lastMoveMade);
+		return getPathsCache(mazeIndex).getPathFromA2B(fromNodeIndex, toNodeIndex, lastMoveMade);
 	}
 
 	/**
@@ -2474,7 +2930,7 @@ public final class Game {
 			return 0;
 		}
 
-		return caches[mazeIndex].getPathDistanceFromA2B(fromNodeIndex, toNodeIndex, lastMoveMade);
+		return getPathsCache(mazeIndex).getPathDistanceFromA2B(fromNodeIndex, toNodeIndex, lastMoveMade);
 	}
 
 	public double getScore(int level) {
@@ -0,0 +1,108 @@
+package pacman.game;
+
+import java.util.Arrays;
+
+/**
+ * Undo and redo for a single game, built on packed game states. Each call to
+ * record stores the current state of the game in a reusable int array, so a
+ * search can advance the game, evaluate it, and undo back to where it was
+ * without allocating a copy of the game per node.
+ *
+ * Typical use in a look-ahead:
+ *
+ * history.record(game); // root
+ * game.advanceGame(...); history.record(game);
+ * ... evaluate ...
+ * history.undo(game); // back at the root
+ *
+ * Recording after an undo forgets the states that could have been redone.
+ */
+public class GameHistory {
+
+	private int[][] states;
+	// Index of the state the game is currently in, and of the last state that can be redone
+	private int current = -1;
+	private int last = -1;
+
+	/**
+	 * @param capacity
+	 *            number of states to make room for initially
+	 */
+	public GameHistory(int capacity) {
+		states = new int[Math.max(1, capacity)][];
+	}
+
+	/**
+	 * Store the current state of the game as the newest state
+	 *
+	 * @param game
+	 *            game to save
+	 */
+	public void record(Game game) {
+		current++;
+		if (current == states.length) {
+			states = Arrays.copyOf(states, states.length * 2);
+		}
+		if (states[current] == null) {
+			states[current] = new int[Game.PACKED_STATE_LENGTH];
+		}
+		game.saveState(states[current]);
+		last = current;
+	}
+
+	/**
+	 * Put the game back into the state recorded before the current one
+	 *
+	 * @param game
+	 *            game to restore
+	 * @return false if there was nothing to undo
+	 */
+	public boolean undo(Game game) {
+		if (current <= 0) {
+			return false;
+		}
+		game.restoreState(states[--current]);
+		return true;
+	}
+
+	/**
+	 * Put the game into the state recorded after the current one
+	 *
+	 * @param game
+	 *            game to restore
+	 * @return false if there was nothing to redo
+	 */
+	public boolean redo(Game game) {
+		if (current >= last) {
+			return false;
+		}
+		game.restoreState(states[++current]);
+		return true;
+	}
+
+	/**
+	 * Put the game back into the state it was recorded in most recently,
+	 * which is useful after simulating a step that should not be kept
+	 *
+	 * @param game
+	 *            game to restore
+	 */
+	public void revert(Game game) {
+		game.restoreState(states[current]);
+	}
+
+	/**
+	 * @return number of states before the current one that can be undone
+	 */
+	public int depth() {
+		return Math.max(0, current);
+	}
+
+	/**
+	 * Forget all recorded states, but keep the arrays for reuse
+	 */
+	public void clear() {
+		current = -1;
+		last = -1;
+	}
+}
@@ -0,0 +1,322 @@
+package pacman.game;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import edu.southwestern.parameters.Parameters;
+
+/**
+ * Reads replays written by ReplayWriter. Ticks can be read one after the
+ * other with next, or in any order with seek, which jumps to the closest
+ * earlier keyframe and applies the deltas from there. The file is mapped into
+ * memory, so seeking does not reread anything from disk.
+ *
+ * If the replay was not closed properly (for example because evolution was
+ * interrupted), the keyframe index is rebuilt by scanning the file, and every
+ * complete tick can still be read.
+ *
+ * Text replays written by older versions of Executor can be converted with
+ * convertText, or from the command line with main.
+ */
+public class ReplayReader implements Closeable {
+
+	private final FileChannel channel;
+	private final ByteBuffer in;
+	private final int keyframeInterval;
+	private final int[] state = new int[Game.PACKED_STATE_LENGTH];
+	private int[] keyframeTicks;
+	private long[] keyframeOffsets;
+	private int numKeyframes;
+	private int numTicks;
+	// Tick of the state in the state array, or -1 before the first call to next
+	private int tick = -1;
+
+	/**
+	 * @param file
+	 *            binary replay
+	 * @throws IOException
+	 *             if the file cannot be read or is not a binary replay
+	 */
+	public ReplayReader(File file) throws IOException {
+		channel = FileChannel.open(file.toPath());
+		in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		if (in.remaining() < 16 || in.getInt() != ReplayWriter.MAGIC) {
+			channel.close();
+			throw new IOException(file + " is not a binary Ms Pac-Man replay");
+		}
+		int version = in.getInt();
+		keyframeInterval = in.getInt();
+		int stateLength = in.getInt();
+		if (version != ReplayWriter.VERSION || stateLength != Game.PACKED_STATE_LENGTH) {
+			channel.close();
+			throw new IOException(file + " was written by an incompatible version (" + version + ", "
+					+ stateLength + " ints per state)");
+		}
+		if (!readIndex()) {
+			scanIndex();
+		}
+		in.position(16);
+	}
+
+	/**
+	 * @param file
+	 *            any file
+	 * @return whether the file starts like a binary replay
+	 */
+	public static boolean isBinaryReplay(File file) {
+		try (DataInputStream data = new DataInputStream(new FileInputStream(file))) {
+			return data.readInt() == ReplayWriter.MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Read the keyframe index from the footer
+	 *
+	 * @return false if the replay has no valid footer
+	 */
+	private boolean readIndex() {
+		int size = in.limit();
+		if (size < 16 + 16 || in.getInt(size - 4) != ReplayWriter.FOOTER_MAGIC) {
+			return false;
+		}
+		long indexOffset = in.getLong(size - 12);
+		numTicks = in.getInt(size - 16);
+		if (indexOffset < 16 || indexOffset > size - 16) {
+			return false;
+		}
+		in.position((int) indexOffset);
+		numKeyframes = in.getInt();
+		keyframeTicks = new int[numKeyframes];
+		keyframeOffsets = new long[numKeyframes];
+		for (int i = 0; i < numKeyframes; i++) {
+			keyframeTicks[i] = in.getInt();
+			keyframeOffsets[i] = in.getLong();
+		}
+		return true;
+	}
+
+	/**
+	 * Rebuild the index by walking over all complete records
+	 */
+	private void scanIndex() {
+		keyframeTicks = new int[16];
+		keyframeOffsets = new long[16];
+		numKeyframes = 0;
+		numTicks = 0;
+		in.position(16);
+		while (in.hasRemaining()) {
+			int start = in.position();
+			int tag = in.get();
+			try {
+				if (tag == ReplayWriter.KEYFRAME) {
+					in.position(in.position() + 4 * Game.PACKED_STATE_LENGTH);
+					if (numKeyframes == keyframeTicks.length) {
+						keyframeTicks = Arrays.copyOf(keyframeTicks, numKeyframes * 2);
+						keyframeOffsets = Arrays.copyOf(keyframeOffsets, numKeyframes * 2);
+					}
+					keyframeTicks[numKeyframes] = numTicks;
+					keyframeOffsets[numKeyframes] = start;
+					numKeyframes++;
+				} else if (tag == ReplayWriter.DELTA) {
+					long mask = in.getLong();
+					for (int i = 0; i < Long.bitCount(mask); i++) {
+						readVarInt();
+					}
+				} else {
+					break; // End of records
+				}
+			} catch (RuntimeException e) {
+				break; // Record cut off by an interrupted write
+			}
+			numTicks++;
+		}
+	}
+
+	/**
+	 * @return number of ticks in the replay
+	 */
+	public int getNumTicks() {
+		return numTicks;
+	}
+
+	/**
+	 * @return number of ticks between keyframes
+	 */
+	public int getKeyframeInterval() {
+		return keyframeInterval;
+	}
+
+	/**
+	 * @return tick of the current state, or -1 if nothing was read yet
+	 */
+	public int getTick() {
+		return tick;
+	}
+
+	/**
+	 * @return packed state of the current tick. Must not be modified.
+	 */
+	public int[] getState() {
+		return state;
+	}
+
+	/**
+	 * Move to the next tick
+	 *
+	 * @return false if there are no more ticks
+	 */
+	public boolean next() {
+		if (tick + 1 >= numTicks) {
+			return false;
+		}
+		int tag = in.get();
+		if (tag == ReplayWriter.KEYFRAME) {
+			for (int i = 0; i < Game.PACKED_STATE_LENGTH; i++) {
+				state[i] = in.getInt();
+			}
+		} else if (tag == ReplayWriter.DELTA) {
+			long mask = in.getLong();
+			for (int i = 0; i < Game.PACKED_STATE_LENGTH; i++) {
+				if ((mask & (1L << i)) != 0) {
+					state[i] += readVarInt();
+				}
+			}
+		} else {
+			throw new IllegalStateException("Corrupt replay record at tick " + (tick + 1));
+		}
+		tick++;
+		return true;
+	}
+
+	/**
+	 * Move to the next tick and put the game in its state
+	 *
+	 * @param game
+	 *            game to restore
+	 * @return false if there are no more ticks
+	 */
+	public boolean next(Game game) {
+		if (!next()) {
+			return false;
+		}
+		game.restoreState(state);
+		return true;
+	}
+
+	/**
+	 * Move to any tick, starting from the closest keyframe at or before it
+	 * (or from the current tick, if that is closer)
+	 *
+	 * @param target
+	 *            tick from 0 to getNumTicks() - 1
+	 */
+	public void seek(int target) {
+		if (target < 0 || target >= numTicks) {
+			throw new IndexOutOfBoundsException("Tick " + target + " is not in a replay of " + numTicks + " ticks");
+		}
+		int k = Arrays.binarySearch(keyframeTicks, 0, numKeyframes, target);
+		if (k < 0) {
+			k = -k - 2; // Last keyframe before the target
+		}
+		if (tick > target || tick < keyframeTicks[k]) {
+			in.position((int) keyframeOffsets[k]);
+			tick = keyframeTicks[k] - 1;
+		}
+		while (tick < target) {
+			next();
+		}
+	}
+
+	/**
+	 * Put the game into the state of any tick
+	 *
+	 * @param target
+	 *            tick from 0 to getNumTicks() - 1
+	 * @param game
+	 *            game to restore
+	 */
+	public void seek(int target, Game game) {
+		seek(target);
+		game.restoreState(state);
+	}
+
+	private int readVarInt() {
+		int bits = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.get();
+			bits |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return (bits >>> 1) ^ -(bits & 1);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Convert a text replay, with one getGameState string per line, into the
+	 * binary format
+	 *
+	 * @param text
+	 *            existing text replay
+	 * @param binary
+	 *            binary replay to create
+	 * @param keyframeInterval
+	 *            number of ticks between full states
+	 * @return number of ticks converted
+	 * @throws IOException
+	 *             if either file cannot be used
+	 */
+	public static int convertText(File text, File binary, int keyframeInterval) throws IOException {
+		Game game = new Game(0);
+		try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(text)));
+				ReplayWriter writer = new ReplayWriter(binary, keyframeInterval)) {
+			String line = br.readLine();
+			while (line != null) {
+				if (!line.equals("")) {
+					game.setGameState(line);
+					writer.write(game);
+				}
+				line = br.readLine();
+			}
+			return writer.getTicks();
+		}
+	}
+
+	/**
+	 * Convert text replays: the first two arguments are the text replay and
+	 * the binary replay to create. Any remaining arguments are passed on to
+	 * Parameters, since Game reads them.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.out.println("Usage: ReplayReader <text replay> <binary replay> [parameters]");
+			System.exit(1);
+		}
+		Parameters.initializeParameterCollections(Arrays.copyOfRange(args, 2, args.length));
+		try {
+			long start = System.currentTimeMillis();
+			int ticks = convertText(new File(args[0]), new File(args[1]), ReplayWriter.DEFAULT_KEYFRAME_INTERVAL);
+			System.out.println("Converted " + ticks + " ticks from " + args[0] + " (" + new File(args[0]).length()
+					+ " bytes) to " + args[1] + " (" + new File(args[1]).length() + " bytes) in "
+					+ (System.currentTimeMillis() - start) + " ms");
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+}
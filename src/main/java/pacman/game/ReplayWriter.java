@@ -0,0 +1,190 @@
+package pacman.game;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Writes a Ms Pac-Man replay in a compact binary form, one game state per
+ * tick, as the game is played. Each state is the packed state from
+ * Game.saveState. Every keyframeInterval ticks the full state is written;
+ * all other ticks only store the fields that changed since the previous tick,
+ * as a bit mask followed by variable length differences. A typical tick takes
+ * a few dozen bytes instead of the several hundred used by a getGameState line.
+ *
+ * Nothing is buffered beyond the output stream, so long games can be written
+ * while they are played. Closing the writer appends an index of the
+ * keyframes, which ReplayReader uses to seek. A replay that was never closed
+ * can still be read from the start.
+ *
+ * File layout: header (magic, version, keyframe interval, state length),
+ * records (a tag byte, then either the full state or a changed-field mask and
+ * the differences), end tag, keyframe index (tick, offset pairs), tick count,
+ * index offset, footer magic.
+ */
+public class ReplayWriter implements Closeable {
+
+	static final int MAGIC = 0x504D5231; // "PMR1"
+	static final int FOOTER_MAGIC = 0x504D5246; // "PMRF"
+	static final int VERSION = 1;
+	static final int END = 0;
+	static final int KEYFRAME = 1;
+	static final int DELTA = 2;
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+
+	private final DataOutputStream out;
+	private final int keyframeInterval;
+	private final int[] previous = new int[Game.PACKED_STATE_LENGTH];
+	private final int[] current = new int[Game.PACKED_STATE_LENGTH];
+	// Tick and offset of every keyframe, for the index
+	private int[] keyframeTicks = new int[16];
+	private long[] keyframeOffsets = new long[16];
+	private int numKeyframes = 0;
+	private int ticks = 0;
+	private long offset = 0;
+
+	static {
+		// The changed fields of a tick are stored as bits of a long
+		assert Game.PACKED_STATE_LENGTH <= Long.SIZE : "Packed state does not fit a delta mask";
+	}
+
+	/**
+	 * @param file
+	 *            replay file to create
+	 * @param keyframeInterval
+	 *            number of ticks between full states
+	 * @throws IOException
+	 *             if the file cannot be created
+	 */
+	public ReplayWriter(File file, int keyframeInterval) throws IOException {
+		this(new FileOutputStream(file), keyframeInterval);
+	}
+
+	/**
+	 * @param stream
+	 *            destination of the replay, closed with the writer
+	 * @param keyframeInterval
+	 *            number of ticks between full states
+	 * @throws IOException
+	 *             if the header cannot be written
+	 */
+	public ReplayWriter(OutputStream stream, int keyframeInterval) throws IOException {
+		if (keyframeInterval < 1) {
+			throw new IllegalArgumentException("Keyframe interval must be positive: " + keyframeInterval);
+		}
+		this.out = new DataOutputStream(new BufferedOutputStream(stream));
+		this.keyframeInterval = keyframeInterval;
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(keyframeInterval);
+		out.writeInt(Game.PACKED_STATE_LENGTH);
+		offset = 16;
+	}
+
+	/**
+	 * Record the current state of the game as the next tick
+	 *
+	 * @param game
+	 *            game to record
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public void write(Game game) throws IOException {
+		write(game.saveState(current));
+	}
+
+	/**
+	 * Record a packed state as the next tick
+	 *
+	 * @param state
+	 *            packed state of Game.PACKED_STATE_LENGTH ints
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public void write(int[] state) throws IOException {
+		if (ticks % keyframeInterval == 0) {
+			addKeyframe();
+			out.writeByte(KEYFRAME);
+			offset++;
+			for (int i = 0; i < Game.PACKED_STATE_LENGTH; i++) {
+				out.writeInt(state[i]);
+			}
+			offset += 4 * Game.PACKED_STATE_LENGTH;
+		} else {
+			long mask = 0;
+			for (int i = 0; i < Game.PACKED_STATE_LENGTH; i++) {
+				if (state[i] != previous[i]) {
+					mask |= 1L << i;
+				}
+			}
+			out.writeByte(DELTA);
+			out.writeLong(mask);
+			offset += 9;
+			for (int i = 0; i < Game.PACKED_STATE_LENGTH; i++) {
+				if ((mask & (1L << i)) != 0) {
+					offset += writeVarInt(state[i] - previous[i]);
+				}
+			}
+		}
+		System.arraycopy(state, 0, previous, 0, Game.PACKED_STATE_LENGTH);
+		ticks++;
+	}
+
+	private void addKeyframe() {
+		if (numKeyframes == keyframeTicks.length) {
+			keyframeTicks = Arrays.copyOf(keyframeTicks, numKeyframes * 2);
+			keyframeOffsets = Arrays.copyOf(keyframeOffsets, numKeyframes * 2);
+		}
+		keyframeTicks[numKeyframes] = ticks;
+		keyframeOffsets[numKeyframes] = offset;
+		numKeyframes++;
+	}
+
+	/**
+	 * Zig-zag encode the difference so small negative numbers stay short,
+	 * then write seven bits per byte
+	 *
+	 * @return number of bytes written
+	 */
+	private int writeVarInt(int value) throws IOException {
+		int bits = (value << 1) ^ (value >> 31);
+		int bytes = 1;
+		while ((bits & ~0x7F) != 0) {
+			out.writeByte((bits & 0x7F) | 0x80);
+			bits >>>= 7;
+			bytes++;
+		}
+		out.writeByte(bits);
+		return bytes;
+	}
+
+	/**
+	 * @return number of ticks written so far
+	 */
+	public int getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Write the keyframe index and close the stream
+	 */
+	@Override
+	public void close() throws IOException {
+		out.writeByte(END);
+		long indexOffset = offset + 1;
+		out.writeInt(numKeyframes);
+		for (int i = 0; i < numKeyframes; i++) {
+			out.writeInt(keyframeTicks[i]);
+			out.writeLong(keyframeOffsets[i]);
+		}
+		out.writeInt(ticks);
+		out.writeLong(indexOffset);
+		out.writeInt(FOOTER_MAGIC);
+		out.close();
+	}
+}
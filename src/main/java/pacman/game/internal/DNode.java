@@ -0,0 +1,71 @@
+package pacman.game.internal;
+
+import java.util.ArrayList;
+
+import pacman.game.Constants.MOVE;
+
+class DNode {
+
+	public int nodeID;
+	public ArrayList<JunctionData> closestJunctions;
+	public boolean isJunction;
+
+	public DNode(int nodeID, boolean isJunction) {
+		this.nodeID = nodeID;
+		this.isJunction = isJunction;
+
+		this.closestJunctions = new ArrayList<JunctionData>();
+
+		if (isJunction) {
+			closestJunctions.add(new JunctionData(nodeID, MOVE.NEUTRAL, nodeID, new int[] {}, MOVE.NEUTRAL));
+		}
+	}
+
+	public int[] getPathToJunction(MOVE lastMoveMade) {
+		if (isJunction) {
+			return new int[] {};
+		}
+
+		for (int i = 0; i < closestJunctions.size(); i++) {
+			if (!closestJunctions.get(i).firstMove.equals(lastMoveMade.opposite())) {
+				return closestJunctions.get(i).path;
+			}
+		}
+
+		return null;
+	}
+
+	public JunctionData getNearestJunction(MOVE lastMoveMade) {
+		if (isJunction) {
+			return closestJunctions.get(0);
+		}
+
+		int minDist = Integer.MAX_VALUE;
+		int bestIndex = -1;
+
+		for (int i = 0; i < closestJunctions.size(); i++) {
+			if (!closestJunctions.get(i).firstMove.equals(lastMoveMade.opposite())) {
+				int newDist = closestJunctions.get(i).path.length;
+
+				if (newDist < minDist) {
+					minDist = newDist;
+					bestIndex = i;
+				}
+			}
+		}
+
+		if (bestIndex != -1) {
+			return closestJunctions.get(bestIndex);
+		} else {
+			return null;
+		}
+	}
+
+	public void addPath(int junctionID, MOVE firstMove, int nodeStartedFrom, int[] path, MOVE lastMove) {
+		closestJunctions.add(new JunctionData(junctionID, firstMove, nodeStartedFrom, path, lastMove));
+	}
+
+	public String toString() {
+		return "" + nodeID + "\t" + isJunction;
+	}
+}
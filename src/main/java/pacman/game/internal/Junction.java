@@ -0,0 +1,59 @@
+package pacman.game.internal;
+
+import java.util.EnumMap;
+
+import pacman.game.Constants.MOVE;
+
+// for each junction, stores paths to all other junctions for all directions
+class Junction {
+
+	public int jctId, nodeId;
+	public EnumMap<MOVE, int[]>[] paths;
+
+	public void computeShortestPaths() {
+		MOVE[] moves = MOVE.values();
+
+		for (int i = 0; i < paths.length; i++) {
+			if (i == jctId) {
+				paths[i].put(MOVE.NEUTRAL, new int[] {});
+			} else {
+				int distance = Integer.MAX_VALUE;
+				int[] path = null;
+
+				for (int j = 0; j < moves.length; j++) {
+					if (paths[i].containsKey(moves[j])) {
+						int[] tmp = paths[i].get(moves[j]);
+
+						if (tmp.length < distance) {
+							distance = tmp.length;
+							path = tmp;
+						}
+					}
+				}
+
+				paths[i].put(MOVE.NEUTRAL, path);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public Junction(int jctId, int nodeId, int numJcts) {
+		this.jctId = jctId;
+		this.nodeId = nodeId;
+
+		paths = new EnumMap[numJcts];
+
+		for (int i = 0; i < paths.length; i++) {
+			paths[i] = new EnumMap<MOVE, int[]>(MOVE.class);
+		}
+	}
+
+	// store the shortest path given the last move made
+	public void addPath(int toJunction, MOVE firstMoveMade, int[] path) {
+		paths[toJunction].put(firstMoveMade, path);
+	}
+
+	public String toString() {
+		return jctId + "\t" + nodeId;
+	}
+}
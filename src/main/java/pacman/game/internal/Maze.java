@@ -4,6 +4,7 @@ import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.ShortBuffer;
 //import java.util.EnumMap;
 //import pacman.game.Constants.MOVE;
 
@@ -13,13 +14,14 @@ import static pacman.game.Constants.*;
  * Stores the actual mazes, each of which is simply a connected graph. The differences between the mazes are the connectivity
  * and the x,y coordinates (used for drawing or to compute the Euclidean distance. There are 3 built-in distance functions in
  * total: Euclidean, Manhattan and Dijkstra's shortest path distance. The latter is pre-computed and loaded, the others are
- * computed on the fly whenever getNextDir(-) is called.
+ * computed on the fly whenever getNextDir(-) is called. Mazes are created lazily by Game.getMaze(-).
  */
 public final class Maze {
 
 	public AStar astar;
 	// Information for the controllers
-	public int[] shortestPathDistances, pillIndices, powerPillIndices, junctionIndices; 
+	public int[] pillIndices, powerPillIndices, junctionIndices;
+	public ShortBuffer shortestPathDistances; // Read-only, usually memory-mapped from the binary table
 	public int initialPacManNodeIndex, lairNodeIndex, initialGhostNodeIndex; // Maze-specific
 																				// information
 	public Node[] graph; // The actual maze, stored as a graph (set of nodes)
@@ -36,7 +38,7 @@ public final class Maze {
 	 */
 	public Maze(int index) {
 		loadNodes(nodeNames[index]);
-		loadDistances(distNames[index]);
+		shortestPathDistances = MazeData.distances(index, graph.length);
 
 		// create A* graph for shortest paths for the ghosts
 		astar = new AStar();
@@ -96,31 +98,4 @@ public final class Maze {
 			ioe.printStackTrace();
 		}
 	}
-
-	/*
-	 * Loads the shortest path distances which have been pre-computed. The data
-	 * contains the shortest distance from any node in the maze to any other
-	 * node. Since the graph is symmetric, the symmetries have been removed to
-	 * preserve memory and all distances are stored in a 1D array; they are
-	 * looked-up using getDistance(-).
-	 */
-	private void loadDistances(String fileName) {
-		this.shortestPathDistances = new int[((graph.length * (graph.length - 1)) / 2) + graph.length];
-
-		try {
-			BufferedReader br = new BufferedReader(new InputStreamReader(
-					new FileInputStream(pathDistances + System.getProperty("file.separator") + fileName)));
-			String input = br.readLine();
-
-			int index = 0;
-
-			while (input != null) {
-				shortestPathDistances[index++] = Integer.parseInt(input);
-				input = br.readLine();
-			}
-			br.close();
-		} catch (IOException ioe) {
-			ioe.printStackTrace();
-		}
-	}
-}
\ No newline at end of file
+}
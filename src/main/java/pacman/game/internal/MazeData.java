@@ -0,0 +1,353 @@
+package pacman.game.internal;
+
+import static pacman.game.Constants.*;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map.Entry;
+
+import edu.southwestern.parameters.Parameters;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+/*
+ * Reads and writes the binary forms of the pre-computed maze data: the shortest path distance tables,
+ * the junction paths of PathsCache, and the sensor tables of MazeTables. Parsing the original text tables and recomputing the paths
+ * with A* takes several seconds per JVM, so the results are stored in data/pacman/binary. Distance
+ * tables are memory-mapped read-only, so all games in a JVM (and all JVMs on a machine) share the same
+ * pages. Missing files are generated from the text assets on first use, and can be regenerated for
+ * all mazes by running main.
+ *
+ * Distance file: magic, version, entry count, then one signed 16-bit distance per entry.
+ * Paths file: magic, version, node count, junction count, then for every non-junction node its
+ * paths to the nearest junctions, then for every pair of junctions the path for each first move.
+ * Node indices are stored as unsigned 16-bit values.
+ * Tables file: magic, version, node count, junction count, then the MazeTables shorts.
+ */
+public final class MazeData {
+
+	private static final int DISTANCE_MAGIC = 0x504D4431; // "PMD1"
+	private static final int PATHS_MAGIC = 0x504D5031; // "PMP1"
+	private static final int TABLES_MAGIC = 0x504D5431; // "PMT1"
+	private static final int VERSION = 1;
+	private static final MOVE[] MOVES = MOVE.values();
+
+	private MazeData() {
+	}
+
+	public static File distanceFile(int index) {
+		return new File(pathBinary, distNames[index] + ".bin");
+	}
+
+	public static File pathsFile(int index) {
+		return new File(pathBinary, "p" + nodeNames[index] + ".bin");
+	}
+
+	public static File tablesFile(int index) {
+		return new File(pathBinary, "t" + nodeNames[index] + ".bin");
+	}
+
+	/*
+	 * Shortest path distances for the maze, mapped from the binary table. The table is created
+	 * from the text file if it does not exist yet.
+	 */
+	public static ShortBuffer distances(int index, int numNodes) {
+		int entries = ((numNodes * (numNodes - 1)) / 2) + numNodes;
+		File file = distanceFile(index);
+		if (!file.exists()) {
+			int[] table = readTextDistances(index, entries);
+			writeDistances(file, table);
+			if (!file.exists()) { // Could not write: serve the parsed table from memory
+				return toShortBuffer(table);
+			}
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath())) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != DISTANCE_MAGIC || buffer.getInt() != VERSION || buffer.getInt() != entries) {
+				throw new IOException(file + " does not match maze " + nodeNames[index] + "; run MazeData to regenerate");
+			}
+			return buffer.slice().asShortBuffer().asReadOnlyBuffer();
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+			return null;
+		}
+	}
+
+	/*
+	 * Original text format: one distance per line, in the order used by Game.getShortestPathDistance
+	 */
+	private static int[] readTextDistances(int index, int entries) {
+		int[] table = new int[entries];
+		try (BufferedReader br = new BufferedReader(new InputStreamReader(
+				new FileInputStream(pathDistances + File.separator + distNames[index])))) {
+			String input = br.readLine();
+			int i = 0;
+			while (input != null) {
+				table[i++] = Integer.parseInt(input);
+				input = br.readLine();
+			}
+		} catch (IOException ioe) {
+			ioe.printStackTrace();
+		}
+		return table;
+	}
+
+	private static ShortBuffer toShortBuffer(int[] table) {
+		ShortBuffer buffer = ShortBuffer.allocate(table.length);
+		for (int i = 0; i < table.length; i++) {
+			buffer.put(i, toShort(table[i]));
+		}
+		return buffer.asReadOnlyBuffer();
+	}
+
+	private static short toShort(int value) {
+		if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("Distance " + value + " does not fit in 16 bits");
+		}
+		return (short) value;
+	}
+
+	private static char toChar(int value) {
+		if (value < 0 || value > Character.MAX_VALUE) {
+			throw new IllegalArgumentException("Value " + value + " does not fit in 16 bits");
+		}
+		return (char) value;
+	}
+
+	public static void writeDistances(File file, int[] table) {
+		File temp = temporary(file);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeInt(DISTANCE_MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(table.length);
+			for (int d : table) {
+				out.writeShort(toShort(d));
+			}
+		} catch (IOException e) {
+			System.out.println("Could not write " + file + ": " + e.getMessage());
+			temp.delete();
+			return;
+		}
+		install(temp, file);
+	}
+
+	/*
+	 * Path cache for the maze, read from the binary file or computed (and saved) if there is none.
+	 */
+	public static PathsCache pathsCache(int index, Maze maze) {
+		File file = pathsFile(index);
+		if (file.exists()) {
+			return readPaths(file, maze);
+		}
+		PathsCache cache = new PathsCache(index);
+		writePaths(file, cache);
+		return cache;
+	}
+
+	static PathsCache readPaths(File file, Maze maze) {
+		try (FileChannel channel = FileChannel.open(file.toPath())) {
+			ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			int numNodes = maze.graph.length;
+			int numJunctions = maze.junctionIndices.length;
+			if (in.getInt() != PATHS_MAGIC || in.getInt() != VERSION || in.getInt() != numNodes || in.getInt() != numJunctions) {
+				throw new IOException(file + " does not match maze " + maze.name + "; run MazeData to regenerate");
+			}
+
+			DNode[] nodes = new DNode[numNodes];
+			for (int i = 0; i < numNodes; i++) {
+				boolean isJunction = in.get() != 0;
+				nodes[i] = new DNode(i, isJunction);
+				int count = in.get();
+				for (int j = 0; j < count; j++) {
+					int junction = in.getChar();
+					MOVE firstMove = MOVES[in.get()];
+					MOVE lastMove = MOVES[in.get()];
+					nodes[i].addPath(junction, firstMove, i, readPath(in), lastMove);
+				}
+			}
+
+			Junction[] junctions = new Junction[numJunctions];
+			for (int q = 0; q < numJunctions; q++) {
+				junctions[q] = new Junction(q, maze.junctionIndices[q], numJunctions);
+				for (int z = 0; z < numJunctions; z++) {
+					int count = in.get();
+					for (int m = 0; m < count; m++) {
+						MOVE move = MOVES[in.get()];
+						junctions[q].addPath(z, move, readPath(in));
+					}
+				}
+				junctions[q].computeShortestPaths();
+			}
+			return new PathsCache(maze, nodes, junctions);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+			return null;
+		}
+	}
+
+	private static int[] readPath(ByteBuffer in) {
+		int[] path = new int[in.getChar()];
+		for (int i = 0; i < path.length; i++) {
+			path[i] = in.getChar();
+		}
+		return path;
+	}
+
+	public static void writePaths(File file, PathsCache cache) {
+		File temp = temporary(file);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeInt(PATHS_MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(cache.nodes.length);
+			out.writeInt(cache.junctions.length);
+			for (DNode node : cache.nodes) {
+				out.writeByte(node.isJunction ? 1 : 0);
+				// A junction's only entry is itself, which the DNode constructor recreates
+				int first = node.isJunction ? 1 : 0;
+				out.writeByte(node.closestJunctions.size() - first);
+				for (int j = first; j < node.closestJunctions.size(); j++) {
+					JunctionData data = node.closestJunctions.get(j);
+					out.writeChar(toChar(data.nodeID));
+					out.writeByte(data.firstMove.ordinal());
+					out.writeByte(data.lastMove.ordinal());
+					writePath(out, data.path);
+				}
+			}
+			for (Junction junction : cache.junctions) {
+				for (int z = 0; z < junction.paths.length; z++) {
+					// NEUTRAL is derived from the other moves by computeShortestPaths
+					int count = junction.paths[z].size() - (junction.paths[z].containsKey(MOVE.NEUTRAL) ? 1 : 0);
+					out.writeByte(count);
+					for (Entry<MOVE, int[]> entry : junction.paths[z].entrySet()) {
+						if (entry.getKey() != MOVE.NEUTRAL) {
+							out.writeByte(entry.getKey().ordinal());
+							writePath(out, entry.getValue());
+						}
+					}
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("Could not write " + file + ": " + e.getMessage());
+			temp.delete();
+			return;
+		}
+		install(temp, file);
+	}
+
+	private static void writePath(DataOutputStream out, int[] path) throws IOException {
+		out.writeChar(toChar(path.length));
+		for (int node : path) {
+			out.writeChar(toChar(node));
+		}
+	}
+
+	/*
+	 * Sensor tables for the maze, mapped from the binary file. The tables are computed from the maze
+	 * and its path cache if the file does not exist yet.
+	 */
+	public static MazeTables tables(int index, Maze maze, PathsCache cache) {
+		int numNodes = maze.graph.length;
+		int numJunctions = maze.junctionIndices.length;
+		File file = tablesFile(index);
+		if (!file.exists()) {
+			short[] table = MazeTables.compute(maze, cache);
+			writeTables(file, numNodes, numJunctions, table);
+			if (!file.exists()) { // Could not write: serve the computed tables from memory
+				return new MazeTables(numNodes, numJunctions, ShortBuffer.wrap(table).asReadOnlyBuffer());
+			}
+		}
+		return readTables(file, numNodes, numJunctions);
+	}
+
+	static MazeTables readTables(File file, int numNodes, int numJunctions) {
+		try (FileChannel channel = FileChannel.open(file.toPath())) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != TABLES_MAGIC || buffer.getInt() != VERSION || buffer.getInt() != numNodes
+					|| buffer.getInt() != numJunctions
+					|| buffer.remaining() != 2 * MazeTables.length(numNodes, numJunctions)) {
+				throw new IOException(file + " does not match the maze; run MazeData to regenerate");
+			}
+			return new MazeTables(numNodes, numJunctions, buffer.slice().asShortBuffer().asReadOnlyBuffer());
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+			return null;
+		}
+	}
+
+	public static void writeTables(File file, int numNodes, int numJunctions, short[] table) {
+		File temp = temporary(file);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeInt(TABLES_MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(numNodes);
+			out.writeInt(numJunctions);
+			for (short value : table) {
+				out.writeShort(value);
+			}
+		} catch (IOException e) {
+			System.out.println("Could not write " + file + ": " + e.getMessage());
+			temp.delete();
+			return;
+		}
+		install(temp, file);
+	}
+
+	/*
+	 * Data is written to a unique temporary file and renamed into place, so that several processes
+	 * generating the same file at once never expose a partial file.
+	 */
+	private static File temporary(File file) {
+		file.getParentFile().mkdirs();
+		try {
+			return File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+		} catch (IOException e) {
+			return new File(file.getPath() + ".tmp");
+		}
+	}
+
+	private static void install(File temp, File file) {
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.out.println("Could not install " + file + ": " + e.getMessage());
+			temp.delete();
+		}
+	}
+
+	/*
+	 * Regenerates all binary tables from the text assets in data/pacman. Command line parameters
+	 * are passed on to Parameters, since the Game objects used to compute the paths read them.
+	 */
+	public static void main(String[] args) {
+		Parameters.initializeParameterCollections(args);
+		for (int i = 0; i < NUM_MAZES; i++) {
+			distanceFile(i).delete();
+			pathsFile(i).delete();
+			tablesFile(i).delete();
+		}
+		Game.resetMazes();
+		for (int i = 0; i < NUM_MAZES; i++) {
+			long start = System.currentTimeMillis();
+			Maze maze = Game.getMaze(i);
+			Game.getPathsCache(i);
+			Game.getMazeTables(i);
+			System.out.println("Maze " + maze.name + ": " + distanceFile(i) + ", " + pathsFile(i) + ", " + tablesFile(i) + " ("
+					+ (System.currentTimeMillis() - start) + " ms)");
+		}
+	}
+}
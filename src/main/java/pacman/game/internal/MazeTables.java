@@ -0,0 +1,214 @@
+package pacman.game.internal;
+
+import java.nio.ShortBuffer;
+
+import pacman.game.Constants.MOVE;
+
+/*
+ * Tables of static maze structure that the Ms Pac-Man sensors otherwise recompute by walking the
+ * graph every tick: the neighbour in each direction, junction and elbow flags, the next junction
+ * reached by heading in each direction (and how far away it is), and the directional path distance
+ * between every pair of junctions, which is what the escape-node sensors compare. Directions are
+ * 0/UP, 1/RIGHT, 2/DOWN, 3/LEFT, as in GameFacade.
+ *
+ * All values are 16-bit and live in a single buffer, which MazeData memory-maps from
+ * data/pacman/binary, so every game in a JVM shares one copy. Game.getMazeTables creates the tables
+ * on first use.
+ *
+ * Layout, in shorts: neighbours[node * 4 + dir], nextJunction[node * 4 + dir],
+ * nextJunctionDistance[node * 4 + dir], junctionNumber[node], flags[node],
+ * junctionDistance[(junctionNumber * 4 + dir) * numJunctions + junctionNumber].
+ */
+public final class MazeTables {
+
+	public static final int NUM_DIRS = 4;
+	// No junction ahead: facing the wall of a T-junction
+	public static final int NO_JUNCTION = -1;
+	// The walk used by GameFacade.nextJunctionInDirection fails from here (e.g. the lair)
+	public static final int NOT_TABULATED = -2;
+
+	static final int FLAG_JUNCTION = 1;
+	static final int FLAG_ELBOW = 2;
+
+	private static final MOVE[] MOVES = MOVE.values();
+
+	public final int numNodes;
+	public final int numJunctions;
+	private final ShortBuffer data;
+	private final int nextJunctionStart, nextDistanceStart, junctionNumberStart, flagStart, junctionDistanceStart;
+
+	MazeTables(int numNodes, int numJunctions, ShortBuffer data) {
+		this.numNodes = numNodes;
+		this.numJunctions = numJunctions;
+		this.data = data;
+		nextJunctionStart = numNodes * NUM_DIRS;
+		nextDistanceStart = nextJunctionStart + numNodes * NUM_DIRS;
+		junctionNumberStart = nextDistanceStart + numNodes * NUM_DIRS;
+		flagStart = junctionNumberStart + numNodes;
+		junctionDistanceStart = flagStart + numNodes;
+	}
+
+	static int length(int numNodes, int numJunctions) {
+		return numNodes * (3 * NUM_DIRS + 2) + numJunctions * NUM_DIRS * numJunctions;
+	}
+
+	/*
+	 * Node in the given direction, or -1 for a wall
+	 */
+	public int neighbour(int node, int dir) {
+		return data.get(node * NUM_DIRS + dir);
+	}
+
+	public boolean isJunction(int node) {
+		return (data.get(flagStart + node) & FLAG_JUNCTION) != 0;
+	}
+
+	/*
+	 * Two routes out, but not straight through: a corner
+	 */
+	public boolean isElbow(int node) {
+		return (data.get(flagStart + node) & FLAG_ELBOW) != 0;
+	}
+
+	/*
+	 * First junction reached from node when the last move was dir, following corners.
+	 * NO_JUNCTION when facing the wall of a T-junction, NOT_TABULATED when there is no way on.
+	 */
+	public int nextJunction(int node, int dir) {
+		return data.get(nextJunctionStart + node * NUM_DIRS + dir);
+	}
+
+	/*
+	 * Number of steps to nextJunction(node, dir), or a negative value when there is none
+	 */
+	public int nextJunctionDistance(int node, int dir) {
+		return data.get(nextDistanceStart + node * NUM_DIRS + dir);
+	}
+
+	/*
+	 * Position of the node in Maze.junctionIndices, or -1 if it is not a junction
+	 */
+	public int junctionNumber(int node) {
+		return data.get(junctionNumberStart + node);
+	}
+
+	/*
+	 * Length of the directional path (as GameFacade.getDirectionalPathDistance) from one junction,
+	 * first moving in dir, to another junction. -1 if dir is a wall.
+	 */
+	public int junctionDistance(int fromJunction, int dir, int toJunction) {
+		return data.get(junctionDistanceStart
+				+ (junctionNumber(fromJunction) * NUM_DIRS + dir) * numJunctions + junctionNumber(toJunction));
+	}
+
+	/*
+	 * Computes all tables for the maze. The directional distances come from the junction paths of
+	 * the cache, exactly as the GameFacade queries compute them.
+	 */
+	static short[] compute(Maze maze, PathsCache cache) {
+		int numNodes = maze.graph.length;
+		int numJunctions = maze.junctionIndices.length;
+		short[] table = new short[length(numNodes, numJunctions)];
+		int nextJunctionStart = numNodes * NUM_DIRS;
+		int nextDistanceStart = nextJunctionStart + numNodes * NUM_DIRS;
+		int junctionNumberStart = nextDistanceStart + numNodes * NUM_DIRS;
+		int flagStart = junctionNumberStart + numNodes;
+		int junctionDistanceStart = flagStart + numNodes;
+
+		int[][] neighbours = new int[numNodes][NUM_DIRS];
+		for (int node = 0; node < numNodes; node++) {
+			for (int dir = 0; dir < NUM_DIRS; dir++) {
+				Integer next = maze.graph[node].neighbourhood.get(MOVES[dir]);
+				neighbours[node][dir] = next == null ? -1 : next;
+				table[node * NUM_DIRS + dir] = (short) neighbours[node][dir];
+			}
+			boolean junction = maze.graph[node].numNeighbouringNodes > 2;
+			boolean elbow = maze.graph[node].numNeighbouringNodes == 2;
+			for (int dir = 0; dir < 2; dir++) { // A straight corridor is open on opposite sides
+				if (neighbours[node][dir] != -1 && neighbours[node][dir + 2] != -1) {
+					elbow = false;
+				}
+			}
+			table[flagStart + node] = (short) ((junction ? FLAG_JUNCTION : 0) | (elbow ? FLAG_ELBOW : 0));
+			table[junctionNumberStart + node] = -1;
+		}
+		for (int q = 0; q < numJunctions; q++) {
+			table[junctionNumberStart + maze.junctionIndices[q]] = (short) q;
+		}
+
+		for (int node = 0; node < numNodes; node++) {
+			for (int dir = 0; dir < NUM_DIRS; dir++) {
+				int[] result = walkToJunction(maze, neighbours, node, dir);
+				table[nextJunctionStart + node * NUM_DIRS + dir] = (short) result[0];
+				table[nextDistanceStart + node * NUM_DIRS + dir] = (short) result[1];
+			}
+		}
+
+		for (int q = 0; q < numJunctions; q++) {
+			int from = maze.junctionIndices[q];
+			for (int dir = 0; dir < NUM_DIRS; dir++) {
+				int start = junctionDistanceStart + (q * NUM_DIRS + dir) * numJunctions;
+				for (int z = 0; z < numJunctions; z++) {
+					int to = maze.junctionIndices[z];
+					int distance;
+					if (neighbours[from][dir] == -1) {
+						distance = -1;
+					} else if (neighbours[from][(dir + 3) % 4] == -1 && neighbours[from][(dir + 1) % 4] == -1) {
+						distance = cache.getPathDistanceFromA2B(from, to, MOVES[dir]);
+					} else {
+						distance = 1 + cache.getPathDistanceFromA2B(neighbours[from][dir], to, MOVES[dir]);
+					}
+					table[start + z] = (short) distance;
+				}
+			}
+		}
+		return table;
+	}
+
+	/*
+	 * Same walk as GameFacade.nextJunctionInDirection without power pills: the reverse of the last
+	 * move is never taken, and the first open direction is followed until a junction is reached.
+	 *
+	 * @return junction and distance
+	 */
+	private static int[] walkToJunction(Maze maze, int[][] neighbours, int node, int dir) {
+		int reverse = (dir + 2) % 4;
+		int numOpen = 0;
+		int firstOpen = -1;
+		for (int d = 0; d < NUM_DIRS; d++) {
+			if (d != reverse && neighbours[node][d] != -1) {
+				numOpen++;
+				if (firstOpen == -1) {
+					firstOpen = d;
+				}
+			}
+		}
+		int move;
+		if (numOpen == 0) {
+			return new int[] { NOT_TABULATED, NOT_TABULATED };
+		} else if (numOpen == 1) { // Elbow: the only way on
+			move = firstOpen;
+		} else if (neighbours[node][dir] == -1) { // Facing the wall of a T-junction
+			return new int[] { NO_JUNCTION, NO_JUNCTION };
+		} else {
+			move = dir;
+		}
+		int pos = neighbours[node][move];
+		int distance = 1;
+		while (maze.graph[pos].numNeighbouringNodes <= 2) {
+			int next = -1;
+			for (int d = 0; d < NUM_DIRS && next == -1; d++) {
+				if (d != (move + 2) % 4 && neighbours[pos][d] != -1) {
+					next = d;
+				}
+			}
+			if (next == -1 || distance > maze.graph.length) { // Dead end, which the original walk cannot handle
+				return new int[] { NOT_TABULATED, NOT_TABULATED };
+			}
+			move = next;
+			pos = neighbours[pos][move];
+			distance++;
+		}
+		return new int[] { pos, distance };
+	}
+}
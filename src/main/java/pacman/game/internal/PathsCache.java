@@ -21,32 +21,68 @@ import pacman.game.Game;
  *  (a) Looking at all combinations of 2-4 junctions, choosing the shortest path that also takes into account the path to get to either of them.
  *  
  * If one only wants the distance instead of the path, a more efficient method has been implemented that does not need to copy arrays.
+ *
+ * Computing the junction paths is slow, so the result is stored in binary form by MazeData and read back from there.
  */
 public class PathsCache {
 
+	private static final MOVE[] MOVES = MOVE.values();
+
 	public HashMap<Integer, Integer> junctionIndexConverter;
+	// Same as junctionIndexConverter, indexed by node, so lookups do not box. -1 for nodes that are not junctions
+	private int[] junctionIndex;
 	public DNode[] nodes;
 	public Junction[] junctions;
-	public Game game;
+	public Maze maze;
 
+	/*
+	 * Computes all paths from scratch
+	 */
 	public PathsCache(int mazeIndex) {
-		junctionIndexConverter = new HashMap<Integer, Integer>();
+		Game game = new Game(0, mazeIndex);
+		this.maze = game.getCurrentMaze();
+		indexJunctions();
 
-		this.game = new Game(0, mazeIndex);
-		Maze m = game.getCurrentMaze();
+		nodes = assignJunctionsToNodes(game);
+		junctions = junctionDistances(game);
 
-		int[] jctIndices = m.junctionIndices;
+		for (int i = 0; i < junctions.length; i++) {
+			junctions[i].computeShortestPaths();
+		}
+	}
+
+	/*
+	 * Wraps paths that were computed earlier (see MazeData)
+	 */
+	PathsCache(Maze maze, DNode[] nodes, Junction[] junctions) {
+		this.maze = maze;
+		this.nodes = nodes;
+		this.junctions = junctions;
+		indexJunctions();
+	}
+
+	private void indexJunctions() {
+		junctionIndexConverter = new HashMap<Integer, Integer>();
+
+		int[] jctIndices = maze.junctionIndices;
+		junctionIndex = new int[maze.graph.length];
+		Arrays.fill(junctionIndex, -1);
 
 		for (int i = 0; i < jctIndices.length; i++) {
 			junctionIndexConverter.put(jctIndices[i], i);
+			junctionIndex[jctIndices[i]] = i;
 		}
+	}
 
-		nodes = assignJunctionsToNodes(game);
-		junctions = junctionDistances(game);
-
-		for (int i = 0; i < junctions.length; i++) {
-			junctions[i].computeShortestPaths();
+	private MOVE getMoveToMakeToReachDirectNeighbour(int currentNodeIndex, int neighbourNodeIndex) {
+		for (MOVE move : MOVES) {
+			Integer neighbour = maze.graph[currentNodeIndex].neighbourhood.get(move);
+			if (neighbour != null && neighbour == neighbourNodeIndex) {
+				return move;
+			}
 		}
+
+		return null;
 	}
 
 	// for Ms Pac-Man
@@ -100,10 +136,111 @@ public class PathsCache {
 		return concat(closestFromJunctions.get(minFrom).path, shortestPath, closestToJunctions.get(minTo).reversePath);
 	}
 
+	// Length of getPathFromA2B(a, b), without building the path
+	public int getPathDistanceFromA2B(int a, int b) {
+		if (a == b) {
+			return 0;
+		}
+
+		ArrayList<JunctionData> closestFromJunctions = nodes[a].closestJunctions;
+
+		for (int w = 0; w < closestFromJunctions.size(); w++) {
+			int[] path = closestFromJunctions.get(w).path;
+			for (int i = 0; i < path.length; i++) {
+				if (path[i] == b) {
+					return i + 1;
+				}
+			}
+		}
+
+		ArrayList<JunctionData> closestToJunctions = nodes[b].closestJunctions;
+
+		int minDistance = Integer.MAX_VALUE;
+
+		for (int i = 0; i < closestFromJunctions.size(); i++) {
+			for (int j = 0; j < closestToJunctions.size(); j++) {
+				int distance = closestFromJunctions.get(i).path.length
+						+ junctions[junctionIndex[closestFromJunctions.get(i).nodeID]].paths[junctionIndex[closestToJunctions
+								.get(j).nodeID]].get(MOVE.NEUTRAL).length
+						+ closestToJunctions.get(j).path.length;
+
+				if (distance < minDistance) {
+					minDistance = distance;
+				}
+			}
+		}
+
+		if (minDistance == Integer.MAX_VALUE) { // Fail the same way the path version does
+			return getPathFromA2B(a, b).length;
+		}
+		return minDistance;
+	}
+
 	/////// ghosts //////////
-	// To be made more efficient shortly.
+	// Length of getPathFromA2B(a, b, lastMoveMade), without building the path
 	public int getPathDistanceFromA2B(int a, int b, MOVE lastMoveMade) {
-		return getPathFromA2B(a, b, lastMoveMade).length;
+		if (a == b) {
+			return 0;
+		}
+
+		JunctionData fromJunction = nodes[a].getNearestJunction(lastMoveMade);
+
+		for (int i = 0; i < fromJunction.path.length; i++) {
+			if (fromJunction.path[i] == b) {
+				return i + 1;
+			}
+		}
+
+		int junctionFrom = fromJunction.nodeID;
+		int junctionFromId = junctionIndex[junctionFrom];
+		MOVE moveEnteredJunction = fromJunction.lastMove.equals(MOVE.NEUTRAL) ? lastMoveMade : fromJunction.lastMove;
+
+		ArrayList<JunctionData> junctionsTo = nodes[b].closestJunctions;
+
+		int minDist = Integer.MAX_VALUE;
+		boolean found = false;
+
+		// Same choices as getPathFromA2B, which always returns the first path plus minDist nodes
+		for (int q = 0; q < junctionsTo.size(); q++) {
+			int junctionToId = junctionIndex[junctionsTo.get(q).nodeID];
+
+			if (junctionFromId == junctionToId) {
+				if (!getMoveToMakeToReachDirectNeighbour(junctionFrom, junctionsTo.get(q).reversePath[0])
+						.equals(moveEnteredJunction.opposite())) {
+					int[] reversepath = junctionsTo.get(q).reversePath;
+					int cutoff = -1;
+
+					for (int w = 0; w < reversepath.length; w++) {
+						if (reversepath[w] == b) {
+							cutoff = w;
+						}
+					}
+
+					minDist = cutoff + 1;
+					found = true;
+				}
+			} else {
+				EnumMap<MOVE, int[]> paths = junctions[junctionFromId].paths[junctionToId];
+
+				// Same order as iterating over the entries, without allocating them
+				for (MOVE move : MOVES) {
+					int[] path = paths.get(move);
+					if (path != null && !move.opposite().equals(moveEnteredJunction) && !move.equals(MOVE.NEUTRAL)) {
+						int length = path.length + junctionsTo.get(q).path.length;
+
+						if (length < minDist) {
+							minDist = length;
+							found = true;
+						}
+					}
+				}
+			}
+		}
+
+		if (!found) { // Fail the same way the path version does
+			return getPathFromA2B(a, b, lastMoveMade).length;
+		}
+		return fromJunction.path.length + minDist;
 	}
 
 	public int[] getPathFromA2B(int a, int b, MOVE lastMoveMade) {
@@ -152,7 +289,7 @@ public class PathsCache {
 			int junctionToId = junctionIndexConverter.get(junctionsTo.get(q).nodeID);
 
 			if (junctionFromId == junctionToId) {
-				if (!game.getMoveToMakeToReachDirectNeighbour(junctionFrom, junctionsTo.get(q).reversePath[0])
+				if (!getMoveToMakeToReachDirectNeighbour(junctionFrom, junctionsTo.get(q).reversePath[0])
 						.equals(moveEnteredJunction.opposite())) {
 					int[] reversepath = junctionsTo.get(q).reversePath;
 					int cutoff = -1;
@@ -304,160 +441,3 @@ public class PathsCache {
 		return fullArray;
 	}
 }
-
-class JunctionData {
-
-	public int nodeID, nodeStartedFrom;
-	public MOVE firstMove, lastMove;
-	public int[] path, reversePath;
-
-	public JunctionData(int nodeID, MOVE firstMove, int nodeStartedFrom, int[] path, MOVE lastMove) {
-		this.nodeID = nodeID;
-		this.nodeStartedFrom = nodeStartedFrom;
-		this.firstMove = firstMove;
-		this.path = path;
-		this.lastMove = lastMove;
-
-		if (path.length > 0) {
-			this.reversePath = getReversePath(path);
-		} else {
-			reversePath = new int[] {};
-		}
-	}
-
-	public int[] getReversePath(int[] path) {
-		int[] reversePath = new int[path.length];
-
-		for (int i = 1; i < reversePath.length; i++) {
-			reversePath[i - 1] = path[path.length - 1 - i];
-		}
-
-		reversePath[reversePath.length - 1] = nodeStartedFrom;
-
-		return reversePath;
-	}
-
-	public String toString() {
-		return nodeID + "\t" + firstMove.toString() + "\t" + Arrays.toString(path);
-	}
-}
-
-class DNode {
-
-	public int nodeID;
-	public ArrayList<JunctionData> closestJunctions;
-	public boolean isJunction;
-
-	public DNode(int nodeID, boolean isJunction) {
-		this.nodeID = nodeID;
-		this.isJunction = isJunction;
-
-		this.closestJunctions = new ArrayList<JunctionData>();
-
-		if (isJunction) {
-			closestJunctions.add(new JunctionData(nodeID, MOVE.NEUTRAL, nodeID, new int[] {}, MOVE.NEUTRAL));
-		}
-	}
-
-	public int[] getPathToJunction(MOVE lastMoveMade) {
-		if (isJunction) {
-			return new int[] {};
-		}
-
-		for (int i = 0; i < closestJunctions.size(); i++) {
-			if (!closestJunctions.get(i).firstMove.equals(lastMoveMade.opposite())) {
-				return closestJunctions.get(i).path;
-			}
-		}
-
-		return null;
-	}
-
-	public JunctionData getNearestJunction(MOVE lastMoveMade) {
-		if (isJunction) {
-			return closestJunctions.get(0);
-		}
-
-		int minDist = Integer.MAX_VALUE;
-		int bestIndex = -1;
-
-		for (int i = 0; i < closestJunctions.size(); i++) {
-			if (!closestJunctions.get(i).firstMove.equals(lastMoveMade.opposite())) {
-				int newDist = closestJunctions.get(i).path.length;
-
-				if (newDist < minDist) {
-					minDist = newDist;
-					bestIndex = i;
-				}
-			}
-		}
-
-		if (bestIndex != -1) {
-			return closestJunctions.get(bestIndex);
-		} else {
-			return null;
-		}
-	}
-
-	public void addPath(int junctionID, MOVE firstMove, int nodeStartedFrom, int[] path, MOVE lastMove) {
-		closestJunctions.add(new JunctionData(junctionID, firstMove, nodeStartedFrom, path, lastMove));
-	}
-
-	public String toString() {
-		return "" + nodeID + "\t" + isJunction;
-	}
-}
-
-// for each junction, stores paths to all other junctions for all directions
-class Junction {
-
-	public int jctId, nodeId;
-	public EnumMap<MOVE, int[]>[] paths;
-
-	public void computeShortestPaths() {
-		MOVE[] moves = MOVE.values();
-
-		for (int i = 0; i < paths.length; i++) {
-			if (i == jctId) {
-				paths[i].put(MOVE.NEUTRAL, new int[] {});
-			} else {
-				int distance = Integer.MAX_VALUE;
-				int[] path = null;
-
-				for (int j = 0; j < moves.length; j++) {
-					if (paths[i].containsKey(moves[j])) {
-						int[] tmp = paths[i].get(moves[j]);
-
-						if (tmp.length < distance) {
-							distance = tmp.length;
-							path = tmp;
-						}
-					}
-				}
-
-				paths[i].put(MOVE.NEUTRAL, path);
-			}
-		}
-	}
-
-	@SuppressWarnings("unchecked")
-	public Junction(int jctId, int nodeId, int numJcts) {
-		this.jctId = jctId;
-		this.nodeId = nodeId;
-
-		paths = new EnumMap[numJcts];
-
-		for (int i = 0; i < paths.length; i++) {
-			paths[i] = new EnumMap<MOVE, int[]>(MOVE.class);
-		}
-	}
-
-	// store the shortest path given the last move made
-	public void addPath(int toJunction, MOVE firstMoveMade, int[] path) {
-		paths[toJunction].put(firstMoveMade, path);
-	}
-
-	public String toString() {
-		return jctId + "\t" + nodeId;
-	}
-}
\ No newline at end of file
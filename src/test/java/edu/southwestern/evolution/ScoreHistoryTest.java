@@ -0,0 +1,178 @@
+package edu.southwestern.evolution;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.southwestern.MMNEAT.MMNEAT;
+import edu.southwestern.parameters.CommonConstants;
+import edu.southwestern.parameters.Parameters;
+import edu.southwestern.util.stats.Average;
+import edu.southwestern.util.stats.Max;
+import edu.southwestern.util.stats.Median;
+import edu.southwestern.util.stats.Min;
+
+public class ScoreHistoryTest {
+
+	private static final double ERROR = .0001;
+	private static final String BASE = "scorehistorytest";
+
+	@Before
+	public void setUp() throws Exception {
+		ScoreHistory.reset();
+		ScoreHistory.retainAllScores(false);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		ScoreHistory.reset();
+		ScoreHistory.retainAllScores(false);
+		CommonConstants.averageScoreHistory = false;
+		MMNEAT.clearClasses();
+		delete(new File(BASE));
+	}
+
+	private static void delete(File f) {
+		File[] contents = f.listFiles();
+		if (contents != null) {
+			for (File c : contents) {
+				delete(c);
+			}
+		}
+		f.delete();
+	}
+
+	/**
+	 * Point ScoreHistory at a fresh run directory and make load() active
+	 * @return the score history log file
+	 */
+	private static File prepareRunDirectory() {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false", "base:" + BASE,
+				"saveTo:History", "runNumber:0" });
+		CommonConstants.averageScoreHistory = true;
+		File dir = new File(BASE + "/History0");
+		dir.mkdirs();
+		return new File(dir, "scoreHistory.log");
+	}
+
+	@Test
+	public void testRunningStatistics() {
+		ScoreHistory.add(1, new double[] {1, -2});
+		ScoreHistory.add(1, new double[] {5, -4});
+		ScoreHistory.add(1, new double[] {3, -9});
+		assertEquals(3, ScoreHistory.count(1));
+		assertArrayEquals(new double[] {3, -5}, ScoreHistory.applyStat(1, new Average()), ERROR);
+		assertArrayEquals(new double[] {5, -2}, ScoreHistory.applyStat(1, new Max()), ERROR);
+		assertArrayEquals(new double[] {1, -9}, ScoreHistory.applyStat(1, new Min()), ERROR);
+		assertArrayEquals(new double[] {3, -9}, ScoreHistory.getLast(1), ERROR);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonStreamingStatistic() {
+		ScoreHistory.add(1, new double[] {1});
+		ScoreHistory.applyStat(1, new Median());
+	}
+
+	@Test
+	public void testRetainedScoresForNonStreamingStatistic() {
+		ScoreHistory.retainAllScores(true);
+		ScoreHistory.add(1, new double[] {1, 10});
+		ScoreHistory.add(1, new double[] {7, 30});
+		ScoreHistory.add(1, new double[] {2, 20});
+		assertArrayEquals(new double[] {2, 20}, ScoreHistory.applyStat(1, new Median()), ERROR);
+		// Moment statistics still come from running statistics
+		assertArrayEquals(new double[] {10.0/3, 20}, ScoreHistory.applyStat(1, new Average()), ERROR);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUntrackedGenotype() {
+		ScoreHistory.add(1, new double[] {1});
+		ScoreHistory.applyStat(2, new Average());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetLastOfUntrackedGenotype() {
+		ScoreHistory.add(1, new double[] {1});
+		ScoreHistory.getLast(2);
+	}
+
+	@Test
+	public void testSaveAndLoadRoundTrip() {
+		prepareRunDirectory();
+		ScoreHistory.retainAllScores(true);
+		ScoreHistory.add(1, new double[] {1, -2});
+		ScoreHistory.add(2, new double[] {4, 4});
+		ScoreHistory.save();
+		// Only changes since the previous save are appended
+		ScoreHistory.add(1, new double[] {5, -4});
+		ScoreHistory.add(1, new double[] {3, -9});
+		ScoreHistory.save();
+		ScoreHistory.clean(); // Both were accessed since last reset
+		ScoreHistory.getLast(1);
+		ScoreHistory.clean(); // 2 is evicted
+		ScoreHistory.save();
+
+		ScoreHistory.load();
+		assertEquals(3, ScoreHistory.count(1));
+		assertEquals(0, ScoreHistory.count(2));
+		assertArrayEquals(new double[] {3, -5}, ScoreHistory.applyStat(1, new Average()), ERROR);
+		assertArrayEquals(new double[] {5, -2}, ScoreHistory.applyStat(1, new Max()), ERROR);
+		assertArrayEquals(new double[] {1, -9}, ScoreHistory.applyStat(1, new Min()), ERROR);
+		assertArrayEquals(new double[] {3, -4}, ScoreHistory.applyStat(1, new Median()), ERROR);
+		assertArrayEquals(new double[] {3, -9}, ScoreHistory.getLast(1), ERROR);
+		// Loaded history keeps accumulating
+		ScoreHistory.add(1, new double[] {7, 0});
+		assertEquals(4, ScoreHistory.count(1));
+		assertArrayEquals(new double[] {4, -3.75}, ScoreHistory.applyStat(1, new Average()), ERROR);
+	}
+
+	@Test
+	public void testCompactionKeepsOnlyLiveGenotypes() throws Exception {
+		File log = prepareRunDirectory();
+		final int generations = 50;
+		for(int g = 0; g < generations; g++) {
+			// Survivor 0 is scored every generation, each other genotype lives for one generation
+			ScoreHistory.add(0, new double[] {g});
+			ScoreHistory.add(g + 1, new double[] {-g});
+			ScoreHistory.save();
+			ScoreHistory.getLast(0);
+			ScoreHistory.clean();
+		}
+		ScoreHistory.save();
+		// Without compaction the log would hold several records per generation
+		assertTrue(Files.readAllLines(log.toPath()).size() < generations);
+		assertFalse(new File(log.getPath() + ".tmp").exists());
+
+		ScoreHistory.load();
+		assertEquals(generations, ScoreHistory.count(0));
+		assertArrayEquals(new double[] {(generations - 1) / 2.0}, ScoreHistory.applyStat(0, new Average()), ERROR);
+		assertArrayEquals(new double[] {generations - 1}, ScoreHistory.getLast(0), ERROR);
+		// Genotypes outlive the generation they were added in by one clean
+		for(int g = 0; g < generations - 1; g++) {
+			assertEquals(0, ScoreHistory.count(g + 1));
+		}
+		assertEquals(1, ScoreHistory.count(generations));
+	}
+
+	@Test
+	public void testCleanEvictsUnaccessed() {
+		ScoreHistory.add(1, new double[] {1});
+		ScoreHistory.add(2, new double[] {2});
+		ScoreHistory.clean(); // Both were accessed since last reset
+		assertEquals(1, ScoreHistory.count(1));
+		assertEquals(1, ScoreHistory.count(2));
+		ScoreHistory.getLast(2);
+		ScoreHistory.clean(); // 1 was not accessed, so it is gone
+		assertEquals(0, ScoreHistory.count(1));
+		assertEquals(1, ScoreHistory.count(2));
+		// Evicted row is recycled for a new genotype
+		ScoreHistory.add(3, new double[] {7});
+		assertArrayEquals(new double[] {7}, ScoreHistory.getLast(3), ERROR);
+		assertArrayEquals(new double[] {2}, ScoreHistory.getLast(2), ERROR);
+	}
+}
@@ -0,0 +1,96 @@
+package edu.southwestern.evolution.lineage;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LineageStoreTest {
+
+	private File dir;
+	private LineageStore store;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = new File(System.getProperty("java.io.tmpdir"), "LineageStoreTest");
+		store = LineageStore.create(dir);
+		// Initial population 0, 1, 2 is never logged as offspring
+		store.addOffspring(3, 0, -1, 1);
+		store.addOffspring(4, 0, 1, 1);
+		store.addOffspring(5, 3, 4, 2);
+		store.addOffspring(6, 2, -1, 2);
+		store.addMutation(3, "Perturb");
+		store.addMutation(3, "Splice");
+		store.addScores(3, new ArrayList<Double>(Arrays.asList(1.0, 2.0)), 1);
+		store.addScores(3, new ArrayList<Double>(Arrays.asList(3.0, 4.0)), 2);
+		store.addScores(5, new ArrayList<Double>(Arrays.asList(5.0, 6.0)), 2);
+	}
+
+	@After
+	public void tearDown() {
+		store.close();
+		for (File f : dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void testRecords() {
+		assertEquals(7, store.size());
+		assertTrue(store.contains(0));
+		assertFalse(store.contains(7));
+		Offspring o = store.get(3);
+		assertEquals(0, o.parentId1);
+		assertEquals(-1, o.parentId2);
+		assertEquals(1, o.generation);
+		assertEquals(Arrays.asList("Perturb", "Splice"), o.mutations);
+		assertEquals(Arrays.asList(1, 2), o.correspondingGenerations);
+		assertEquals(Arrays.asList(3.0, 4.0), o.scores.get(1));
+		// Only referenced as a parent, so there is no record to materialize
+		assertNull(store.get(0));
+		assertEquals(-1, store.generation(0));
+		assertNull(store.get(7));
+		assertNull(store.get(100));
+		// Scored without being logged as offspring, like the in-memory lineage
+		store.addScores(1, new ArrayList<Double>(Arrays.asList(7.0, 8.0)), 1);
+		assertEquals(-1, store.get(1).parentId1);
+	}
+
+	@Test
+	public void testAdjacency() {
+		assertEquals(Arrays.asList(3L, 4L), store.children(0));
+		assertEquals(Arrays.asList(4L), store.children(1));
+		assertEquals(Arrays.asList(5L), store.children(4));
+		assertTrue(store.children(5).isEmpty());
+		ArrayList<Long> ancestors = store.ancestors(5);
+		assertEquals(4, ancestors.size());
+		assertTrue(ancestors.containsAll(Arrays.asList(0L, 1L, 3L, 4L)));
+		ArrayList<Long> subtree = store.subtree(0);
+		assertEquals(3, subtree.size());
+		assertTrue(subtree.containsAll(Arrays.asList(3L, 4L, 5L)));
+	}
+
+	@Test
+	public void testGenerations() {
+		assertEquals(Arrays.asList(3L, 4L), store.bornInGeneration(1));
+		assertEquals(Arrays.asList(5L, 6L), store.bornInGeneration(2));
+		assertEquals(Arrays.asList(3L, 5L), store.scoredInGeneration(2));
+		assertEquals(2, store.lastGeneration());
+	}
+
+	@Test
+	public void testReopen() throws IOException {
+		store.close();
+		store = LineageStore.open(dir);
+		assertEquals(7, store.size());
+		assertEquals(Arrays.asList(5L, 6L), store.bornInGeneration(2));
+		assertEquals(Arrays.asList("Perturb", "Splice"), store.get(3).mutations);
+	}
+}
@@ -0,0 +1,157 @@
+package edu.southwestern.evolution.mapelites;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.southwestern.MMNEAT.MMNEAT;
+import edu.southwestern.evolution.EvolutionaryHistory;
+import edu.southwestern.evolution.genotypes.BoundedIntegerValuedGenotype;
+import edu.southwestern.parameters.Parameters;
+import edu.southwestern.scores.Score;
+import edu.southwestern.util.file.FileUtilities;
+import edu.southwestern.util.random.RandomNumbers;
+
+public class ArchiveJournalTest {
+
+	private static final String BASE = "journaltest";
+
+	/**
+	 * Small archive for testing
+	 */
+	public static class FourBins implements BinLabels<ArrayList<Integer>> {
+		@Override
+		public List<String> binLabels() {
+			return Arrays.asList("A", "B", "C", "D");
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		MMNEAT.clearClasses();
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:true", "base:" + BASE,
+				"saveTo:Journal", "log:Journal", "runNumber:0", "journalSnapshotFrequency:3",
+				"mapElitesBinLabels:edu.southwestern.evolution.mapelites.ArchiveJournalTest$FourBins" });
+		new File(FileUtilities.getSaveDirectory()).mkdirs();
+		EvolutionaryHistory.setInnovation(0);
+		EvolutionaryHistory.setHighestGenotypeId(0);
+		RandomNumbers.reset(0);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		delete(new File(BASE));
+		MMNEAT.clearClasses();
+	}
+
+	private static void delete(File f) {
+		File[] contents = f.listFiles();
+		if (contents != null) {
+			for (File c : contents) {
+				delete(c);
+			}
+		}
+		f.delete();
+	}
+
+	/**
+	 * @param binScores Score of the new individual in each of the four bins
+	 * @return Score for a new genotype
+	 */
+	private static Score<ArrayList<Integer>> candidate(double... binScores) {
+		BoundedIntegerValuedGenotype genotype = new BoundedIntegerValuedGenotype(new ArrayList<Integer>(Arrays.asList(1, 2, 3)));
+		ArrayList<Double> behavior = new ArrayList<Double>();
+		for (double s : binScores) {
+			behavior.add(s);
+		}
+		return new Score<ArrayList<Integer>>(genotype, new double[0], behavior);
+	}
+
+	@Test
+	public void testResumeRestoresLastCommit() {
+		Archive<ArrayList<Integer>> archive = new Archive<>(true);
+		ArchiveJournal<ArrayList<Integer>> journal = new ArchiveJournal<>(archive);
+		archive.setJournal(journal);
+		assertFalse(journal.canResume());
+
+		Score<ArrayList<Integer>> first = candidate(1, 1, 1, 1);
+		assertTrue(archive.add(first));
+		journal.snapshot(0, 0);
+		assertTrue(journal.canResume());
+
+		Score<ArrayList<Integer>> second = candidate(2, 0, 0, 0);
+		assertTrue(archive.add(second));
+		assertFalse(archive.add(candidate(0, 0, 0, 0))); // Not an elite anywhere
+		journal.commit(2, 1);
+		long expectedRandom = RandomNumbers.randomGenerator.nextLong();
+		long expectedId = Parameters.parameters.longParameter("lastGenotypeId");
+
+		// This iteration never commits, as though the process crashed
+		assertTrue(archive.add(candidate(0, 3, 0, 0)));
+		journal.close();
+
+		RandomNumbers.reset(1234);
+		EvolutionaryHistory.setHighestGenotypeId(0);
+		Archive<ArrayList<Integer>> resumed = new Archive<>(true);
+		ArchiveJournal<ArrayList<Integer>> resumedJournal = new ArchiveJournal<>(resumed);
+		resumed.setJournal(resumedJournal);
+		ArchiveJournal.Progress progress = resumedJournal.restore();
+
+		assertEquals(2, progress.iterations);
+		assertEquals(1, progress.iterationsWithoutElite);
+		assertEquals(second.individual.getId(), resumed.getElite(0).individual.getId());
+		for (int i = 1; i < 4; i++) {
+			assertEquals(first.individual.getId(), resumed.getElite(i).individual.getId());
+			assertEquals(1.0, resumed.getBinScore(i), 0);
+		}
+		assertEquals(2.0, resumed.getBinScore(0), 0);
+		// Random generator and genotype ids continue exactly where the commit left them
+		assertEquals(expectedRandom, RandomNumbers.randomGenerator.nextLong());
+		assertEquals(expectedId, Parameters.parameters.longParameter("lastGenotypeId"));
+		resumedJournal.close();
+	}
+
+	@Test
+	public void testSnapshotRemovesDisplacedElites() {
+		Archive<ArrayList<Integer>> archive = new Archive<>(true);
+		ArchiveJournal<ArrayList<Integer>> journal = new ArchiveJournal<>(archive);
+		archive.setJournal(journal);
+		Score<ArrayList<Integer>> first = candidate(1, 1, 1, 1);
+		archive.add(first);
+		journal.snapshot(0, 0);
+		assertFalse(journal.snapshotDue(2));
+		assertTrue(journal.snapshotDue(3));
+
+		Score<ArrayList<Integer>> better = candidate(2, 2, 2, 2);
+		archive.add(better);
+		journal.commit(3, 0);
+		String elites = archive.getArchiveDirectory() + File.separator + "elites" + File.separator;
+		assertTrue(new File(elites + first.individual.getId() + ".xml").exists());
+		journal.snapshot(3, 0);
+
+		assertFalse(new File(elites + first.individual.getId() + ".xml").exists());
+		assertFalse(new File(elites + first.individual.getId() + ".txt").exists());
+		assertTrue(new File(elites + better.individual.getId() + ".xml").exists());
+		assertFalse(new File(archive.getArchiveDirectory(), "journal.txt").exists());
+		journal.close();
+	}
+
+	@Test
+	public void testRandomEncoding() {
+		Random random = new Random(42);
+		random.nextGaussian(); // Leaves a cached Gaussian that must also be restored
+		Random copy = ArchiveJournal.decodeRandom(ArchiveJournal.encodeRandom(random));
+		for (int i = 0; i < 10; i++) {
+			assertEquals(random.nextGaussian(), copy.nextGaussian(), 0);
+			assertEquals(random.nextLong(), copy.nextLong());
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package edu.southwestern.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.southwestern.parameters.Parameters;
+import edu.southwestern.util.file.FileUtilities;
+import pacman.game.Constants;
+import pacman.game.Game;
+
+public class DeathLocationsLogTest {
+
+	private static final String BASE = "deathlogtest";
+	private static final int THREADS = 4;
+	private static final int DEATHS_PER_THREAD = 1000;
+
+	@Before
+	public void setUp() throws Exception {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false", "base:" + BASE,
+				"saveTo:Deaths", "log:Deaths", "runNumber:0",
+				"task:edu.southwestern.tasks.mspacman.MsPacManTask" });
+		new File(FileUtilities.getSaveDirectory()).mkdirs();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		delete(new File(BASE));
+	}
+
+	private static void delete(File f) {
+		File[] contents = f.listFiles();
+		if (contents != null) {
+			for (File c : contents) {
+				delete(c);
+			}
+		}
+		f.delete();
+	}
+
+	@Test
+	public void testParallelDeathsAndSnapshots() throws Exception {
+		final DeathLocationsLog log = new DeathLocationsLog();
+		Map<Integer, Map<Integer, Integer>> empty = log.deathCount();
+		assertEquals(0, empty.size());
+
+		Thread[] threads = new Thread[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			final int maze = t % 2;
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = 0; i < DEATHS_PER_THREAD; i++) {
+						log.recordDeath(maze, i % 10);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		// Readers keep seeing the old snapshot until a new one is taken
+		assertSame(empty, log.latestSnapshot());
+
+		Map<Integer, Map<Integer, Integer>> counts = log.deathCount();
+		assertEquals(2, counts.size());
+		int perLocation = (THREADS / 2) * DEATHS_PER_THREAD / 10;
+		for (int location = 0; location < 10; location++) {
+			assertEquals(perLocation, (int) counts.get(0).get(location));
+			assertEquals(perLocation, (int) counts.get(1).get(location));
+		}
+		assertFalse(counts.get(0).containsKey(10));
+		try {
+			counts.get(0).put(10, 1);
+			fail("Snapshots must not be modifiable");
+		} catch (UnsupportedOperationException e) {
+			// Expected
+		}
+		log.recordDeath(3, 7);
+		log.close();
+
+		// Resuming reads the deaths back from the file
+		DeathLocationsLog resumed = new DeathLocationsLog();
+		Map<Integer, Map<Integer, Integer>> reloaded = resumed.deathCount();
+		assertEquals(counts.get(0), reloaded.get(0));
+		assertEquals(counts.get(1), reloaded.get(1));
+		assertEquals(1, (int) reloaded.get(3).get(7));
+		resumed.close();
+	}
+
+	@Test
+	public void testBadLinesAreSkippedOnResume() throws Exception {
+		DeathLocationsLog log = new DeathLocationsLog();
+		log.recordDeath(0, 5);
+		log.close();
+		// Damaged lines, and locations that are not in any maze
+		PrintStream ps = new PrintStream(new FileOutputStream(log.getFile(), true));
+		ps.println("garbage");
+		ps.println("0:");
+		ps.println("0:x");
+		ps.println("-1:5");
+		ps.println(Constants.NUM_MAZES + ":5");
+		ps.println("0:-3");
+		ps.println("0:" + Game.getMaze(0).graph.length);
+		ps.println("1:2:3");
+		ps.println("1:3");
+		ps.close();
+
+		DeathLocationsLog resumed = new DeathLocationsLog();
+		Map<Integer, Map<Integer, Integer>> reloaded = resumed.latestSnapshot();
+		assertEquals(2, reloaded.size());
+		assertEquals(1, reloaded.get(0).size());
+		assertEquals(1, (int) reloaded.get(0).get(5));
+		assertEquals(1, reloaded.get(1).size());
+		assertEquals(1, (int) reloaded.get(1).get(3));
+		resumed.close();
+	}
+}
@@ -0,0 +1,112 @@
+package edu.southwestern.tasks;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Test;
+
+import edu.southwestern.MMNEAT.MMNEAT;
+import edu.southwestern.evolution.genotypes.BoundedIntegerValuedGenotype;
+import edu.southwestern.evolution.genotypes.Genotype;
+import edu.southwestern.parameters.Parameters;
+import edu.southwestern.scores.Score;
+import edu.southwestern.util.datastructures.ArrayUtil;
+import edu.southwestern.util.datastructures.Pair;
+import edu.southwestern.util.random.RandomNumbers;
+
+public class SinglePopulationCoevolutionTaskTest {
+
+	private static final int POPULATION_SIZE = 20;
+
+	/**
+	 * Each member of a pair scores the difference between its gene and the gene of its opponent
+	 */
+	public static class DifferenceTask extends SinglePopulationCoevolutionTask<ArrayList<Integer>> {
+		// Threads that evaluated groups, shared by all workers
+		final Set<String> threadNames;
+
+		public DifferenceTask(Set<String> threadNames) {
+			this.threadNames = threadNames;
+		}
+
+		@Override
+		public int numObjectives() {
+			return 1;
+		}
+
+		@Override
+		public int groupSize() {
+			return 2;
+		}
+
+		@Override
+		public ArrayList<Pair<double[], double[]>> evaluateGroup(ArrayList<Genotype<ArrayList<Integer>>> group) {
+			threadNames.add(Thread.currentThread().getName());
+			int first = group.get(0).getPhenotype().get(0);
+			int second = group.get(1).getPhenotype().get(0);
+			try {
+				// Games of different lengths, so that parallel evaluations finish out of order
+				Thread.sleep(first % 4);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			ArrayList<Pair<double[], double[]>> result = new ArrayList<Pair<double[], double[]>>(2);
+			result.add(new Pair<double[], double[]>(new double[] { first - second }, new double[0]));
+			result.add(new Pair<double[], double[]>(new double[] { second - first }, new double[0]));
+			return result;
+		}
+
+		@Override
+		protected SinglePopulationCoevolutionTask<ArrayList<Integer>> newWorker() {
+			return new DifferenceTask(threadNames);
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		MMNEAT.clearClasses();
+	}
+
+	/**
+	 * Fitness of each member of the population after one generation
+	 */
+	private static double[] evaluate(boolean parallel, Set<String> threadNames) {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false", "trials:3",
+				"parallelEvaluations:" + parallel, "threads:4" });
+		ArrayList<Genotype<ArrayList<Integer>>> population = new ArrayList<Genotype<ArrayList<Integer>>>(POPULATION_SIZE);
+		for (int i = 0; i < POPULATION_SIZE; i++) {
+			population.add(new BoundedIntegerValuedGenotype(ArrayUtil.intListFromArray(new int[] { (7 * i) % POPULATION_SIZE })));
+		}
+		RandomNumbers.reset(0);
+		ArrayList<Score<ArrayList<Integer>>> scores = new DifferenceTask(threadNames).evaluateAll(population);
+		assertEquals(POPULATION_SIZE, scores.size());
+		double[] fitness = new double[POPULATION_SIZE];
+		for (int i = 0; i < POPULATION_SIZE; i++) {
+			assertEquals(population.get(i), scores.get(i).individual);
+			fitness[i] = scores.get(i).scores[0];
+		}
+		return fitness;
+	}
+
+	@Test
+	public void testParallelEvaluationMatchesSequential() {
+		Set<String> sequentialThreads = Collections.synchronizedSet(new HashSet<String>());
+		double[] sequential = evaluate(false, sequentialThreads);
+		assertEquals(1, sequentialThreads.size());
+		assertTrue(sequentialThreads.contains(Thread.currentThread().getName()));
+
+		Set<String> parallelThreads = Collections.synchronizedSet(new HashSet<String>());
+		double[] parallel = evaluate(true, parallelThreads);
+		assertTrue(parallelThreads.size() > 1);
+		assertTrue(!parallelThreads.contains(Thread.currentThread().getName()));
+		// The same groups are formed for the same seed, and each score goes to the right individual
+		assertArrayEquals(sequential, parallel, 0);
+	}
+}
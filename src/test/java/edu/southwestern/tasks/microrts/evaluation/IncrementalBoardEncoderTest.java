@@ -0,0 +1,124 @@
+package edu.southwestern.tasks.microrts.evaluation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.southwestern.MMNEAT.MMNEAT;
+import edu.southwestern.networks.Network;
+import edu.southwestern.parameters.Parameters;
+import micro.ai.RandomBiasedAI;
+import micro.rts.GameState;
+import micro.rts.PhysicalGameState;
+import micro.rts.units.Unit;
+import micro.rts.units.UnitTypeTable;
+
+public class IncrementalBoardEncoderTest {
+
+	private static final String MAP = "data/microRTS/maps/8x8/basesWorkers8x8.xml";
+	private static final String NON_SQUARE_MAP = "data/microRTS/maps/EightBasesWorkers16x12.xml";
+	private static final int CYCLES = 300;
+
+	@Before
+	public void setUp() throws Exception {
+		Parameters.initializeParameterCollections(new String[]{"watch:false","io:false","netio:false","task:edu.southwestern.tasks.microrts.MicroRTSTask",
+				"mRTSMobileUnits:true","mRTSBuildings:true", "mRTSMyMobileUnits:true","mRTSMyBuildings:true","mRTSOpponentsMobileUnits:true",
+				"mRTSOpponentsBuildings:true","mRTSMyAll:true","mRTSOpponentsAll:true","mRTSAll:true","mRTSResources:true","mRTSTerrain:true",
+				"mRTSObjectivePath:true","mRTSAllSqrt3MobileUnits:true","mRTSMyBuildingGradientMobileUnits:true",
+				"mRTSResourceProportion:true"});
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		MMNEAT.clearClasses();
+	}
+
+	/**
+	 * States of a random game, where each state is followed by a sibling state
+	 * that took a different action, the way a search evaluates its leaves
+	 */
+	private static ArrayList<GameState> playoutStates(String map) throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		GameState gs = new GameState(PhysicalGameState.load(map, utt), utt);
+		RandomBiasedAI ai = new RandomBiasedAI(utt);
+		ArrayList<GameState> states = new ArrayList<GameState>();
+		for(int i = 0; i < CYCLES && !gs.gameover(); i++) {
+			GameState sibling = gs.clone();
+			sibling.issueSafe(ai.getAction(0, sibling));
+			sibling.cycle();
+			gs.issueSafe(ai.getAction(0, gs));
+			gs.issueSafe(ai.getAction(1, gs));
+			gs.cycle();
+			states.add(gs.clone());
+			states.add(sibling);
+		}
+		return states;
+	}
+
+	/**
+	 * Every state gets the same inputs as if it were encoded from scratch
+	 */
+	private static void assertSameAsFresh(NNEvaluationFunction<Network> incremental, NNEvaluationFunction<Network> fresh) throws Exception {
+		incremental.incrementalEncoding = true;
+		fresh.incrementalEncoding = false;
+		long reused = IncrementalBoardEncoder.cellsReused;
+		for(GameState gs : playoutStates(MAP)) {
+			for(int player = 0; player < 2; player++) {
+				assertArrayEquals(fresh.gameStateToArray(gs, player), incremental.gameStateToArray(gs, player), 0);
+			}
+		}
+		assertTrue(IncrementalBoardEncoder.cellsReused > reused);
+	}
+
+	@Test
+	public void testComplexEncodingMatchesFreshEncoding() throws Exception {
+		assertSameAsFresh(new NNComplexEvaluationFunction<Network>(), new NNComplexEvaluationFunction<Network>());
+	}
+
+	@Test
+	public void test2DEncodingMatchesFreshEncoding() throws Exception {
+		assertSameAsFresh(new NN2DEvaluationFunction<Network>(), new NN2DEvaluationFunction<Network>());
+	}
+
+	@Test
+	public void testNonSquareBoardsAreEncodedFromScratch() throws Exception {
+		NN2DEvaluationFunction<Network> incremental = new NN2DEvaluationFunction<Network>();
+		NN2DEvaluationFunction<Network> fresh = new NN2DEvaluationFunction<Network>();
+		incremental.incrementalEncoding = true;
+		fresh.incrementalEncoding = false;
+		long encoded = IncrementalBoardEncoder.cellsEncoded;
+		for(GameState gs : playoutStates(NON_SQUARE_MAP)) {
+			assertFalse(IncrementalBoardEncoder.supports(gs.getPhysicalGameState()));
+			assertArrayEquals(fresh.gameStateToArray(gs, 0), incremental.gameStateToArray(gs, 0), 0);
+		}
+		assertEquals(encoded, IncrementalBoardEncoder.cellsEncoded);
+	}
+
+	@Test
+	public void testCellsOfNonSquareBoardsAreLaidOutByRow() throws Exception {
+		IncrementalBoardEncoder.CellFeature feature = new IncrementalBoardEncoder.CellFeature() {
+			@Override
+			public double cellValue(Unit u, int terrain, int evaluatedPlayer) {
+				return u == null ? 0 : 10 * (u.getType().ID + 1) + u.getPlayer() + 2;
+			}
+		};
+		IncrementalBoardEncoder encoder = new IncrementalBoardEncoder(new IncrementalBoardEncoder.CellFeature[]{feature});
+		for(GameState gs : playoutStates(NON_SQUARE_MAP)) {
+			PhysicalGameState pgs = gs.getPhysicalGameState();
+			double[] encoding = encoder.encode(gs, 0);
+			for(int y = 0; y < pgs.getHeight(); y++) {
+				for(int x = 0; x < pgs.getWidth(); x++) {
+					double expected = feature.cellValue(pgs.getUnitAt(x, y), pgs.getTerrain(x, y), 0);
+					assertEquals(expected, encoding[x + y * pgs.getWidth()], 0);
+				}
+			}
+		}
+	}
+}
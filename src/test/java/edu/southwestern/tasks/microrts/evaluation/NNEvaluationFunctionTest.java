@@ -0,0 +1,144 @@
+package edu.southwestern.tasks.microrts.evaluation;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.southwestern.MMNEAT.MMNEAT;
+import edu.southwestern.networks.BatchNetwork;
+import edu.southwestern.networks.Network;
+import edu.southwestern.parameters.Parameters;
+import micro.ai.RandomBiasedAI;
+import micro.rts.GameState;
+import micro.rts.PhysicalGameState;
+import micro.rts.units.UnitTypeTable;
+
+public class NNEvaluationFunctionTest {
+
+	private static final String MAP = "data/microRTS/maps/8x8/basesWorkers8x8.xml";
+
+	/**
+	 * Output is a weighted sum of the inputs
+	 */
+	private static class LinearNetwork implements Network {
+		int numInputs;
+		int calls = 0;
+
+		LinearNetwork(int numInputs) {
+			this.numInputs = numInputs;
+		}
+
+		double output(double[] inputs, int offset) {
+			double sum = 0;
+			for (int i = 0; i < numInputs; i++) {
+				sum += inputs[offset + i] * (i % 7 - 3);
+			}
+			return sum;
+		}
+
+		public int numInputs() {
+			return numInputs;
+		}
+
+		public int numOutputs() {
+			return 1;
+		}
+
+		public int effectiveNumOutputs() {
+			return 1;
+		}
+
+		public double[] process(double[] inputs) {
+			assertEquals(numInputs, inputs.length);
+			calls++;
+			return new double[] { output(inputs, 0) };
+		}
+
+		public void flush() {
+		}
+
+		public boolean isMultitask() {
+			return false;
+		}
+
+		public void chooseMode(int mode) {
+		}
+
+		public int lastModule() {
+			return 0;
+		}
+
+		public double[] moduleOutput(int mode) {
+			return null;
+		}
+
+		public int numModules() {
+			return 1;
+		}
+
+		public int[] getModuleUsage() {
+			return new int[] { 0 };
+		}
+	}
+
+	private static class LinearBatchNetwork extends LinearNetwork implements BatchNetwork {
+		int batches = 0;
+
+		LinearBatchNetwork(int numInputs) {
+			super(numInputs);
+		}
+
+		public void processBatch(double[] inputs, int batchSize, double[] outputs) {
+			batches++;
+			for (int row = 0; row < batchSize; row++) {
+				outputs[row] = output(inputs, row * numInputs);
+			}
+		}
+	}
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false",
+				"task:edu.southwestern.tasks.microrts.MicroRTSTask" });
+		MMNEAT.loadClasses();
+	}
+
+	@Test
+	public void testBatchMatchesSingleEvaluations() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		GameState gs = new GameState(PhysicalGameState.load(MAP, utt), utt);
+		RandomBiasedAI ai = new RandomBiasedAI(utt);
+		GameState[] states = new GameState[10];
+		for (int i = 0; i < states.length; i++) {
+			for (int cycle = 0; cycle < 20; cycle++) {
+				gs.issueSafe(ai.getAction(0, gs));
+				gs.issueSafe(ai.getAction(1, gs));
+				gs.cycle();
+			}
+			states[i] = gs.clone();
+		}
+		int numInputs = gs.getPhysicalGameState().getWidth() * gs.getPhysicalGameState().getHeight();
+
+		NN2DEvaluationFunction<Network> ef = new NN2DEvaluationFunction<Network>();
+		LinearNetwork network = new LinearNetwork(numInputs);
+		LinearBatchNetwork batchNetwork = new LinearBatchNetwork(numInputs);
+		for (LinearNetwork nn : new LinearNetwork[] { network, batchNetwork }) {
+			ef.nn = nn;
+			float[] evaluations = new float[states.length];
+			ef.evaluate(0, 1, states, states.length, evaluations);
+			for (int i = 0; i < states.length; i++) {
+				float score1 = (float) nn.output(ef.gameStateToArray(states[i], 0), 0);
+				float score2 = (float) nn.output(ef.gameStateToArray(states[i], 1), 0);
+				float expected = (float) Math.tanh(score1 - score2);
+				assertEquals(expected, evaluations[i], 0);
+				assertEquals(expected, ef.evaluate(0, 1, states[i]), 0);
+			}
+		}
+		// Both perspectives of all states in a single forward pass, and once more for each single evaluation
+		assertEquals(1 + states.length, batchNetwork.batches);
+		assertEquals(0, batchNetwork.calls);
+		assertEquals(4 * states.length, network.calls);
+		assertEquals(4 * states.length, ef.getNumEvals());
+	}
+}
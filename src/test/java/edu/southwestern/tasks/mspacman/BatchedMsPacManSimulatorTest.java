@@ -0,0 +1,147 @@
+package edu.southwestern.tasks.mspacman;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.southwestern.MMNEAT.MMNEAT;
+import edu.southwestern.networks.BatchNetwork;
+import edu.southwestern.parameters.CommonConstants;
+import edu.southwestern.parameters.Parameters;
+import edu.southwestern.tasks.mspacman.agentcontroller.pacman.ReactiveNNPacManController;
+import edu.southwestern.tasks.mspacman.facades.GameFacade;
+import edu.southwestern.tasks.mspacman.sensors.mediators.FullTaskMediator;
+import pacman.HeadlessRunner;
+import pacman.controllers.examples.Legacy;
+import pacman.game.Game;
+
+public class BatchedMsPacManSimulatorTest {
+
+	/**
+	 * Fixed linear network without state, which counts its calls
+	 */
+	private static class LinearNetwork implements BatchNetwork {
+		final int numIn;
+		int processCalls = 0;
+		int batchCalls = 0;
+
+		LinearNetwork(int numIn) {
+			this.numIn = numIn;
+		}
+
+		public int numInputs() {
+			return numIn;
+		}
+
+		public int numOutputs() {
+			return GameFacade.NUM_DIRS;
+		}
+
+		public int effectiveNumOutputs() {
+			return numOutputs();
+		}
+
+		public double[] process(double[] inputs) {
+			processCalls++;
+			double[] outputs = new double[numOutputs()];
+			processRow(inputs, 0, outputs, 0);
+			return outputs;
+		}
+
+		public void processBatch(double[] inputs, int batchSize, double[] outputs) {
+			batchCalls++;
+			for (int r = 0; r < batchSize; r++) {
+				processRow(inputs, r * numIn, outputs, r * numOutputs());
+			}
+		}
+
+		private void processRow(double[] inputs, int in, double[] outputs, int out) {
+			for (int o = 0; o < numOutputs(); o++) {
+				double sum = 0;
+				for (int i = 0; i < numIn; i++) {
+					sum += inputs[in + i] * Math.sin(1 + i * numOutputs() + o);
+				}
+				outputs[out + o] = sum;
+			}
+		}
+
+		public void flush() {
+		}
+
+		public boolean isMultitask() {
+			return false;
+		}
+
+		public void chooseMode(int mode) {
+		}
+
+		public int lastModule() {
+			return 0;
+		}
+
+		public double[] moduleOutput(int mode) {
+			return null;
+		}
+
+		public int numModules() {
+			return 1;
+		}
+
+		public int[] getModuleUsage() {
+			return new int[] { 0 };
+		}
+	}
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Parameters.initializeParameterCollections(new String[]{"io:false", "netio:false", "pacmanMaxLevel:2",
+				"task:edu.southwestern.tasks.mspacman.MsPacManTask"});
+		CommonConstants.load();
+		MMNEAT.pacmanInputOutputMediator = new FullTaskMediator();
+	}
+
+	@Test
+	public void testBatchMatchesSingleGames() {
+		int numIn = MMNEAT.pacmanInputOutputMediator.numIn();
+		LinearNetwork shared = new LinearNetwork(numIn);
+		BatchedMsPacManSimulator simulator = new BatchedMsPacManSimulator(numIn, GameFacade.NUM_DIRS);
+		for (long seed = 0; seed < 4; seed++) {
+			simulator.add(new GameFacade(new Game(seed)), controller(shared), new Legacy());
+		}
+		simulator.run();
+		assertEquals(0, shared.processCalls);
+		assertTrue(shared.batchCalls > 0);
+
+		for (int i = 0; i < simulator.size(); i++) {
+			LinearNetwork single = new LinearNetwork(numIn);
+			ReactiveNNPacManController pacman = new ReactiveNNPacManController(single);
+			pacman.reset();
+			Game game = new Game(i);
+			HeadlessRunner.run(pacman, new Legacy(), game);
+			assertEquals(game.getGameState(), simulator.getGame(i).newG.getGameState());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMediatorCannotBeShared() {
+		int numIn = MMNEAT.pacmanInputOutputMediator.numIn();
+		LinearNetwork shared = new LinearNetwork(numIn);
+		BatchedMsPacManSimulator simulator = new BatchedMsPacManSimulator(numIn, GameFacade.NUM_DIRS);
+		ReactiveNNPacManController first = controller(shared);
+		ReactiveNNPacManController second = controller(shared);
+		second.inputMediator = first.inputMediator;
+		simulator.add(new GameFacade(new Game(0)), first, new Legacy());
+		simulator.add(new GameFacade(new Game(1)), second, new Legacy());
+	}
+
+	/**
+	 * Controller for one game of a batch, with a mediator of its own
+	 */
+	private static ReactiveNNPacManController controller(LinearNetwork nn) {
+		ReactiveNNPacManController controller = new ReactiveNNPacManController(nn);
+		controller.inputMediator = new FullTaskMediator();
+		return controller;
+	}
+}
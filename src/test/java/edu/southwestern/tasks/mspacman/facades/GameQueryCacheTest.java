@@ -0,0 +1,187 @@
+package edu.southwestern.tasks.mspacman.facades;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.EnumMap;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.southwestern.parameters.Parameters;
+import edu.southwestern.tasks.mspacman.sensors.blocks.MsPacManSensorBlock;
+import edu.southwestern.tasks.mspacman.sensors.blocks.PowerPillAvoidanceBlock;
+import edu.southwestern.tasks.mspacman.sensors.blocks.SensorBlockRegistry;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+public class GameQueryCacheTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Parameters.initializeParameterCollections(new String[]{"io:false", "netio:false",
+				"task:edu.southwestern.tasks.mspacman.MsPacManTask"});
+	}
+
+	@Test
+	public void testKeysDistinguishArguments() {
+		long key = GameQueryCache.key(GameQueryCache.DIRECTIONAL_PATH, 10, 20, 1);
+		assertNotEquals(key, GameQueryCache.key(GameQueryCache.DIRECTIONAL_PATH, 20, 10, 1));
+		assertNotEquals(key, GameQueryCache.key(GameQueryCache.DIRECTIONAL_PATH, 10, 20, 2));
+		assertNotEquals(key, GameQueryCache.key(GameQueryCache.SHORTEST_PATH, 10, 20, 1));
+	}
+
+	@Test
+	public void testPathsReusedUntilGameAdvances() {
+		GameFacade g = new GameFacade(new Game(0));
+		int pacman = g.getPacmanCurrentNodeIndex();
+		int[] junctions = g.getJunctionIndices();
+		int target = junctions[junctions.length / 2];
+
+		int[] path = g.getShortestPath(pacman, target);
+		assertSame(path, g.getShortestPath(pacman, target));
+
+		int dir = -1;
+		int[] neighbors = g.neighbors(pacman);
+		for (int i = 0; i < neighbors.length; i++) {
+			if (neighbors[i] != -1) {
+				dir = i;
+				break;
+			}
+		}
+		int[] directional = g.getDirectionalPath(pacman, target, dir);
+		assertEquals(directional.length, g.getDirectionalPathDistance(pacman, target, dir));
+
+		g.newG.advanceGame(MOVE.LEFT, new EnumMap<GHOST, MOVE>(GHOST.class));
+		int[] recomputed = g.getShortestPath(pacman, target);
+		assertNotSame(path, recomputed);
+		assertEquals(path.length, recomputed.length);
+	}
+
+	@Test
+	public void testDirectionalDistanceMatchesPathLength() {
+		GameFacade g = new GameFacade(new Game(0));
+		int[] junctions = g.getJunctionIndices();
+		for (int i = 0; i < junctions.length; i++) {
+			int from = junctions[i];
+			int to = junctions[(i * 7 + 3) % junctions.length];
+			int[] neighbors = g.neighbors(from);
+			for (int dir = 0; dir < neighbors.length; dir++) {
+				if (neighbors[dir] != -1 && from != to) {
+					assertEquals(g.getDirectionalPathDistance(from, to, dir), g.getDirectionalPath(from, to, dir).length);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Counts how often its one sensor is computed
+	 */
+	private static class CountingBlock extends MsPacManSensorBlock {
+		private static int computed = 0;
+		private final String label;
+
+		CountingBlock(String label) {
+			this.label = label;
+		}
+
+		@Override
+		public int incorporateSensors(double[] inputs, int startPoint, GameFacade gf, int lastDirection) {
+			computed++;
+			inputs[startPoint] = gf.getPacmanCurrentNodeIndex();
+			return startPoint + 1;
+		}
+
+		@Override
+		public int incorporateLabels(String[] labels, int in) {
+			labels[in] = label;
+			return in + 1;
+		}
+
+		@Override
+		public int numberAdded() {
+			return 1;
+		}
+
+		@Override
+		public boolean equals(MsPacManSensorBlock o) {
+			return o instanceof CountingBlock && ((CountingBlock) o).label.equals(label);
+		}
+
+		@Override
+		public int hashCode() {
+			return label.hashCode();
+		}
+	}
+
+	@Test
+	public void testEqualBlocksShareSensors() {
+		GameFacade g = new GameFacade(new Game(0));
+		CountingBlock first = new CountingBlock("Counted");
+		CountingBlock second = new CountingBlock("Counted");
+		CountingBlock other = new CountingBlock("Other");
+		assertEquals(first.sharedId(), second.sharedId());
+		assertNotEquals(first.sharedId(), other.sharedId());
+
+		double[] inputs = new double[2];
+		CountingBlock.computed = 0;
+		first.retrieveSensors(inputs, 0, g, 0);
+		second.retrieveSensors(inputs, 1, g, 0);
+		assertEquals(1, CountingBlock.computed);
+		assertEquals(inputs[0], inputs[1], 0);
+		// Different direction, different block, or a new state are all recomputed
+		second.retrieveSensors(inputs, 0, g, 1);
+		other.retrieveSensors(inputs, 0, g, 0);
+		assertEquals(3, CountingBlock.computed);
+		g.newG.advanceGame(MOVE.LEFT, new EnumMap<GHOST, MOVE>(GHOST.class));
+		first.retrieveSensors(inputs, 0, g, 0);
+		assertEquals(4, CountingBlock.computed);
+	}
+
+	/**
+	 * Counting block that opts out of sharing
+	 */
+	private static class UnsharedCountingBlock extends CountingBlock {
+		UnsharedCountingBlock(String label) {
+			super(label);
+		}
+
+		@Override
+		public boolean sharesSensors() {
+			return false;
+		}
+	}
+
+	@Test
+	public void testBlocksWithoutEqualityAreNotShared() {
+		// The setting is not part of the inherited equality
+		PowerPillAvoidanceBlock negative = new PowerPillAvoidanceBlock(-1);
+		PowerPillAvoidanceBlock zero = new PowerPillAvoidanceBlock(0);
+		assertEquals(SensorBlockRegistry.UNSHARED, negative.sharedId());
+		assertEquals(SensorBlockRegistry.UNSHARED, zero.sharedId());
+	}
+
+	@Test
+	public void testUnsharedBlocksCacheByInstance() {
+		int registered = SensorBlockRegistry.size();
+		GameFacade g = new GameFacade(new Game(0));
+		UnsharedCountingBlock first = new UnsharedCountingBlock("Unshared");
+		UnsharedCountingBlock second = new UnsharedCountingBlock("Unshared");
+		double[] inputs = new double[1];
+		CountingBlock.computed = 0;
+		first.retrieveSensors(inputs, 0, g, 0);
+		first.retrieveSensors(inputs, 0, g, 0);
+		assertEquals(1, CountingBlock.computed);
+		// Equal, but not allowed to share
+		second.retrieveSensors(inputs, 0, g, 0);
+		assertEquals(2, CountingBlock.computed);
+		g.newG.advanceGame(MOVE.LEFT, new EnumMap<GHOST, MOVE>(GHOST.class));
+		first.retrieveSensors(inputs, 0, g, 0);
+		assertEquals(3, CountingBlock.computed);
+		// Blocks that are not shared never grow the registry
+		assertEquals(registered, SensorBlockRegistry.size());
+	}
+}
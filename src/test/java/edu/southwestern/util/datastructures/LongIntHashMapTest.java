@@ -0,0 +1,51 @@
+package edu.southwestern.util.datastructures;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LongIntHashMapTest {
+
+	@Test
+	public void testPutGetRemove() {
+		LongIntHashMap map = new LongIntHashMap();
+		assertTrue(map.isEmpty());
+		assertEquals(-1, map.put(5L, 10));
+		assertEquals(10, map.put(5L, 20));
+		assertEquals(20, map.get(5L));
+		assertEquals(-1, map.get(6L));
+		assertTrue(map.containsKey(5L));
+		assertEquals(1, map.size());
+		assertEquals(20, map.remove(5L));
+		assertFalse(map.containsKey(5L));
+		assertEquals(-1, map.remove(5L));
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void testMatchesHashMap() {
+		Random r = new Random(0);
+		LongIntHashMap map = new LongIntHashMap();
+		HashMap<Long, Integer> reference = new HashMap<Long, Integer>();
+		for(int i = 0; i < 100000; i++) {
+			long key = r.nextInt(1000);
+			if(r.nextBoolean()) {
+				int value = r.nextInt(Integer.MAX_VALUE);
+				Integer old = reference.put(key, value);
+				assertEquals(old == null ? -1 : old, map.put(key, value));
+			} else {
+				Integer old = reference.remove(key);
+				assertEquals(old == null ? -1 : old, map.remove(key));
+			}
+			assertEquals(reference.size(), map.size());
+		}
+		for(long key = 0; key < 1000; key++) {
+			Integer value = reference.get(key);
+			assertEquals(value == null ? -1 : value, map.get(key));
+		}
+		assertEquals(reference.size(), map.keys().length);
+	}
+}
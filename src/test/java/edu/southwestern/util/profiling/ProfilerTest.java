@@ -0,0 +1,138 @@
+package edu.southwestern.util.profiling;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.southwestern.MMNEAT.MMNEAT;
+import edu.southwestern.parameters.Parameters;
+
+public class ProfilerTest {
+
+	@Before
+	public void setUp() throws Exception {
+		MMNEAT.clearClasses();
+		Parameters.initializeParameterCollections(new String[] {"io:false", "netio:false", "profile:true"});
+		Profiler.setup();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		MMNEAT.clearClasses();
+	}
+
+	/**
+	 * Busy wait rather than sleep so that timing is reasonably precise
+	 * @param millis Milliseconds to wait
+	 */
+	private static void spin(long millis) {
+		long end = System.nanoTime() + millis * 1000000;
+		while (System.nanoTime() < end) {
+			// Wait
+		}
+	}
+
+	@Test
+	public void testDisabledRecordsNothing() {
+		Profiler.close();
+		assertFalse(Profiler.enabled);
+		long start = Profiler.start(Phase.MUTATION);
+		assertEquals(0, start);
+		Profiler.stop(Phase.MUTATION, start);
+		Profiler.endGeneration(0);
+		assertNull(Profiler.latest());
+	}
+
+	@Test
+	public void testNestedPhasesAreExclusive() {
+		long outer = Profiler.start(Phase.SIMULATION);
+		spin(20);
+		long inner = Profiler.start(Phase.FORWARD);
+		spin(30);
+		Profiler.stop(Phase.FORWARD, inner);
+		Profiler.stop(Phase.SIMULATION, outer);
+		Profiler.endGeneration(3);
+
+		Profiler.Snapshot s = Profiler.latest();
+		assertEquals(3, s.generation);
+		assertEquals(1, s.count(Phase.SIMULATION));
+		assertEquals(1, s.count(Phase.FORWARD));
+		assertEquals(30, s.totalMillis(Phase.FORWARD), 10);
+		// Forward time is not also counted as simulation time
+		assertEquals(20, s.totalMillis(Phase.SIMULATION), 10);
+		assertTrue(Double.isNaN(s.poolUtilization));
+	}
+
+	@Test
+	public void testAbsorbingPhase() {
+		long outer = Profiler.start(Phase.PHENOTYPE);
+		long inner = Profiler.start(Phase.FORWARD);
+		assertEquals(0, inner); // Not tracked separately
+		spin(10);
+		Profiler.stop(Phase.FORWARD, inner);
+		Profiler.stop(Phase.PHENOTYPE, outer);
+		// Phases work normally after the absorbing phase ends
+		long after = Profiler.start(Phase.FORWARD);
+		assertNotEquals(0, after);
+		Profiler.stop(Phase.FORWARD, after);
+		Profiler.endGeneration(0);
+
+		Profiler.Snapshot s = Profiler.latest();
+		assertEquals(1, s.count(Phase.PHENOTYPE));
+		assertEquals(1, s.count(Phase.FORWARD));
+		assertTrue(s.totalMillis(Phase.PHENOTYPE) >= 10);
+		assertTrue(s.totalMillis(Phase.FORWARD) < 10);
+	}
+
+	@Test
+	public void testResetAfterGeneration() {
+		for (int i = 0; i < 5; i++) {
+			Profiler.stop(Phase.SELECTION, Profiler.start(Phase.SELECTION));
+		}
+		Profiler.endGeneration(0);
+		assertEquals(5, Profiler.latest().count(Phase.SELECTION));
+		Profiler.endGeneration(1);
+		assertEquals(0, Profiler.latest().count(Phase.SELECTION));
+		assertEquals(0, Profiler.latest().totalMillis(Phase.SELECTION), 0);
+	}
+
+	@Test
+	public void testQuantiles() {
+		for (int i = 0; i < 99; i++) {
+			long start = Profiler.start(Phase.MUTATION);
+			Profiler.stop(Phase.MUTATION, start);
+		}
+		long start = Profiler.start(Phase.MUTATION);
+		spin(20);
+		Profiler.stop(Phase.MUTATION, start);
+		Profiler.endGeneration(0);
+
+		Profiler.Snapshot s = Profiler.latest();
+		int m = Phase.MUTATION.ordinal();
+		// Median is tiny, but the maximum reflects the one slow call
+		assertTrue(s.medianMillis[m] < 1);
+		assertTrue(s.maxMillis[m] >= 20);
+		assertTrue(s.p99Millis[m] <= s.maxMillis[m]);
+	}
+
+	@Test
+	public void testPoolUtilization() {
+		long batch = Profiler.time();
+		long work = Profiler.time();
+		spin(20);
+		Profiler.poolWork(work);
+		Profiler.poolBatch(batch, 2); // One of two threads was busy
+		Profiler.endGeneration(0);
+		assertEquals(0.5, Profiler.latest().poolUtilization, 0.1);
+	}
+
+	@Test
+	public void testLogLineMatchesHeader() {
+		Profiler.endGeneration(7);
+		String line = Profiler.latest().toLogLine();
+		assertTrue(line.startsWith("7\t"));
+		assertEquals(Profiler.Snapshot.logHeader().split("\t").length, line.split("\t").length);
+	}
+}
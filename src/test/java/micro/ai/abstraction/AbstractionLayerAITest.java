@@ -0,0 +1,70 @@
+package micro.ai.abstraction;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import micro.ai.abstraction.pathfinding.AStarPathFinding;
+import micro.ai.core.AI;
+import micro.rts.GameState;
+import micro.rts.PhysicalGameState;
+import micro.rts.units.UnitTypeTable;
+
+public class AbstractionLayerAITest {
+
+	private static final String MAP = "data/microRTS/maps/8x8/basesWorkers8x8.xml";
+	private static final int CYCLES = 1000;
+
+	private static String withoutIDs(Object state) {
+		return state.toString().replaceAll("\\(\\d+\\)\\(", "(");
+	}
+
+	/**
+	 * Plays the same game three times: on the game state itself, and on a
+	 * new deep or copy-on-write clone every cycle, as when a script is the
+	 * playout policy of a search. The scripts must keep their abstract actions
+	 * across clones and play the same game every time.
+	 */
+	private static void assertSameGameOnClones(UnitTypeTable utt, AI[] inPlace, AI[] deep, AI[] shared) throws Exception {
+		GameState gsInPlace = new GameState(PhysicalGameState.load(MAP, utt), utt);
+		GameState gsDeep = gsInPlace.clone();
+		GameState gsShared = gsInPlace.clone();
+		boolean gameover = false;
+		for (int i = 0; i < CYCLES && !gameover; i++) {
+			gsDeep = gsDeep.clone();
+			gsShared = gsShared.cloneCopyOnWrite();
+			for (int player = 0; player < 2; player++) {
+				gsInPlace.issueSafe(inPlace[player].getAction(player, gsInPlace));
+				gsDeep.issueSafe(deep[player].getAction(player, gsDeep));
+				gsShared.issueSafe(shared[player].getAction(player, gsShared));
+			}
+			gameover = gsInPlace.cycle();
+			gsDeep.cycle();
+			gsShared.cycle();
+			assertEquals(withoutIDs(gsInPlace), withoutIDs(gsDeep));
+			assertEquals(withoutIDs(gsInPlace), withoutIDs(gsShared));
+		}
+	}
+
+	@Test
+	public void testWorkerRushOnClones() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		AI[][] ais = new AI[3][2];
+		for (AI[] pair : ais) {
+			pair[0] = new WorkerRush(utt, new AStarPathFinding());
+			pair[1] = new WorkerRush(utt, new AStarPathFinding());
+		}
+		assertSameGameOnClones(utt, ais[0], ais[1], ais[2]);
+	}
+
+	@Test
+	public void testLightRushOnClones() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		AI[][] ais = new AI[3][2];
+		for (AI[] pair : ais) {
+			pair[0] = new LightRush(utt, new AStarPathFinding());
+			pair[1] = new WorkerRush(utt, new AStarPathFinding());
+		}
+		assertSameGameOnClones(utt, ais[0], ais[1], ais[2]);
+	}
+}
@@ -0,0 +1,182 @@
+package micro.ai.abstraction.pathfinding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import micro.ai.RandomBiasedAI;
+import micro.rts.GameState;
+import micro.rts.PhysicalGameState;
+import micro.rts.ResourceUsage;
+import micro.rts.UnitAction;
+import micro.rts.units.Unit;
+import micro.rts.units.UnitTypeTable;
+
+public class FlowFieldPathFindingTest {
+
+	private static final String MAP = "data/microRTS/maps/8x8/basesWorkers8x8.xml";
+	private static final int[] RANGES = { 0, 1, 3 };
+
+	private static GameState midGameState(UnitTypeTable utt) throws Exception {
+		GameState gs = new GameState(PhysicalGameState.load(MAP, utt), utt);
+		RandomBiasedAI ai = new RandomBiasedAI(utt);
+		for (int i = 0; i < 100; i++) {
+			gs.issueSafe(ai.getAction(0, gs));
+			gs.issueSafe(ai.getAction(1, gs));
+			gs.cycle();
+		}
+		return gs;
+	}
+
+	/**
+	 * Number of moves to get in range of the target when following the path finding, or -1 if there is no path
+	 */
+	private static int pathLength(PathFinding pf, GameState original, Unit unit, int targetpos, int range) {
+		GameState gs = original.clone();
+		PhysicalGameState pgs = gs.getPhysicalGameState();
+		Unit u = gs.getUnit(unit.getID());
+		int w = pgs.getWidth();
+		int moves = 0;
+		while ((u.getX() - targetpos % w) * (u.getX() - targetpos % w) + (u.getY() - targetpos / w) * (u.getY() - targetpos / w) > range * range) {
+			UnitAction move = pf.findPathToPositionInRange(u, targetpos, range, gs, null);
+			if (move == null) return -1;
+			assertEquals(UnitAction.TYPE_MOVE, move.getType());
+			int x = u.getX(), y = u.getY();
+			if (move.getDirection() == UnitAction.DIRECTION_UP) y--;
+			if (move.getDirection() == UnitAction.DIRECTION_RIGHT) x++;
+			if (move.getDirection() == UnitAction.DIRECTION_DOWN) y++;
+			if (move.getDirection() == UnitAction.DIRECTION_LEFT) x--;
+			assertTrue(gs.free(x, y));
+			pgs.moveUnit(u, x, y);
+			moves++;
+		}
+		return moves;
+	}
+
+	/**
+	 * State where "unit" is the only unit that can move, so only static obstacles are in its way
+	 */
+	private static GameState alone(GameState gs, Unit unit, UnitTypeTable utt) {
+		PhysicalGameState pgs = gs.getPhysicalGameState().clone();
+		for (Unit u : new ArrayList<Unit>(pgs.getUnits())) {
+			if (u.getType().canMove && u.getID() != unit.getID()) pgs.removeUnit(u);
+		}
+		return new GameState(pgs, utt);
+	}
+
+	@Test
+	public void testPathsAreAsShortAsBFS() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		GameState gs = midGameState(utt);
+		PhysicalGameState pgs = gs.getPhysicalGameState();
+		BFSPathFinding bfs = new BFSPathFinding();
+		FlowFieldPathFinding flow = new FlowFieldPathFinding();
+		int paths = 0;
+		for (Unit u : pgs.getUnits()) {
+			if (!u.getType().canMove) continue;
+			GameState clear = alone(gs, u, utt);
+			for (int targetpos = 0; targetpos < pgs.getWidth() * pgs.getHeight(); targetpos++) {
+				for (int range : RANGES) {
+					int expected = pathLength(bfs, clear, u, targetpos, range);
+					assertEquals(expected, pathLength(flow, clear, u, targetpos, range));
+					assertEquals(expected >= 0, flow.pathToPositionInRangeExists(u, targetpos, range, clear, null));
+					if (expected > 0) paths++;
+				}
+			}
+		}
+		assertTrue(paths > 0);
+	}
+
+	@Test
+	public void testFieldsAreKeptUntilStaticObstaclesChange() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		GameState gs = midGameState(utt);
+		PhysicalGameState pgs = gs.getPhysicalGameState();
+		FlowFieldPathFinding flow = new FlowFieldPathFinding();
+		// An idle unit with somewhere to go
+		Unit mover = null;
+		int targetpos = -1;
+		UnitAction move = null;
+		for (int pos = 0; pos < pgs.getWidth() * pgs.getHeight() && mover == null; pos++) {
+			for (Unit u : pgs.getUnits()) {
+				if (u.getType().canMove && gs.getActionAssignment(u) == null) {
+					move = flow.findPath(u, pos, gs, null);
+					if (move != null) {
+						mover = u;
+						targetpos = pos;
+						break;
+					}
+				}
+			}
+		}
+		assertNotNull(mover);
+		FlowFieldPathFinding.FlowField field = flow.getField(targetpos, 0, gs);
+		int computed = flow.fields_computed;
+		// Other units heading to the same target use the same field
+		for (Unit u : pgs.getUnits()) {
+			if (u.getType().canMove) flow.findPath(u, targetpos, gs, null);
+		}
+		assertEquals(computed, flow.fields_computed);
+
+		// Units that move do not change the field, they are just not stepped on
+		int w = pgs.getWidth();
+		int next = mover.getPosition(pgs) + (move.getDirection() == UnitAction.DIRECTION_UP ? -w
+				: move.getDirection() == UnitAction.DIRECTION_RIGHT ? 1
+				: move.getDirection() == UnitAction.DIRECTION_DOWN ? w : -1);
+		GameState blocked = gs.clone();
+		Unit other = null;
+		for (Unit u : blocked.getPhysicalGameState().getUnits()) {
+			if (u.getType().canMove && u.getID() != mover.getID() && blocked.getActionAssignment(u) == null) other = u;
+		}
+		assertNotNull(other);
+		blocked.getPhysicalGameState().moveUnit(other, next % w, next / w);
+		assertNotEquals(gs.getPhysicalGameState().getHash(), blocked.getPhysicalGameState().getHash());
+		UnitAction detour = flow.findPath(blocked.getUnit(mover.getID()), targetpos, blocked, null);
+		if (detour != null) {
+			assertNotEquals(move.getDirection(), detour.getDirection());
+		}
+		assertTrue(flow.pathExists(blocked.getUnit(mover.getID()), targetpos, blocked, null));
+		assertEquals(computed, flow.fields_computed);
+		assertSame(field, flow.getField(targetpos, 0, blocked));
+
+		// A reserved first step is avoided too
+		ResourceUsage ru = new ResourceUsage();
+		ru.getPositionsUsed().add(next);
+		detour = flow.findPath(mover, targetpos, gs, ru);
+		if (detour != null) {
+			assertNotEquals(move.getDirection(), detour.getDirection());
+		}
+		assertNull(flow.findPath(mover, mover.getPosition(pgs), gs, null));
+
+		// Terrain does change it
+		GameState walled = gs.clone();
+		walled.getPhysicalGameState().setTerrain(next % w, next / w, PhysicalGameState.TERRAIN_WALL);
+		flow.findPath(walled.getUnit(mover.getID()), targetpos, walled, null);
+		assertEquals(computed + 1, flow.fields_computed);
+	}
+
+	@Test
+	public void testLeastRecentlyUsedFieldsAreDropped() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		GameState gs = midGameState(utt);
+		PhysicalGameState pgs = gs.getPhysicalGameState();
+		FlowFieldPathFinding flow = new FlowFieldPathFinding();
+		FlowFieldPathFinding.FlowField kept = flow.getField(0, 0, gs);
+		FlowFieldPathFinding.FlowField dropped = flow.getField(1, 0, gs);
+		int positions = pgs.getWidth() * pgs.getHeight();
+		for (int i = 0; i <= FlowFieldPathFinding.MAX_FIELDS; i++) {
+			flow.getField(i % positions, 1 + i / positions, gs);
+			assertSame(kept, flow.getField(0, 0, gs));
+		}
+		assertEquals(FlowFieldPathFinding.MAX_FIELDS, flow.fields.size());
+		assertNotSame(dropped, flow.getField(1, 0, gs));
+	}
+}
@@ -0,0 +1,76 @@
+package micro.ai.evaluation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import micro.ai.RandomBiasedAI;
+import micro.rts.GameState;
+import micro.rts.PhysicalGameState;
+import micro.rts.units.UnitTypeTable;
+
+public class EvaluationCacheTest {
+
+	private static final String MAP = "data/microRTS/maps/8x8/basesWorkers8x8.xml";
+
+	/**
+	 * Counts the states it is asked to evaluate
+	 */
+	private static class CountingEvaluationFunction extends SimpleSqrtEvaluationFunction3 {
+		int evaluations = 0;
+
+		@Override
+		public float evaluate(int maxplayer, int minplayer, GameState gs) {
+			evaluations++;
+			return super.evaluate(maxplayer, minplayer, gs);
+		}
+	}
+
+	@Test
+	public void testGetPutClear() {
+		EvaluationCache cache = new EvaluationCache(1 << 8, 4);
+		long owner = EvaluationCache.newOwner();
+		long other = EvaluationCache.newOwner();
+		assertTrue(Float.isNaN(cache.get(owner, 12345L, 0, 1)));
+		cache.put(owner, 12345L, 0, 1, 0.5f);
+		cache.put(other, 54321L, 0, 1, -0.5f);
+		assertEquals(0.5f, cache.get(owner, 12345L, 0, 1), 0);
+		// Other perspectives and owners are separate entries
+		assertTrue(Float.isNaN(cache.get(owner, 12345L, 1, 0)));
+		assertTrue(Float.isNaN(cache.get(other, 12345L, 0, 1)));
+		cache.clear(owner);
+		assertTrue(Float.isNaN(cache.get(owner, 12345L, 0, 1)));
+		assertEquals(-0.5f, cache.get(other, 54321L, 0, 1), 0);
+	}
+
+	@Test
+	public void testCachedEvaluationsMatchBase() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		GameState gs = new GameState(PhysicalGameState.load(MAP, utt), utt);
+		RandomBiasedAI ai = new RandomBiasedAI(utt);
+		EvaluationFunction base = new SimpleSqrtEvaluationFunction3();
+		CountingEvaluationFunction counted = new CountingEvaluationFunction();
+		CachedEvaluationFunction cached = new CachedEvaluationFunction(counted);
+		GameState[] states = new GameState[2];
+		float[] evaluations = new float[2];
+		int cycles = 0;
+		for (; cycles < 200 && !gs.gameover(); cycles++) {
+			gs.issueSafe(ai.getAction(0, gs));
+			gs.issueSafe(ai.getAction(1, gs));
+			gs.cycle();
+			assertEquals(base.evaluate(0, 1, gs), cached.evaluate(0, 1, gs), 0);
+			// The same state again, and a copy of it, in one batch
+			states[0] = gs;
+			states[1] = gs.clone();
+			cached.evaluate(0, 1, states, 2, evaluations);
+			assertEquals(base.evaluate(0, 1, gs), evaluations[0], 0);
+			assertEquals(base.evaluate(0, 1, gs), evaluations[1], 0);
+		}
+		assertTrue(counted.evaluations <= cycles);
+		cached.clear();
+		int before = counted.evaluations;
+		cached.evaluate(0, 1, gs);
+		assertEquals(before + 1, counted.evaluations);
+	}
+}
@@ -0,0 +1,97 @@
+package micro.ai.mcts.naivemcts;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.southwestern.MMNEAT.MMNEAT;
+import edu.southwestern.parameters.Parameters;
+import micro.ai.RandomBiasedAI;
+import micro.ai.evaluation.EvaluationFunction;
+import micro.ai.mcts.MCTSNode;
+import micro.rts.GameState;
+import micro.rts.PhysicalGameState;
+import micro.rts.units.UnitTypeTable;
+
+public class NaiveMCTSTest {
+
+	private static final String MAP = "data/microRTS/maps/8x8/basesWorkers8x8.xml";
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		// The default playout policy takes its unit types from the task
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false",
+				"task:edu.southwestern.tasks.microrts.MicroRTSTask" });
+		MMNEAT.loadClasses();
+	}
+
+	/**
+	 * Every state is a draw, and the sizes of the batches are recorded
+	 */
+	private static class DrawEvaluationFunction extends EvaluationFunction {
+		ArrayList<Integer> batchSizes = new ArrayList<Integer>();
+
+		@Override
+		public float evaluate(int maxplayer, int minplayer, GameState gs) {
+			return 0;
+		}
+
+		@Override
+		public void evaluate(int maxplayer, int minplayer, GameState[] states, int n, float[] evaluations) {
+			batchSizes.add(n);
+			super.evaluate(maxplayer, minplayer, states, n, evaluations);
+		}
+
+		@Override
+		public float upperBound(GameState gs) {
+			return 1;
+		}
+	}
+
+	/**
+	 * With draws everywhere, all evaluations add up to zero once the virtual
+	 * losses are taken back, and the unit action tables count exactly the
+	 * visits of the children
+	 */
+	private static void assertNoVirtualLoss(NaiveMCTSNode node) {
+		assertEquals(0, node.accum_evaluation, 1e-9);
+		if (node.children == null || node.children.isEmpty()) {
+			return;
+		}
+		int childVisits = 0;
+		for (MCTSNode child : node.children) {
+			childVisits += child.visit_count;
+			assertNoVirtualLoss((NaiveMCTSNode) child);
+		}
+		for (UnitActionTableEntry entry : node.unitActionTable) {
+			int visits = 0;
+			for (int i = 0; i < entry.nactions; i++) {
+				assertEquals(0, entry.accum_evaluation[i], 1e-9);
+				visits += entry.visit_count[i];
+			}
+			assertEquals(childVisits, visits);
+		}
+	}
+
+	@Test
+	public void testBatchedLeavesTakeBackVirtualLosses() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		GameState gs = new GameState(PhysicalGameState.load(MAP, utt), utt);
+		DrawEvaluationFunction ef = new DrawEvaluationFunction();
+		NaiveMCTS ai = new NaiveMCTS(-1, 100, 20, 10, 0.3f, 0.0f, 0.4f, new RandomBiasedAI(utt), ef, true);
+		ai.setLeafBatchSize(8);
+		ai.startNewComputation(0, gs.clone());
+		ai.computeDuringOneGameFrame();
+
+		assertEquals(13, ef.batchSizes.size());
+		for (int i = 0; i < 12; i++) {
+			assertEquals(8, (int) ef.batchSizes.get(i));
+		}
+		assertEquals(4, (int) ef.batchSizes.get(12));
+		assertEquals(100, ai.getTree().visit_count);
+		assertNoVirtualLoss(ai.getTree());
+	}
+}
@@ -0,0 +1,138 @@
+package micro.ai.mcts.naivemcts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.southwestern.MMNEAT.MMNEAT;
+import edu.southwestern.parameters.Parameters;
+import edu.southwestern.util.random.RandomNumbers;
+import micro.ai.RandomBiasedAI;
+import micro.ai.evaluation.SimpleSqrtEvaluationFunction3;
+import micro.ai.mcts.MCTSNode;
+import micro.rts.GameState;
+import micro.rts.PhysicalGameState;
+import micro.rts.PlayerAction;
+import micro.rts.UnitAction;
+import micro.rts.units.Unit;
+import micro.rts.units.UnitTypeTable;
+import micro.util.Pair;
+
+public class ParallelNaiveMCTSTest {
+
+	private static final String MAP = "data/microRTS/maps/8x8/basesWorkers8x8.xml";
+	private static final int PLAYOUTS = 400;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		// The default playout policy takes its unit types from the task
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false",
+				"task:edu.southwestern.tasks.microrts.MicroRTSTask" });
+		MMNEAT.loadClasses();
+	}
+
+	private static GameState startingState(UnitTypeTable utt) throws Exception {
+		GameState gs = new GameState(PhysicalGameState.load(MAP, utt), utt);
+		RandomBiasedAI ai = new RandomBiasedAI(utt);
+		// Play a little, stopping when the first player has to choose actions
+		for (int i = 0; i < 20 || !gs.canExecuteAnyAction(0); i++) {
+			gs.issueSafe(ai.getAction(0, gs));
+			gs.issueSafe(ai.getAction(1, gs));
+			gs.cycle();
+		}
+		return gs;
+	}
+
+	private static ParallelNaiveMCTS search(UnitTypeTable utt, int threads, boolean rootParallelism) {
+		return new ParallelNaiveMCTS(-1, PLAYOUTS, 20, 10, 0.3f, 1.0f, 0.0f, 1.0f, 0.4f, 1.0f,
+				new RandomBiasedAI(utt), new SimpleSqrtEvaluationFunction3(), true, threads, rootParallelism);
+	}
+
+	/**
+	 * Actions for existing units of the player
+	 */
+	private static void assertActionsOfPlayer(GameState gs, int player, PlayerAction pa) {
+		assertFalse(pa.isEmpty());
+		for (Pair<Unit, UnitAction> p : pa.getActions()) {
+			assertEquals(player, p.m_a.getPlayer());
+			assertNotNull(gs.getUnit(p.m_a.getID()));
+		}
+	}
+
+	/**
+	 * No visits are lost or left over as virtual losses
+	 */
+	private static void assertVisitsAddUp(NaiveMCTSNode node) {
+		if (node.children == null || node.children.isEmpty()) {
+			return;
+		}
+		int childVisits = 0;
+		for (MCTSNode child : node.children) {
+			childVisits += child.visit_count;
+			assertVisitsAddUp((NaiveMCTSNode) child);
+		}
+		assertTrue(node.visit_count >= childVisits);
+		for (UnitActionTableEntry entry : node.unitActionTable) {
+			int visits = 0;
+			for (int i = 0; i < entry.nactions; i++) {
+				visits += entry.visit_count[i];
+			}
+			assertEquals(childVisits, visits);
+		}
+	}
+
+	@Test
+	public void testSingleThreadIsReproducible() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		GameState gs = startingState(utt);
+		String[] actions = new String[2];
+		for (int run = 0; run < 2; run++) {
+			MCTSNode.r.setSeed(0);
+			// Replaces the generator, which Sampler must pick up
+			RandomNumbers.reset(0);
+			ParallelNaiveMCTS ai = search(utt, 1, false);
+			actions[run] = ai.getAction(0, gs).toString();
+			assertEquals(PLAYOUTS, ai.getTree().visit_count);
+		}
+		assertEquals(actions[0], actions[1]);
+	}
+
+	@Test
+	public void testTreeParallelismSharesBudget() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		GameState gs = startingState(utt);
+		ParallelNaiveMCTS ai = search(utt, 4, false);
+		for (int move = 0; move < 3; move++) {
+			PlayerAction pa = ai.getAction(0, gs);
+			assertNull(ai.getRootTrees());
+			assertEquals(PLAYOUTS, ai.getTree().visit_count);
+			assertVisitsAddUp(ai.getTree());
+			assertActionsOfPlayer(gs, 0, pa);
+		}
+		assertEquals(3 * PLAYOUTS, ai.total_runs);
+	}
+
+	@Test
+	public void testRootParallelismSharesBudget() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		GameState gs = startingState(utt);
+		ParallelNaiveMCTS ai = search(utt, 3, true);
+		PlayerAction pa = ai.getAction(0, gs);
+		NaiveMCTSNode[] trees = ai.getRootTrees();
+		assertNotNull(trees);
+		assertEquals(3, trees.length);
+		int visits = 0;
+		for (NaiveMCTSNode tree : trees) {
+			visits += tree.visit_count;
+			assertVisitsAddUp(tree);
+		}
+		assertEquals(PLAYOUTS, visits);
+		assertEquals(PLAYOUTS, ai.total_runs);
+		assertActionsOfPlayer(gs, 0, pa);
+	}
+}
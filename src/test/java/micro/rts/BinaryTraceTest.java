@@ -0,0 +1,115 @@
+package micro.rts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import micro.ai.RandomBiasedAI;
+import micro.rts.units.UnitTypeTable;
+import micro.util.XMLWriter;
+
+public class BinaryTraceTest {
+
+	// Small enough for units to fight
+	private static final String MAP = "data/microRTS/maps/8x8/basesWorkers8x8.xml";
+	private static final int CYCLES = 1000;
+	private static final int KEYFRAME_INTERVAL = 100;
+
+	/**
+	 * Plays a random game, recording it into "out" and returning the state at every cycle
+	 */
+	private static ArrayList<GameState> record(UnitTypeTable utt, ByteArrayOutputStream out) throws Exception {
+		GameState gs = new GameState(PhysicalGameState.load(MAP, utt), utt);
+		RandomBiasedAI ai = new RandomBiasedAI(utt);
+		BinaryTraceWriter writer = new BinaryTraceWriter(out, gs, KEYFRAME_INTERVAL);
+		ArrayList<GameState> states = new ArrayList<GameState>();
+		boolean gameover = false;
+		while (!gameover && gs.getTime() < CYCLES) {
+			states.add(gs.clone());
+			PlayerAction pa1 = ai.getAction(0, gs);
+			PlayerAction pa2 = ai.getAction(1, gs);
+			writer.record(gs, pa1, pa2);
+			gs.issueSafe(pa1);
+			gs.issueSafe(pa2);
+			gameover = gs.cycle();
+		}
+		states.add(gs.clone());
+		writer.close(gs);
+		return states;
+	}
+
+	/**
+	 * Same state, except for the IDs of the units produced during the game
+	 */
+	private static void assertSameState(GameState expected, GameState actual) {
+		assertEquals(expected.getTime(), actual.getTime());
+		assertTrue("Different states at cycle " + expected.getTime(), expected.equals(actual));
+	}
+
+	@Test
+	public void testReplayMatchesGame() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ArrayList<GameState> states = record(utt, out);
+		BinaryTraceReader reader = new BinaryTraceReader(new ByteArrayInputStream(out.toByteArray()), utt);
+		assertEquals(KEYFRAME_INTERVAL, reader.getKeyframeInterval());
+		for (GameState expected : states) {
+			assertSameState(expected, reader.getGameState());
+			if (expected != states.get(states.size() - 1)) assertTrue(reader.cycle());
+		}
+		assertFalse(reader.cycle());
+		assertEquals(states.get(states.size() - 1).getTime(), reader.getEndTime());
+	}
+
+	@Test
+	public void testSeekingForwards() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ArrayList<GameState> states = record(utt, out);
+		BinaryTraceReader reader = new BinaryTraceReader(new ByteArrayInputStream(out.toByteArray()), utt);
+		// Cycles just before, at and after keyframes, and between them
+		int[] cycles = { 1, 99, 100, 101, 250, 399, 400, states.size() - 1 };
+		for (int cycle : cycles) {
+			if (cycle < states.size()) assertSameState(states.get(cycle), reader.getGameStateAtCycle(cycle));
+		}
+		// Replay continues normally after a jump
+		reader = new BinaryTraceReader(new ByteArrayInputStream(out.toByteArray()), utt);
+		int cycle = Math.min(350, states.size() - 2);
+		reader.getGameStateAtCycle(cycle);
+		assertTrue(reader.cycle());
+		assertSameState(states.get(cycle + 1), reader.getGameState());
+	}
+
+	@Test
+	public void testConversionToAndFromXML() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ArrayList<GameState> states = record(utt, out);
+		Trace trace = new BinaryTraceReader(new ByteArrayInputStream(out.toByteArray()), utt).toTrace();
+		StringWriter xml = new StringWriter();
+		XMLWriter w = new XMLWriter(xml);
+		trace.toxml(w);
+		w.flush();
+		assertTrue(out.size() * 10 < xml.toString().length());
+
+		// The XML trace replays the same game
+		for (int cycle = 0; cycle < states.size(); cycle += 37) {
+			assertSameState(states.get(cycle), trace.getGameStateAtCycle(cycle));
+		}
+
+		// And converting it back gives the same game again
+		ByteArrayOutputStream converted = new ByteArrayOutputStream();
+		BinaryTraceWriter.write(trace, converted, KEYFRAME_INTERVAL);
+		BinaryTraceReader reader = new BinaryTraceReader(new ByteArrayInputStream(converted.toByteArray()), utt);
+		for (GameState expected : states) {
+			assertSameState(expected, reader.getGameStateAtCycle(expected.getTime()));
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package micro.rts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import micro.ai.RandomBiasedAI;
+import micro.rts.units.Unit;
+import micro.rts.units.UnitTypeTable;
+import micro.util.Pair;
+
+public class GameStateTest {
+
+	private static final String MAP = "data/microRTS/maps/16x16/basesWorkers16x16.xml";
+	// Small enough for units to fight
+	private static final String SMALL_MAP = "data/microRTS/maps/8x8/basesWorkers8x8.xml";
+
+	/**
+	 * The same actions for the units of another state. Units produced in
+	 * each state get their own IDs, so units are matched by position.
+	 */
+	private static PlayerAction translate(PlayerAction pa, GameState gs) {
+		PlayerAction translated = new PlayerAction();
+		for (Pair<Unit, UnitAction> p : pa.getActions()) {
+			translated.addUnitAction(gs.getPhysicalGameState().getUnitAt(p.m_a.getX(), p.m_a.getY()), p.m_b);
+		}
+		return translated;
+	}
+
+	private static String withoutIDs(Object state) {
+		return state.toString().replaceAll("\\(\\d+\\)\\(", "(");
+	}
+
+	/**
+	 * Play the copy-on-write state and a deep copy side by side
+	 */
+	private static void playBoth(GameState shared, GameState deep, RandomBiasedAI ai, int cycles) throws Exception {
+		for (int i = 0; i < cycles && !shared.gameover(); i++) {
+			for (int player = 0; player < 2; player++) {
+				PlayerAction pa = ai.getAction(player, shared);
+				deep.issue(translate(pa, deep));
+				shared.issue(pa);
+			}
+			shared.cycle();
+			deep.cycle();
+			assertEquals(withoutIDs(deep), withoutIDs(shared));
+			for (Unit u : shared.getUnits()) {
+				assertSame(u, shared.getPhysicalGameState().getUnitAt(u.getX(), u.getY()));
+				assertSame(u, shared.getUnit(u.getID()));
+			}
+		}
+	}
+
+	@Test
+	public void testCopyOnWriteMatchesDeepClone() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		GameState gs = new GameState(PhysicalGameState.load(MAP, utt), utt);
+		RandomBiasedAI ai = new RandomBiasedAI(utt);
+		for (int i = 0; i < 300; i++) {
+			gs.issueSafe(ai.getAction(0, gs));
+			gs.issueSafe(ai.getAction(1, gs));
+			gs.cycle();
+		}
+		String before = gs.toString() + gs.getPhysicalGameState();
+
+		GameState shared = gs.cloneCopyOnWrite();
+		GameState deep = gs.clone();
+		playBoth(shared, deep, ai, 200);
+		// Clones of clones, while the first clone keeps playing
+		GameState shared2 = shared.cloneCopyOnWrite();
+		GameState deep2 = deep.clone();
+		playBoth(shared2, deep2, ai, 200);
+		playBoth(shared, deep, ai, 200);
+		assertEquals(before, gs.toString() + gs.getPhysicalGameState());
+	}
+
+	/**
+	 * Hash of the state computed from scratch
+	 */
+	private static long recomputedHash(GameState gs) {
+		GameState copy = gs.clone();
+		copy.getPhysicalGameState().invalidateHash();
+		return copy.getHash();
+	}
+
+	@Test
+	public void testIncrementalHashMatchesRecompute() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		GameState gs = new GameState(PhysicalGameState.load(SMALL_MAP, utt), utt);
+		RandomBiasedAI ai = new RandomBiasedAI(utt);
+		long start = gs.getHash();
+		assertEquals(start, gs.clone().getHash());
+		for (int i = 0; i < 1000 && !gs.gameover(); i++) {
+			gs.issueSafe(ai.getAction(0, gs));
+			gs.issueSafe(ai.getAction(1, gs));
+			gs.cycle();
+			assertEquals(recomputedHash(gs), gs.getHash());
+			GameState shared = gs.cloneCopyOnWrite();
+			shared.issueSafe(ai.getAction(0, shared));
+			shared.issueSafe(ai.getAction(1, shared));
+			shared.cycle();
+			assertEquals(recomputedHash(shared), shared.getHash());
+		}
+		assertNotEquals(start, gs.getHash());
+
+		// The same board reached by moving a unit away and back
+		GameState moved = gs.clone();
+		PhysicalGameState pgs = moved.getPhysicalGameState();
+		long before = moved.getHash();
+		for (Unit u : moved.getUnits()) {
+			if (u.getType().canMove && u.getX() + 1 < pgs.getWidth() && moved.free(u.getX() + 1, u.getY())) {
+				pgs.moveUnit(u, u.getX() + 1, u.getY());
+				assertNotEquals(before, moved.getHash());
+				pgs.moveUnit(u, u.getX() - 1, u.getY());
+				break;
+			}
+		}
+		assertEquals(before, moved.getHash());
+	}
+}
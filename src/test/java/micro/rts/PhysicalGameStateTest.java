@@ -0,0 +1,151 @@
+package micro.rts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.Test;
+
+import micro.ai.RandomBiasedAI;
+import micro.rts.units.Unit;
+import micro.rts.units.UnitTypeTable;
+
+public class PhysicalGameStateTest {
+
+	private static final String MAP = "data/microRTS/maps/8x8/basesWorkers8x8.xml";
+
+	/**
+	 * Compare the indexed queries with scans of the unit list
+	 */
+	private static void assertIndexMatchesUnits(PhysicalGameState pgs) {
+		for (int y = 0; y < pgs.getHeight(); y++) {
+			for (int x = 0; x < pgs.getWidth(); x++) {
+				Unit expected = null;
+				for (Unit u : pgs.getUnits()) {
+					if (u.getX() == x && u.getY() == y) {
+						expected = u;
+					}
+				}
+				assertSame(expected, pgs.getUnitAt(x, y));
+				Collection<Unit> around = pgs.getUnitsAround(x, y, 2);
+				int count = 0;
+				for (Unit u : pgs.getUnits()) {
+					if (Math.abs(u.getX() - x) <= 2 && Math.abs(u.getY() - y) <= 2) {
+						assertTrue(around.contains(u));
+						count++;
+					}
+				}
+				assertEquals(count, around.size());
+			}
+		}
+		for (Unit u : pgs.getUnits()) {
+			assertSame(u, pgs.getUnit(u.getID()));
+		}
+	}
+
+	@Test
+	public void testIndexFollowsGame() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		GameState gs = new GameState(PhysicalGameState.load(MAP, utt), utt);
+		RandomBiasedAI ai0 = new RandomBiasedAI(utt);
+		RandomBiasedAI ai1 = new RandomBiasedAI(utt);
+		for (int cycle = 0; cycle < 1500 && !gs.gameover(); cycle++) {
+			gs.issueSafe(ai0.getAction(0, gs));
+			gs.issueSafe(ai1.getAction(1, gs));
+			gs.cycle();
+			if (cycle % 50 == 0) {
+				assertIndexMatchesUnits(gs.getPhysicalGameState());
+				GameState copy = gs.clone();
+				assertIndexMatchesUnits(copy.getPhysicalGameState());
+				assertIndexMatchesUnits(new PartiallyObservableGameState(gs, 0).getPhysicalGameState());
+			}
+		}
+		assertIndexMatchesUnits(gs.getPhysicalGameState());
+	}
+
+	@Test
+	public void testActionsFromCloneMoveUnitsOfState() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		GameState gs = new GameState(PhysicalGameState.load(MAP, utt), utt);
+		Unit worker = null;
+		for (Unit u : gs.getUnits()) {
+			if (u.getType() == utt.getUnitType("Worker")) {
+				worker = u;
+			}
+		}
+		// An AI returns units of the copy it searched, which issueSafe replaces with units of the state
+		GameState copy = gs.clone();
+		Unit copyWorker = copy.getUnit(worker.getID());
+		UnitAction move = null;
+		for (UnitAction ua : copyWorker.getUnitActions(copy)) {
+			if (ua.getType() == UnitAction.TYPE_MOVE) {
+				move = ua;
+			}
+		}
+		PlayerAction pa = new PlayerAction();
+		pa.addUnitAction(copyWorker, move);
+		gs.issueSafe(pa);
+		int x = worker.getX();
+		int y = worker.getY();
+		while (gs.getActionAssignment(worker) != null) {
+			gs.cycle();
+		}
+		assertTrue(worker.getX() != x || worker.getY() != y);
+		assertEquals(x, copyWorker.getX());
+		assertEquals(y, copyWorker.getY());
+		assertIndexMatchesUnits(gs.getPhysicalGameState());
+		assertIndexMatchesUnits(copy.getPhysicalGameState());
+	}
+
+	@Test
+	public void testCloneKeepingUnitsSeesMovedUnits() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		PhysicalGameState pgs = PhysicalGameState.load(MAP, utt);
+		Unit worker = null;
+		for (Unit u : pgs.getUnits()) {
+			if (u.getType() == utt.getUnitType("Worker")) {
+				worker = u;
+			}
+		}
+		int x = worker.getX();
+		int y = worker.getY();
+		assertSame(worker, pgs.getUnitAt(x, y)); // builds the index before cloning
+		PhysicalGameState view = pgs.cloneKeepingUnits();
+		// The units are shared, so the view sees the unit moved by the original state
+		int newX = pgs.getUnitAt(x + 1, y) == null && x + 1 < pgs.getWidth() ? x + 1 : x - 1;
+		pgs.moveUnit(worker, newX, y);
+		assertNull(view.getUnitAt(x, y));
+		assertSame(worker, view.getUnitAt(newX, y));
+		assertIndexMatchesUnits(pgs);
+		assertIndexMatchesUnits(view);
+	}
+
+	@Test
+	public void testRemoveAndResize() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		PhysicalGameState pgs = PhysicalGameState.load(MAP, utt);
+		Unit first = pgs.getUnits().get(0);
+		pgs.removeUnit(first);
+		assertNull(pgs.getUnitAt(first.getX(), first.getY()));
+		assertNull(pgs.getUnit(first.getID()));
+
+		for (Unit u : new ArrayList<Unit>(pgs.getUnits())) {
+			if (u.getX() >= 4 || u.getY() >= 4) {
+				pgs.removeUnit(u);
+			}
+		}
+		int terrain[] = new int[16];
+		pgs.setTerrain(terrain);
+		pgs.setWidth(4);
+		pgs.setHeight(4);
+		assertIndexMatchesUnits(pgs);
+
+		pgs.removeAllUnits();
+		assertIndexMatchesUnits(pgs);
+		assertNull(pgs.getUnit(first.getID()));
+	}
+}
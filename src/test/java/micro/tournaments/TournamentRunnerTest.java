@@ -0,0 +1,149 @@
+package micro.tournaments;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.southwestern.MMNEAT.MMNEAT;
+import edu.southwestern.parameters.Parameters;
+import micro.ai.abstraction.AbstractionLayerAI;
+import micro.ai.abstraction.LightRush;
+import micro.ai.abstraction.WorkerRush;
+import micro.ai.core.AI;
+import micro.ai.mcts.naivemcts.NaiveMCTS;
+import micro.ai.mcts.uct.UCT;
+import micro.ai.montecarlo.MonteCarlo;
+import micro.ai.portfolio.portfoliogreedysearch.PGSAI;
+import micro.rts.units.UnitTypeTable;
+
+public class TournamentRunnerTest {
+
+	private static final List<String> MAPS = Arrays.asList("data/microRTS/maps/8x8/basesWorkers8x8.xml");
+	private static final int MAX_GAME_LENGTH = 1000;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		// The default playout policies take their unit types from the task
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false",
+				"task:edu.southwestern.tasks.microrts.MicroRTSTask" });
+		MMNEAT.loadClasses();
+	}
+
+	/**
+	 * Every pair of scripted AIs, twice: 4 matches
+	 */
+	private static List<TournamentRunner.Match> matches(UnitTypeTable utt) {
+		List<AI> ais = Arrays.asList(new WorkerRush(utt), new LightRush(utt));
+		List<TournamentRunner.Match> matches = new ArrayList<TournamentRunner.Match>();
+		for (int iteration = 0; iteration < 2; iteration++) {
+			matches.add(new TournamentRunner.Match(iteration, 0, 0, 1, ais.get(0), ais.get(1)));
+			matches.add(new TournamentRunner.Match(iteration, 0, 1, 0, ais.get(1), ais.get(0)));
+		}
+		return matches;
+	}
+
+	private static TournamentRunner runner(UnitTypeTable utt, StringWriter out) throws Exception {
+		return new TournamentRunner(MAPS, MAX_GAME_LENGTH, 100, -1, true, false, false, utt, null, out, null);
+	}
+
+	/**
+	 * The result lines, in a fixed order
+	 */
+	private static List<String> resultLines(String output) {
+		List<String> lines = new ArrayList<String>(Arrays.asList(output.split("\n")));
+		Collections.sort(lines);
+		return lines;
+	}
+
+	@Test
+	public void testParallelMatchesMatchSequential() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		StringWriter sequential = new StringWriter();
+		runner(utt, sequential).run(matches(utt), 1, null);
+		StringWriter parallel = new StringWriter();
+		List<TournamentRunner.Match> parallelMatches = matches(utt);
+		runner(utt, parallel).run(parallelMatches, 4, null);
+
+		// The scripted AIs are deterministic, so every match ends the same way
+		assertEquals(4, resultLines(sequential.toString()).size());
+		assertEquals(resultLines(sequential.toString()), resultLines(parallel.toString()));
+		for (TournamentRunner.Match m : parallelMatches) {
+			assertTrue(m.played);
+			assertTrue(m.time > 0);
+		}
+	}
+
+	@Test
+	public void testCheckpointResumesTournament() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		File checkpoint = File.createTempFile("tournament", ".tsv");
+		checkpoint.deleteOnExit();
+		// A match that was played before the tournament was interrupted, a malformed line and a
+		// line cut short
+		FileWriter writer = new FileWriter(checkpoint);
+		writer.write("1\t0\t1\t0\t7\t1\t-1\t-1\n0\t0\t1\t0\t7x\t1\t-1\t-1\n0\t0\t0");
+		writer.close();
+
+		StringWriter out = new StringWriter();
+		List<TournamentRunner.Match> matches = matches(utt);
+		runner(utt, out).run(matches, 2, checkpoint.getPath());
+		assertEquals(7, matches.get(3).time);
+		assertEquals(1, matches.get(3).winner);
+		assertTrue(out.toString().startsWith("1\t0\t1\t0\t7\t1\t-1\t-1\n"));
+		assertEquals(4, resultLines(out.toString()).size());
+
+		// Every match is in the checkpoint now, so nothing is played again
+		List<String> saved = Files.readAllLines(checkpoint.toPath());
+		assertEquals(6, saved.size());
+		StringWriter resumed = new StringWriter();
+		runner(utt, resumed).run(matches(utt), 2, checkpoint.getPath());
+		assertEquals(resultLines(out.toString()), resultLines(resumed.toString()));
+		assertEquals(saved, Files.readAllLines(checkpoint.toPath()));
+	}
+
+	@Test
+	public void testSearchesGetTheirOwnPlayoutPolicies() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		TournamentRunner runner = runner(utt, new StringWriter());
+		NaiveMCTS naive = new NaiveMCTS(utt);
+		naive.setDefaultPolicy(new WorkerRush(utt));
+		UCT uct = new UCT(utt);
+		MonteCarlo monteCarlo = new MonteCarlo(utt);
+		for (boolean parallel : new boolean[] { false, true }) {
+			assertNotSame(naive.getDefaultPolicy(), ((NaiveMCTS) runner.prepare(naive, parallel)).getDefaultPolicy());
+			assertNotSame(uct.getDefaultPolicy(), ((UCT) runner.prepare(uct, parallel)).getDefaultPolicy());
+			assertNotSame(monteCarlo.getplayoutAI(), ((MonteCarlo) runner.prepare(monteCarlo, parallel)).getplayoutAI());
+		}
+	}
+
+	@Test
+	public void testMatchesGetTheirOwnPathFinding() throws Exception {
+		UnitTypeTable utt = new UnitTypeTable();
+		TournamentRunner runner = runner(utt, new StringWriter());
+		WorkerRush rush = new WorkerRush(utt);
+		NaiveMCTS naive = new NaiveMCTS(utt);
+		naive.setDefaultPolicy(rush);
+		PGSAI pgs = new PGSAI(utt);
+		AbstractionLayerAI prepared = (AbstractionLayerAI) runner.prepare(rush, true);
+		assertNotSame(rush.getPathFinding(), prepared.getPathFinding());
+		assertEquals(rush.getPathFinding().getClass(), prepared.getPathFinding().getClass());
+		AbstractionLayerAI policy = (AbstractionLayerAI) ((NaiveMCTS) runner.prepare(naive, true)).getDefaultPolicy();
+		assertNotSame(rush.getPathFinding(), policy.getPathFinding());
+		assertNotSame(pgs.getPathFinding(), ((PGSAI) runner.prepare(pgs, true)).getPathFinding());
+		// Plain clones still share it, for the copies a search plays out with on its own thread
+		assertSame(rush.getPathFinding(), ((AbstractionLayerAI) rush.clone()).getPathFinding());
+	}
+}
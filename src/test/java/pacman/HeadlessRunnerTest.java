@@ -0,0 +1,52 @@
+package pacman;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.EnumMap;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.southwestern.parameters.CommonConstants;
+import edu.southwestern.parameters.Parameters;
+import pacman.controllers.Controller;
+import pacman.controllers.examples.Legacy;
+import pacman.controllers.examples.RandomNonRevPacMan;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+public class HeadlessRunnerTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Parameters.initializeParameterCollections(new String[]{"io:false", "netio:false",
+				"task:edu.southwestern.tasks.mspacman.MsPacManTask"});
+		CommonConstants.load();
+	}
+
+	@Test
+	public void testMatchesRunExperiment() {
+		// Both controllers draw from game.rnd, so any leak of random numbers into the game would show
+		for (long seed = 0; seed < 3; seed++) {
+			Game expected = new Game(seed);
+			new Executor().runExperiment(new RandomNonRevPacMan(), new Legacy(), expected);
+			Game actual = new Game(seed);
+			HeadlessRunner.run(new RandomNonRevPacMan(), new Legacy(), actual);
+			assertEquals(expected.getGameState(), actual.getGameState());
+			assertEquals(expected.getScore(), actual.getScore());
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testControllerMayNotAdvanceGame() {
+		Controller<MOVE> cheater = new Controller<MOVE>() {
+			@Override
+			public MOVE getMove(Game game, long timeDue) {
+				game.advanceGame(MOVE.LEFT, new EnumMap<GHOST, MOVE>(GHOST.class));
+				return MOVE.LEFT;
+			}
+		};
+		HeadlessRunner.step(cheater, new Legacy(), new Game(0));
+	}
+}
@@ -0,0 +1,130 @@
+package pacman.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.sun.management.ThreadMXBean;
+
+import edu.southwestern.parameters.CommonConstants;
+import edu.southwestern.parameters.Parameters;
+import pacman.controllers.NewGhostController;
+import pacman.controllers.examples.AggressiveGhosts;
+import pacman.controllers.examples.BetterLegacy;
+import pacman.controllers.examples.ChaseFleeGhosts;
+import pacman.controllers.examples.DeterministicLegacy;
+import pacman.controllers.examples.Legacy;
+import pacman.controllers.examples.Legacy2TheReckoning;
+import pacman.controllers.examples.RandomGhosts;
+import pacman.controllers.examples.StarterGhosts;
+import pacman.controllers.examples.VeryRandomLegacy;
+import pacman.game.Constants.MOVE;
+
+public class GameAllocationTest {
+
+	private static final int WARM_UP_TICKS = 20000;
+	private static final int MEASURED_TICKS = 2000;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Parameters.initializeParameterCollections(new String[]{"io:false", "netio:false",
+				"task:edu.southwestern.tasks.mspacman.MsPacManTask"});
+		CommonConstants.load();
+	}
+
+	/**
+	 * Pick a random move for Ms. Pac-Man from the move arrays stored in the
+	 * maze, so the test itself does not allocate
+	 */
+	private static MOVE pacManMove(Game game, Random random) {
+		MOVE[] options = game.getPossibleMoves(game.getPacmanCurrentNodeIndex());
+		return options[random.nextInt(options.length)];
+	}
+
+	/**
+	 * A new game is copied because copies do not keep the logs of eating
+	 * times, which grow during evaluation
+	 */
+	private static Game newGame(long seed) {
+		return new Game(seed).copy();
+	}
+
+	@Test
+	public void testSteadyStateStepDoesNotAllocate() {
+		ThreadMXBean bean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(bean.isThreadAllocatedMemorySupported());
+		bean.setThreadAllocatedMemoryEnabled(true);
+		for (NewGhostController ghosts : exampleGhosts()) {
+			assertStepsDoNotAllocate(bean, ghosts);
+		}
+	}
+
+	/**
+	 * Play until the game and the ghost team are warmed up, then check that
+	 * no tick allocates
+	 */
+	private static void assertStepsDoNotAllocate(ThreadMXBean bean, NewGhostController ghosts) {
+		long thread = Thread.currentThread().getId();
+		String team = ghosts.getClass().getSimpleName();
+
+		Random random = new Random(0);
+		Game game = newGame(0);
+		for (int i = 0; i < WARM_UP_TICKS; i++) {
+			if (game.gameOver()) {
+				game = newGame(i);
+			}
+			game.advanceGame(pacManMove(game, random), ghosts.getMoveArray(game, -1));
+		}
+
+		// Bytes attributed to reading the counter twice
+		long overhead = Long.MAX_VALUE;
+		for (int i = 0; i < 100; i++) {
+			long before = bean.getThreadAllocatedBytes(thread);
+			overhead = Math.min(overhead, bean.getThreadAllocatedBytes(thread) - before);
+		}
+
+		for (int i = 0; i < MEASURED_TICKS; i++) {
+			if (game.gameOver()) {
+				game = newGame(i);
+			}
+			MOVE pacManMove = pacManMove(game, random);
+			long before = bean.getThreadAllocatedBytes(thread);
+			game.advanceGame(pacManMove, ghosts.getMoveArray(game, -1));
+			long bytes = bean.getThreadAllocatedBytes(thread) - before - overhead;
+			assertEquals(team + ": bytes allocated by tick " + i + " at time " + game.getTotalTime(), 0, bytes);
+		}
+	}
+
+	/**
+	 * Ghost teams that decide their moves in an array, one instance for each
+	 * way of stepping the game
+	 */
+	private static NewGhostController[] exampleGhosts() {
+		return new NewGhostController[] { new AggressiveGhosts(), new BetterLegacy(), new ChaseFleeGhosts(),
+				new DeterministicLegacy(), new Legacy(), new Legacy2TheReckoning(), new RandomGhosts(),
+				new StarterGhosts(), new VeryRandomLegacy() };
+	}
+
+	@Test
+	public void testArrayAndMapStepsMatch() {
+		NewGhostController[] arrayTeams = exampleGhosts();
+		NewGhostController[] mapTeams = exampleGhosts();
+		for (int team = 0; team < arrayTeams.length; team++) {
+			Random pacManRandom = new Random(1);
+			Game arrayGame = new Game(1);
+			Game mapGame = new Game(1);
+			for (int i = 0; i < 3000 && !arrayGame.gameOver(); i++) {
+				MOVE pacManMove = pacManMove(arrayGame, pacManRandom);
+				arrayGame.advanceGame(pacManMove, arrayTeams[team].getMoveArray(arrayGame, -1));
+				mapGame.advanceGame(pacManMove, mapTeams[team].getMove(mapGame, -1));
+				assertEquals(arrayTeams[team].getClass().getSimpleName(), mapGame.getGameState(),
+						arrayGame.getGameState());
+			}
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package pacman.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.southwestern.parameters.CommonConstants;
+import edu.southwestern.parameters.Parameters;
+import pacman.controllers.examples.Legacy;
+import pacman.controllers.examples.RandomNonRevPacMan;
+
+public class GameHistoryTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Parameters.initializeParameterCollections(new String[]{"io:false", "netio:false",
+				"task:edu.southwestern.tasks.mspacman.MsPacManTask"});
+		CommonConstants.load();
+	}
+
+	private static void step(Game game, RandomNonRevPacMan pacman, Legacy ghosts) {
+		game.advanceGame(pacman.getMove(game.copy(), -1), ghosts.getMove(game.copy(), -1));
+	}
+
+	@Test
+	public void testRestoreIntoCopy() {
+		Game game = new Game(1);
+		RandomNonRevPacMan pacman = new RandomNonRevPacMan();
+		Legacy ghosts = new Legacy();
+		int[] state = new int[Game.PACKED_STATE_LENGTH];
+		Game copy = game.copy();
+		for (int i = 0; i < 500 && !game.gameOver(); i++) {
+			step(game, pacman, ghosts);
+			game.saveState(state);
+			copy.restoreState(state);
+			assertEquals(game.getGameState(), copy.getGameState());
+			assertEquals(game.getScore(), copy.getScore());
+		}
+	}
+
+	@Test
+	public void testUndoRedo() {
+		Game game = new Game(2);
+		RandomNonRevPacMan pacman = new RandomNonRevPacMan();
+		Legacy ghosts = new Legacy();
+		GameHistory history = new GameHistory(2);
+		ArrayList<String> expected = new ArrayList<String>();
+		history.record(game);
+		expected.add(game.getGameState());
+		for (int i = 0; i < 300 && !game.gameOver(); i++) {
+			step(game, pacman, ghosts);
+			history.record(game);
+			expected.add(game.getGameState());
+		}
+		int last = expected.size() - 1;
+		for (int i = last - 1; i >= 0; i--) {
+			assertTrue(history.undo(game));
+			assertEquals(expected.get(i), game.getGameState());
+		}
+		assertFalse(history.undo(game));
+		for (int i = 1; i <= last; i++) {
+			assertTrue(history.redo(game));
+			assertEquals(expected.get(i), game.getGameState());
+		}
+		assertFalse(history.redo(game));
+
+		// A new branch replaces the states that could have been redone
+		history.undo(game);
+		step(game, pacman, ghosts);
+		history.record(game);
+		assertFalse(history.redo(game));
+		assertEquals(last, history.depth());
+	}
+}
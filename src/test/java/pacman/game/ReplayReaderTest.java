@@ -0,0 +1,97 @@
+package pacman.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.southwestern.parameters.CommonConstants;
+import edu.southwestern.parameters.Parameters;
+import pacman.Executor;
+import pacman.controllers.examples.Legacy;
+import pacman.controllers.examples.RandomNonRevPacMan;
+
+public class ReplayReaderTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Parameters.initializeParameterCollections(new String[]{"io:false", "netio:false",
+				"task:edu.southwestern.tasks.mspacman.MsPacManTask"});
+		CommonConstants.load();
+	}
+
+	/**
+	 * Play a game and return the state string of every tick
+	 */
+	private static ArrayList<String> play(long seed, ReplayWriter writer) throws IOException {
+		Game game = new Game(seed);
+		RandomNonRevPacMan pacman = new RandomNonRevPacMan();
+		Legacy ghosts = new Legacy();
+		ArrayList<String> states = new ArrayList<String>();
+		while (!game.gameOver()) {
+			game.advanceGame(pacman.getMove(game.copy(), -1), ghosts.getMove(game.copy(), -1));
+			writer.write(game);
+			states.add(game.getGameState());
+		}
+		writer.close();
+		return states;
+	}
+
+	@Test
+	public void testSequentialAndSeek() throws IOException {
+		File file = File.createTempFile("replay", ".bin");
+		file.deleteOnExit();
+		ArrayList<String> expected = play(3, new ReplayWriter(file, 50));
+
+		try (ReplayReader reader = new ReplayReader(file)) {
+			assertEquals(expected.size(), reader.getNumTicks());
+			Game game = new Game(0);
+			for (int i = 0; i < expected.size(); i++) {
+				assertTrue(reader.next(game));
+				assertEquals(expected.get(i), game.getGameState());
+			}
+			assertFalse(reader.next(game));
+
+			for (int i = expected.size() - 1; i >= 0; i -= 37) {
+				reader.seek(i, game);
+				assertEquals(expected.get(i), game.getGameState());
+			}
+		}
+	}
+
+	@Test
+	public void testConvertText() throws IOException {
+		File binary = File.createTempFile("replay", ".bin");
+		binary.deleteOnExit();
+		ArrayList<String> expected = play(4, new ReplayWriter(binary, 100));
+		StringBuilder text = new StringBuilder();
+		for (String line : expected) {
+			text.append(line).append("\n");
+		}
+		File textFile = File.createTempFile("replay", ".txt");
+		textFile.deleteOnExit();
+		Executor.saveToFile(text.toString(), textFile.getPath(), false);
+		assertFalse(ReplayReader.isBinaryReplay(textFile));
+
+		File converted = File.createTempFile("converted", ".bin");
+		converted.deleteOnExit();
+		assertEquals(expected.size(), ReplayReader.convertText(textFile, converted, 100));
+		assertTrue(ReplayReader.isBinaryReplay(converted));
+		assertTrue(converted.length() < textFile.length() / 4);
+
+		try (ReplayReader reader = new ReplayReader(converted)) {
+			Game game = new Game(0);
+			int i = 0;
+			while (reader.next(game)) {
+				assertEquals(expected.get(i++), game.getGameState());
+			}
+			assertEquals(expected.size(), i);
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package pacman.game.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.southwestern.parameters.Parameters;
+import pacman.game.Constants;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+public class MazeDataTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Parameters.initializeParameterCollections(new String[]{"io:false", "netio:false"});
+	}
+
+	@Test
+	public void testDistancesMatchText() throws Exception {
+		Maze maze = Game.getMaze(0);
+		assertSame(maze, Game.getMaze(0));
+		BufferedReader br = new BufferedReader(new FileReader(Constants.pathDistances + File.separator + Constants.distNames[0]));
+		String line;
+		int i = 0;
+		while ((line = br.readLine()) != null) {
+			assertEquals(Integer.parseInt(line), maze.shortestPathDistances.get(i++));
+		}
+		br.close();
+		assertEquals(i, maze.shortestPathDistances.limit());
+	}
+
+	@Test
+	public void testPathsRoundTrip() throws Exception {
+		Maze maze = Game.getMaze(1);
+		PathsCache computed = new PathsCache(1);
+		File file = File.createTempFile("paths", ".bin");
+		file.deleteOnExit();
+		MazeData.writePaths(file, computed);
+		PathsCache loaded = MazeData.readPaths(file, maze);
+
+		Random random = new Random(1);
+		int[] junctions = maze.junctionIndices;
+		for (int i = 0; i < 2000; i++) {
+			// Junctions are always reachable from each other
+			int a = junctions[random.nextInt(junctions.length)];
+			int b = maze.pillIndices[random.nextInt(maze.pillIndices.length)];
+			assertArrayEquals(computed.getPathFromA2B(a, b), loaded.getPathFromA2B(a, b));
+			assertArrayEquals(computed.getPathFromA2B(b, a), loaded.getPathFromA2B(b, a));
+			for (MOVE move : new MOVE[] {MOVE.UP, MOVE.RIGHT, MOVE.DOWN, MOVE.LEFT}) {
+				assertArrayEquals(computed.getPathFromA2B(b, a, move), loaded.getPathFromA2B(b, a, move));
+			}
+		}
+	}
+}
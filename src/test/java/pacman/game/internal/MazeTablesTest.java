@@ -0,0 +1,88 @@
+package pacman.game.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.southwestern.parameters.Parameters;
+import pacman.game.Game;
+
+public class MazeTablesTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Parameters.initializeParameterCollections(new String[]{"io:false", "netio:false"});
+	}
+
+	@Test
+	public void testTablesRoundTrip() throws Exception {
+		Maze maze = Game.getMaze(2);
+		short[] computed = MazeTables.compute(maze, Game.getPathsCache(2));
+		File file = File.createTempFile("tables", ".bin");
+		file.deleteOnExit();
+		MazeData.writeTables(file, maze.graph.length, maze.junctionIndices.length, computed);
+		MazeTables loaded = MazeData.readTables(file, maze.graph.length, maze.junctionIndices.length);
+		MazeTables shared = Game.getMazeTables(2);
+		for (int node = 0; node < maze.graph.length; node++) {
+			assertEquals(shared.isJunction(node), loaded.isJunction(node));
+			assertEquals(shared.isElbow(node), loaded.isElbow(node));
+			assertEquals(shared.junctionNumber(node), loaded.junctionNumber(node));
+			for (int dir = 0; dir < MazeTables.NUM_DIRS; dir++) {
+				assertEquals(shared.neighbour(node, dir), loaded.neighbour(node, dir));
+				assertEquals(shared.nextJunction(node, dir), loaded.nextJunction(node, dir));
+				assertEquals(shared.nextJunctionDistance(node, dir), loaded.nextJunctionDistance(node, dir));
+			}
+		}
+	}
+
+	@Test
+	public void testNextJunctionFollowsCorridor() {
+		for (int m = 0; m < 4; m++) {
+			Maze maze = Game.getMaze(m);
+			MazeTables tables = Game.getMazeTables(m);
+			for (int node = 0; node < maze.graph.length; node++) {
+				assertEquals(maze.graph[node].numNeighbouringNodes > 2, tables.isJunction(node));
+				for (int dir = 0; dir < MazeTables.NUM_DIRS; dir++) {
+					int junction = tables.nextJunction(node, dir);
+					if (junction < 0) {
+						continue;
+					}
+					// Walk without reversing, taking the first open direction, and count the steps
+					int move = dir;
+					int pos = node;
+					int steps = 0;
+					do {
+						int next = -1;
+						if (steps == 0 && tables.neighbour(pos, dir) != -1) {
+							next = dir;
+						}
+						for (int d = 0; d < MazeTables.NUM_DIRS && next == -1; d++) {
+							if (d != (move + 2) % 4 && tables.neighbour(pos, d) != -1) {
+								next = d;
+							}
+						}
+						move = next;
+						pos = tables.neighbour(pos, move);
+						steps++;
+					} while (!tables.isJunction(pos));
+					assertEquals(junction, pos);
+					assertEquals(steps, tables.nextJunctionDistance(node, dir));
+				}
+			}
+			for (int from : maze.junctionIndices) {
+				for (int dir = 0; dir < MazeTables.NUM_DIRS; dir++) {
+					if (tables.neighbour(from, dir) == -1) {
+						assertEquals(-1, tables.junctionDistance(from, dir, from));
+					} else {
+						int ahead = tables.nextJunction(from, dir);
+						// The junction ahead is reached first in this direction
+						assertEquals(tables.nextJunctionDistance(from, dir), tables.junctionDistance(from, dir, ahead));
+					}
+				}
+			}
+		}
+	}
+}